@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.equinox.console.telnet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.felix.service.command.CommandProcessor;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TelnetChannelServerTests {
+
+	private static final String HOST = "localhost";
+	private static final int PORT = 38889;
+	private static final int READ_TIMEOUT = 10000;
+	private static final long IDLE_TIMEOUT = 1000;
+	private static final String TOO_MANY_CONNECTIONS = "Too many telnet connections";
+
+	private TelnetChannelServer telnetServer;
+
+	@After
+	public void tearDown() {
+		if (telnetServer != null) {
+			telnetServer.stopTelnetServer();
+		}
+	}
+
+	@Test
+	public void testConnectionLimit() throws Exception {
+		startServer(2, 0);
+
+		try (Socket first = connect(); Socket second = connect()) {
+			// both clients are served, the negotiation is sent to them
+			Assert.assertTrue("First client not served", first.getInputStream().read() >= 0);
+			Assert.assertTrue("Second client not served", second.getInputStream().read() >= 0);
+
+			try (Socket third = connect()) {
+				String output = readAll(third.getInputStream());
+				Assert.assertTrue("Client over the limit not turned away: " + output, output.contains(TOO_MANY_CONNECTIONS));
+			}
+		}
+
+		// the connections of the clients which disconnected are released
+		try (Socket client = connectAccepted()) {
+			Assert.assertNotNull("Client not accepted after the others disconnected", client);
+		}
+	}
+
+	@Test
+	public void testIdleTimeout() throws Exception {
+		startServer(2, IDLE_TIMEOUT);
+
+		try (Socket client = connect()) {
+			long start = System.currentTimeMillis();
+			readAll(client.getInputStream());
+			long disconnected = System.currentTimeMillis() - start;
+			Assert.assertTrue("Idle client disconnected too early: " + disconnected, disconnected >= IDLE_TIMEOUT);
+		}
+	}
+
+	@Test
+	public void testActiveClientKept() throws Exception {
+		startServer(2, IDLE_TIMEOUT);
+
+		try (Socket client = connect()) {
+			client.setSoTimeout((int) IDLE_TIMEOUT / 4);
+			InputStream in = client.getInputStream();
+			OutputStream out = client.getOutputStream();
+			long end = System.currentTimeMillis() + 3 * IDLE_TIMEOUT;
+			while (System.currentTimeMillis() < end) {
+				out.write('a');
+				out.flush();
+				try {
+					Assert.assertTrue("Active client disconnected", drain(in) >= 0);
+				} catch (SocketTimeoutException e) {
+					// nothing to read
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testNoIdleTimeout() throws Exception {
+		startServer(2, 0);
+
+		try (Socket client = connect()) {
+			client.setSoTimeout((int) (3 * IDLE_TIMEOUT));
+			InputStream in = client.getInputStream();
+			try {
+				while (drain(in) >= 0) {
+					// read the negotiation
+				}
+				Assert.fail("Client disconnected without an idle timeout");
+			} catch (SocketTimeoutException e) {
+				// still connected
+			}
+		}
+	}
+
+	private void startServer(int maxConnections, long idleTimeout) throws IOException {
+		CommandProcessor processor = EasyMock.createNiceMock(CommandProcessor.class);
+		EasyMock.replay(processor);
+		List<CommandProcessor> processors = new ArrayList<>();
+		processors.add(processor);
+		telnetServer = new TelnetChannelServer(null, processors, HOST, PORT, maxConnections, idleTimeout);
+		telnetServer.start();
+	}
+
+	private static Socket connect() throws IOException {
+		Socket socket = new Socket(HOST, PORT);
+		socket.setSoTimeout(READ_TIMEOUT);
+		return socket;
+	}
+
+	/*
+	 * The server notices the disconnected clients when it reads from them, so a
+	 * new client may be turned away for a short while.
+	 */
+	private static Socket connectAccepted() throws Exception {
+		long end = System.currentTimeMillis() + READ_TIMEOUT;
+		while (System.currentTimeMillis() < end) {
+			Socket socket = connect();
+			byte[] buffer = new byte[TOO_MANY_CONNECTIONS.length()];
+			int count = socket.getInputStream().read(buffer);
+			if (count > 0 && !new String(buffer, 0, count).startsWith(TOO_MANY_CONNECTIONS.substring(0, count))) {
+				return socket;
+			}
+			socket.close();
+			Thread.sleep(100);
+		}
+		return null;
+	}
+
+	private static int drain(InputStream in) throws IOException {
+		byte[] buffer = new byte[1024];
+		return in.read(buffer);
+	}
+
+	private static String readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1024];
+		int count;
+		while ((count = in.read(buffer)) >= 0) {
+			result.write(buffer, 0, count);
+		}
+		return result.toString();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011, 2012 SAP AG
+ * Copyright (c) 2011, 2018 SAP AG and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -29,14 +29,27 @@ public class TelnetCommandTests {
 	private static final int TEST_CONTENT = 100;
 	private static final String TELNET_PORT_PROP_NAME = "osgi.console";
 	private static final String USE_CONFIG_ADMIN_PROP = "osgi.console.useConfigAdmin";
+	private static final String MAX_CONNECTIONS_PROP = "osgi.console.telnet.maxConnections";
+	private static final String IDLE_TIMEOUT_PROP = "osgi.console.telnet.idleTimeout";
+	private static final String THREAD_PER_CONNECTION_PROP = "osgi.console.telnet.threadPerConnection";
 	private static final String STOP_COMMAND = "stop";
 	private static final String HOST = "localhost";
 	private static final String FALSE = "false";
+	private static final String TRUE = "true";
 	private static final int TELNET_PORT = 2223;
 	private static final long WAIT_TIME = 5000;
 	
 	@Test
 	public void testTelnetCommand() throws Exception {
+		testTelnetCommand(FALSE);
+	}
+
+	@Test
+	public void testTelnetCommandThreadPerConnection() throws Exception {
+		testTelnetCommand(TRUE);
+	}
+
+	private void testTelnetCommand(String threadPerConnection) throws Exception {
 		try (CommandSession session = EasyMock.createMock(CommandSession.class)) {
     	session.put((String)EasyMock.anyObject(), EasyMock.anyObject());
         EasyMock.expectLastCall().times(3);
@@ -52,6 +65,9 @@ public class TelnetCommandTests {
         BundleContext context = EasyMock.createMock(BundleContext.class);
         EasyMock.expect(context.getProperty(USE_CONFIG_ADMIN_PROP)).andReturn(FALSE);
         EasyMock.expect(context.getProperty(TELNET_PORT_PROP_NAME)).andReturn(Integer.toString(TELNET_PORT));
+        EasyMock.expect(context.getProperty(MAX_CONNECTIONS_PROP)).andReturn(null);
+        EasyMock.expect(context.getProperty(IDLE_TIMEOUT_PROP)).andReturn(null);
+        EasyMock.expect(context.getProperty(THREAD_PER_CONNECTION_PROP)).andReturn(threadPerConnection);
         EasyMock.expect(context.registerService((String)EasyMock.anyObject(), EasyMock.anyObject(), (Dictionary<String, ?>)EasyMock.anyObject())).andReturn(null);
         EasyMock.replay(context);
         
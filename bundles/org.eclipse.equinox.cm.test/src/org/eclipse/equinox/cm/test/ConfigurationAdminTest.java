@@ -12,8 +12,10 @@ package org.eclipse.equinox.cm.test;
 
 import static org.junit.Assert.*;
 
+import java.io.*;
 import java.util.Dictionary;
 import java.util.Hashtable;
+import java.util.Vector;
 import org.junit.*;
 import org.osgi.framework.Constants;
 import org.osgi.framework.ServiceReference;
@@ -264,4 +266,85 @@ public class ConfigurationAdminTest {
 		config = cm.getConfiguration(pid);
 		assertNull(config.getProperties());
 	}
+
+	@Test
+	public void testPersistentConfigValueTypes() throws Exception {
+		Configuration config = cm.getConfiguration("test");
+		Dictionary<String, Object> props = new Hashtable<String, Object>();
+		props.put("string", "testvalue");
+		props.put("integer", Integer.valueOf(1));
+		props.put("long", Long.valueOf(Long.MAX_VALUE));
+		props.put("double", Double.valueOf(1.5));
+		props.put("character", Character.valueOf('c'));
+		props.put("boolean", Boolean.TRUE);
+		props.put("intArray", new int[] {1, 2, 3});
+		props.put("stringArray", new String[] {"a", "b"});
+		Vector<Object> vector = new Vector<Object>();
+		vector.add("a");
+		vector.add(Short.valueOf((short) 2));
+		props.put("vector", vector);
+		config.update(props);
+		tearDown();
+		setUp();
+		config = cm.getConfiguration("test");
+		try {
+			Dictionary<String, Object> restored = config.getProperties();
+			assertEquals("testvalue", restored.get("string"));
+			assertEquals(Integer.valueOf(1), restored.get("integer"));
+			assertEquals(Long.valueOf(Long.MAX_VALUE), restored.get("long"));
+			assertEquals(Double.valueOf(1.5), restored.get("double"));
+			assertEquals(Character.valueOf('c'), restored.get("character"));
+			assertEquals(Boolean.TRUE, restored.get("boolean"));
+			assertArrayEquals(new int[] {1, 2, 3}, (int[]) restored.get("intArray"));
+			assertArrayEquals(new String[] {"a", "b"}, (String[]) restored.get("stringArray"));
+			assertEquals(vector, restored.get("vector"));
+		} finally {
+			config.delete();
+		}
+	}
+
+	@Test
+	public void testLegacyConfigFileMigrated() throws Exception {
+		File store = Activator.getBundle("org.eclipse.equinox.cm").getBundleContext().getDataFile("store");
+		tearDown();
+		// a file as written with Java serialization by earlier versions
+		Hashtable<String, Object> legacy = new Hashtable<String, Object>();
+		legacy.put(Constants.SERVICE_PID, "legacy");
+		legacy.put("string", "testvalue");
+		legacy.put("integer", Integer.valueOf(1));
+		legacy.put("stringArray", new String[] {"a", "b"});
+		File legacyFile = new File(store, "legacy.cfg");
+		ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(legacyFile));
+		try {
+			out.writeObject(legacy);
+		} finally {
+			out.close();
+		}
+		setUp();
+		Configuration config = cm.getConfiguration("legacy");
+		try {
+			assertLegacyProperties(config.getProperties());
+			File migrated = new File(store, "legacy.cfg.1");
+			assertTrue("Not migrated", migrated.isFile());
+			DataInputStream in = new DataInputStream(new FileInputStream(migrated));
+			try {
+				assertTrue("Still serialized", in.readUnsignedShort() != ObjectStreamConstants.STREAM_MAGIC);
+			} finally {
+				in.close();
+			}
+			tearDown();
+			setUp();
+			config = cm.getConfiguration("legacy");
+			assertLegacyProperties(config.getProperties());
+		} finally {
+			config.delete();
+		}
+	}
+
+	private void assertLegacyProperties(Dictionary<String, Object> properties) {
+		assertNotNull(properties);
+		assertEquals("testvalue", properties.get("string"));
+		assertEquals(Integer.valueOf(1), properties.get("integer"));
+		assertArrayEquals(new String[] {"a", "b"}, (String[]) properties.get("stringArray"));
+	}
 }
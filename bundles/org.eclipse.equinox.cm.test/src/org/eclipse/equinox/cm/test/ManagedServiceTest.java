@@ -89,6 +89,60 @@ public class ManagedServiceTest {
 		config.delete();
 	}
 
+	@Test
+	public void testSlowManagedServiceDoesNotBlockOthers() throws Exception {
+		final Object slowLock = new Object();
+		final boolean[] slowReleased = new boolean[1];
+		ManagedService slow = new ManagedService() {
+
+			public void updated(Dictionary<String, ?> properties) {
+				synchronized (slowLock) {
+					long end = System.currentTimeMillis() + 10000;
+					while (!slowReleased[0] && System.currentTimeMillis() < end) {
+						try {
+							slowLock.wait(end - System.currentTimeMillis());
+						} catch (InterruptedException e) {
+							return;
+						}
+					}
+				}
+			}
+		};
+		ManagedService fast = new ManagedService() {
+
+			public void updated(Dictionary<String, ?> properties) {
+				synchronized (lock) {
+					locked = false;
+					lock.notify();
+				}
+			}
+		};
+
+		Dictionary<String, Object> slowDict = new Hashtable<String, Object>();
+		slowDict.put(Constants.SERVICE_PID, "slow");
+		Dictionary<String, Object> fastDict = new Hashtable<String, Object>();
+		fastDict.put(Constants.SERVICE_PID, "fast");
+		ServiceRegistration<ManagedService> slowReg = Activator.getBundleContext().registerService(ManagedService.class, slow, slowDict);
+		ServiceRegistration<ManagedService> fastReg = null;
+		try {
+			synchronized (lock) {
+				locked = true;
+				fastReg = Activator.getBundleContext().registerService(ManagedService.class, fast, fastDict);
+				lock.wait(5000);
+				if (locked)
+					fail("should have updated while the slow service is still blocked");
+			}
+		} finally {
+			synchronized (slowLock) {
+				slowReleased[0] = true;
+				slowLock.notifyAll();
+			}
+			slowReg.unregister();
+			if (fastReg != null)
+				fastReg.unregister();
+		}
+	}
+
 	@Test
 	public void testBug374637() throws Exception {
 
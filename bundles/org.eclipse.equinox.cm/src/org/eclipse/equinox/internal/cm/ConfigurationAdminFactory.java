@@ -37,8 +37,8 @@ public class ConfigurationAdminFactory implements ServiceFactory<ConfigurationAd
 		configurationStore = new ConfigurationStore(this, context);
 		eventDispatcher = new EventDispatcher(context, log);
 		pluginManager = new PluginManager(context);
-		managedServiceTracker = new ManagedServiceTracker(this, configurationStore, context);
-		managedServiceFactoryTracker = new ManagedServiceFactoryTracker(this, configurationStore, context);
+		managedServiceTracker = new ManagedServiceTracker(this, configurationStore, context, new OrderedTaskExecutor("ManagedService Update Queue", log)); //$NON-NLS-1$
+		managedServiceFactoryTracker = new ManagedServiceFactoryTracker(this, configurationStore, context, new OrderedTaskExecutor("ManagedServiceFactory Update Queue", log)); //$NON-NLS-1$
 	}
 
 	void start() {
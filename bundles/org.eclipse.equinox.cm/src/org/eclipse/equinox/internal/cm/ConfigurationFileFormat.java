@@ -0,0 +1,447 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.cm;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * ConfigurationFileFormat reads and writes configuration dictionaries in a compact, versioned
+ * binary format. Only the value types allowed by the Configuration Admin specification are
+ * supported: the simple wrapper types, arrays of simples or primitives, and Vectors or
+ * ArrayLists of simples.
+ * <p>
+ * Files written with Java serialization by earlier versions are recognized by their stream
+ * header; {@link #isBinaryFormat(InputStream)} lets the store decide how to read them.
+ */
+class ConfigurationFileFormat {
+	static final int MAGIC = 0x45434d46; // "ECMF"
+	static final byte VERSION = 1;
+
+	private static final byte TYPE_STRING = 1;
+	private static final byte TYPE_INTEGER = 2;
+	private static final byte TYPE_LONG = 3;
+	private static final byte TYPE_FLOAT = 4;
+	private static final byte TYPE_DOUBLE = 5;
+	private static final byte TYPE_BYTE = 6;
+	private static final byte TYPE_SHORT = 7;
+	private static final byte TYPE_CHARACTER = 8;
+	private static final byte TYPE_BOOLEAN = 9;
+
+	private static final byte TYPE_ARRAY = 0x20; // followed by the element type, or'ed with TYPE_PRIMITIVE for primitive arrays
+	private static final byte TYPE_PRIMITIVE = 0x40;
+	private static final byte TYPE_VECTOR = 0x10;
+	private static final byte TYPE_ARRAY_LIST = 0x11;
+	private static final byte TYPE_NULL = 0;
+
+	private static final String UTF_8 = "UTF-8"; //$NON-NLS-1$
+
+	private ConfigurationFileFormat() {
+		// no instances
+	}
+
+	/**
+	 * Checks the stream header without consuming it.  The stream must support mark/reset.
+	 */
+	static boolean isBinaryFormat(InputStream in) throws IOException {
+		in.mark(4);
+		try {
+			DataInputStream din = new DataInputStream(in);
+			return din.readInt() == MAGIC;
+		} catch (EOFException e) {
+			return false;
+		} finally {
+			in.reset();
+		}
+	}
+
+	/**
+	 * Returns true if every value of the dictionary can be written with this format.
+	 */
+	static boolean isSupported(Dictionary<String, Object> dictionary) {
+		for (Enumeration<Object> values = dictionary.elements(); values.hasMoreElements();) {
+			if (typeOf(values.nextElement()) < 0)
+				return false;
+		}
+		return true;
+	}
+
+	static void write(Dictionary<String, Object> dictionary, OutputStream out) throws IOException {
+		DataOutputStream dout = new DataOutputStream(out);
+		dout.writeInt(MAGIC);
+		dout.writeByte(VERSION);
+		dout.writeInt(dictionary.size());
+		for (Enumeration<String> keys = dictionary.keys(); keys.hasMoreElements();) {
+			String key = keys.nextElement();
+			writeString(dout, key);
+			writeValue(dout, dictionary.get(key));
+		}
+		dout.flush();
+	}
+
+	static ConfigurationDictionary read(InputStream in) throws IOException {
+		DataInputStream din = new DataInputStream(in);
+		if (din.readInt() != MAGIC)
+			throw new IOException("Not a configuration file"); //$NON-NLS-1$
+		byte version = din.readByte();
+		if (version != VERSION)
+			throw new IOException("Unsupported configuration file version: " + version); //$NON-NLS-1$
+		int size = din.readInt();
+		ConfigurationDictionary dictionary = new ConfigurationDictionary();
+		for (int i = 0; i < size; i++) {
+			String key = readString(din);
+			dictionary.configurationProperties.put(key, readValue(din));
+		}
+		return dictionary;
+	}
+
+	private static int typeOf(Object value) {
+		int simpleType = simpleTypeOf(value.getClass());
+		if (simpleType > 0)
+			return simpleType;
+		Class<?> clazz = value.getClass();
+		if (clazz.isArray()) {
+			Class<?> componentType = clazz.getComponentType();
+			if (componentType.isPrimitive()) {
+				int primitiveType = primitiveTypeOf(componentType);
+				return primitiveType < 0 ? -1 : TYPE_ARRAY | TYPE_PRIMITIVE | primitiveType;
+			}
+			int elementType = simpleTypeOf(componentType);
+			return elementType < 0 ? -1 : TYPE_ARRAY | elementType;
+		}
+		if (clazz == Vector.class || clazz == ArrayList.class) {
+			for (Object element : (Collection<?>) value) {
+				if (element != null && simpleTypeOf(element.getClass()) < 0)
+					return -1;
+			}
+			return clazz == Vector.class ? TYPE_VECTOR : TYPE_ARRAY_LIST;
+		}
+		return -1;
+	}
+
+	private static int simpleTypeOf(Class<?> clazz) {
+		if (clazz == String.class)
+			return TYPE_STRING;
+		if (clazz == Integer.class)
+			return TYPE_INTEGER;
+		if (clazz == Long.class)
+			return TYPE_LONG;
+		if (clazz == Float.class)
+			return TYPE_FLOAT;
+		if (clazz == Double.class)
+			return TYPE_DOUBLE;
+		if (clazz == Byte.class)
+			return TYPE_BYTE;
+		if (clazz == Short.class)
+			return TYPE_SHORT;
+		if (clazz == Character.class)
+			return TYPE_CHARACTER;
+		if (clazz == Boolean.class)
+			return TYPE_BOOLEAN;
+		return -1;
+	}
+
+	private static int primitiveTypeOf(Class<?> clazz) {
+		if (clazz == Integer.TYPE)
+			return TYPE_INTEGER;
+		if (clazz == Long.TYPE)
+			return TYPE_LONG;
+		if (clazz == Float.TYPE)
+			return TYPE_FLOAT;
+		if (clazz == Double.TYPE)
+			return TYPE_DOUBLE;
+		if (clazz == Byte.TYPE)
+			return TYPE_BYTE;
+		if (clazz == Short.TYPE)
+			return TYPE_SHORT;
+		if (clazz == Character.TYPE)
+			return TYPE_CHARACTER;
+		if (clazz == Boolean.TYPE)
+			return TYPE_BOOLEAN;
+		return -1;
+	}
+
+	private static void writeValue(DataOutputStream out, Object value) throws IOException {
+		int type = typeOf(value);
+		if (type < 0)
+			throw new NotSerializableException(value.getClass().getName());
+		out.writeByte(type);
+		if ((type & TYPE_ARRAY) != 0) {
+			int elementType = type & 0x0f;
+			if ((type & TYPE_PRIMITIVE) != 0) {
+				writePrimitiveArray(out, elementType, value);
+			} else {
+				Object[] array = (Object[]) value;
+				out.writeInt(array.length);
+				for (int i = 0; i < array.length; i++)
+					writeNullableSimple(out, array[i]);
+			}
+		} else if (type == TYPE_VECTOR || type == TYPE_ARRAY_LIST) {
+			Collection<?> collection = (Collection<?>) value;
+			out.writeInt(collection.size());
+			for (Object element : collection)
+				writeNullableSimple(out, element);
+		} else {
+			writeSimple(out, type, value);
+		}
+	}
+
+	private static Object readValue(DataInputStream in) throws IOException {
+		int type = in.readByte();
+		if ((type & TYPE_ARRAY) != 0) {
+			int elementType = type & 0x0f;
+			if ((type & TYPE_PRIMITIVE) != 0)
+				return readPrimitiveArray(in, elementType);
+			int length = in.readInt();
+			Object[] array = newSimpleArray(elementType, length);
+			for (int i = 0; i < length; i++)
+				array[i] = readNullableSimple(in);
+			return array;
+		}
+		if (type == TYPE_VECTOR || type == TYPE_ARRAY_LIST) {
+			int length = in.readInt();
+			Collection<Object> collection = type == TYPE_VECTOR ? new Vector<Object>(length) : new ArrayList<Object>(length);
+			for (int i = 0; i < length; i++)
+				collection.add(readNullableSimple(in));
+			return collection;
+		}
+		return readSimple(in, type);
+	}
+
+	private static void writeNullableSimple(DataOutputStream out, Object value) throws IOException {
+		if (value == null) {
+			out.writeByte(TYPE_NULL);
+			return;
+		}
+		int type = simpleTypeOf(value.getClass());
+		out.writeByte(type);
+		writeSimple(out, type, value);
+	}
+
+	private static Object readNullableSimple(DataInputStream in) throws IOException {
+		int type = in.readByte();
+		return type == TYPE_NULL ? null : readSimple(in, type);
+	}
+
+	private static void writeSimple(DataOutputStream out, int type, Object value) throws IOException {
+		switch (type) {
+			case TYPE_STRING :
+				writeString(out, (String) value);
+				break;
+			case TYPE_INTEGER :
+				out.writeInt(((Integer) value).intValue());
+				break;
+			case TYPE_LONG :
+				out.writeLong(((Long) value).longValue());
+				break;
+			case TYPE_FLOAT :
+				out.writeFloat(((Float) value).floatValue());
+				break;
+			case TYPE_DOUBLE :
+				out.writeDouble(((Double) value).doubleValue());
+				break;
+			case TYPE_BYTE :
+				out.writeByte(((Byte) value).byteValue());
+				break;
+			case TYPE_SHORT :
+				out.writeShort(((Short) value).shortValue());
+				break;
+			case TYPE_CHARACTER :
+				out.writeChar(((Character) value).charValue());
+				break;
+			case TYPE_BOOLEAN :
+				out.writeBoolean(((Boolean) value).booleanValue());
+				break;
+			default :
+				throw new NotSerializableException(value.getClass().getName());
+		}
+	}
+
+	private static Object readSimple(DataInputStream in, int type) throws IOException {
+		switch (type) {
+			case TYPE_STRING :
+				return readString(in);
+			case TYPE_INTEGER :
+				return Integer.valueOf(in.readInt());
+			case TYPE_LONG :
+				return Long.valueOf(in.readLong());
+			case TYPE_FLOAT :
+				return Float.valueOf(in.readFloat());
+			case TYPE_DOUBLE :
+				return Double.valueOf(in.readDouble());
+			case TYPE_BYTE :
+				return Byte.valueOf(in.readByte());
+			case TYPE_SHORT :
+				return Short.valueOf(in.readShort());
+			case TYPE_CHARACTER :
+				return Character.valueOf(in.readChar());
+			case TYPE_BOOLEAN :
+				return Boolean.valueOf(in.readBoolean());
+			default :
+				throw new IOException("Unknown value type: " + type); //$NON-NLS-1$
+		}
+	}
+
+	private static Object[] newSimpleArray(int elementType, int length) throws IOException {
+		switch (elementType) {
+			case TYPE_STRING :
+				return new String[length];
+			case TYPE_INTEGER :
+				return new Integer[length];
+			case TYPE_LONG :
+				return new Long[length];
+			case TYPE_FLOAT :
+				return new Float[length];
+			case TYPE_DOUBLE :
+				return new Double[length];
+			case TYPE_BYTE :
+				return new Byte[length];
+			case TYPE_SHORT :
+				return new Short[length];
+			case TYPE_CHARACTER :
+				return new Character[length];
+			case TYPE_BOOLEAN :
+				return new Boolean[length];
+			default :
+				throw new IOException("Unknown array type: " + elementType); //$NON-NLS-1$
+		}
+	}
+
+	private static void writePrimitiveArray(DataOutputStream out, int elementType, Object value) throws IOException {
+		switch (elementType) {
+			case TYPE_INTEGER : {
+				int[] array = (int[]) value;
+				out.writeInt(array.length);
+				for (int i = 0; i < array.length; i++)
+					out.writeInt(array[i]);
+				break;
+			}
+			case TYPE_LONG : {
+				long[] array = (long[]) value;
+				out.writeInt(array.length);
+				for (int i = 0; i < array.length; i++)
+					out.writeLong(array[i]);
+				break;
+			}
+			case TYPE_FLOAT : {
+				float[] array = (float[]) value;
+				out.writeInt(array.length);
+				for (int i = 0; i < array.length; i++)
+					out.writeFloat(array[i]);
+				break;
+			}
+			case TYPE_DOUBLE : {
+				double[] array = (double[]) value;
+				out.writeInt(array.length);
+				for (int i = 0; i < array.length; i++)
+					out.writeDouble(array[i]);
+				break;
+			}
+			case TYPE_BYTE : {
+				byte[] array = (byte[]) value;
+				out.writeInt(array.length);
+				out.write(array);
+				break;
+			}
+			case TYPE_SHORT : {
+				short[] array = (short[]) value;
+				out.writeInt(array.length);
+				for (int i = 0; i < array.length; i++)
+					out.writeShort(array[i]);
+				break;
+			}
+			case TYPE_CHARACTER : {
+				char[] array = (char[]) value;
+				out.writeInt(array.length);
+				for (int i = 0; i < array.length; i++)
+					out.writeChar(array[i]);
+				break;
+			}
+			case TYPE_BOOLEAN : {
+				boolean[] array = (boolean[]) value;
+				out.writeInt(array.length);
+				for (int i = 0; i < array.length; i++)
+					out.writeBoolean(array[i]);
+				break;
+			}
+			default :
+				throw new NotSerializableException(value.getClass().getName());
+		}
+	}
+
+	private static Object readPrimitiveArray(DataInputStream in, int elementType) throws IOException {
+		int length = in.readInt();
+		switch (elementType) {
+			case TYPE_INTEGER : {
+				int[] array = new int[length];
+				for (int i = 0; i < length; i++)
+					array[i] = in.readInt();
+				return array;
+			}
+			case TYPE_LONG : {
+				long[] array = new long[length];
+				for (int i = 0; i < length; i++)
+					array[i] = in.readLong();
+				return array;
+			}
+			case TYPE_FLOAT : {
+				float[] array = new float[length];
+				for (int i = 0; i < length; i++)
+					array[i] = in.readFloat();
+				return array;
+			}
+			case TYPE_DOUBLE : {
+				double[] array = new double[length];
+				for (int i = 0; i < length; i++)
+					array[i] = in.readDouble();
+				return array;
+			}
+			case TYPE_BYTE : {
+				byte[] array = new byte[length];
+				in.readFully(array);
+				return array;
+			}
+			case TYPE_SHORT : {
+				short[] array = new short[length];
+				for (int i = 0; i < length; i++)
+					array[i] = in.readShort();
+				return array;
+			}
+			case TYPE_CHARACTER : {
+				char[] array = new char[length];
+				for (int i = 0; i < length; i++)
+					array[i] = in.readChar();
+				return array;
+			}
+			case TYPE_BOOLEAN : {
+				boolean[] array = new boolean[length];
+				for (int i = 0; i < length; i++)
+					array[i] = in.readBoolean();
+				return array;
+			}
+			default :
+				throw new IOException("Unknown array type: " + elementType); //$NON-NLS-1$
+		}
+	}
+
+	// writeUTF is limited to 64k, configuration values are not
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, UTF_8);
+	}
+}
@@ -14,6 +14,7 @@ package org.eclipse.equinox.internal.cm;
 import java.io.*;
 import java.security.*;
 import java.util.*;
+import java.util.concurrent.*;
 import org.eclipse.equinox.internal.cm.reliablefile.*;
 import org.osgi.framework.*;
 import org.osgi.service.cm.ConfigurationAdmin;
@@ -21,8 +22,9 @@ import org.osgi.service.log.LogService;
 
 /**
  * ConfigurationStore manages all active configurations along with persistence. The current
- * implementation uses a filestore and serialization of the configuration dictionaries to files
- * identified by their pid. Persistence details are in the constructor, saveConfiguration, and
+ * implementation uses a filestore with one file per configuration written in the binary
+ * {@link ConfigurationFileFormat}. Files are loaded in parallel at startup and files written
+ * with Java serialization by earlier versions are migrated as they are read. Persistence details are in the constructor, saveConfiguration, and
  * deleteConfiguration and can be factored out separately if required.
  */
 class ConfigurationStore {
@@ -35,66 +37,127 @@ class ConfigurationStore {
 	private int createdPidCount = 0;
 	private final File store;
 
-	public ConfigurationStore(ConfigurationAdminFactory configurationAdminFactory, BundleContext context) {
+	public ConfigurationStore(ConfigurationAdminFactory configurationAdminFactory, final BundleContext context) {
 		this.configurationAdminFactory = configurationAdminFactory;
 		store = context.getDataFile(STORE_DIR);
 		if (store == null)
 			return; // no persistent store
 
 		store.mkdir();
-		File[] configurationFiles = store.listFiles();
-		for (int i = 0; i < configurationFiles.length; ++i) {
-			String configurationFileName = configurationFiles[i].getName();
-			if (!configurationFileName.endsWith(CFG_EXT))
-				continue;
-
-			InputStream ris = null;
-			ObjectInputStream ois = null;
-			boolean deleteFile = false;
-			try {
-				ris = new ReliableFileInputStream(configurationFiles[i]);
-				ois = new ObjectInputStream(ris);
-				@SuppressWarnings("unchecked")
-				Dictionary<String, Object> dictionary = (Dictionary<String, Object>) ois.readObject();
-				// before adding, make sure the bundle exists if the location is set
-				String location = (String) dictionary.get(ConfigurationAdmin.SERVICE_BUNDLELOCATION);
-				if (location != null && context.getBundle(location) == null) {
-					Boolean boundProp = (Boolean) dictionary.remove(ConfigurationImpl.LOCATION_BOUND);
-					if (boundProp != null && boundProp.booleanValue()) {
-						dictionary.remove(ConfigurationAdmin.SERVICE_BUNDLELOCATION);
+		List<File> configurationFiles = new ArrayList<File>();
+		for (File configurationFile : store.listFiles()) {
+			if (configurationFile.getName().endsWith(CFG_EXT))
+				configurationFiles.add(configurationFile);
+		}
+		if (configurationFiles.isEmpty())
+			return;
+
+		int loaderCount = Math.min(configurationFiles.size(), Runtime.getRuntime().availableProcessors());
+		if (loaderCount <= 1) {
+			for (File configurationFile : configurationFiles)
+				addLoadedConfiguration(readConfiguration(configurationFile, context));
+			return;
+		}
+
+		ExecutorService loaders = Executors.newFixedThreadPool(loaderCount, new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "CM Configuration Loader"); //$NON-NLS-1$
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		try {
+			List<Future<ConfigurationImpl>> results = new ArrayList<Future<ConfigurationImpl>>(configurationFiles.size());
+			for (final File configurationFile : configurationFiles) {
+				results.add(loaders.submit(new Callable<ConfigurationImpl>() {
+					public ConfigurationImpl call() {
+						return readConfiguration(configurationFile, context);
 					}
+				}));
+			}
+			for (Future<ConfigurationImpl> result : results) {
+				try {
+					addLoadedConfiguration(result.get());
+				} catch (ExecutionException e) {
+					configurationAdminFactory.log(LogService.LOG_ERROR, e.getMessage(), e.getCause());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
 				}
-				ConfigurationImpl config = new ConfigurationImpl(configurationAdminFactory, this, dictionary, configurationFiles[i]);
-				configurations.put(config.getPid(), config);
-			} catch (IOException e) {
-				String message = e.getMessage();
-				String pid = configurationFileName.substring(0, configurationFileName.length() - 4);
-				String errorMessage = "{Configuration Admin - pid = " + pid + "} could not be restored." + ((message == null) ? "" : " " + message); //$NON-NLS-1$//$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
-				configurationAdminFactory.log(LogService.LOG_ERROR, errorMessage);
-				deleteFile = true;
-			} catch (ClassNotFoundException e) {
-				configurationAdminFactory.log(LogService.LOG_ERROR, e.getMessage());
-			} finally {
-				if (ois != null) {
-					try {
-						ois.close();
-					} catch (IOException e) {
-						// ignore 
-					}
+			}
+		} finally {
+			loaders.shutdown();
+		}
+	}
+
+	private synchronized void addLoadedConfiguration(ConfigurationImpl config) {
+		if (config != null)
+			configurations.put(config.getPid(), config);
+	}
+
+	/*
+	 * Reads a single configuration file. Files written with Java serialization by earlier
+	 * versions are rewritten in the binary format once they have been read successfully.
+	 * Returns null if the file could not be restored.
+	 */
+	ConfigurationImpl readConfiguration(File configurationFile, BundleContext context) {
+		String configurationFileName = configurationFile.getName();
+		InputStream ris = null;
+		boolean deleteFile = false;
+		ConfigurationImpl config = null;
+		try {
+			boolean migrate = false;
+			ris = new BufferedInputStream(new ReliableFileInputStream(configurationFile));
+			Dictionary<String, Object> dictionary;
+			if (ConfigurationFileFormat.isBinaryFormat(ris)) {
+				dictionary = ConfigurationFileFormat.read(ris);
+			} else {
+				@SuppressWarnings("unchecked")
+				Dictionary<String, Object> legacy = (Dictionary<String, Object>) new ObjectInputStream(ris).readObject();
+				dictionary = legacy;
+				migrate = true;
+			}
+			if (migrate && ConfigurationFileFormat.isSupported(dictionary)) {
+				// rewrite before the configuration consumes its storage keys
+				ris.close();
+				ris = null;
+				try {
+					writeConfigurationFile(configurationFile, dictionary);
+				} catch (IOException e) {
+					configurationAdminFactory.log(LogService.LOG_WARNING, "Could not migrate configuration file " + configurationFileName, e); //$NON-NLS-1$
 				}
-				if (ris != null) {
-					try {
-						ris.close();
-					} catch (IOException e) {
-						// ignore 
-					}
+			}
+			// before adding, make sure the bundle exists if the location is set
+			String location = (String) dictionary.get(ConfigurationAdmin.SERVICE_BUNDLELOCATION);
+			if (location != null && context.getBundle(location) == null) {
+				Boolean boundProp = (Boolean) dictionary.remove(ConfigurationImpl.LOCATION_BOUND);
+				if (boundProp != null && boundProp.booleanValue()) {
+					dictionary.remove(ConfigurationAdmin.SERVICE_BUNDLELOCATION);
 				}
 			}
-			if (deleteFile) {
-				ReliableFile.delete(configurationFiles[i]);
-				configurationFiles[i].delete();
+			config = new ConfigurationImpl(configurationAdminFactory, this, dictionary, configurationFile);
+		} catch (IOException e) {
+			String message = e.getMessage();
+			String pid = configurationFileName.substring(0, configurationFileName.length() - 4);
+			String errorMessage = "{Configuration Admin - pid = " + pid + "} could not be restored." + ((message == null) ? "" : " " + message); //$NON-NLS-1$//$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+			configurationAdminFactory.log(LogService.LOG_ERROR, errorMessage);
+			deleteFile = true;
+		} catch (ClassNotFoundException e) {
+			configurationAdminFactory.log(LogService.LOG_ERROR, e.getMessage());
+		} finally {
+			if (ris != null) {
+				try {
+					ris.close();
+				} catch (IOException e) {
+					// ignore 
+				}
 			}
 		}
+		if (deleteFile) {
+			ReliableFile.delete(configurationFile);
+			configurationFile.delete();
+		}
+		return config;
 	}
 
 	public Object saveConfiguration(String pid, ConfigurationImpl config, final Object token) throws IOException {
@@ -122,20 +185,18 @@ class ConfigurationStore {
 
 	void writeConfigurationFile(File configFile, Dictionary<String, Object> configProperties) throws IOException {
 		OutputStream ros = null;
-		ObjectOutputStream oos = null;
 		try {
 			configFile.createNewFile();
-			ros = new ReliableFileOutputStream(configFile);
-			oos = new ObjectOutputStream(ros);
-			oos.writeObject(configProperties);
-		} finally {
-			if (oos != null) {
-				try {
-					oos.close();
-				} catch (IOException e) {
-					// ignore 
-				}
+			ros = new BufferedOutputStream(new ReliableFileOutputStream(configFile));
+			if (ConfigurationFileFormat.isSupported(configProperties)) {
+				ConfigurationFileFormat.write(configProperties, ros);
+			} else {
+				// keep Java serialization for collection types the binary format does not know
+				ObjectOutputStream oos = new ObjectOutputStream(ros);
+				oos.writeObject(configProperties);
+				oos.flush();
 			}
+		} finally {
 			if (ros != null) {
 				try {
 					ros.close();
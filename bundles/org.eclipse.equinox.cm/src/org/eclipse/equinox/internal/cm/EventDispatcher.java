@@ -26,13 +26,14 @@ import org.osgi.util.tracker.ServiceTracker;
 public class EventDispatcher {
 	final ServiceTracker<ConfigurationListener, ConfigurationListener> tracker;
 	final ServiceTracker<SynchronousConfigurationListener, SynchronousConfigurationListener> syncTracker;
-	private final SerializedTaskQueue queue = new SerializedTaskQueue("ConfigurationListener Event Queue"); //$NON-NLS-1$
+	private final OrderedTaskExecutor queue;
 	/** @GuardedBy this */
 	private ServiceReference<ConfigurationAdmin> configAdminReference;
 	final LogTracker log;
 
 	public EventDispatcher(BundleContext context, LogTracker log) {
 		this.log = log;
+		this.queue = new OrderedTaskExecutor("ConfigurationListener Event Queue", log); //$NON-NLS-1$
 		tracker = new ServiceTracker<ConfigurationListener, ConfigurationListener>(context, ConfigurationListener.class, null);
 		syncTracker = new ServiceTracker<SynchronousConfigurationListener, SynchronousConfigurationListener>(context, SynchronousConfigurationListener.class, null);
 	}
@@ -79,7 +80,7 @@ public class EventDispatcher {
 
 		for (int i = 0; i < refs.length; ++i) {
 			final ServiceReference<ConfigurationListener> ref = refs[i];
-			queue.put(new Runnable() {
+			queue.put(ref, new Runnable() {
 				public void run() {
 					ConfigurationListener listener = tracker.getService(ref);
 					if (listener == null) {
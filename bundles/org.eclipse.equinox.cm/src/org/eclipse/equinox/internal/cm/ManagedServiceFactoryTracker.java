@@ -29,12 +29,13 @@ class ManagedServiceFactoryTracker extends ServiceTracker<ManagedServiceFactory,
 	/** @GuardedBy targets*/
 	private final TargetMap targets = new TargetMap();
 
-	private final SerializedTaskQueue queue = new SerializedTaskQueue("ManagedServiceFactory Update Queue"); //$NON-NLS-1$
+	private final OrderedTaskExecutor queue;
 
-	public ManagedServiceFactoryTracker(ConfigurationAdminFactory configurationAdminFactory, ConfigurationStore configurationStore, BundleContext context) {
+	public ManagedServiceFactoryTracker(ConfigurationAdminFactory configurationAdminFactory, ConfigurationStore configurationStore, BundleContext context, OrderedTaskExecutor queue) {
 		super(context, ManagedServiceFactory.class.getName(), null);
 		this.configurationAdminFactory = configurationAdminFactory;
 		this.configurationStore = configurationStore;
+		this.queue = queue;
 	}
 
 	void notifyDeleted(ConfigurationImpl config) {
@@ -258,7 +259,7 @@ class ManagedServiceFactoryTracker extends ServiceTracker<ManagedServiceFactory,
 	}
 
 	private void asynchDeleted(final ManagedServiceFactory service, final String pid) {
-		queue.put(new Runnable() {
+		queue.put(service, new Runnable() {
 			public void run() {
 				try {
 					service.deleted(pid);
@@ -273,7 +274,7 @@ class ManagedServiceFactoryTracker extends ServiceTracker<ManagedServiceFactory,
 		if (properties == null) {
 			return;
 		}
-		queue.put(new Runnable() {
+		queue.put(service, new Runnable() {
 			public void run() {
 				try {
 					service.updated(pid, properties);
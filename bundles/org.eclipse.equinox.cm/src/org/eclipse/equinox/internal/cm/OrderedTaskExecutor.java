@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2006, 2018 Cognos Incorporated, IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Cognos Incorporated - initial API and implementation
+ *     IBM Corporation - per target ordering on a bounded pool
+ *******************************************************************************/
+package org.eclipse.equinox.internal.cm;
+
+import java.util.*;
+import org.osgi.service.log.LogService;
+
+/**
+ * OrderedTaskExecutor allows asynchronous execution of tasks that are serialized per target.
+ * Tasks put for the same target are run one at a time in the order they were put, as the
+ * Configuration Admin specification requires for a single ManagedService or listener. Tasks for
+ * different targets run in parallel on a bounded number of threads. Idle threads exit after a
+ * few seconds and are re-created on demand.
+ * <p>
+ * Targets are handed to the threads round robin one task at a time, so a target with a long
+ * backlog cannot starve the others. A task that runs longer than the slow task threshold is
+ * reported to the log together with its target.
+ */
+public class OrderedTaskExecutor {
+
+	static final String PROP_MAX_THREADS = "equinox.cm.dispatch.threads"; //$NON-NLS-1$
+	static final String PROP_SLOW_THRESHOLD = "equinox.cm.dispatch.slowThreshold"; //$NON-NLS-1$
+	private static final int DEFAULT_MAX_THREADS = 4;
+	private static final long DEFAULT_SLOW_THRESHOLD = 5000;
+	private static final int MAX_WAIT = 5000;
+
+	private final String queueName;
+	private final LogTracker log;
+	private final int maxThreads;
+	private final long slowThreshold;
+
+	/** @GuardedBy this */
+	private final Map<Object, TargetQueue> targets = new HashMap<Object, TargetQueue>();
+	/** @GuardedBy this */
+	private final LinkedList<TargetQueue> ready = new LinkedList<TargetQueue>();
+	/** @GuardedBy this */
+	private int threadCount;
+	/** @GuardedBy this */
+	private int idleCount;
+
+	private static class TargetQueue {
+		final Object target;
+		final LinkedList<Runnable> tasks = new LinkedList<Runnable>();
+		/* true while the queue is in the ready list or one of its tasks is running */
+		boolean scheduled;
+
+		TargetQueue(Object target) {
+			this.target = target;
+		}
+	}
+
+	public OrderedTaskExecutor(String queueName, LogTracker log) {
+		this(queueName, log, getIntProperty(PROP_MAX_THREADS, DEFAULT_MAX_THREADS), getIntProperty(PROP_SLOW_THRESHOLD, (int) DEFAULT_SLOW_THRESHOLD));
+	}
+
+	public OrderedTaskExecutor(String queueName, LogTracker log, int maxThreads, long slowThreshold) {
+		this.queueName = queueName;
+		this.log = log;
+		this.maxThreads = Math.max(1, maxThreads);
+		this.slowThreshold = slowThreshold;
+	}
+
+	private static int getIntProperty(String key, int defaultValue) {
+		String value = Activator.getProperty(key);
+		if (value == null)
+			return defaultValue;
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Puts a task that runs after all tasks previously put for the same target.
+	 * @param target the target the task is ordered with, typically the service being called
+	 * @param newTask the task
+	 */
+	public synchronized void put(Object target, Runnable newTask) {
+		TargetQueue queue = targets.get(target);
+		if (queue == null) {
+			queue = new TargetQueue(target);
+			targets.put(target, queue);
+		}
+		queue.tasks.add(newTask);
+		if (!queue.scheduled) {
+			queue.scheduled = true;
+			ready.add(queue);
+			if (ready.size() <= idleCount) {
+				notify();
+			} else if (threadCount < maxThreads) {
+				threadCount++;
+				new Thread(queueName) {
+					public void run() {
+						TargetQueue next = nextTarget(MAX_WAIT);
+						while (next != null) {
+							runTask(next);
+							next = nextTarget(MAX_WAIT);
+						}
+					}
+				}.start();
+			}
+		}
+	}
+
+	synchronized TargetQueue nextTarget(int maxWait) {
+		long end = System.currentTimeMillis() + maxWait;
+		while (ready.isEmpty()) {
+			long remaining = end - System.currentTimeMillis();
+			if (remaining <= 0) {
+				threadCount--;
+				return null;
+			}
+			idleCount++;
+			try {
+				wait(remaining);
+			} catch (InterruptedException e) {
+				// ignore -- we control the stack here and do not need to propagate it.
+			} finally {
+				idleCount--;
+			}
+		}
+		return ready.removeFirst();
+	}
+
+	private void runTask(TargetQueue queue) {
+		Runnable task;
+		synchronized (this) {
+			task = queue.tasks.removeFirst();
+		}
+		long start = System.currentTimeMillis();
+		try {
+			task.run();
+		} catch (Throwable t) {
+			log.log(LogService.LOG_ERROR, t.getMessage(), t);
+		} finally {
+			long elapsed = System.currentTimeMillis() - start;
+			boolean slow = elapsed > slowThreshold;
+			synchronized (this) {
+				if (queue.tasks.isEmpty()) {
+					queue.scheduled = false;
+					targets.remove(queue.target);
+				} else {
+					// go to the end of the line so other targets get their turn
+					ready.add(queue);
+				}
+			}
+			if (slow)
+				log.log(LogService.LOG_WARNING, queueName + ": callback to " + queue.target + " took " + elapsed + " ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+	}
+}
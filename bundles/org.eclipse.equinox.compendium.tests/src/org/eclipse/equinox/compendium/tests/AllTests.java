@@ -15,7 +15,7 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({org.eclipse.equinox.coordinator.tests.AllTests.class, org.eclipse.equinox.event.tests.AllTests.class, org.eclipse.equinox.metatype.tests.AllTests.class, org.eclipse.equinox.useradmin.tests.AllTests.class})
+@SuiteClasses({org.eclipse.equinox.concurrent.tests.AllTests.class, org.eclipse.equinox.coordinator.tests.AllTests.class, org.eclipse.equinox.event.tests.AllTests.class, org.eclipse.equinox.http.registry.tests.AllTests.class, org.eclipse.equinox.log.stream.tests.AllTests.class, org.eclipse.equinox.metatype.tests.AllTests.class, org.eclipse.equinox.transforms.tests.AllTests.class, org.eclipse.equinox.useradmin.tests.AllTests.class, org.eclipse.equinox.util.tests.AllTests.class, org.eclipse.equinox.weaving.tests.AllTests.class, org.eclipse.equinox.wireadmin.tests.AllTests.class})
 public class AllTests {
 	//see @SuiteClasses
 }
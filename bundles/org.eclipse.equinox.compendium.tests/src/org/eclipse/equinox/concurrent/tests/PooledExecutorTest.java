@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * Copyright (c) 2018 EclipseSource and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     EclipseSource - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.concurrent.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.equinox.concurrent.future.IFuture;
+import org.eclipse.equinox.concurrent.future.IListenableFuture;
+import org.eclipse.equinox.concurrent.future.IProgressRunnable;
+import org.eclipse.equinox.concurrent.future.ImmediateExecutor;
+import org.eclipse.equinox.concurrent.future.PooledExecutor;
+import org.junit.After;
+import org.junit.Test;
+
+public class PooledExecutorTest {
+	private static final long TIMEOUT = 10000;
+
+	private final CountDownLatch release = new CountDownLatch(1);
+	private final AtomicInteger running = new AtomicInteger();
+	private final AtomicInteger maxRunning = new AtomicInteger();
+	private PooledExecutor executor;
+
+	@After
+	public void tearDown() {
+		release.countDown();
+		if (executor != null)
+			executor.shutdown();
+	}
+
+	@Test
+	public void testResult() throws Exception {
+		executor = new PooledExecutor(2);
+		IFuture<String> future = executor.execute(new IProgressRunnable<String>() {
+			public String run(IProgressMonitor monitor) {
+				return "result"; //$NON-NLS-1$
+			}
+		}, null);
+		assertEquals("Wrong result", "result", future.get(TIMEOUT)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue("Not ok", future.getStatus().isOK()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testFailure() throws Exception {
+		executor = new PooledExecutor(2);
+		final IllegalStateException failure = new IllegalStateException("expected"); //$NON-NLS-1$
+		IFuture<Object> future = executor.execute(new IProgressRunnable<Object>() {
+			public Object run(IProgressMonitor monitor) {
+				throw failure;
+			}
+		}, null);
+		future.get(TIMEOUT);
+		assertEquals("Wrong severity", IStatus.ERROR, future.getStatus().getSeverity()); //$NON-NLS-1$
+		assertEquals("Wrong exception", failure, future.getStatus().getException()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testMaxThreads() throws Exception {
+		executor = new PooledExecutor(2);
+		IFuture<?>[] futures = new IFuture<?>[6];
+		for (int i = 0; i < futures.length; i++)
+			futures[i] = executor.execute(blocking(), null);
+		waitFor(2, new Count() {
+			public int get() {
+				return running.get();
+			}
+		});
+		assertEquals("Wrong number of queued runnables", 4, executor.getQueueSize()); //$NON-NLS-1$
+		assertEquals("Wrong number of active runnables", 2, executor.getActiveCount()); //$NON-NLS-1$
+		release.countDown();
+		for (int i = 0; i < futures.length; i++) {
+			futures[i].get(TIMEOUT);
+			assertTrue("Not ok: " + i, futures[i].getStatus().isOK()); //$NON-NLS-1$
+		}
+		assertEquals("Too many runnables at the same time", 2, maxRunning.get()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testRejected() throws Exception {
+		executor = new PooledExecutor(1, 1, false);
+		IFuture<Object> first = executor.execute(blocking(), null);
+		IFuture<Object> queued = executor.execute(blocking(), null);
+		IListenableFuture<Object> rejected = (IListenableFuture<Object>) executor.execute(blocking(), null);
+		assertTrue("Rejected future not done", rejected.isDone()); //$NON-NLS-1$
+		assertEquals("Wrong severity", IStatus.ERROR, rejected.getStatus().getSeverity()); //$NON-NLS-1$
+		assertTrue("Wrong exception: " + rejected.getStatus().getException(), rejected.getStatus().getException() instanceof RejectedExecutionException); //$NON-NLS-1$
+
+		final CountDownLatch notified = new CountDownLatch(1);
+		rejected.addListener(new ImmediateExecutor(), new IProgressRunnable<Object>() {
+			public Object run(IProgressMonitor monitor) {
+				notified.countDown();
+				return null;
+			}
+		}, null);
+		assertTrue("Listener not notified", notified.await(TIMEOUT, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+
+		release.countDown();
+		first.get(TIMEOUT);
+		queued.get(TIMEOUT);
+		assertTrue("Queued runnable not run", queued.getStatus().isOK()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testCancelQueued() throws Exception {
+		executor = new PooledExecutor(1);
+		IFuture<Object> first = executor.execute(blocking(), null);
+		waitFor(1, new Count() {
+			public int get() {
+				return running.get();
+			}
+		});
+		final AtomicInteger runs = new AtomicInteger();
+		IFuture<Object> queued = executor.execute(new IProgressRunnable<Object>() {
+			public Object run(IProgressMonitor monitor) {
+				runs.incrementAndGet();
+				return null;
+			}
+		}, null);
+		assertEquals("Not queued", 1, executor.getQueueSize()); //$NON-NLS-1$
+		assertTrue("Not canceled", queued.cancel()); //$NON-NLS-1$
+		assertEquals("Canceled runnable still queued", 0, executor.getQueueSize()); //$NON-NLS-1$
+		assertFalse("Canceled twice", queued.cancel()); //$NON-NLS-1$
+		try {
+			queued.get();
+			fail("Canceled future returned a result"); //$NON-NLS-1$
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+
+		release.countDown();
+		first.get(TIMEOUT);
+		// a runnable submitted after the first one ran only after it on the single thread
+		IFuture<Object> last = executor.execute(new IProgressRunnable<Object>() {
+			public Object run(IProgressMonitor monitor) {
+				return null;
+			}
+		}, null);
+		last.get(TIMEOUT);
+		assertEquals("Canceled runnable was run", 0, runs.get()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testCancelRunning() throws Exception {
+		executor = new PooledExecutor(1);
+		final CountDownLatch canceled = new CountDownLatch(1);
+		IFuture<Object> future = executor.execute(new IProgressRunnable<Object>() {
+			public Object run(IProgressMonitor monitor) throws Exception {
+				running.incrementAndGet();
+				while (!monitor.isCanceled())
+					Thread.sleep(10);
+				canceled.countDown();
+				return null;
+			}
+		}, null);
+		waitFor(1, new Count() {
+			public int get() {
+				return running.get();
+			}
+		});
+		assertTrue("Not canceled", future.cancel()); //$NON-NLS-1$
+		assertTrue("Running runnable did not see the cancelation", canceled.await(TIMEOUT, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+		assertEquals("Wrong severity", IStatus.CANCEL, future.getStatus().getSeverity()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testIdleThreadsExit() throws Exception {
+		executor = new PooledExecutor(3, Integer.MAX_VALUE, false, 100);
+		IFuture<?>[] futures = new IFuture<?>[3];
+		for (int i = 0; i < futures.length; i++)
+			futures[i] = executor.execute(blocking(), null);
+		waitFor(3, new Count() {
+			public int get() {
+				return executor.getPoolSize();
+			}
+		});
+		release.countDown();
+		for (int i = 0; i < futures.length; i++)
+			futures[i].get(TIMEOUT);
+		waitFor(0, new Count() {
+			public int get() {
+				return executor.getPoolSize();
+			}
+		});
+
+		// the executor still works after its threads exited
+		IFuture<String> future = executor.execute(new IProgressRunnable<String>() {
+			public String run(IProgressMonitor monitor) {
+				return "again"; //$NON-NLS-1$
+			}
+		}, null);
+		assertEquals("Wrong result", "again", future.get(TIMEOUT)); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidKeepAlive() {
+		new PooledExecutor(1, 1, false, 0);
+	}
+
+	@Test
+	public void testVirtualThreads() throws Exception {
+		executor = new PooledExecutor(1, 1, true);
+		final boolean[] daemon = new boolean[1];
+		IFuture<Object> future = executor.execute(new IProgressRunnable<Object>() {
+			public Object run(IProgressMonitor monitor) {
+				daemon[0] = Thread.currentThread().isDaemon();
+				return null;
+			}
+		}, null);
+		future.get(TIMEOUT);
+		assertNotNull("No status", future.getStatus()); //$NON-NLS-1$
+		assertTrue("Not ok", future.getStatus().isOK()); //$NON-NLS-1$
+		// virtual threads and the fall back platform threads are both daemons
+		assertTrue("Not a daemon thread", daemon[0]); //$NON-NLS-1$
+	}
+
+	private IProgressRunnable<Object> blocking() {
+		return new IProgressRunnable<Object>() {
+			public Object run(IProgressMonitor monitor) throws Exception {
+				int now = running.incrementAndGet();
+				synchronized (maxRunning) {
+					if (now > maxRunning.get())
+						maxRunning.set(now);
+				}
+				try {
+					assertTrue("Not released", release.await(TIMEOUT, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+				} finally {
+					running.decrementAndGet();
+				}
+				return null;
+			}
+		};
+	}
+
+	private interface Count {
+		int get();
+	}
+
+	private static void waitFor(int expected, Count count) throws InterruptedException {
+		long end = System.currentTimeMillis() + TIMEOUT;
+		while (count.get() != expected && System.currentTimeMillis() < end)
+			Thread.sleep(10);
+		assertEquals("Wrong count", expected, count.get()); //$NON-NLS-1$
+	}
+}
@@ -15,7 +15,7 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({CoordinationMaxTimeoutTest.class, ReverseParticipantOrderNotifyTest.class, BugTests.class})
+@SuiteClasses({CoordinationMaxTimeoutTest.class, ReverseParticipantOrderNotifyTest.class, BugTests.class, ConcurrentCoordinationTest.class})
 public class AllTests {
 	//see @SuiteClasses
 }
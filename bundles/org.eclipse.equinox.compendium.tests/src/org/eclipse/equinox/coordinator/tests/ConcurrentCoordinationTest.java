@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.coordinator.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.osgi.service.coordinator.Coordination;
+import org.osgi.service.coordinator.Participant;
+
+/*
+ * Runs coordinations from many threads at the same time and ensures none of
+ * them is lost, left registered or timed out, and that timeouts still fire.
+ */
+public class ConcurrentCoordinationTest extends CoordinatorTest {
+	private static final int THREADS = 8;
+	private static final int COORDINATIONS = 10000;
+
+	private static class CountingParticipant implements Participant {
+		private final AtomicInteger ended;
+
+		public CountingParticipant(AtomicInteger ended) {
+			this.ended = ended;
+		}
+
+		public void ended(Coordination coordination) throws Exception {
+			ended.incrementAndGet();
+		}
+
+		public void failed(Coordination coordination) throws Exception {
+			// nothing
+		}
+	}
+
+	@Test
+	public void testConcurrentBeginEnd() throws Exception {
+		final AtomicInteger ended = new AtomicInteger();
+		final AtomicInteger sharedEnded = new AtomicInteger();
+		final Participant shared = new CountingParticipant(sharedEnded);
+		final List<Throwable> errors = new ArrayList<Throwable>();
+		Thread[] threads = new Thread[THREADS];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int j = 0; j < COORDINATIONS; j++) {
+							Coordination c = coordinator.begin("c", 60000); //$NON-NLS-1$
+							c.addParticipant(new CountingParticipant(ended));
+							// A participant shared by all threads must wait for the
+							// coordination of another thread to end.
+							if (j % 100 == 0)
+								c.addParticipant(shared);
+							c.end();
+						}
+					} catch (Throwable t) {
+						synchronized (errors) {
+							errors.add(t);
+						}
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length; i++)
+			threads[i].join();
+		assertEquals("Unexpected errors: " + errors, 0, errors.size()); //$NON-NLS-1$
+		assertEquals("Wrong number of ended participants", THREADS * COORDINATIONS, ended.get()); //$NON-NLS-1$
+		assertEquals("Wrong number of ended coordinations of the shared participant", THREADS * COORDINATIONS / 100, sharedEnded.get()); //$NON-NLS-1$
+		assertEquals("Coordinations left registered", 0, coordinator.getCoordinations().size()); //$NON-NLS-1$
+		assertNull("Coordination left on the stack", coordinator.peek()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testTimeoutAfterExtension() throws Exception {
+		Coordination c = coordinator.create("c", 200); //$NON-NLS-1$
+		c.extendTimeout(500);
+		Thread.sleep(400);
+		assertFalse("Coordination timed out before the extended deadline", c.isTerminated()); //$NON-NLS-1$
+		c.join(5000);
+		assertSame("Coordination did not time out", Coordination.TIMEOUT, c.getFailure()); //$NON-NLS-1$
+	}
+}
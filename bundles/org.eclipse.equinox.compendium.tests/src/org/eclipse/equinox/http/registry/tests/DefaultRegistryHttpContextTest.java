@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.http.registry.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+import org.eclipse.equinox.http.registry.internal.DefaultRegistryHttpContext;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.Constants;
+
+/*
+ * Checks that the resource index of a context keeps hits and misses, is
+ * invalidated by changes of its own bundles only, and does not keep a result
+ * looked up while the bundle changed.
+ */
+public class DefaultRegistryHttpContextTest {
+
+	@Test
+	public void testResourceIndexed() throws Exception {
+		TestBundle bundle = new TestBundle(false);
+		bundle.addEntry("/web", "index.html"); //$NON-NLS-1$ //$NON-NLS-2$
+		DefaultRegistryHttpContext context = createContext(bundle);
+
+		URL url = context.getResource("/web/index.html"); //$NON-NLS-1$
+		assertEquals("Wrong resource", bundle.getEntryURL("/web", "index.html"), url); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals("Wrong resource", url, context.getResource("/web/index.html")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull("Unexpected resource", context.getResource("/web/missing.html")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull("Unexpected resource", context.getResource("/web/missing.html")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("Hit not indexed", 1, bundle.getLookups("/web", "index.html")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals("Miss not indexed", 1, bundle.getLookups("/web", "missing.html")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	@Test
+	public void testResourcePathsIndexed() throws Exception {
+		TestBundle bundle = new TestBundle(false);
+		bundle.addEntry("/web", "a.html"); //$NON-NLS-1$ //$NON-NLS-2$
+		bundle.addEntry("/web", "b.html"); //$NON-NLS-1$ //$NON-NLS-2$
+		DefaultRegistryHttpContext context = createContext(bundle);
+
+		Set<?> paths = context.getResourcePaths("/web"); //$NON-NLS-1$
+		assertEquals("Wrong paths", new HashSet<String>(Arrays.asList("/web/a.html", "/web/b.html")), paths); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals("Wrong paths", paths, context.getResourcePaths("/web")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull("Unexpected paths", context.getResourcePaths("/other")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull("Unexpected paths", context.getResourcePaths("/other")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("Paths not indexed", 1, bundle.getLookups("/web", null)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("Missing paths not indexed", 1, bundle.getLookups("/other", null)); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testMissesDoNotEvictHits() throws Exception {
+		TestBundle bundle = new TestBundle(false);
+		bundle.addEntry("/web", "index.html"); //$NON-NLS-1$ //$NON-NLS-2$
+		DefaultRegistryHttpContext context = createContext(bundle);
+
+		context.getResource("/web/index.html"); //$NON-NLS-1$
+		for (int i = 0; i < 5000; i++)
+			assertNull("Unexpected resource", context.getResource("/web/missing" + i + ".html")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		context.getResource("/web/index.html"); //$NON-NLS-1$
+		assertEquals("Hit evicted by misses", 1, bundle.getLookups("/web", "index.html")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	@Test
+	public void testOnlyOwnBundleInvalidates() throws Exception {
+		TestBundle bundle1 = new TestBundle(false);
+		bundle1.addEntry("/web", "index.html"); //$NON-NLS-1$ //$NON-NLS-2$
+		DefaultRegistryHttpContext context1 = createContext(bundle1);
+		TestBundle bundle2 = new TestBundle(false);
+		bundle2.addEntry("/web", "index.html"); //$NON-NLS-1$ //$NON-NLS-2$
+		DefaultRegistryHttpContext context2 = createContext(bundle2);
+
+		context1.getResource("/web/index.html"); //$NON-NLS-1$
+		context2.getResource("/web/index.html"); //$NON-NLS-1$
+		DefaultRegistryHttpContext.bundleChanged(bundle2.bundle);
+		context1.getResource("/web/index.html"); //$NON-NLS-1$
+		context2.getResource("/web/index.html"); //$NON-NLS-1$
+		assertEquals("Index of another bundle invalidated", 1, bundle1.getLookups("/web", "index.html")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals("Index not invalidated", 2, bundle2.getLookups("/web", "index.html")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+		// a fragment may attach to any bundle
+		DefaultRegistryHttpContext.bundleChanged(new TestBundle(true).bundle);
+		context1.getResource("/web/index.html"); //$NON-NLS-1$
+		assertEquals("Index not invalidated by a fragment", 2, bundle1.getLookups("/web", "index.html")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	@Test
+	public void testStaleLookupNotIndexed() throws Exception {
+		final TestBundle bundle = new TestBundle(false);
+		bundle.addEntry("/web", "index.html"); //$NON-NLS-1$ //$NON-NLS-2$
+		DefaultRegistryHttpContext context = createContext(bundle);
+
+		// the bundle changes while the entry is looked up
+		bundle.onLookup = new Runnable() {
+			public void run() {
+				bundle.onLookup = null;
+				DefaultRegistryHttpContext.bundleChanged(bundle.bundle);
+			}
+		};
+		context.getResource("/web/index.html"); //$NON-NLS-1$
+		context.getResource("/web/index.html"); //$NON-NLS-1$
+		context.getResource("/web/index.html"); //$NON-NLS-1$
+		assertEquals("Stale lookup indexed", 2, bundle.getLookups("/web", "index.html")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	private static DefaultRegistryHttpContext createContext(TestBundle bundle) {
+		// the delegate is only used for the MIME types and the security
+		DefaultRegistryHttpContext context = new DefaultRegistryHttpContext(null);
+		context.addResourceMapping(bundle.bundle, null);
+		return context;
+	}
+
+	/*
+	 * A bundle with fixed entries, which counts the findEntries calls.
+	 */
+	static class TestBundle implements InvocationHandler {
+		final Bundle bundle;
+		volatile Runnable onLookup;
+		private final Dictionary<String, String> headers = new Hashtable<String, String>();
+		private final Map<String, Set<URL>> entries = new HashMap<String, Set<URL>>();
+		private final Map<String, Integer> lookups = new HashMap<String, Integer>();
+
+		TestBundle(boolean fragment) {
+			if (fragment)
+				headers.put(Constants.FRAGMENT_HOST, "host"); //$NON-NLS-1$
+			bundle = (Bundle) Proxy.newProxyInstance(Bundle.class.getClassLoader(), new Class<?>[] {Bundle.class}, this);
+		}
+
+		void addEntry(String path, String file) throws Exception {
+			add(path + '/' + file, getEntryURL(path, file));
+			add(path + '/', getEntryURL(path, file));
+		}
+
+		private void add(String key, URL url) {
+			Set<URL> urls = entries.get(key);
+			if (urls == null)
+				entries.put(key, urls = new HashSet<URL>());
+			urls.add(url);
+		}
+
+		URL getEntryURL(String path, String file) throws Exception {
+			return new URL("file", null, path + '/' + file); //$NON-NLS-1$
+		}
+
+		synchronized int getLookups(String path, String file) {
+			Integer count = lookups.get(path + '/' + (file == null ? "" : file)); //$NON-NLS-1$
+			return count == null ? 0 : count.intValue();
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			String name = method.getName();
+			if ("findEntries".equals(name)) { //$NON-NLS-1$
+				String key = args[0] + "/" + (args[1] == null ? "" : args[1]); //$NON-NLS-1$ //$NON-NLS-2$
+				synchronized (this) {
+					Integer count = lookups.get(key);
+					lookups.put(key, Integer.valueOf(count == null ? 1 : count.intValue() + 1));
+				}
+				Runnable r = onLookup;
+				if (r != null)
+					r.run();
+				Set<URL> urls = entries.get(key);
+				return urls == null ? null : new Vector<URL>(urls).elements();
+			}
+			if ("getHeaders".equals(name)) //$NON-NLS-1$
+				return headers;
+			if ("equals".equals(name)) //$NON-NLS-1$
+				return Boolean.valueOf(proxy == args[0]);
+			if ("hashCode".equals(name)) //$NON-NLS-1$
+				return Integer.valueOf(System.identityHashCode(proxy));
+			if ("toString".equals(name)) //$NON-NLS-1$
+				return "TestBundle"; //$NON-NLS-1$
+			throw new UnsupportedOperationException(name);
+		}
+	}
+}
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.http.registry.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.equinox.http.registry.internal.DelegateInitializer;
+import org.junit.After;
+import org.junit.Test;
+
+/*
+ * Checks that the delegates are warmed up in the order they were scheduled,
+ * on more than one thread, and that a failing delegate does not keep the
+ * others from being initialized.
+ */
+public class DelegateInitializerTest {
+	private static final long TIMEOUT = 5000;
+
+	private DelegateInitializer initializer;
+
+	@After
+	public void tearDown() {
+		if (initializer != null)
+			initializer.stop();
+	}
+
+	private static Runnable record(final List<Integer> order, final int id, final CountDownLatch done) {
+		return new Runnable() {
+			public void run() {
+				order.add(Integer.valueOf(id));
+				done.countDown();
+			}
+		};
+	}
+
+	@Test
+	public void testOrder() throws InterruptedException {
+		initializer = new DelegateInitializer(1);
+		List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+		CountDownLatch done = new CountDownLatch(5);
+		for (int i = 0; i < 5; i++)
+			initializer.schedule(record(order, i, done));
+		assertTrue("Delegates were not initialized.", done.await(TIMEOUT, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+		assertEquals("Wrong warm-up order.", Arrays.asList(0, 1, 2, 3, 4), order); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testParallel() throws InterruptedException {
+		initializer = new DelegateInitializer(2);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch blockedStarted = new CountDownLatch(1);
+		initializer.schedule(new Runnable() {
+			public void run() {
+				blockedStarted.countDown();
+				try {
+					release.await(2 * TIMEOUT, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					// ignore
+				}
+			}
+		});
+		assertTrue("Slow delegate was not started.", blockedStarted.await(TIMEOUT, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+		List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+		CountDownLatch done = new CountDownLatch(3);
+		for (int i = 0; i < 3; i++)
+			initializer.schedule(record(order, i, done));
+		try {
+			assertTrue("A slow delegate blocked the others.", done.await(TIMEOUT, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+			assertEquals("Wrong warm-up order.", Arrays.asList(0, 1, 2), order); //$NON-NLS-1$
+		} finally {
+			release.countDown();
+		}
+	}
+
+	@Test
+	public void testFailureIsolated() throws InterruptedException {
+		initializer = new DelegateInitializer(1);
+		List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+		CountDownLatch done = new CountDownLatch(2);
+		initializer.schedule(record(order, 0, done));
+		initializer.schedule(new Runnable() {
+			public void run() {
+				throw new RuntimeException("Expected failure"); //$NON-NLS-1$
+			}
+		});
+		initializer.schedule(new Runnable() {
+			public void run() {
+				throw new LinkageError("Expected failure"); //$NON-NLS-1$
+			}
+		});
+		initializer.schedule(record(order, 1, done));
+		assertTrue("A failing delegate stopped the warm-up.", done.await(TIMEOUT, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+		assertEquals("Wrong warm-up order.", Arrays.asList(0, 1), order); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testStop() throws InterruptedException {
+		initializer = new DelegateInitializer(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch blockedStarted = new CountDownLatch(1);
+		initializer.schedule(new Runnable() {
+			public void run() {
+				blockedStarted.countDown();
+				try {
+					release.await(TIMEOUT, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					// ignore
+				}
+			}
+		});
+		assertTrue("Slow delegate was not started.", blockedStarted.await(TIMEOUT, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+		List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+		CountDownLatch done = new CountDownLatch(2);
+		initializer.schedule(record(order, 0, done));
+		initializer.stop();
+		initializer.schedule(record(order, 1, done));
+		release.countDown();
+		assertFalse("Delegates were initialized after stop.", done.await(500, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+		assertTrue("Delegates were initialized after stop.", order.isEmpty()); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.log.stream.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.eclipse.equinox.internal.log.stream.LogQueuePolicy;
+import org.eclipse.equinox.internal.log.stream.LogStreamProviderImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.service.log.LogEntry;
+import org.osgi.util.pushstream.PushStream;
+
+/*
+ * Checks that a log stream leaves its onClose handler to the client, that
+ * the provider stops sending entries to streams which are closed, and that
+ * the entries dropped by a full stream are counted for that stream.
+ */
+public class LogStreamProviderTest {
+	private static final long TIMEOUT = 10000;
+	private static final int CAPACITY = 10;
+
+	private ExecutorService executor;
+	private LogStreamProviderImpl provider;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(2);
+		provider = new LogStreamProviderImpl(null, executor, CAPACITY, LogQueuePolicy.DISCARD_OLDEST, 0);
+	}
+
+	@After
+	public void tearDown() {
+		provider.close();
+		executor.shutdown();
+	}
+
+	@Test
+	public void testClientOnClose() throws Exception {
+		PushStream<LogEntry> stream = provider.createStream();
+		CountDownLatch closed = onClose(stream);
+		BlockingQueue<LogEntry> received = forEach(stream);
+		assertEquals("Wrong number of sources", 1, provider.getSourceCount()); //$NON-NLS-1$
+
+		LogEntry entry = createEntry();
+		provider.logged(entry);
+		assertSame("Entry not received", entry, received.poll(TIMEOUT, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+
+		stream.close();
+		assertTrue("onClose handler not called", closed.await(TIMEOUT, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+		waitForSources(0);
+		provider.logged(createEntry());
+		assertNull("Entry received after close", received.poll(100, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testCloseUnconnected() throws Exception {
+		PushStream<LogEntry> stream = provider.createStream();
+		CountDownLatch closed = onClose(stream);
+		assertEquals("Unconnected stream added a source", 0, provider.getSourceCount()); //$NON-NLS-1$
+		stream.close();
+		assertTrue("onClose handler not called", closed.await(TIMEOUT, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+		assertEquals("Wrong number of sources", 0, provider.getSourceCount()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testConsumerDone() throws Exception {
+		PushStream<LogEntry> stream = provider.createStream();
+		CountDownLatch closed = onClose(stream);
+		BlockingQueue<LogEntry> received = forEach(stream.limit(1));
+		assertEquals("Wrong number of sources", 1, provider.getSourceCount()); //$NON-NLS-1$
+
+		provider.logged(createEntry());
+		provider.logged(createEntry());
+		assertTrue("onClose handler not called", closed.await(TIMEOUT, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+		waitForSources(0);
+		assertEquals("Wrong number of entries", 1, received.size()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testProviderClose() throws Exception {
+		PushStream<LogEntry> stream1 = provider.createStream();
+		CountDownLatch closed1 = onClose(stream1);
+		forEach(stream1);
+		PushStream<LogEntry> stream2 = provider.createStream();
+		CountDownLatch closed2 = onClose(stream2);
+		forEach(stream2);
+		PushStream<LogEntry> unconnected = provider.createStream();
+		CountDownLatch closed3 = onClose(unconnected);
+		assertEquals("Wrong number of sources", 2, provider.getSourceCount()); //$NON-NLS-1$
+
+		provider.close();
+		assertTrue("onClose handler not called", closed1.await(TIMEOUT, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+		assertTrue("onClose handler not called", closed2.await(TIMEOUT, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+		waitForSources(0);
+
+		// a stream connecting after the provider is closed is closed right away
+		forEach(unconnected);
+		assertTrue("onClose handler not called", closed3.await(TIMEOUT, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+		assertEquals("Source added after close", 0, provider.getSourceCount()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testDroppedCount() throws Exception {
+		PushStream<LogEntry> blocked = provider.createStream();
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		blocked.forEach(new Consumer<LogEntry>() {
+			public void accept(LogEntry entry) {
+				entered.countDown();
+				try {
+					release.await(TIMEOUT, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		try {
+			// the consumer of the blocked stream holds the first entry, the following ones fill its buffer
+			provider.logged(createEntry());
+			assertTrue("Consumer not called", entered.await(TIMEOUT, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+			for (int i = 0; i < CAPACITY + 5; i++)
+				provider.logged(createEntry());
+			assertEquals("Wrong dropped count", 5, provider.getDroppedCount(blocked)); //$NON-NLS-1$
+		} finally {
+			release.countDown();
+		}
+		assertEquals("Entries dropped by another stream", 0, provider.getDroppedCount(provider.createStream())); //$NON-NLS-1$
+		assertEquals("Wrong dropped count of an unknown stream", -1, provider.getDroppedCount(new LogStreamProviderImpl(null, executor, CAPACITY, LogQueuePolicy.DISCARD_OLDEST, 0).createStream())); //$NON-NLS-1$
+	}
+
+	/*
+	 * The stream calls its onClose handler before it disconnects from the source.
+	 */
+	private void waitForSources(int expected) throws InterruptedException {
+		long end = System.currentTimeMillis() + TIMEOUT;
+		while (provider.getSourceCount() != expected && System.currentTimeMillis() < end)
+			Thread.sleep(10);
+		assertEquals("Wrong number of sources", expected, provider.getSourceCount()); //$NON-NLS-1$
+	}
+
+	private static CountDownLatch onClose(PushStream<LogEntry> stream) {
+		final CountDownLatch closed = new CountDownLatch(1);
+		stream.onClose(new Runnable() {
+			public void run() {
+				closed.countDown();
+			}
+		});
+		return closed;
+	}
+
+	private static BlockingQueue<LogEntry> forEach(PushStream<LogEntry> stream) {
+		final BlockingQueue<LogEntry> received = new LinkedBlockingQueue<LogEntry>();
+		stream.forEach(new Consumer<LogEntry>() {
+			public void accept(LogEntry entry) {
+				received.add(entry);
+			}
+		});
+		return received;
+	}
+
+	private static LogEntry createEntry() {
+		return (LogEntry) Proxy.newProxyInstance(LogEntry.class.getClassLoader(), new Class<?>[] {LogEntry.class}, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if ("equals".equals(method.getName())) //$NON-NLS-1$
+					return Boolean.valueOf(proxy == args[0]);
+				if ("hashCode".equals(method.getName())) //$NON-NLS-1$
+					return Integer.valueOf(System.identityHashCode(proxy));
+				if (method.getReturnType() == long.class)
+					return Long.valueOf(0);
+				if (method.getReturnType() == int.class)
+					return Integer.valueOf(0);
+				return null;
+			}
+		});
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011 IBM Corporation and others
+ * Copyright (c) 2011, 2018 IBM Corporation and others
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -116,6 +116,24 @@ public class GetDefaultValueTest extends AbstractTest {
 		}
 	}
 
+	/*
+	 * The localized object class definitions are cached and shared, so changes
+	 * to a returned default value must not be visible to other callers.
+	 */
+	@Test
+	public void testDefaultValueNotShared() {
+		MetaTypeInformation mti = metatype.getMetaTypeInformation(bundle);
+		Assert.assertNotNull("Metatype information was null", mti); //$NON-NLS-1$
+		ObjectClassDefinition ocd = mti.getObjectClassDefinition("org.eclipse.equinox.metatype.tests.tb1", null); //$NON-NLS-1$
+		Assert.assertNotNull("Object class definition was null", ocd); //$NON-NLS-1$
+		Assert.assertSame("Object class definition not cached", ocd, mti.getObjectClassDefinition("org.eclipse.equinox.metatype.tests.tb1", null)); //$NON-NLS-1$ //$NON-NLS-2$
+		AttributeDefinition ad = ocd.getAttributeDefinitions(ObjectClassDefinition.ALL)[0];
+		String[] defaultValue = ad.getDefaultValue();
+		Assert.assertNotNull("Default value was null", defaultValue); //$NON-NLS-1$
+		defaultValue[0] = "changed"; //$NON-NLS-1$
+		Assert.assertEquals("Wrong default value", "password", ad.getDefaultValue()[0]); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
 	@Before
 	public void setUp() throws Exception {
 		super.setUp();
@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.metatype.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import org.eclipse.equinox.compendium.tests.Activator;
+import org.eclipse.equinox.metatype.*;
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.service.metatype.ObjectClassDefinition;
+
+/*
+ * The metadata of a bundle is parsed from its XML the first time and read
+ * from the cache in the data area of the metatype bundle after a restart.
+ * Both must give the same object class and attribute definitions.
+ */
+public class MetaTypeCacheTest extends AbstractTest {
+	// An old time set on the cache files to tell whether they were written again.
+	private static final long CACHE_TIME = 1000;
+	private static final String[] BUNDLES = {"tb1", "tb4", "tb9", "getMinMax.tb1", "extendable.tb1"}; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+
+	@Test
+	public void testCachedMetadataMatchesParsedMetadata() throws Exception {
+		Bundle[] bundles = new Bundle[BUNDLES.length];
+		String[] parsed = new String[BUNDLES.length];
+		for (int i = 0; i < BUNDLES.length; i++) {
+			bundles[i] = bundleInstaller.installBundle(BUNDLES[i]);
+			bundles[i].start();
+			parsed[i] = describe(metatype.getMetaTypeInformation(bundles[i]));
+			File cacheFile = getCacheFile(bundles[i]);
+			Assert.assertTrue("No cache file for " + BUNDLES[i], cacheFile.isFile()); //$NON-NLS-1$
+			Assert.assertTrue(cacheFile.setLastModified(CACHE_TIME));
+		}
+		restartMetaType();
+		for (int i = 0; i < BUNDLES.length; i++) {
+			Assert.assertEquals("Wrong cached metadata for " + BUNDLES[i], parsed[i], describe(metatype.getMetaTypeInformation(bundles[i]))); //$NON-NLS-1$
+			// A cache miss parses the documents and writes the cache file again.
+			Assert.assertEquals("The metadata of " + BUNDLES[i] + " was not read from the cache", CACHE_TIME, getCacheFile(bundles[i]).lastModified()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	@Test
+	public void testUpdatedBundleIsParsedAgain() throws Exception {
+		Bundle bundle = bundleInstaller.installBundle("tb1"); //$NON-NLS-1$
+		bundle.start();
+		String parsed = describe(metatype.getMetaTypeInformation(bundle));
+		restartMetaType();
+		bundleInstaller.updateBundle("tb1", "tb4"); //$NON-NLS-1$ //$NON-NLS-2$
+		String updated = describe(metatype.getMetaTypeInformation(bundle));
+		Assert.assertFalse("The cached metadata of the old bundle content was used", parsed.equals(updated)); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testUpdatedFragmentIsParsedAgain() throws Exception {
+		Bundle host = bundleInstaller.installBundle("tb1"); //$NON-NLS-1$
+		bundleInstaller.installBundle("fragment.tb1"); //$NON-NLS-1$
+		host.start();
+		String parsed = describe(metatype.getMetaTypeInformation(host));
+		Assert.assertTrue("The fragment metadata is missing", parsed.contains("fragment1")); //$NON-NLS-1$ //$NON-NLS-2$
+		restartMetaType();
+		// The fragment has the same metatype document entry as before, with other content.
+		bundleInstaller.updateBundle("fragment.tb1", "fragment.tb2"); //$NON-NLS-1$ //$NON-NLS-2$
+		bundleInstaller.refreshPackages(new Bundle[] {host});
+		restartMetaType();
+		String updated = describe(metatype.getMetaTypeInformation(host));
+		Assert.assertTrue("The updated fragment metadata is missing", updated.contains("fragment2")); //$NON-NLS-1$ //$NON-NLS-2$
+		Assert.assertFalse("The cached metadata of the old fragment content was used", updated.contains("fragment1")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private File getCacheFile(Bundle bundle) {
+		return Activator.getBundle(Activator.BUNDLE_METATYPE).getBundleContext().getDataFile("metadata/" + bundle.getBundleId() + ".cache"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private void restartMetaType() throws Exception {
+		Activator.getBundleContext().ungetService(metaTypeReference);
+		Activator.getBundle(Activator.BUNDLE_METATYPE).stop();
+		Activator.getBundle(Activator.BUNDLE_METATYPE).start();
+		metaTypeReference = Activator.getBundleContext().getServiceReference(EquinoxMetaTypeService.class);
+		Assert.assertNotNull("Metatype service reference not found", metaTypeReference); //$NON-NLS-1$
+		metatype = Activator.getBundleContext().getService(metaTypeReference);
+		Assert.assertNotNull("Metatype service not found", metatype); //$NON-NLS-1$
+	}
+
+	private String describe(EquinoxMetaTypeInformation mti) throws IOException {
+		assertNotNull(mti);
+		StringBuffer result = new StringBuffer();
+		List<String> locales = new ArrayList<String>();
+		locales.add(null);
+		if (mti.getLocales() != null)
+			locales.addAll(Arrays.asList(mti.getLocales()));
+		String[] pids = mti.getPids();
+		Arrays.sort(pids);
+		String[] factoryPids = mti.getFactoryPids();
+		Arrays.sort(factoryPids);
+		for (String locale : locales) {
+			for (String pid : pids)
+				describe(mti.getObjectClassDefinition(pid, locale), result.append("pid ").append(pid).append(' ').append(locale).append('\n')); //$NON-NLS-1$
+			for (String factoryPid : factoryPids)
+				describe(mti.getObjectClassDefinition(factoryPid, locale), result.append("factoryPid ").append(factoryPid).append(' ').append(locale).append('\n')); //$NON-NLS-1$
+		}
+		return result.toString();
+	}
+
+	private void describe(EquinoxObjectClassDefinition ocd, StringBuffer result) throws IOException {
+		assertNotNull(ocd);
+		result.append(ocd.getID()).append('|').append(ocd.getName()).append('|').append(ocd.getDescription()).append('|');
+		describeExtensions(ocd, result);
+		InputStream icon = ocd.getIcon(16);
+		result.append(icon != null).append('\n');
+		if (icon != null)
+			icon.close();
+		describe(ocd.getAttributeDefinitions(ObjectClassDefinition.REQUIRED), "required ", result); //$NON-NLS-1$
+		describe(ocd.getAttributeDefinitions(ObjectClassDefinition.OPTIONAL), "optional ", result); //$NON-NLS-1$
+	}
+
+	private void describe(EquinoxAttributeDefinition[] ads, String prefix, StringBuffer result) {
+		if (ads == null)
+			return;
+		for (EquinoxAttributeDefinition ad : ads) {
+			result.append(prefix).append(ad.getID()).append('|').append(ad.getName()).append('|').append(ad.getDescription()).append('|').append(ad.getType()).append('|').append(ad.getCardinality()).append('|');
+			result.append(ad.getMin()).append('|').append(ad.getMax()).append('|');
+			result.append(toString(ad.getDefaultValue())).append('|').append(toString(ad.getOptionLabels())).append('|').append(toString(ad.getOptionValues())).append('|');
+			describeExtensions(ad, result);
+			result.append('\n');
+		}
+	}
+
+	private void describeExtensions(Extendable extendable, StringBuffer result) {
+		Map<String, Map<String, String>> extensions = new TreeMap<String, Map<String, String>>();
+		for (String uri : extendable.getExtensionUris())
+			extensions.put(uri, new TreeMap<String, String>(extendable.getExtensionAttributes(uri)));
+		result.append(extensions);
+	}
+
+	private String toString(String[] values) {
+		return values == null ? null : Arrays.asList(values).toString();
+	}
+}
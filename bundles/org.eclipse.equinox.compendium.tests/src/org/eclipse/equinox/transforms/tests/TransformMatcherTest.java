@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.transforms.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.regex.Pattern;
+import org.eclipse.equinox.internal.transforms.TransformMatcher;
+import org.junit.Test;
+
+/*
+ * Checks the literal prefix the transform matcher uses to skip the regular
+ * expression of a path pattern.
+ */
+public class TransformMatcherTest {
+
+	private static final String[] PATTERNS = {"plugin.xml", "plugin\\.xml", "META-INF/MANIFEST.MF", "abc", "abc+", "abc?", "abc*", "abc{2}", "abc{0,1}", "ab(c)?", "ab[cd]*", "a|b", "x/(a|b)", "^abc", ".*\\.xml", "\\Qa.b\\E", "", "a", "a?"}; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$ //$NON-NLS-11$ //$NON-NLS-12$ //$NON-NLS-13$ //$NON-NLS-14$ //$NON-NLS-15$ //$NON-NLS-16$ //$NON-NLS-17$ //$NON-NLS-18$ //$NON-NLS-19$
+
+	private static final String[] PATHS = {"plugin.xml", "pluginxml", "plugin", "META-INF/MANIFEST.MF", "META-INF/MANIFEST-MF", "abc", "abcc", "ab", "abcd", "abdd", "a", "b", "x/a", "x/b", "a.b", "foo.xml", "", "c"}; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$ //$NON-NLS-11$ //$NON-NLS-12$ //$NON-NLS-13$ //$NON-NLS-14$ //$NON-NLS-15$ //$NON-NLS-16$ //$NON-NLS-17$ //$NON-NLS-18$
+
+	@Test
+	public void testLiteralPrefix() {
+		assertPrefix("plugin", "plugin.xml"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertPrefix("plugin", "plugin\\.xml"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertPrefix("META-INF/MANIFEST", "META-INF/MANIFEST.MF"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertPrefix("abc", "abc"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertPrefix("", ""); //$NON-NLS-1$ //$NON-NLS-2$
+		assertPrefix("", ".*\\.xml"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertPrefix("", "^abc"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertPrefix("", "\\Qa.b\\E"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testQuantifiers() {
+		// a character followed by + must still be present
+		assertPrefix("abc", "abc+"); //$NON-NLS-1$ //$NON-NLS-2$
+		// a character followed by an optional quantifier is left out
+		assertPrefix("ab", "abc?"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertPrefix("ab", "abc*"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertPrefix("ab", "abc{2}"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertPrefix("ab", "abc{0,1}"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertPrefix("", "a?"); //$NON-NLS-1$ //$NON-NLS-2$
+		// a group or class ends the prefix
+		assertPrefix("ab", "ab(c)?"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertPrefix("ab", "ab[cd]*"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testAlternation() {
+		assertPrefix("", "a|b"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertPrefix("", "x/(a|b)"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testMatchingPathsStartWithPrefix() {
+		for (String regex : PATTERNS) {
+			String prefix = TransformMatcher.getLiteralPrefix(regex);
+			Pattern pattern = Pattern.compile(regex);
+			for (String path : PATHS) {
+				if (pattern.matcher(path).matches())
+					assertTrue("Path " + path + " matches " + regex + " but does not start with " + prefix, path.startsWith(prefix)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+		}
+	}
+
+	private static void assertPrefix(String expected, String regex) {
+		assertEquals("Wrong prefix of " + regex, expected, TransformMatcher.getLiteralPrefix(regex)); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.transforms.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import org.eclipse.equinox.internal.transforms.StreamTransformer;
+import org.eclipse.equinox.internal.transforms.TransformedEntryCache;
+import org.eclipse.equinox.internal.transforms.TransformedEntryCache.Key;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/*
+ * Checks the memory and spill accounting of the transformed entry cache with
+ * small limits.
+ */
+public class TransformedEntryCacheTest {
+	private static final int ENTRY_SIZE = 40;
+	private static final long MAX_MEMORY_SIZE = 100;
+	private static final long MAX_SPILLED_SIZE = 250;
+
+	private final StreamTransformer transformer = new StreamTransformer() {
+		public InputStream getInputStream(InputStream inputStream, URL transformerUrl) {
+			return inputStream;
+		}
+	};
+	private File spillDirectory;
+	private TransformedEntryCache cache;
+
+	@Before
+	public void setUp() throws IOException {
+		spillDirectory = File.createTempFile("tfcache", ".dir"); //$NON-NLS-1$ //$NON-NLS-2$
+		spillDirectory.delete();
+		cache = new TransformedEntryCache(MAX_MEMORY_SIZE, MAX_SPILLED_SIZE);
+	}
+
+	@After
+	public void tearDown() {
+		cache.clear();
+		File[] files = spillDirectory.listFiles();
+		if (files != null) {
+			for (File file : files)
+				file.delete();
+		}
+		spillDirectory.delete();
+	}
+
+	@Test
+	public void testLeastRecentlyUsedSpilled() {
+		cache.put(key("a"), content(1), spillDirectory); //$NON-NLS-1$
+		cache.put(key("b"), content(2), spillDirectory); //$NON-NLS-1$
+		assertEquals("Wrong memory size", 2 * ENTRY_SIZE, cache.getMemorySize()); //$NON-NLS-1$
+		assertEquals("Wrong spilled size", 0, cache.getSpilledSize()); //$NON-NLS-1$
+
+		// a is used more recently than b, so b is spilled
+		assertArrayEquals(content(1), cache.get(key("a"))); //$NON-NLS-1$
+		cache.put(key("c"), content(3), spillDirectory); //$NON-NLS-1$
+		assertEquals("Wrong memory size", 2 * ENTRY_SIZE, cache.getMemorySize()); //$NON-NLS-1$
+		assertEquals("Wrong spilled size", ENTRY_SIZE, cache.getSpilledSize()); //$NON-NLS-1$
+		assertEquals("Wrong number of spilled files", 1, spillDirectory.list().length); //$NON-NLS-1$
+
+		assertArrayEquals(content(1), cache.get(key("a"))); //$NON-NLS-1$
+		assertArrayEquals(content(2), cache.get(key("b"))); //$NON-NLS-1$
+		assertArrayEquals(content(3), cache.get(key("c"))); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testReplace() {
+		cache.put(key("a"), content(1), spillDirectory); //$NON-NLS-1$
+		cache.put(key("a"), new byte[ENTRY_SIZE / 2], spillDirectory); //$NON-NLS-1$
+		assertEquals("Wrong memory size", ENTRY_SIZE / 2, cache.getMemorySize()); //$NON-NLS-1$
+		assertArrayEquals(new byte[ENTRY_SIZE / 2], cache.get(key("a"))); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testSpillLimit() {
+		int entries = 10;
+		for (int i = 0; i < entries; i++)
+			cache.put(key(Integer.toString(i)), content(i), spillDirectory);
+		long inMemory = MAX_MEMORY_SIZE / ENTRY_SIZE;
+		long spilled = MAX_SPILLED_SIZE / ENTRY_SIZE;
+		assertEquals("Wrong memory size", inMemory * ENTRY_SIZE, cache.getMemorySize()); //$NON-NLS-1$
+		assertEquals("Wrong spilled size", spilled * ENTRY_SIZE, cache.getSpilledSize()); //$NON-NLS-1$
+		assertEquals("Wrong number of spilled files", spilled, spillDirectory.list().length); //$NON-NLS-1$
+
+		// the oldest entries are dropped, the newest are spilled or in memory
+		for (int i = 0; i < entries; i++) {
+			byte[] cached = cache.get(key(Integer.toString(i)));
+			if (i < entries - inMemory - spilled)
+				assertNull("Entry " + i + " not dropped", cached); //$NON-NLS-1$ //$NON-NLS-2$
+			else
+				assertArrayEquals(content(i), cached);
+		}
+	}
+
+	@Test
+	public void testTooLarge() {
+		cache.put(key("a"), new byte[TransformedEntryCache.MAX_ENTRY_SIZE + 1], spillDirectory); //$NON-NLS-1$
+		assertNull(cache.get(key("a"))); //$NON-NLS-1$
+		assertEquals("Wrong memory size", 0, cache.getMemorySize()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testClear() {
+		for (int i = 0; i < 5; i++)
+			cache.put(key(Integer.toString(i)), content(i), spillDirectory);
+		assertEquals("Wrong number of spilled files", 3, spillDirectory.list().length); //$NON-NLS-1$
+
+		cache.clear();
+		assertEquals("Wrong memory size", 0, cache.getMemorySize()); //$NON-NLS-1$
+		assertEquals("Wrong spilled size", 0, cache.getSpilledSize()); //$NON-NLS-1$
+		assertEquals("Wrong number of spilled files", 0, spillDirectory.list().length); //$NON-NLS-1$
+		for (int i = 0; i < 5; i++)
+			assertNull(cache.get(key(Integer.toString(i))));
+	}
+
+	@Test
+	public void testTransformerModified() {
+		cache.put(key("a"), content(1), spillDirectory); //$NON-NLS-1$
+		// the same entry transformed by an edited transformer resource
+		assertNull(cache.get(new Key(1, 0, "a", 1000, transformer, "file:/transform.xsl", 3000))); //$NON-NLS-1$ //$NON-NLS-2$
+		// or by another transformer instance
+		StreamTransformer other = new StreamTransformer() {
+			public InputStream getInputStream(InputStream inputStream, URL transformerUrl) {
+				return inputStream;
+			}
+		};
+		assertNull(cache.get(new Key(1, 0, "a", 1000, other, "file:/transform.xsl", 2000))); //$NON-NLS-1$ //$NON-NLS-2$
+		assertArrayEquals(content(1), cache.get(key("a"))); //$NON-NLS-1$
+	}
+
+	private Key key(String path) {
+		return new Key(1, 0, path, 1000, transformer, "file:/transform.xsl", 2000); //$NON-NLS-1$
+	}
+
+	private static byte[] content(int seed) {
+		byte[] content = new byte[ENTRY_SIZE];
+		for (int i = 0; i < content.length; i++)
+			content[i] = (byte) (seed + i);
+		return content;
+	}
+}
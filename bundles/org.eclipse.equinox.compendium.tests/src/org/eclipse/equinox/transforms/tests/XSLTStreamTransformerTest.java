@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.transforms.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.net.URL;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+import org.eclipse.equinox.compendium.tests.Activator;
+import org.eclipse.equinox.internal.transforms.xslt.XSLTStreamTransformer;
+import org.eclipse.osgi.framework.log.FrameworkLog;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.util.tracker.ServiceTracker;
+
+/*
+ * Checks the piped stream of the XSLT transformer and the caching of the
+ * compiled templates and of the transformers.
+ */
+public class XSLTStreamTransformerTest {
+	private static final String PREFIX_XSLT = "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" //$NON-NLS-1$
+			+ "<xsl:output method=\"text\"/><xsl:template match=\"/\">%s<xsl:value-of select=\"/a\"/></xsl:template></xsl:stylesheet>"; //$NON-NLS-1$
+	private static final String FAILING_XSLT = "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" //$NON-NLS-1$
+			+ "<xsl:template match=\"/\"><xsl:message terminate=\"yes\">Expected failure</xsl:message></xsl:template></xsl:stylesheet>"; //$NON-NLS-1$
+	private static final String INPUT = "<a>content</a>"; //$NON-NLS-1$
+
+	private ServiceTracker<FrameworkLog, FrameworkLog> logTracker;
+	private XSLTStreamTransformer transformer;
+	private File xsltFile;
+
+	@Before
+	public void setUp() throws IOException {
+		logTracker = new ServiceTracker<>(Activator.getBundleContext(), FrameworkLog.class, null);
+		transformer = new XSLTStreamTransformer(logTracker);
+		xsltFile = File.createTempFile("transform", ".xsl"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@After
+	public void tearDown() {
+		xsltFile.delete();
+	}
+
+	private void writeXSLT(String content) throws IOException {
+		OutputStream out = new FileOutputStream(xsltFile);
+		try {
+			out.write(content.getBytes("UTF-8")); //$NON-NLS-1$
+		} finally {
+			out.close();
+		}
+	}
+
+	private InputStream transform(String input) throws IOException {
+		return transformer.getInputStream(new ByteArrayInputStream(input.getBytes("UTF-8")), xsltFile.toURI().toURL()); //$NON-NLS-1$
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[100];
+		int len;
+		while ((len = in.read(buffer)) != -1)
+			out.write(buffer, 0, len);
+		return out.toByteArray();
+	}
+
+	private static String read(InputStream in) throws IOException {
+		return new String(readAll(in), "UTF-8"); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testTransform() throws IOException {
+		writeXSLT(String.format(PREFIX_XSLT, "A:")); //$NON-NLS-1$
+		assertEquals("Wrong transform result.", "A:content", read(transform(INPUT))); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testMarkReset() throws IOException {
+		writeXSLT(String.format(PREFIX_XSLT, "A:")); //$NON-NLS-1$
+		InputStream in = transform(INPUT);
+		assertTrue("Mark is not supported.", in.markSupported()); //$NON-NLS-1$
+		assertEquals("Wrong first byte.", 'A', in.read()); //$NON-NLS-1$
+		in.mark(100);
+		assertEquals("Wrong content.", ":content", read(in)); //$NON-NLS-1$ //$NON-NLS-2$
+		in.reset();
+		assertEquals("Wrong content after reset.", ":content", read(in)); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testFailureRethrown() throws IOException {
+		writeXSLT(FAILING_XSLT);
+		InputStream in = transform(INPUT);
+		for (int i = 0; i < 2; i++) {
+			try {
+				in.read();
+				fail("The transform failure was not reported."); //$NON-NLS-1$
+			} catch (IOException e) {
+				// expected, on every read
+			}
+		}
+	}
+
+	@Test
+	public void testPipeCopiesUntilEndOfStream() throws Exception {
+		// the pipe is not in the package exported to the tests, use the one of the XSLT bundle
+		Class<?> pipeClass = XSLTStreamTransformer.class.getClassLoader().loadClass("org.eclipse.equinox.internal.transforms.Pipe"); //$NON-NLS-1$
+		byte[] content = new byte[5000];
+		for (int i = 0; i < content.length; i++)
+			content[i] = (byte) i;
+		Object pipe = pipeClass.getConstructor(InputStream.class).newInstance(new ByteArrayInputStream(content));
+		InputStream in = (InputStream) pipeClass.getMethod("getPipedInputStream").invoke(pipe); //$NON-NLS-1$
+		assertArrayEquals("Wrong piped content.", content, readAll(in)); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testTemplatesCached() throws Exception {
+		writeXSLT(String.format(PREFIX_XSLT, "A:")); //$NON-NLS-1$
+		long lastModified = xsltFile.lastModified();
+		assertEquals("Wrong transform result.", "A:content", read(transform(INPUT))); //$NON-NLS-1$ //$NON-NLS-2$
+
+		// an unchanged modification time keeps the compiled template
+		writeXSLT(String.format(PREFIX_XSLT, "B:")); //$NON-NLS-1$
+		xsltFile.setLastModified(lastModified);
+		assertEquals("Template was compiled again.", "A:content", read(transform(INPUT))); //$NON-NLS-1$ //$NON-NLS-2$
+
+		// the modification time is checked at most once per second
+		xsltFile.setLastModified(lastModified + 10000);
+		Thread.sleep(1100);
+		assertEquals("Changed template was not compiled again.", "B:content", read(transform(INPUT))); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testTransformerReset() throws Exception {
+		Templates templates = TransformerFactory.newInstance().newTemplates(new StreamSource(new StringReader(String.format(PREFIX_XSLT, "A:")))); //$NON-NLS-1$
+		Method acquire = XSLTStreamTransformer.class.getDeclaredMethod("acquireTransformer", Templates.class); //$NON-NLS-1$
+		Method release = XSLTStreamTransformer.class.getDeclaredMethod("releaseTransformer", Templates.class, Transformer.class); //$NON-NLS-1$
+		acquire.setAccessible(true);
+		release.setAccessible(true);
+
+		Transformer first = (Transformer) acquire.invoke(transformer, templates);
+		first.setOutputProperty(OutputKeys.METHOD, "xml"); //$NON-NLS-1$
+		release.invoke(transformer, templates, first);
+		Transformer second = (Transformer) acquire.invoke(transformer, templates);
+		assertSame("The idle transformer was not reused.", first, second); //$NON-NLS-1$
+		assertEquals("The reused transformer was not reset.", "text", second.getOutputProperty(OutputKeys.METHOD)); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
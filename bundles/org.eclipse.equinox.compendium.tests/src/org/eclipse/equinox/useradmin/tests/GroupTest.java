@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008 IBM Corporation and others
+ * Copyright (c) 2008, 2018 IBM Corporation and others
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,7 @@
 package org.eclipse.equinox.useradmin.tests;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -76,4 +77,34 @@ public class GroupTest {
 		assertNull(userAdmin.getRole("testRole1")); //$NON-NLS-1$
 	}
 
+	@Test
+	public void testAuthorizationAfterMembershipChanges() throws Exception {
+		try {
+			Group outer = (Group) userAdmin.createRole("testOuterGroup", Role.GROUP); //$NON-NLS-1$
+			Group inner = (Group) userAdmin.createRole("testInnerGroup", Role.GROUP); //$NON-NLS-1$
+			User user = (User) userAdmin.createRole("testMemberUser", Role.USER); //$NON-NLS-1$
+			outer.addMember(inner);
+
+			Authorization authorization = userAdmin.getAuthorization(user);
+			assertFalse(authorization.hasRole("testOuterGroup")); //$NON-NLS-1$
+			inner.addMember(user);
+			assertTrue(authorization.hasRole("testInnerGroup")); //$NON-NLS-1$
+			assertTrue(authorization.hasRole("testOuterGroup")); //$NON-NLS-1$
+
+			outer.removeMember(inner);
+			assertFalse(authorization.hasRole("testOuterGroup")); //$NON-NLS-1$
+			outer.addMember(user);
+			assertTrue(authorization.hasRole("testOuterGroup")); //$NON-NLS-1$
+
+			userAdmin.removeRole("testOuterGroup"); //$NON-NLS-1$
+			assertFalse(authorization.hasRole("testOuterGroup")); //$NON-NLS-1$
+			userAdmin.createRole("testOuterGroup", Role.GROUP); //$NON-NLS-1$
+			assertFalse(authorization.hasRole("testOuterGroup")); //$NON-NLS-1$
+		} finally {
+			userAdmin.removeRole("testOuterGroup"); //$NON-NLS-1$
+			userAdmin.removeRole("testInnerGroup"); //$NON-NLS-1$
+			userAdmin.removeRole("testMemberUser"); //$NON-NLS-1$
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2013 IBM Corporation and others
+ * Copyright (c) 2008, 2018 IBM Corporation and others
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -105,6 +105,34 @@ public class UserTest {
 		assertNull(userAdmin.getRole("testUserCreateAndRemove")); //$NON-NLS-1$
 	}
 
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testGetUserAfterPropertyChanges() {
+		try {
+			createUser1();
+			assertNotNull(userAdmin.getUser("test", "valu")); //$NON-NLS-1$ //$NON-NLS-2$
+			User user = (User) userAdmin.getRole("testUserCreate1"); //$NON-NLS-1$
+			user.getProperties().put("test", "changed"); //$NON-NLS-1$ //$NON-NLS-2$
+			assertNull(userAdmin.getUser("test", "valu")); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals("testUserCreate1", userAdmin.getUser("test", "changed").getName()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+			User other = (User) userAdmin.createRole("testUserCreate3", Role.USER); //$NON-NLS-1$
+			other.getProperties().put("test", "changed"); //$NON-NLS-1$ //$NON-NLS-2$
+			assertNull("more than one match", userAdmin.getUser("test", "changed")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			other.getProperties().remove("test"); //$NON-NLS-1$
+			assertEquals("testUserCreate1", userAdmin.getUser("test", "changed").getName()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+			user.getProperties().clear();
+			assertNull(userAdmin.getUser("test", "changed")); //$NON-NLS-1$ //$NON-NLS-2$
+			user.getProperties().put("test", "valu"); //$NON-NLS-1$ //$NON-NLS-2$
+			removeUser1();
+			assertNull(userAdmin.getUser("test", "valu")); //$NON-NLS-1$ //$NON-NLS-2$
+		} finally {
+			removeUser1Silently();
+			userAdmin.removeRole("testUserCreate3"); //$NON-NLS-1$
+		}
+	}
+
 	@Before
 	public void setUp() throws Exception {
 		Activator.getBundle(Activator.BUNDLE_USERADMIN).start();
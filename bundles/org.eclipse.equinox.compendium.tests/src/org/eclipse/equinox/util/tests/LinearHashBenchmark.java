@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.util.tests;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.equinox.internal.util.hash.HashIntObjS;
+import org.eclipse.equinox.internal.util.hash.LinearHashIntObj;
+
+/*
+ * Measures the lookup throughput of the concurrent LinearHashIntObj against
+ * the synchronized HashIntObjS and ConcurrentHashMap, with several reader
+ * threads and one thread occasionally updating the table. This is not part of
+ * the test suite, run it with "java LinearHashBenchmark [readers]".
+ */
+public class LinearHashBenchmark {
+	private static final int KEYS = 1024;
+	private static final long WARM_UP = 2000;
+	private static final long DURATION = 5000;
+	private static final long UPDATE_INTERVAL = 1;
+
+	interface Table {
+		Object get(int key);
+
+		void put(int key, Object value);
+	}
+
+	public static void main(String[] args) throws Exception {
+		int readers = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		final LinearHashIntObj linear = new LinearHashIntObj(KEYS, true);
+		final HashIntObjS synchronizedHash = new HashIntObjS(KEYS);
+		final Map<Integer, Object> concurrentHashMap = new ConcurrentHashMap<Integer, Object>(KEYS);
+		Table[] tables = {new Table() {
+			public Object get(int key) {
+				return linear.get(key);
+			}
+
+			public void put(int key, Object value) {
+				linear.put(key, value);
+			}
+
+			@Override
+			public String toString() {
+				return "LinearHashIntObj (concurrent)"; //$NON-NLS-1$
+			}
+		}, new Table() {
+			public Object get(int key) {
+				return synchronizedHash.get(key);
+			}
+
+			public void put(int key, Object value) {
+				synchronizedHash.put(key, value);
+			}
+
+			@Override
+			public String toString() {
+				return "HashIntObjS"; //$NON-NLS-1$
+			}
+		}, new Table() {
+			public Object get(int key) {
+				return concurrentHashMap.get(key);
+			}
+
+			public void put(int key, Object value) {
+				concurrentHashMap.put(key, value);
+			}
+
+			@Override
+			public String toString() {
+				return "ConcurrentHashMap"; //$NON-NLS-1$
+			}
+		}};
+		for (Table table : tables) {
+			for (int i = 0; i < KEYS; i++)
+				table.put(i * 31, Integer.valueOf(i));
+			run(table, readers, WARM_UP);
+			long lookups = run(table, readers, DURATION);
+			System.out.println(table + ": " + lookups / DURATION + " lookups/ms with " + readers + " readers"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+	}
+
+	private static long run(final Table table, int readers, final long duration) throws InterruptedException {
+		final AtomicLong lookups = new AtomicLong();
+		final CountDownLatch start = new CountDownLatch(1);
+		final long[] end = new long[1];
+		Thread[] threads = new Thread[readers + 1];
+		for (int i = 0; i < readers; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					await(start);
+					long count = 0;
+					int key = 0;
+					while (System.currentTimeMillis() < end[0]) {
+						for (int j = 0; j < 1000; j++) {
+							if (table.get(key * 31) == null)
+								throw new IllegalStateException("missing " + key); //$NON-NLS-1$
+							key = (key + 1) & (KEYS - 1);
+						}
+						count += 1000;
+					}
+					lookups.addAndGet(count);
+				}
+			};
+		}
+		threads[readers] = new Thread() {
+			@Override
+			public void run() {
+				await(start);
+				int key = 0;
+				while (System.currentTimeMillis() < end[0]) {
+					table.put(key * 31, Integer.valueOf(key));
+					key = (key + 1) & (KEYS - 1);
+					try {
+						Thread.sleep(UPDATE_INTERVAL);
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+			}
+		};
+		for (Thread thread : threads)
+			thread.start();
+		end[0] = System.currentTimeMillis() + duration;
+		start.countDown();
+		for (Thread thread : threads)
+			thread.join();
+		return lookups.get();
+	}
+
+	static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,347 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.util.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import org.eclipse.equinox.internal.util.hash.LinearHashIntObj;
+import org.eclipse.equinox.internal.util.hash.LinearHashLongObj;
+import org.eclipse.equinox.internal.util.hash.LinearHashObjInt;
+import org.junit.Test;
+
+/*
+ * Compares the open addressing hashtables with java.util.HashMap over random
+ * puts and removes, including many rehashes and colliding keys, and checks
+ * that readers running next to a writer always see the stable entries.
+ */
+public class LinearHashTest {
+	private static final int OPERATIONS = 50000;
+	private static final int READERS = 4;
+
+	@Test
+	public void testIntObj() {
+		testIntObj(new LinearHashIntObj());
+		testIntObj(new LinearHashIntObj(0, true));
+		testIntObj(new LinearHashIntObj(4, 0.9f, false));
+	}
+
+	private void testIntObj(LinearHashIntObj table) {
+		Map<Integer, Object> expected = new HashMap<Integer, Object>();
+		Random random = new Random(42);
+		for (int i = 0; i < OPERATIONS; i++) {
+			int key = randomKey(random);
+			if (random.nextInt(3) == 0) {
+				assertEquals("remove " + key, expected.remove(key), table.remove(key)); //$NON-NLS-1$
+			} else {
+				Object value = Integer.valueOf(i);
+				assertEquals("put " + key, expected.put(key, value), table.put(key, value)); //$NON-NLS-1$
+			}
+			int probe = randomKey(random);
+			assertEquals("get " + probe, expected.get(probe), table.get(probe)); //$NON-NLS-1$
+			assertEquals("containsKey " + probe, expected.containsKey(probe), table.containsKey(probe)); //$NON-NLS-1$
+		}
+		assertEquals("size", expected.size(), table.size()); //$NON-NLS-1$
+		int[] keys = table.keys();
+		assertEquals("keys", expected.size(), keys.length); //$NON-NLS-1$
+		for (int i = 0; i < keys.length; i++)
+			assertTrue("unexpected key " + keys[i], expected.containsKey(keys[i])); //$NON-NLS-1$
+		table.removeAll();
+		assertEquals("size after removeAll", 0, table.size()); //$NON-NLS-1$
+		assertNull("get after removeAll", table.get(keys.length > 0 ? keys[0] : 0)); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testLongObj() {
+		testLongObj(new LinearHashLongObj());
+		testLongObj(new LinearHashLongObj(0, true));
+		testLongObj(new LinearHashLongObj(4, 0.9f, false));
+	}
+
+	private void testLongObj(LinearHashLongObj table) {
+		Map<Long, Object> expected = new HashMap<Long, Object>();
+		Random random = new Random(42);
+		for (int i = 0; i < OPERATIONS; i++) {
+			// keys differing only in the high bits must not all collide
+			long key = ((long) randomKey(random) << 32) | random.nextInt(4);
+			if (random.nextInt(3) == 0) {
+				assertEquals("remove " + key, expected.remove(key), table.remove(key)); //$NON-NLS-1$
+			} else {
+				Object value = Integer.valueOf(i);
+				assertEquals("put " + key, expected.put(key, value), table.put(key, value)); //$NON-NLS-1$
+			}
+			long probe = ((long) randomKey(random) << 32) | random.nextInt(4);
+			assertEquals("get " + probe, expected.get(probe), table.get(probe)); //$NON-NLS-1$
+		}
+		assertEquals("size", expected.size(), table.size()); //$NON-NLS-1$
+		long[] keys = table.keys();
+		assertEquals("keys", expected.size(), keys.length); //$NON-NLS-1$
+		for (int i = 0; i < keys.length; i++)
+			assertTrue("unexpected key " + keys[i], expected.containsKey(keys[i])); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testObjInt() {
+		testObjInt(new LinearHashObjInt());
+		testObjInt(new LinearHashObjInt(0, true));
+		testObjInt(new LinearHashObjInt(4, 0.9f, false));
+	}
+
+	private void testObjInt(LinearHashObjInt table) {
+		Map<Object, Integer> expected = new HashMap<Object, Integer>();
+		Random random = new Random(42);
+		for (int i = 0; i < OPERATIONS; i++) {
+			Object key = new CollidingKey(randomKey(random));
+			if (random.nextInt(3) == 0) {
+				Integer old = expected.remove(key);
+				if (old == null) {
+					try {
+						table.remove(key);
+						fail("removed missing key " + key); //$NON-NLS-1$
+					} catch (NoSuchElementException e) {
+						// expected
+					}
+				} else {
+					assertEquals("remove " + key, old.intValue(), table.remove(key)); //$NON-NLS-1$
+				}
+			} else {
+				expected.put(key, Integer.valueOf(i));
+				table.put(key, i);
+			}
+			Object probe = new CollidingKey(randomKey(random));
+			Integer value = expected.get(probe);
+			assertEquals("containsKey " + probe, value != null, table.containsKey(probe)); //$NON-NLS-1$
+			if (value != null)
+				assertEquals("get " + probe, value.intValue(), table.get(probe)); //$NON-NLS-1$
+		}
+		assertEquals("size", expected.size(), table.size()); //$NON-NLS-1$
+		assertEquals("keys", expected.keySet(), new java.util.HashSet<Object>(Arrays.asList(table.keys()))); //$NON-NLS-1$
+		try {
+			table.put(null, 0);
+			fail("null key accepted"); //$NON-NLS-1$
+		} catch (NullPointerException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testInvalidArguments() {
+		try {
+			new LinearHashIntObj(-1, false);
+			fail("negative capacity accepted"); //$NON-NLS-1$
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			new LinearHashObjInt(16, 1.0f, false);
+			fail("load factor 1.0 accepted"); //$NON-NLS-1$
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			new LinearHashLongObj().put(1, null);
+			fail("null value accepted"); //$NON-NLS-1$
+		} catch (NullPointerException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testConcurrentIntObj() throws Exception {
+		final LinearHashIntObj table = new LinearHashIntObj(0, true);
+		for (int i = 0; i < 100; i++)
+			table.put(i * 1024, Integer.valueOf(i));
+		runConcurrently(new Runnable() {
+			public void run() {
+				Random random = new Random();
+				for (int i = 0; i < OPERATIONS; i++) {
+					// transient keys collide with the stable ones and force rehashes and shifts
+					int key = 1 + random.nextInt(100) * 1024 + random.nextInt(1000) * 1024 * 1024;
+					table.put(key, "transient"); //$NON-NLS-1$
+					if (i % 4 != 0)
+						table.remove(key);
+					if (i % 10000 == 0) {
+						int[] keys = table.keys();
+						for (int j = 0; j < keys.length; j++)
+							if (keys[j] % 1024 != 0)
+								table.remove(keys[j]);
+					}
+				}
+			}
+		}, new Runnable() {
+			public void run() {
+				for (int i = 0; i < OPERATIONS; i++) {
+					int stable = i % 100;
+					assertEquals("stable key " + stable, Integer.valueOf(stable), table.get(stable * 1024)); //$NON-NLS-1$
+				}
+			}
+		});
+	}
+
+	@Test
+	public void testConcurrentLongObj() throws Exception {
+		final LinearHashLongObj table = new LinearHashLongObj(0, true);
+		for (int i = 0; i < 100; i++)
+			table.put((long) i << 32, Integer.valueOf(i));
+		runConcurrently(new Runnable() {
+			public void run() {
+				Random random = new Random();
+				for (int i = 0; i < OPERATIONS; i++) {
+					long key = ((long) random.nextInt(100) << 32) + 1 + random.nextInt(1000);
+					table.put(key, "transient"); //$NON-NLS-1$
+					if (i % 4 != 0)
+						table.remove(key);
+				}
+			}
+		}, new Runnable() {
+			public void run() {
+				for (int i = 0; i < OPERATIONS; i++) {
+					int stable = i % 100;
+					assertEquals("stable key " + stable, Integer.valueOf(stable), table.get((long) stable << 32)); //$NON-NLS-1$
+				}
+			}
+		});
+	}
+
+	@Test
+	public void testConcurrentObjInt() throws Exception {
+		final LinearHashObjInt table = new LinearHashObjInt(0, true);
+		for (int i = 0; i < 100; i++)
+			table.put(new CollidingKey(i), i);
+		runConcurrently(new Runnable() {
+			public void run() {
+				Random random = new Random();
+				for (int i = 0; i < OPERATIONS; i++) {
+					Object key = new CollidingKey(1000 + random.nextInt(5000));
+					table.put(key, -1);
+					if (i % 4 != 0)
+						table.remove(key);
+				}
+			}
+		}, new Runnable() {
+			public void run() {
+				for (int i = 0; i < OPERATIONS; i++) {
+					int stable = i % 100;
+					// must neither throw NoSuchElementException nor return another value
+					assertEquals("stable key " + stable, stable, table.get(new CollidingKey(stable))); //$NON-NLS-1$
+				}
+			}
+		});
+	}
+
+	@Test(timeout = 10000)
+	public void testGetDoesNotLock() throws Exception {
+		final LinearHashIntObj intObj = new LinearHashIntObj(0, true);
+		final LinearHashLongObj longObj = new LinearHashLongObj(0, true);
+		final LinearHashObjInt objInt = new LinearHashObjInt(0, true);
+		intObj.put(1, "one"); //$NON-NLS-1$
+		longObj.put(1L << 40, "one"); //$NON-NLS-1$
+		objInt.put("one", 1); //$NON-NLS-1$
+		final CountDownLatch locked = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(1);
+		// the modifying methods hold the monitor of the table
+		Thread holder = new Thread() {
+			@Override
+			public void run() {
+				synchronized (intObj) {
+					synchronized (longObj) {
+						synchronized (objInt) {
+							locked.countDown();
+							try {
+								done.await();
+							} catch (InterruptedException e) {
+								// exit
+							}
+						}
+					}
+				}
+			}
+		};
+		holder.start();
+		locked.await();
+		try {
+			assertEquals("one", intObj.get(1)); //$NON-NLS-1$
+			assertNull(intObj.get(2));
+			assertEquals("one", longObj.get(1L << 40)); //$NON-NLS-1$
+			assertNull(longObj.get(1));
+			assertEquals(1, objInt.get("one")); //$NON-NLS-1$
+			assertTrue(objInt.containsKey("one")); //$NON-NLS-1$
+		} finally {
+			done.countDown();
+			holder.join();
+		}
+	}
+
+	private static int randomKey(Random random) {
+		// multiples of 64 collide in the low bits, negative keys are valid too
+		return (random.nextInt(2000) - 1000) * 64;
+	}
+
+	private static void runConcurrently(Runnable writer, Runnable reader) throws Exception {
+		final List<Throwable> errors = new ArrayList<Throwable>();
+		Thread[] threads = new Thread[READERS + 1];
+		for (int i = 0; i < threads.length; i++) {
+			final Runnable job = i == 0 ? writer : reader;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						job.run();
+					} catch (Throwable t) {
+						synchronized (errors) {
+							errors.add(t);
+						}
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length; i++)
+			threads[i].join();
+		assertTrue("Unexpected errors: " + errors, errors.isEmpty()); //$NON-NLS-1$
+	}
+
+	/*
+	 * A key whose hash code puts many keys in the same bucket.
+	 */
+	private static class CollidingKey {
+		private final int id;
+
+		CollidingKey(int id) {
+			this.id = id;
+		}
+
+		@Override
+		public int hashCode() {
+			return id / 8;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof CollidingKey && ((CollidingKey) obj).id == id;
+		}
+
+		@Override
+		public String toString() {
+			return "CollidingKey(" + id + ")"; //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+}
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.util.tests;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.equinox.internal.util.impl.tpt.threadpool.JobExecutor;
+import org.eclipse.equinox.internal.util.impl.tpt.threadpool.StealingThreadPool;
+import org.eclipse.equinox.internal.util.impl.tpt.threadpool.ThreadPoolFactoryImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StealingThreadPoolTest {
+	private static final long TIMEOUT = 5000;
+
+	private StealingThreadPool pool;
+	private StealingThreadPool oldPool;
+
+	@Before
+	public void setUp() {
+		pool = new StealingThreadPool(1, 4, 1000);
+		oldPool = ThreadPoolFactoryImpl.stealingPool;
+	}
+
+	@After
+	public void tearDown() {
+		ThreadPoolFactoryImpl.stealingPool = oldPool;
+		pool.terminate();
+	}
+
+	private void execute(Runnable job, String name) {
+		pool.execute(job, Thread.NORM_PRIORITY, name, null, null);
+	}
+
+	@Test
+	public void testStealing() throws InterruptedException {
+		final int count = 8;
+		final CountDownLatch done = new CountDownLatch(count);
+		final CountDownLatch parentDone = new CountDownLatch(1);
+		final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+		final Thread[] parent = new Thread[1];
+		execute(new Runnable() {
+			public void run() {
+				parent[0] = Thread.currentThread();
+				// jobs submitted from a pool thread go to the queue of that thread
+				for (int i = 0; i < count; i++) {
+					execute(new Runnable() {
+						public void run() {
+							threads.add(Thread.currentThread());
+							done.countDown();
+						}
+					}, "child" + i); //$NON-NLS-1$
+				}
+				// keep the owner of the queue busy, the others must steal
+				try {
+					done.await(TIMEOUT, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					// ignore
+				}
+				parentDone.countDown();
+			}
+		}, "parent"); //$NON-NLS-1$
+		assertTrue("Jobs were not stolen from a busy worker.", done.await(TIMEOUT, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+		assertTrue("Parent job did not finish.", parentDone.await(TIMEOUT, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+		assertFalse("The busy worker ran its own jobs.", threads.contains(parent[0])); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testSlotReleasedOnFailedExecute() {
+		ThreadPoolFactoryImpl factory = new ThreadPoolFactoryImpl("stealing.tests", 1); //$NON-NLS-1$
+		ThreadPoolFactoryImpl.stealingPool = pool;
+		pool.terminate();
+		try {
+			factory.execute(new Runnable() {
+				public void run() {
+					// nothing
+				}
+			}, "rejected"); //$NON-NLS-1$
+			fail("A terminated pool accepted a job."); //$NON-NLS-1$
+		} catch (RuntimeException e) {
+			// expected
+		}
+		assertNotNull("The slot of the rejected job was not released.", factory.getExecutor()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testExecutorFallsBackOnFailure() throws InterruptedException {
+		ThreadPoolFactoryImpl factory = new ThreadPoolFactoryImpl("stealing.tests", 1); //$NON-NLS-1$
+		ThreadPoolFactoryImpl.stealingPool = pool;
+		JobExecutor executor = factory.getExecutor();
+		assertNotNull("No executor.", executor); //$NON-NLS-1$
+		assertNull("The factory limit was not applied.", factory.getExecutor()); //$NON-NLS-1$
+		pool.terminate();
+		final CountDownLatch ran = new CountDownLatch(1);
+		executor.setRunnable(new Runnable() {
+			public void run() {
+				ran.countDown();
+			}
+		}, "fallback", factory, null); //$NON-NLS-1$
+		assertTrue("The job of the rejected executor did not run.", ran.await(TIMEOUT, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+		assertNotNull("The slot of the rejected executor was not released.", factory.getExecutor()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testSlotReleasedAfterFailingJob() throws InterruptedException {
+		ThreadPoolFactoryImpl factory = new ThreadPoolFactoryImpl("stealing.tests", 1); //$NON-NLS-1$
+		ThreadPoolFactoryImpl.stealingPool = pool;
+		final CountDownLatch queuedRan = new CountDownLatch(1);
+		factory.execute(new Runnable() {
+			public void run() {
+				throw new RuntimeException("Expected failure"); //$NON-NLS-1$
+			}
+		}, "failing"); //$NON-NLS-1$
+		// queued in the factory until the failing job has released the slot
+		factory.execute(new Runnable() {
+			public void run() {
+				queuedRan.countDown();
+			}
+		}, "queued"); //$NON-NLS-1$
+		assertTrue("The queued job did not run.", queuedRan.await(TIMEOUT, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+		long end = System.currentTimeMillis() + TIMEOUT;
+		JobExecutor executor;
+		while ((executor = factory.getExecutor()) == null && System.currentTimeMillis() < end)
+			Thread.sleep(10);
+		assertNotNull("The slot was not released.", executor); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testShutdown() throws InterruptedException {
+		final Thread[] worker = new Thread[1];
+		final CountDownLatch ran = new CountDownLatch(1);
+		execute(new Runnable() {
+			public void run() {
+				worker[0] = Thread.currentThread();
+				ran.countDown();
+			}
+		}, "job"); //$NON-NLS-1$
+		assertTrue("Job did not run.", ran.await(TIMEOUT, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+		pool.terminate();
+		worker[0].join(TIMEOUT);
+		assertFalse("Worker is still alive after terminate.", worker[0].isAlive()); //$NON-NLS-1$
+		try {
+			execute(new Runnable() {
+				public void run() {
+					// nothing
+				}
+			}, "late"); //$NON-NLS-1$
+			fail("A terminated pool accepted a job."); //$NON-NLS-1$
+		} catch (RuntimeException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.util.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.equinox.internal.util.impl.tpt.threadpool.ThreadPoolFactoryImpl;
+import org.eclipse.equinox.internal.util.impl.tpt.timer.TimerWheel;
+import org.eclipse.equinox.internal.util.timer.Timer;
+import org.eclipse.equinox.internal.util.timer.TimerListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimerWheelTest {
+	private static final long TICK = 10;
+	private static final long TIMEOUT = 5000;
+
+	private TimerWheel wheel;
+	private RecordingListener listener;
+
+	static class RecordingListener implements TimerListener {
+		final BlockingQueue<Integer> events = new LinkedBlockingQueue<>();
+
+		public void timer(int event) {
+			events.add(Integer.valueOf(event));
+		}
+
+		Integer next(long timeout) throws InterruptedException {
+			return events.poll(timeout, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Before
+	public void setUp() {
+		wheel = new TimerWheel(new ThreadPoolFactoryImpl("timer.tests", 4), TICK); //$NON-NLS-1$
+		listener = new RecordingListener();
+	}
+
+	@After
+	public void tearDown() {
+		wheel.terminate();
+	}
+
+	private void add(TimerListener l, int type, long period, int event) {
+		wheel.addNotifyListener(l, Thread.NORM_PRIORITY, type, period, event, "timer.test." + event); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testFiringOrder() throws InterruptedException {
+		long start = System.currentTimeMillis();
+		add(listener, Timer.ONE_SHOT_TIMER, 300, 3);
+		add(listener, Timer.ONE_SHOT_TIMER, 100, 1);
+		add(listener, Timer.ONE_SHOT_TIMER, 200, 2);
+		for (int i = 1; i <= 3; i++) {
+			assertEquals("Wrong firing order.", Integer.valueOf(i), listener.next(TIMEOUT)); //$NON-NLS-1$
+			assertTrue("Fired too early.", System.currentTimeMillis() - start >= i * 100); //$NON-NLS-1$
+		}
+		assertNull("One shot timer fired twice.", listener.next(300)); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testCancel() throws InterruptedException {
+		add(listener, Timer.ONE_SHOT_TIMER, 100, 1);
+		add(listener, Timer.ONE_SHOT_TIMER, 300, 2);
+		wheel.removeListener(listener, 1);
+		assertEquals("Wrong timer fired.", Integer.valueOf(2), listener.next(TIMEOUT)); //$NON-NLS-1$
+		assertNull("Cancelled timer fired.", listener.next(200)); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testPeriodic() throws InterruptedException {
+		add(listener, Timer.PERIODICAL_TIMER, 50, 1);
+		for (int i = 0; i < 3; i++)
+			assertEquals("Periodic timer was not re-armed.", Integer.valueOf(1), listener.next(TIMEOUT)); //$NON-NLS-1$
+		wheel.removeListener(listener, 1);
+		// a notification may already be on its way to the pool
+		listener.next(100);
+		listener.events.clear();
+		assertNull("Cancelled periodic timer fired.", listener.next(300)); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testReplace() throws InterruptedException {
+		long start = System.currentTimeMillis();
+		add(listener, Timer.ONE_SHOT_TIMER, 100, 1);
+		add(listener, Timer.ONE_SHOT_TIMER, 600, 1);
+		assertEquals("Replaced timer did not fire.", Integer.valueOf(1), listener.next(TIMEOUT)); //$NON-NLS-1$
+		assertTrue("The old timer fired.", System.currentTimeMillis() - start >= 600); //$NON-NLS-1$
+		assertNull("Replaced timer fired twice.", listener.next(300)); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testMaxRangeClamp() throws InterruptedException {
+		RecordingListener far = new RecordingListener();
+		add(far, Timer.ONE_SHOT_TIMER, Long.MAX_VALUE / 4, 1);
+		add(listener, Timer.ONE_SHOT_TIMER, 100, 2);
+		assertEquals("Near timer did not fire.", Integer.valueOf(2), listener.next(TIMEOUT)); //$NON-NLS-1$
+		assertNull("Clamped timer fired early.", far.next(300)); //$NON-NLS-1$
+		wheel.removeListener(far, 1);
+		add(far, Timer.ONE_SHOT_TIMER, 100, 1);
+		assertEquals("Timer not usable after the clamped one was removed.", Integer.valueOf(1), far.next(TIMEOUT)); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testAddWhileSleeping() throws InterruptedException {
+		long start = System.currentTimeMillis();
+		add(listener, Timer.ONE_SHOT_TIMER, 2000, 2);
+		// let the wheel go to sleep until the far notification
+		Thread.sleep(100);
+		add(listener, Timer.ONE_SHOT_TIMER, 100, 1);
+		Integer event = listener.next(TIMEOUT);
+		assertNotNull("Timer did not fire.", event); //$NON-NLS-1$
+		assertEquals("The sleeping wheel was not woken up.", Integer.valueOf(1), event); //$NON-NLS-1$
+		assertTrue("The sleeping wheel was not woken up.", System.currentTimeMillis() - start < 1000); //$NON-NLS-1$
+	}
+}
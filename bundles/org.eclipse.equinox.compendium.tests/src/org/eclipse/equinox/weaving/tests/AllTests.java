@@ -0,0 +1,21 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Martin Lippert and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Martin Lippert            initial implementation
+ *******************************************************************************/
+package org.eclipse.equinox.weaving.tests;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({SupplementerIndexTest.class, ClassCacheStoreTest.class})
+public class AllTests {
+	//see @SuiteClasses
+}
@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Martin Lippert and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Martin Lippert            initial implementation
+ *******************************************************************************/
+package org.eclipse.equinox.weaving.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.eclipse.equinox.weaving.internal.caching.ClassCacheStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/*
+ * Checks that the packed class cache keeps the latest bytes of each class
+ * across instances and recovers from interrupted or corrupt writes.
+ */
+public class ClassCacheStoreTest {
+	private static final String NAME = "5-100"; //$NON-NLS-1$
+	private static final String PREFIX = "5-"; //$NON-NLS-1$
+
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = File.createTempFile("classcache", null); //$NON-NLS-1$
+		directory.delete();
+		directory.mkdirs();
+	}
+
+	@After
+	public void tearDown() {
+		delete(directory);
+	}
+
+	@Test
+	public void testStoreAndRead() throws IOException {
+		ClassCacheStore store = new ClassCacheStore(directory, NAME, PREFIX);
+		Map<String, byte[]> classes = new HashMap<String, byte[]>();
+		classes.put("a.A", bytes(1, 10)); //$NON-NLS-1$
+		classes.put("a.B", bytes(2, 20)); //$NON-NLS-1$
+		store.store(classes);
+
+		assertArrayEquals(bytes(1, 10), store.read("a.A")); //$NON-NLS-1$
+		assertArrayEquals(bytes(2, 20), store.read("a.B")); //$NON-NLS-1$
+		assertNull(store.read("a.C")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testReadFromNewInstance() throws IOException {
+		ClassCacheStore store = new ClassCacheStore(directory, NAME, PREFIX);
+		store.store(Collections.singletonMap("a.A", bytes(1, 10))); //$NON-NLS-1$
+		store.store(Collections.singletonMap("a.B", bytes(2, 20))); //$NON-NLS-1$
+
+		ClassCacheStore reopened = new ClassCacheStore(directory, NAME, PREFIX);
+		assertArrayEquals(bytes(1, 10), reopened.read("a.A")); //$NON-NLS-1$
+		assertArrayEquals(bytes(2, 20), reopened.read("a.B")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testStoreAgain() throws IOException {
+		ClassCacheStore store = new ClassCacheStore(directory, NAME, PREFIX);
+		store.store(Collections.singletonMap("a.A", bytes(1, 10))); //$NON-NLS-1$
+		store.store(Collections.singletonMap("a.A", bytes(3, 30))); //$NON-NLS-1$
+
+		assertArrayEquals(bytes(3, 30), store.read("a.A")); //$NON-NLS-1$
+		assertArrayEquals(bytes(3, 30), new ClassCacheStore(directory, NAME, PREFIX).read("a.A")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testCompaction() throws IOException {
+		ClassCacheStore store = new ClassCacheStore(directory, NAME, PREFIX);
+		for (int i = 0; i < 100; i++) {
+			store.store(Collections.singletonMap("a.A", bytes(i, 10))); //$NON-NLS-1$
+		}
+		File dataFile = new File(directory, NAME + ".data"); //$NON-NLS-1$
+		assertTrue(dataFile.length() >= 1000);
+
+		ClassCacheStore reopened = new ClassCacheStore(directory, NAME, PREFIX);
+		assertArrayEquals(bytes(99, 10), reopened.read("a.A")); //$NON-NLS-1$
+		assertTrue("Not compacted: " + dataFile.length(), dataFile.length() == 10); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testPartialBatch() throws IOException {
+		ClassCacheStore store = new ClassCacheStore(directory, NAME, PREFIX);
+		store.store(Collections.singletonMap("a.A", bytes(1, 10))); //$NON-NLS-1$
+		// bytes of a batch whose index records were never written
+		File dataFile = new File(directory, NAME + ".data"); //$NON-NLS-1$
+		append(dataFile, bytes(7, 15));
+
+		ClassCacheStore reopened = new ClassCacheStore(directory, NAME, PREFIX);
+		assertArrayEquals(bytes(1, 10), reopened.read("a.A")); //$NON-NLS-1$
+		assertTrue(dataFile.length() == 10);
+		reopened.store(Collections.singletonMap("a.B", bytes(2, 20))); //$NON-NLS-1$
+		assertArrayEquals(bytes(2, 20), new ClassCacheStore(directory, NAME, PREFIX).read("a.B")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testCorruptIndex() throws IOException {
+		ClassCacheStore store = new ClassCacheStore(directory, NAME, PREFIX);
+		store.store(Collections.singletonMap("a.A", bytes(1, 10))); //$NON-NLS-1$
+		File indexFile = new File(directory, NAME + ".index"); //$NON-NLS-1$
+		RandomAccessFile index = new RandomAccessFile(indexFile, "rw"); //$NON-NLS-1$
+		try {
+			index.writeInt(0);
+		} finally {
+			index.close();
+		}
+
+		assertNull(new ClassCacheStore(directory, NAME, PREFIX).read("a.A")); //$NON-NLS-1$
+		assertFalse(indexFile.exists());
+		assertFalse(new File(directory, NAME + ".data").exists()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testDeleteOtherVersions() throws IOException {
+		ClassCacheStore old = new ClassCacheStore(directory, NAME, PREFIX);
+		old.store(Collections.singletonMap("a.A", bytes(1, 10))); //$NON-NLS-1$
+		File legacyDirectory = new File(directory, "5-50"); //$NON-NLS-1$
+		legacyDirectory.mkdirs();
+		append(new File(legacyDirectory, "a.A"), bytes(1, 10)); //$NON-NLS-1$
+		append(new File(directory, "5-100.data.tmp"), bytes(1, 10)); //$NON-NLS-1$
+		append(new File(directory, "50-100.data"), bytes(1, 10)); //$NON-NLS-1$
+
+		ClassCacheStore store = new ClassCacheStore(directory, "5-200", PREFIX); //$NON-NLS-1$
+		assertNull(store.read("a.A")); //$NON-NLS-1$
+		store.store(Collections.singletonMap("a.A", bytes(2, 20))); //$NON-NLS-1$
+
+		assertFalse(new File(directory, "5-100.data").exists()); //$NON-NLS-1$
+		assertFalse(new File(directory, "5-100.index").exists()); //$NON-NLS-1$
+		assertFalse(new File(directory, "5-100.data.tmp").exists()); //$NON-NLS-1$
+		assertFalse(legacyDirectory.exists());
+		assertTrue(new File(directory, "50-100.data").exists()); //$NON-NLS-1$
+		assertTrue(new File(directory, "5-200.data").exists()); //$NON-NLS-1$
+		assertTrue(new File(directory, "5-200.index").exists()); //$NON-NLS-1$
+		assertArrayEquals(bytes(2, 20), store.read("a.A")); //$NON-NLS-1$
+	}
+
+	private static byte[] bytes(int value, int length) {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = (byte) (value + i);
+		}
+		return bytes;
+	}
+
+	private static void append(File file, byte[] bytes) throws IOException {
+		FileOutputStream out = new FileOutputStream(file, true);
+		try {
+			out.write(bytes);
+		} finally {
+			out.close();
+		}
+	}
+
+	private static void delete(File file) {
+		File[] files = file.listFiles();
+		if (files != null) {
+			for (File child : files) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Martin Lippert and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Martin Lippert            initial implementation
+ *******************************************************************************/
+package org.eclipse.equinox.weaving.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.eclipse.equinox.service.weaving.Supplementer;
+import org.eclipse.equinox.weaving.hooks.SupplementerIndex;
+import org.eclipse.osgi.util.ManifestElement;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleException;
+
+/*
+ * Checks that the supplementer index finds the same supplementers as checking
+ * every supplementer with the matching methods of Supplementer.
+ */
+public class SupplementerIndexTest {
+	private static final String SUPPLEMENT_BUNDLE = "Eclipse-SupplementBundle"; //$NON-NLS-1$
+	private static final String SUPPLEMENT_IMPORTER = "Eclipse-SupplementImporter"; //$NON-NLS-1$
+	private static final String SUPPLEMENT_EXPORTER = "Eclipse-SupplementExporter"; //$NON-NLS-1$
+
+	private static final String[] NAMES = {"org.foo", "org.foo.bar", "org.foo.bar.baz", "org.foobar", "org.other", "com.example.app", "com.example", "sup.name", "sup.self", "org.foo.self", "o", ""}; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$ //$NON-NLS-11$ //$NON-NLS-12$
+
+	private static final String[] PACKAGES = {null, "org.osgi.framework", "javax.xml.parsers;version=\"1.0\"", "org.foo.api", "org.foo.api.internal", "org.osgi.framework, org.foo.api", "org.unrelated"}; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+
+	private SupplementerIndex index;
+	private List<Supplementer> supplementers;
+
+	@Before
+	public void setUp() throws BundleException {
+		index = new SupplementerIndex();
+		supplementers = new ArrayList<Supplementer>();
+		add("sup.name", "org.foo.bar", null, null); //$NON-NLS-1$ //$NON-NLS-2$
+		add("sup.wildcard", "org.foo.*", null, null); //$NON-NLS-1$ //$NON-NLS-2$
+		add("sup.wildcards", "org.*, com.example.app", null, null); //$NON-NLS-1$ //$NON-NLS-2$
+		add("sup.all", "*", null, null); //$NON-NLS-1$ //$NON-NLS-2$
+		add("sup.importer", null, "org.osgi.framework, javax.xml.parsers", null); //$NON-NLS-1$ //$NON-NLS-2$
+		add("sup.exporter", null, null, "org.foo.api"); //$NON-NLS-1$ //$NON-NLS-2$
+		add("sup.mixed", "com.example", "org.foo.api", "org.osgi.framework"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		// supplementers never supplement themselves
+		add("sup.self", "sup.*", null, null); //$NON-NLS-1$ //$NON-NLS-2$
+		add("org.foo.self", "org.foo.*", null, null); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testMatching() throws BundleException {
+		assertSameMatches();
+	}
+
+	@Test
+	public void testReplacement() throws BundleException {
+		// a supplementer bundle is updated with new headers
+		Supplementer replaced = find("sup.wildcard"); //$NON-NLS-1$
+		supplementers.remove(replaced);
+		index.remove(replaced);
+		add("sup.wildcard", "com.*", "org.unrelated", null); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertSameMatches();
+
+		replaced = find("sup.importer"); //$NON-NLS-1$
+		supplementers.remove(replaced);
+		index.remove(replaced);
+		add("sup.importer", "org.foo.bar.*", null, "org.foo.api.internal"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertSameMatches();
+	}
+
+	@Test
+	public void testRemoval() throws BundleException {
+		for (Supplementer supplementer : supplementers.toArray(new Supplementer[supplementers.size()])) {
+			supplementers.remove(supplementer);
+			index.remove(supplementer);
+			assertSameMatches();
+		}
+		// removing an unknown supplementer does nothing
+		index.remove(newSupplementer("sup.unknown", "org.*", null, null)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertSameMatches();
+	}
+
+	@Test
+	public void testSharedWildcard() throws BundleException {
+		// two supplementers share a prefix length; removing one keeps the other
+		add("sup.other", "org.bar*", null, null); //$NON-NLS-1$ //$NON-NLS-2$
+		add("sup.another", "org.baz*", null, null); //$NON-NLS-1$ //$NON-NLS-2$
+		assertSameMatches();
+		Supplementer removed = find("sup.other"); //$NON-NLS-1$
+		supplementers.remove(removed);
+		index.remove(removed);
+		assertSameMatches();
+		assertEquals("Wrong matches for org.bazaar", linearScan("org.bazaar", null, null), index.getMatchingSupplementers("org.bazaar", null, null)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	private void assertSameMatches() throws BundleException {
+		for (String name : NAMES) {
+			for (String imports : PACKAGES) {
+				for (String exports : PACKAGES) {
+					ManifestElement[] importElements = ManifestElement.parseHeader("Import-Package", imports); //$NON-NLS-1$
+					ManifestElement[] exportElements = ManifestElement.parseHeader("Export-Package", exports); //$NON-NLS-1$
+					assertEquals("Wrong matches for " + name + ", imports " + imports + ", exports " + exports, //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+							linearScan(name, importElements, exportElements), index.getMatchingSupplementers(name, importElements, exportElements));
+				}
+			}
+		}
+	}
+
+	/*
+	 * The linear scan the registry used before the index.
+	 */
+	private Set<Supplementer> linearScan(String symbolicName, ManifestElement[] imports, ManifestElement[] exports) {
+		Set<Supplementer> result = new LinkedHashSet<Supplementer>();
+		for (Supplementer supplementer : supplementers) {
+			if (!supplementer.getSymbolicName().equals(symbolicName)) {
+				if (supplementer.matchSupplementer(symbolicName) || (imports != null && supplementer.matchesSupplementImporter(imports)) || (exports != null && supplementer.matchesSupplementExporter(exports))) {
+					result.add(supplementer);
+				}
+			}
+		}
+		return result;
+	}
+
+	private Supplementer find(String symbolicName) {
+		for (Supplementer supplementer : supplementers) {
+			if (supplementer.getSymbolicName().equals(symbolicName))
+				return supplementer;
+		}
+		throw new IllegalArgumentException(symbolicName);
+	}
+
+	private void add(String symbolicName, String supplementBundle, String supplementImporter, String supplementExporter) throws BundleException {
+		ManifestElement[] bundleElements = ManifestElement.parseHeader(SUPPLEMENT_BUNDLE, supplementBundle);
+		ManifestElement[] importerElements = ManifestElement.parseHeader(SUPPLEMENT_IMPORTER, supplementImporter);
+		ManifestElement[] exporterElements = ManifestElement.parseHeader(SUPPLEMENT_EXPORTER, supplementExporter);
+		Supplementer supplementer = new Supplementer(createBundle(symbolicName), null, bundleElements, importerElements, exporterElements);
+		supplementers.add(supplementer);
+		index.add(supplementer, bundleElements, importerElements, exporterElements);
+	}
+
+	private static Supplementer newSupplementer(String symbolicName, String supplementBundle, String supplementImporter, String supplementExporter) throws BundleException {
+		return new Supplementer(createBundle(symbolicName), null, ManifestElement.parseHeader(SUPPLEMENT_BUNDLE, supplementBundle), ManifestElement.parseHeader(SUPPLEMENT_IMPORTER, supplementImporter), ManifestElement.parseHeader(SUPPLEMENT_EXPORTER, supplementExporter));
+	}
+
+	private static Bundle createBundle(final String symbolicName) {
+		return (Bundle) Proxy.newProxyInstance(SupplementerIndexTest.class.getClassLoader(), new Class<?>[] {Bundle.class}, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				String name = method.getName();
+				if ("getSymbolicName".equals(name) || "toString".equals(name)) //$NON-NLS-1$ //$NON-NLS-2$
+					return symbolicName;
+				if ("equals".equals(name)) //$NON-NLS-1$
+					return proxy == args[0];
+				if ("hashCode".equals(name)) //$NON-NLS-1$
+					return System.identityHashCode(proxy);
+				throw new UnsupportedOperationException(name);
+			}
+		});
+	}
+}
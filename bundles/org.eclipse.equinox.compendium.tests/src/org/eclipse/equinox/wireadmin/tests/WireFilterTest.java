@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.wireadmin.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import org.eclipse.equinox.internal.wireadmin.WireFilter;
+import org.eclipse.equinox.internal.wireadmin.WireValues;
+import org.junit.Test;
+import org.osgi.framework.Filter;
+import org.osgi.framework.FrameworkUtil;
+
+/*
+ * Checks that a compiled wire filter gives the same results as the framework
+ * filter, and that the filters it cannot compile are left to the framework.
+ */
+public class WireFilterTest {
+
+	private static final String[] COMPILED = { //
+			"(wirevalue.elapsed>=100)", //$NON-NLS-1$
+			"(wirevalue.elapsed<=100)", //$NON-NLS-1$
+			"(wirevalue.elapsed>=-1)", //$NON-NLS-1$
+			"(WireValue.Elapsed>=100)", //$NON-NLS-1$
+			"(wirevalue.delta.absolute>=2)", //$NON-NLS-1$
+			"(wirevalue.delta.absolute<=2.5)", //$NON-NLS-1$
+			"(wirevalue.delta.absolute>=1e1)", //$NON-NLS-1$
+			"(wirevalue.delta.absolute>=0.0)", //$NON-NLS-1$
+			"(wirevalue.delta.absolute<=-0.0)", //$NON-NLS-1$
+			"(wirevalue.delta.absolute>=NaN)", //$NON-NLS-1$
+			"(wirevalue.delta.absolute<=Infinity)", //$NON-NLS-1$
+			"(wirevalue.delta.relative>=0.1)", //$NON-NLS-1$
+			"(wirevalue.delta.relative<=0.1)", //$NON-NLS-1$
+			"(&(wirevalue.elapsed>=100)(wirevalue.delta.absolute>=2))", //$NON-NLS-1$
+			"(|(wirevalue.elapsed>=100)(wirevalue.delta.absolute>=2))", //$NON-NLS-1$
+			"(|(wirevalue.elapsed<=10)(wirevalue.delta.relative>=0.5)(wirevalue.delta.absolute<=1))", //$NON-NLS-1$
+			"(&(wirevalue.elapsed>=10)(wirevalue.elapsed<=1000))" //$NON-NLS-1$
+	};
+
+	private static final String[] NOT_COMPILED = { //
+			"(wirevalue.elapsed>=1*)", //$NON-NLS-1$
+			"(wirevalue.elapsed=100)", //$NON-NLS-1$
+			"(wirevalue.elapsed~=100)", //$NON-NLS-1$
+			"(wirevalue.elapsed=*)", //$NON-NLS-1$
+			"(wirevalue.elapsed>= 100)", //$NON-NLS-1$
+			"(wirevalue.elapsed>=1.5)", //$NON-NLS-1$
+			"(wirevalue.elapsed>=abc)", //$NON-NLS-1$
+			"(wirevalue.delta.absolute>=\\31)", //$NON-NLS-1$
+			"(wirevalue.current>=100)", //$NON-NLS-1$
+			"(!(wirevalue.elapsed>=100))", //$NON-NLS-1$
+			"(&(wirevalue.elapsed>=100)(!(wirevalue.delta.absolute>=2)))", //$NON-NLS-1$
+			"(&(wirevalue.elapsed>=100)(wirevalue.current=*))" //$NON-NLS-1$
+	};
+
+	private static List<WireValues> values() {
+		List<WireValues> result = new ArrayList<WireValues>();
+		// no previous value yet
+		result.add(values(Integer.valueOf(1), null, 0, false, 0, 0));
+		// a previous value which is not a number
+		result.add(values("b", "a", 100, false, 0, 0)); //$NON-NLS-1$ //$NON-NLS-2$
+		long[] elapsed = {0, 10, 99, 100, 101, 1000};
+		double[] deltas = {0.0, -0.0, 0.1, 0.5, 1, 2, 2.5, 3, 10, Double.POSITIVE_INFINITY, Double.NaN};
+		for (int i = 0; i < elapsed.length; i++) {
+			for (int j = 0; j < deltas.length; j++) {
+				result.add(values(Integer.valueOf(1), Integer.valueOf(0), elapsed[i], true, deltas[j], deltas[deltas.length - 1 - j]));
+			}
+		}
+		return result;
+	}
+
+	private static WireValues values(Object current, Object previous, long elapsed, boolean delta, double deltaAbsolute, double deltaRelative) {
+		WireValues values = new WireValues();
+		values.setCurrent(current);
+		if (previous != null)
+			values.setPrevious(previous, elapsed);
+		if (delta)
+			values.setDelta(deltaAbsolute, deltaRelative);
+		return values;
+	}
+
+	@Test
+	public void testCompiledMatchesFrameworkFilter() throws Exception {
+		List<WireValues> values = values();
+		for (String spec : COMPILED) {
+			WireFilter compiled = WireFilter.compile(spec);
+			assertNotNull("Filter not compiled: " + spec, compiled); //$NON-NLS-1$
+			Filter filter = FrameworkUtil.createFilter(spec);
+			for (WireValues value : values) {
+				assertEquals("Wrong result of " + spec + " for " + describe(value), filter.match(value), compiled.match(value)); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+	}
+
+	@Test
+	public void testNotCompiled() throws Exception {
+		for (String spec : NOT_COMPILED) {
+			// the filter is valid, but has to be evaluated by the framework
+			assertNotNull(FrameworkUtil.createFilter(spec));
+			assertNull("Filter compiled: " + spec, WireFilter.compile(spec)); //$NON-NLS-1$
+		}
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testPut() {
+		new WireValues().put("wirevalue.current", Integer.valueOf(1)); //$NON-NLS-1$
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testRemove() {
+		new WireValues().remove("wirevalue.current"); //$NON-NLS-1$
+	}
+
+	private static String describe(WireValues values) {
+		StringBuilder result = new StringBuilder();
+		for (Enumeration<?> keys = values.keys(); keys.hasMoreElements();) {
+			Object key = keys.nextElement();
+			result.append(key).append('=').append(values.get(key)).append(' ');
+		}
+		return result.toString();
+	}
+}
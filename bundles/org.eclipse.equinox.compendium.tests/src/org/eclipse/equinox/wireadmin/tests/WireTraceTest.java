@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.wireadmin.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.equinox.compendium.tests.Activator;
+import org.eclipse.equinox.internal.wireadmin.EventDispatcher;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.wireadmin.Consumer;
+import org.osgi.service.wireadmin.Producer;
+import org.osgi.service.wireadmin.Wire;
+import org.osgi.service.wireadmin.WireAdmin;
+import org.osgi.service.wireadmin.WireAdminEvent;
+import org.osgi.service.wireadmin.WireAdminListener;
+import org.osgi.service.wireadmin.WireConstants;
+
+/*
+ * Checks the WIRE_TRACE handling of the event dispatcher: the coalesced and
+ * dropped counters, and that the time of the last WIRE_TRACE event kept for a
+ * wire is forgotten when the wire is deleted, even if no listener accepts the
+ * WIRE_DELETED events.
+ */
+public class WireTraceTest {
+	private static final String TRACE_WINDOW = "equinox.services.wireadmin.events.traceWindow"; //$NON-NLS-1$
+	private static final String QUEUE_SIZE = "equinox.services.wireadmin.events.queueSize"; //$NON-NLS-1$
+	private static final String PRODUCER_PID = "org.eclipse.equinox.wireadmin.tests.producer"; //$NON-NLS-1$
+	private static final String CONSUMER_PID = "org.eclipse.equinox.wireadmin.tests.consumer"; //$NON-NLS-1$
+	private static final int WIRES = 10;
+	private static final long TIMEOUT = 10000;
+
+	private BundleContext context;
+	private ServiceReference<WireAdmin> wireAdminReference;
+	private WireAdmin wireAdmin;
+	private final List<ServiceRegistration<?>> registrations = new ArrayList<ServiceRegistration<?>>();
+
+	@Before
+	public void setUp() throws Exception {
+		// the trace window is read when the bundle starts
+		System.setProperty(TRACE_WINDOW, "60000"); //$NON-NLS-1$
+		context = Activator.getBundleContext();
+		startWireAdmin();
+
+		WireAdminListener listener = new WireAdminListener() {
+			public void wireAdminEvent(WireAdminEvent event) {
+				// nothing
+			}
+		};
+		register(WireAdminListener.class, listener, WireConstants.WIREADMIN_EVENTS, Integer.valueOf(WireAdminEvent.WIRE_TRACE));
+		register(Producer.class, new TestProducer(), Constants.SERVICE_PID, PRODUCER_PID);
+		register(Consumer.class, new TestConsumer(), Constants.SERVICE_PID, CONSUMER_PID);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		for (ServiceRegistration<?> registration : registrations)
+			registration.unregister();
+		registrations.clear();
+		context.ungetService(wireAdminReference);
+		Activator.getBundle(Activator.BUNDLE_WIREADMIN).stop();
+		System.getProperties().remove(TRACE_WINDOW);
+		System.getProperties().remove(QUEUE_SIZE);
+	}
+
+	@Test
+	public void testCoalesced() throws Exception {
+		EventDispatcher dispatcher = getEventDispatcher();
+		Wire wire = wireAdmin.createWire(PRODUCER_PID, CONSUMER_PID, null);
+		assertTrue("Wire not connected", wire.isConnected()); //$NON-NLS-1$
+		for (int i = 0; i < 5; i++)
+			wire.update(Integer.valueOf(i));
+		// only the first update within the trace window is queued
+		assertEquals("Wrong coalesced count", 4, dispatcher.getCoalescedCount()); //$NON-NLS-1$
+		assertEquals("Wrong dropped count", 0, dispatcher.getDroppedCount()); //$NON-NLS-1$
+
+		Wire other = wireAdmin.createWire(PRODUCER_PID, CONSUMER_PID, null);
+		other.update(Integer.valueOf(0));
+		assertEquals("Wrong coalesced count", 4, dispatcher.getCoalescedCount()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testDropped() throws Exception {
+		System.setProperty(QUEUE_SIZE, "2"); //$NON-NLS-1$
+		context.ungetService(wireAdminReference);
+		startWireAdmin();
+		EventDispatcher dispatcher = getEventDispatcher();
+
+		Wire[] wires = new Wire[WIRES];
+		for (int i = 0; i < wires.length; i++) {
+			wires[i] = wireAdmin.createWire(PRODUCER_PID, CONSUMER_PID, null);
+			assertTrue("Wire not connected", wires[i].isConnected()); //$NON-NLS-1$
+		}
+		waitForQueueDepth(dispatcher, 0);
+
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		WireAdminListener blocking = new WireAdminListener() {
+			public void wireAdminEvent(WireAdminEvent event) {
+				entered.countDown();
+				try {
+					release.await(TIMEOUT, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		register(WireAdminListener.class, blocking, WireConstants.WIREADMIN_EVENTS, Integer.valueOf(WireAdminEvent.WIRE_TRACE));
+		try {
+			// the dispatcher thread blocks in the listener with the first event
+			wires[0].update(Integer.valueOf(0));
+			assertTrue("Listener not called", entered.await(TIMEOUT, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+			for (int i = 1; i < wires.length; i++)
+				wires[i].update(Integer.valueOf(i));
+			assertEquals("Wrong queue depth", 2, dispatcher.getQueueDepth()); //$NON-NLS-1$
+			assertEquals("Wrong dropped count", WIRES - 3, dispatcher.getDroppedCount()); //$NON-NLS-1$
+			assertEquals("Wrong coalesced count", 0, dispatcher.getCoalescedCount()); //$NON-NLS-1$
+		} finally {
+			release.countDown();
+		}
+		waitForQueueDepth(dispatcher, 0);
+	}
+
+	@Test
+	public void testDeletedWiresForgotten() throws Exception {
+		EventDispatcher dispatcher = getEventDispatcher();
+		// the wire admin bundle listens to all events to send them to the event
+		// admin; detach its listeners so that no listener accepts WIRE_DELETED
+		Bundle wireAdminBundle = Activator.getBundle(Activator.BUNDLE_WIREADMIN);
+		for (ServiceReference<WireAdminListener> reference : context.getServiceReferences(WireAdminListener.class, null)) {
+			if (wireAdminBundle.equals(reference.getBundle()))
+				dispatcher.removeListener(reference);
+		}
+
+		Wire[] wires = new Wire[WIRES];
+		for (int i = 0; i < wires.length; i++) {
+			wires[i] = wireAdmin.createWire(PRODUCER_PID, CONSUMER_PID, null);
+			assertTrue("Wire not connected", wires[i].isConnected()); //$NON-NLS-1$
+			wires[i].update(Integer.valueOf(i));
+		}
+		assertEquals("Wrong number of traced wires", WIRES, getTracedWireCount(dispatcher)); //$NON-NLS-1$
+
+		for (int i = 0; i < wires.length; i++)
+			wireAdmin.deleteWire(wires[i]);
+		waitForTracedWires(dispatcher, 0);
+	}
+
+	private void startWireAdmin() throws Exception {
+		// the queue size and the trace window are read when the bundle starts
+		Activator.getBundle(Activator.BUNDLE_WIREADMIN).stop();
+		Activator.getBundle(Activator.BUNDLE_WIREADMIN).start();
+		wireAdminReference = context.getServiceReference(WireAdmin.class);
+		wireAdmin = context.getService(wireAdminReference);
+	}
+
+	private EventDispatcher getEventDispatcher() throws Exception {
+		// the dispatcher is not reachable through the WireAdmin interface
+		Field field = wireAdmin.getClass().getDeclaredField("evtDisp"); //$NON-NLS-1$
+		field.setAccessible(true);
+		return (EventDispatcher) field.get(wireAdmin);
+	}
+
+	private int getTracedWireCount(EventDispatcher dispatcher) throws Exception {
+		Field field = EventDispatcher.class.getDeclaredField("traceTimes"); //$NON-NLS-1$
+		field.setAccessible(true);
+		return ((Map<?, ?>) field.get(dispatcher)).size();
+	}
+
+	private void waitForQueueDepth(EventDispatcher dispatcher, int expected) throws InterruptedException {
+		long end = System.currentTimeMillis() + TIMEOUT;
+		while (dispatcher.getQueueDepth() != expected && System.currentTimeMillis() < end)
+			Thread.sleep(10);
+		assertEquals("Wrong queue depth", expected, dispatcher.getQueueDepth()); //$NON-NLS-1$
+	}
+
+	/*
+	 * Wires are deleted asynchronously when their configurations are deleted
+	 * in the configuration admin.
+	 */
+	private void waitForTracedWires(EventDispatcher dispatcher, int expected) throws Exception {
+		long end = System.currentTimeMillis() + TIMEOUT;
+		while (getTracedWireCount(dispatcher) != expected && System.currentTimeMillis() < end)
+			Thread.sleep(10);
+		assertEquals("Wrong number of traced wires", expected, getTracedWireCount(dispatcher)); //$NON-NLS-1$
+	}
+
+	private <S> void register(Class<S> clazz, S service, String key, Object value) {
+		Dictionary<String, Object> properties = new Hashtable<String, Object>();
+		properties.put(key, value);
+		registrations.add(context.registerService(clazz, service, properties));
+	}
+
+	private static class TestProducer implements Producer {
+		public Object polled(Wire wire) {
+			return null;
+		}
+
+		public void consumersConnected(Wire[] wires) {
+			// nothing
+		}
+	}
+
+	private static class TestConsumer implements Consumer {
+		public void updated(Wire wire, Object value) {
+			// nothing
+		}
+
+		public void producersConnected(Wire[] wires) {
+			// nothing
+		}
+	}
+}
@@ -0,0 +1,287 @@
+/******************************************************************************
+ * Copyright (c) 2018 EclipseSource and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   EclipseSource - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.equinox.concurrent.future;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.core.runtime.Assert;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * <p>
+ * An executor that runs the given {@link IProgressRunnable}s on a bounded
+ * number of threads.
+ * </p>
+ * <p>
+ * Unlike {@link ThreadsExecutor}, which creates a new {@link Thread} for every
+ * runnable, this executor never runs more than the given number of runnables
+ * at the same time. Runnables submitted while all threads are busy wait in a
+ * queue of the given capacity. When the queue is full the future returned from
+ * {@link #execute(IProgressRunnable, IProgressMonitor)} completes immediately
+ * with an error status carrying a {@link RejectedExecutionException}.
+ * </p>
+ * <p>
+ * Canceling a future whose runnable is still queued removes the runnable from
+ * the queue, so it never occupies a thread. The returned futures are
+ * {@link IListenableFuture}s, so completion callbacks can be added to them.
+ * </p>
+ * <p>
+ * Threads are created on demand and exit after being idle for the keep-alive
+ * time, so an idle executor holds no threads. If virtual threads are requested
+ * and the running JVM supports them, the runnables run on virtual threads,
+ * otherwise on daemon platform threads. The executor should be
+ * {@link #shutdown()} when no longer needed.
+ * </p>
+ * <p>
+ * Subclasses may extend the behavior of this PooledExecutor.
+ * </p>
+ * @since 1.2
+ */
+public class PooledExecutor extends AbstractExecutor {
+
+	/**
+	 * The default time in milliseconds an idle thread waits for a new runnable
+	 * before it exits.
+	 */
+	public static final long DEFAULT_KEEP_ALIVE = 60000L;
+
+	private final ThreadPoolExecutor pool;
+	private final boolean virtualThreads;
+
+	/**
+	 * Create an executor running at most the given number of runnables at the
+	 * same time, with an unbounded queue.
+	 * 
+	 * @param maxThreads
+	 *            the maximum number of threads. Must be positive.
+	 */
+	public PooledExecutor(int maxThreads) {
+		this(maxThreads, Integer.MAX_VALUE, false);
+	}
+
+	/**
+	 * Create an executor running at most the given number of runnables at the
+	 * same time.
+	 * 
+	 * @param maxThreads
+	 *            the maximum number of threads. Must be positive.
+	 * @param queueCapacity
+	 *            the maximum number of runnables waiting for a thread. Must be
+	 *            positive.
+	 * @param useVirtualThreads
+	 *            <code>true</code> to run the runnables on virtual threads if
+	 *            the JVM supports them
+	 */
+	public PooledExecutor(int maxThreads, int queueCapacity,
+			boolean useVirtualThreads) {
+		this(maxThreads, queueCapacity, useVirtualThreads, DEFAULT_KEEP_ALIVE);
+	}
+
+	/**
+	 * Create an executor running at most the given number of runnables at the
+	 * same time.
+	 * 
+	 * @param maxThreads
+	 *            the maximum number of threads. Must be positive.
+	 * @param queueCapacity
+	 *            the maximum number of runnables waiting for a thread. Must be
+	 *            positive.
+	 * @param useVirtualThreads
+	 *            <code>true</code> to run the runnables on virtual threads if
+	 *            the JVM supports them
+	 * @param keepAlive
+	 *            the time in milliseconds an idle thread waits for a new
+	 *            runnable before it exits. Must be positive.
+	 */
+	public PooledExecutor(int maxThreads, int queueCapacity,
+			boolean useVirtualThreads, long keepAlive) {
+		Assert.isLegal(maxThreads > 0, "maxThreads must be > 0"); //$NON-NLS-1$
+		Assert.isLegal(queueCapacity > 0, "queueCapacity must be > 0"); //$NON-NLS-1$
+		Assert.isLegal(keepAlive > 0, "keepAlive must be > 0"); //$NON-NLS-1$
+		ThreadFactory virtualFactory = useVirtualThreads ? createVirtualThreadFactory()
+				: null;
+		this.virtualThreads = virtualFactory != null;
+		ThreadFactory factory = virtualFactory != null ? virtualFactory
+				: new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger();
+
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, createThreadName(count
+								.incrementAndGet()));
+						configureThreadForExecution(thread);
+						return thread;
+					}
+				};
+		this.pool = new ThreadPoolExecutor(maxThreads, maxThreads, keepAlive,
+				TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(
+						queueCapacity), factory);
+		allowCoreThreadTimeOut(pool);
+	}
+
+	private static void allowCoreThreadTimeOut(ThreadPoolExecutor pool) {
+		// with core == max threads the pool never shrinks unless core threads
+		// time out. The method is Java 6 API, this bundle targets J2SE-1.5.
+		try {
+			ThreadPoolExecutor.class.getMethod("allowCoreThreadTimeOut", //$NON-NLS-1$
+					boolean.class).invoke(pool, Boolean.TRUE);
+		} catch (Exception e) {
+			// not supported by this JVM, threads are kept until shutdown
+		}
+	}
+
+	private static ThreadFactory createVirtualThreadFactory() {
+		try {
+			Method ofVirtual = Thread.class.getMethod("ofVirtual"); //$NON-NLS-1$
+			Object builder = ofVirtual.invoke(null);
+			Method factory = Class.forName("java.lang.Thread$Builder") //$NON-NLS-1$
+					.getMethod("factory"); //$NON-NLS-1$
+			return (ThreadFactory) factory.invoke(builder);
+		} catch (Exception e) {
+			// virtual threads are not supported by this JVM
+			return null;
+		}
+	}
+
+	/**
+	 * Create the name of a platform thread of this executor.
+	 * 
+	 * @param threadNumber
+	 *            the number of the thread, starting at 1
+	 * @return the name of the thread
+	 */
+	protected String createThreadName(int threadNumber) {
+		return "PooledExecutor(" + threadNumber + ")"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Configure the given platform thread prior to starting it. Subclasses may
+	 * override as appropriate to configure the given thread appropriately. The
+	 * default implementation calls {@link Thread#setDaemon(boolean)}.
+	 * 
+	 * @param thread
+	 *            the thread to configure
+	 */
+	protected void configureThreadForExecution(Thread thread) {
+		thread.setDaemon(true);
+	}
+
+	/**
+	 * Create a runnable given an {@link IProgressRunnable} and an
+	 * {@link ISafeProgressRunner} to run the runnable.
+	 * 
+	 * @param runner
+	 *            the safe progress runner to run the runnable
+	 * @param progressRunnable
+	 *            the runnable to run.
+	 * @return Runnable that when run will use the safe progress runner to run
+	 *         the progressRunnable
+	 */
+	protected Runnable createRunnable(final ISafeProgressRunner runner,
+			final IProgressRunnable<?> progressRunnable) {
+		return new Runnable() {
+			public void run() {
+				runner.runWithProgress(progressRunnable);
+			}
+		};
+	}
+
+	/**
+	 * Create an {@link AbstractFuture} with the given IProgressMonitor. The
+	 * future removes its runnable from the queue of this executor when it is
+	 * canceled before the runnable started.
+	 * 
+	 * @param monitor
+	 *            a progress monitor to associate with the future. May be
+	 *            <code>null</code>.
+	 */
+	@SuppressWarnings("rawtypes")
+	protected AbstractFuture<?> createFuture(IProgressMonitor monitor) {
+		return new PooledFuture(monitor);
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public <ResultType> IFuture<ResultType> execute(
+			IProgressRunnable<? extends ResultType> runnable,
+			IProgressMonitor monitor) {
+		Assert.isNotNull(runnable);
+		final AbstractFuture sof = createFuture(monitor);
+		Runnable task = createRunnable(sof, runnable);
+		if (sof instanceof PooledFuture)
+			((PooledFuture) sof).task = task;
+		try {
+			pool.execute(task);
+		} catch (final RejectedExecutionException e) {
+			// complete the future with the failure, notifying its listener
+			sof.runWithProgress(new IProgressRunnable<Object>() {
+				public Object run(IProgressMonitor pm) throws Exception {
+					throw e;
+				}
+			});
+		}
+		return sof;
+	}
+
+	/**
+	 * Returns <code>true</code> if the runnables of this executor run on
+	 * virtual threads.
+	 */
+	public boolean isUsingVirtualThreads() {
+		return virtualThreads;
+	}
+
+	/**
+	 * Returns the number of runnables waiting for a thread.
+	 */
+	public int getQueueSize() {
+		return pool.getQueue().size();
+	}
+
+	/**
+	 * Returns the number of runnables currently running.
+	 */
+	public int getActiveCount() {
+		return pool.getActiveCount();
+	}
+
+	/**
+	 * Returns the number of threads currently held by this executor, running
+	 * or idle.
+	 */
+	public int getPoolSize() {
+		return pool.getPoolSize();
+	}
+
+	/**
+	 * Stop accepting new runnables. Runnables already submitted are still run,
+	 * after which the threads of this executor exit.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	@SuppressWarnings("rawtypes")
+	private class PooledFuture extends SingleOperationListenableFuture {
+		/* set before the task is queued */
+		volatile Runnable task;
+
+		PooledFuture(IProgressMonitor monitor) {
+			super(monitor);
+		}
+
+		public boolean cancel() {
+			boolean canceled = super.cancel();
+			Runnable t = task;
+			if (canceled && t != null)
+				pool.remove(t);
+			return canceled;
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2017 SAP AG and others.
+ * Copyright (c) 2010, 2018 SAP AG and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -53,7 +53,24 @@ public class ConsoleOutputStream extends OutputStream {
      */
     @Override
 	public synchronized void write(int i) throws IOException {
+        process(i);
+    }
+
+    /**
+     * Writes the bytes of the array with a single acquisition of the stream lock, instead of
+     * locking once per byte as the inherited implementation does.
+     */
+    @Override
+	public synchronized void write(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        for (int j = off; j < off + len; j++) {
+            process(b[j] & 0xFF);
+        }
+    }
 
+    private void process(int i) throws IOException {
         if (!queueing) {
             if (isEcho) {
                 if (i == '\r' || i == '\0') {
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.console.telnet;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.felix.service.command.CommandProcessor;
+import org.apache.felix.service.command.CommandSession;
+import org.eclipse.equinox.console.common.ConsoleInputHandler;
+import org.eclipse.equinox.console.common.ConsoleInputScanner;
+import org.eclipse.equinox.console.common.ConsoleInputStream;
+import org.osgi.framework.BundleContext;
+
+/**
+ * This class manages a telnet connection served by the {@link TelnetChannelServer}. Unlike
+ * {@link TelnetConnection} it does not read from the socket itself: the server hands it the bytes
+ * received from the client, which are run through the telnet protocol scanner in the server thread.
+ * The CommandSession is started on the executor of the server once the terminal type negotiation
+ * has finished or timed out.
+ */
+public class TelnetChannelConnection implements Closeable {
+
+	private final CommandProcessor processor;
+	private final BundleContext context;
+	private final Executor executor;
+	private final OutputStream channelOut;
+	private final ConsoleInputStream in = new ConsoleInputStream();
+	private final TelnetOutputStream out;
+	private final TelnetInputScanner telnetScanner;
+	private final long created = System.currentTimeMillis();
+	private boolean isSessionStarted = false;
+	private boolean isClosed = false;
+
+	private static final String PROMPT = "prompt";
+	private static final String OSGI_PROMPT = "osgi> ";
+	private static final String SCOPE = "SCOPE";
+	private static final String EQUINOX_SCOPE = "equinox:*";
+	private static final String CLOSEABLE = "CLOSEABLE";
+
+	/**
+	 * @param channelOut the stream writing to the client, closing it closes the client connection
+	 * @param processor the processor to create the session with
+	 * @param context the bundle context
+	 * @param executor the executor to run the session on
+	 */
+	public TelnetChannelConnection(OutputStream channelOut, CommandProcessor processor, BundleContext context, Executor executor) {
+		this.channelOut = channelOut;
+		this.processor = processor;
+		this.context = context;
+		this.executor = executor;
+		out = new TelnetOutputStream(channelOut);
+		telnetScanner = new TelnetInputScanner(in, out, new Callback() {
+			@Override
+			public void finished() {
+				startSession();
+			}
+		});
+	}
+
+	/**
+	 * Sends the options the server wants to negotiate with the client.
+	 */
+	public void start() throws IOException {
+		out.autoSend();
+	}
+
+	/**
+	 * Processes bytes received from the client.
+	 *
+	 * @param input the received bytes
+	 */
+	public void received(ByteBuffer input) throws IOException {
+		while (input.hasRemaining()) {
+			telnetScanner.scan(input.get());
+		}
+	}
+
+	/**
+	 * Starts the session if the negotiation did not finish within the given timeout.
+	 *
+	 * @param negotiationTimeout the maximum time in milliseconds to wait for the negotiation
+	 * @param now the current time in milliseconds
+	 */
+	public void checkNegotiation(long negotiationTimeout, long now) {
+		if (now - created >= negotiationTimeout) {
+			startSession();
+		}
+	}
+
+	private void startSession() {
+		synchronized (this) {
+			if (isSessionStarted || isClosed) {
+				return;
+			}
+			isSessionStarted = true;
+		}
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					runSession();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			close();
+		}
+	}
+
+	private void runSession() {
+		final CommandSession session;
+		PrintStream output = new PrintStream(out);
+
+		ConsoleInputStream inp = new ConsoleInputStream();
+
+		ConsoleInputHandler consoleInputHandler = new ConsoleInputHandler(in, inp, out);
+		consoleInputHandler.getScanner().setBackspace(telnetScanner.getBackspace());
+		consoleInputHandler.getScanner().setDel(telnetScanner.getDel());
+		consoleInputHandler.getScanner().setCurrentEscapesToKey(telnetScanner.getCurrentEscapesToKey());
+		consoleInputHandler.getScanner().setEscapes(telnetScanner.getEscapes());
+		((ConsoleInputScanner) consoleInputHandler.getScanner()).setContext(context);
+
+		try {
+			executor.execute(consoleInputHandler);
+		} catch (RejectedExecutionException e) {
+			close();
+			return;
+		}
+
+		session = processor.createSession(inp, output, output);
+		session.put(SCOPE, EQUINOX_SCOPE);
+		session.put(PROMPT, OSGI_PROMPT);
+		// Store this closeable object in the session, so that the disconnect command can close it
+		session.put(CLOSEABLE, this);
+		((ConsoleInputScanner) consoleInputHandler.getScanner()).setSession(session);
+
+		try {
+			session.execute("gosh --login --noshutdown");
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			session.close();
+			close();
+		}
+	}
+
+	/**
+	 * Ends the session after the client connection has been closed.
+	 */
+	public void channelClosed() {
+		synchronized (this) {
+			isClosed = true;
+		}
+		try {
+			in.close();
+		} catch (IOException e) {
+			// do nothing
+		}
+	}
+
+	@Override
+	public void close() {
+		channelClosed();
+		try {
+			channelOut.close();
+		} catch (IOException e) {
+			// do nothing
+		}
+	}
+}
@@ -0,0 +1,429 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.console.telnet;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.service.command.CommandProcessor;
+import org.osgi.framework.BundleContext;
+
+/**
+ * A telnet server, which serves all telnet clients from a single thread with a selector. The server
+ * accepts connections and reads from the clients without blocking, and runs the received bytes
+ * through the telnet protocol scanner of a {@link TelnetChannelConnection} for each CommandProcessor.
+ * Output to the clients is queued in chunks and written by the server thread when the client is ready
+ * to receive it. The command sessions run on a bounded pool of threads.
+ *
+ * The number of connections is limited, a client connecting when the limit is reached is turned away.
+ * Clients which neither send nor receive anything for longer than the idle timeout are disconnected.
+ */
+public class TelnetChannelServer extends Thread implements TelnetServerControl {
+
+	private static final int READ_BUFFER_SIZE = 2048;
+	private static final int CHUNK_SIZE = 8192;
+	// Writers block while this much output to a client is waiting to be written
+	private static final int MAX_PENDING_OUTPUT = 256 * 1024;
+	private static final long SELECT_TIMEOUT = 1000;
+	private static final long NEGOTIATION_TIMEOUT = 60000;
+	private static final long POOL_KEEP_ALIVE = 60;
+	private static final byte[] TOO_MANY_CONNECTIONS = "Too many telnet connections, try again later.\r\n".getBytes();
+
+	private final BundleContext context;
+	private final List<CommandProcessor> processors;
+	private final int maxConnections;
+	private final long idleTimeout;
+	private final Selector selector;
+	private final ServerSocketChannel server;
+	private final ThreadPoolExecutor executor;
+	private final List<Client> clients = new CopyOnWriteArrayList<>();
+	private final Queue<Client> pendingWrites = new ConcurrentLinkedQueue<>();
+	private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+	private volatile boolean isRunning = true;
+
+	/**
+	 * @param context the bundle context
+	 * @param processors the command processors to create sessions with
+	 * @param host the local address to listen on, or null to listen on all addresses
+	 * @param port the port to listen on
+	 * @param maxConnections the maximum number of telnet connections, 0 for no limit
+	 * @param idleTimeout the time in milliseconds after which idle clients are disconnected, 0 to keep them connected
+	 */
+	public TelnetChannelServer(BundleContext context, List<CommandProcessor> processors, String host, int port, int maxConnections, long idleTimeout) throws IOException {
+		this.context = context;
+		this.processors = processors;
+		this.maxConnections = maxConnections;
+		this.idleTimeout = idleTimeout;
+		selector = Selector.open();
+		server = ServerSocketChannel.open();
+		try {
+			if (host != null) {
+				server.bind(new InetSocketAddress(InetAddress.getByName(host), port));
+			} else {
+				server.bind(new InetSocketAddress(port));
+			}
+			server.configureBlocking(false);
+			server.register(selector, SelectionKey.OP_ACCEPT);
+		} catch (IOException e) {
+			server.close();
+			selector.close();
+			throw e;
+		}
+		// each connection needs one thread for its session and one for its console input
+		executor = new ThreadPoolExecutor(0, maxConnections > 0 ? 2 * maxConnections : Integer.MAX_VALUE, POOL_KEEP_ALIVE, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "equinox telnet session");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (isRunning) {
+				selector.select(SELECT_TIMEOUT);
+				Client client;
+				while ((client = pendingWrites.poll()) != null) {
+					client.write();
+				}
+				for (Iterator<SelectionKey> keys = selector.selectedKeys().iterator(); keys.hasNext();) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid()) {
+						continue;
+					}
+					if (key.isAcceptable()) {
+						accept();
+					} else {
+						client = (Client) key.attachment();
+						if (key.isWritable()) {
+							client.write();
+						}
+						if (key.isValid() && key.isReadable()) {
+							client.read();
+						}
+					}
+				}
+				checkClients();
+			}
+		} catch (IOException e) {
+			if (isRunning == true) {
+				e.printStackTrace();
+			}
+		} finally {
+			isRunning = false;
+			closeAll();
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel = server.accept();
+		if (channel == null) {
+			return;
+		}
+		channel.configureBlocking(false);
+		synchronized (this) {
+			if (maxConnections > 0 && getConnectionCount() + processors.size() > maxConnections) {
+				// best effort, the client is not waited for
+				channel.write(ByteBuffer.wrap(TOO_MANY_CONNECTIONS));
+				channel.close();
+				return;
+			}
+			Client client = new Client(channel);
+			client.key = channel.register(selector, SelectionKey.OP_READ, client);
+			clients.add(client);
+			for (CommandProcessor processor : processors) {
+				client.addConnection(processor);
+			}
+		}
+	}
+
+	private int getConnectionCount() {
+		int count = 0;
+		for (Client client : clients) {
+			count += client.connections.size();
+		}
+		return count;
+	}
+
+	private void checkClients() {
+		long now = System.currentTimeMillis();
+		for (Client client : clients) {
+			if (idleTimeout > 0 && now - client.lastActivity > idleTimeout) {
+				client.close();
+				continue;
+			}
+			for (TelnetChannelConnection connection : client.connections) {
+				connection.checkNegotiation(NEGOTIATION_TIMEOUT, now);
+			}
+		}
+	}
+
+	private void closeAll() {
+		for (Client client : clients) {
+			client.close();
+		}
+		try {
+			server.close();
+		} catch (IOException e) {
+			// do nothing
+		}
+		try {
+			selector.close();
+		} catch (IOException e) {
+			// do nothing
+		}
+		executor.shutdown();
+	}
+
+	@Override
+	public synchronized void addCommandProcessor(CommandProcessor processor) {
+		processors.add(processor);
+		for (Client client : clients) {
+			if (maxConnections > 0 && getConnectionCount() >= maxConnections) {
+				break;
+			}
+			client.addConnection(processor);
+		}
+	}
+
+	@Override
+	public synchronized void removeCommandProcessor(CommandProcessor processor) {
+		processors.remove(processor);
+		for (Client client : clients) {
+			client.removeConnection(processor);
+		}
+	}
+
+	@Override
+	public synchronized void stopTelnetServer() {
+		isRunning = false;
+		try {
+			server.close();
+		} catch (IOException e) {
+			// do nothing
+		}
+		for (Client client : clients) {
+			client.close();
+		}
+		selector.wakeup();
+	}
+
+	/**
+	 * The state of a connected telnet client.
+	 */
+	private class Client {
+		final SocketChannel channel;
+		SelectionKey key;
+		final List<TelnetChannelConnection> connections = new CopyOnWriteArrayList<>();
+		final List<CommandProcessor> connectionProcessors = new ArrayList<>();
+		final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+		final OutputStream out = new ClientOutputStream(this);
+		int pendingBytes;
+		volatile long lastActivity = System.currentTimeMillis();
+		boolean isClosed;
+
+		Client(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		void addConnection(CommandProcessor processor) {
+			TelnetChannelConnection connection = new TelnetChannelConnection(out, processor, context, executor);
+			synchronized (connectionProcessors) {
+				connections.add(connection);
+				connectionProcessors.add(processor);
+			}
+			try {
+				connection.start();
+			} catch (IOException e) {
+				close();
+			}
+		}
+
+		void removeConnection(CommandProcessor processor) {
+			TelnetChannelConnection connection;
+			synchronized (connectionProcessors) {
+				int index = connectionProcessors.indexOf(processor);
+				if (index < 0) {
+					return;
+				}
+				connectionProcessors.remove(index);
+				connection = connections.remove(index);
+			}
+			connection.close();
+		}
+
+		void read() {
+			readBuffer.clear();
+			int count;
+			try {
+				count = channel.read(readBuffer);
+			} catch (IOException e) {
+				count = -1;
+			}
+			if (count < 0) {
+				close();
+				return;
+			}
+			lastActivity = System.currentTimeMillis();
+			readBuffer.flip();
+			for (TelnetChannelConnection connection : connections) {
+				try {
+					connection.received(readBuffer.duplicate());
+				} catch (IOException e) {
+					close();
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Queues output for the client, called by the writing threads.
+		 */
+		void enqueue(byte[] b, int off, int len) throws IOException {
+			synchronized (pending) {
+				// the server thread must not wait for itself to drain the queue
+				while (pendingBytes > MAX_PENDING_OUTPUT && !isClosed && Thread.currentThread() != TelnetChannelServer.this) {
+					try {
+						pending.wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException();
+					}
+				}
+				if (isClosed) {
+					throw new IOException("Telnet connection closed");
+				}
+				for (int chunk = off; chunk < off + len; chunk += CHUNK_SIZE) {
+					int chunkLength = Math.min(CHUNK_SIZE, off + len - chunk);
+					byte[] copy = new byte[chunkLength];
+					System.arraycopy(b, chunk, copy, 0, chunkLength);
+					pending.add(ByteBuffer.wrap(copy));
+					pendingBytes += chunkLength;
+				}
+			}
+		}
+
+		/**
+		 * Asks the server thread to write the queued output.
+		 */
+		void flush() {
+			pendingWrites.add(this);
+			selector.wakeup();
+		}
+
+		/**
+		 * Writes as much of the queued output as the client accepts, called by the server thread.
+		 */
+		void write() {
+			boolean isDrained;
+			synchronized (pending) {
+				try {
+					while (!pending.isEmpty()) {
+						ByteBuffer chunk = pending.peek();
+						channel.write(chunk);
+						if (chunk.hasRemaining()) {
+							break;
+						}
+						pending.poll();
+						pendingBytes -= chunk.capacity();
+						lastActivity = System.currentTimeMillis();
+					}
+				} catch (IOException e) {
+					pending.clear();
+					pendingBytes = 0;
+				}
+				isDrained = pending.isEmpty();
+				pending.notifyAll();
+			}
+			if (key.isValid()) {
+				key.interestOps(isDrained ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+			}
+		}
+
+		void close() {
+			synchronized (pending) {
+				if (isClosed) {
+					return;
+				}
+				isClosed = true;
+				pending.clear();
+				pendingBytes = 0;
+				pending.notifyAll();
+			}
+			clients.remove(this);
+			if (key != null) {
+				key.cancel();
+			}
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// do nothing
+			}
+			for (TelnetChannelConnection connection : connections) {
+				connection.channelClosed();
+			}
+		}
+	}
+
+	/**
+	 * The output stream of a client, closing it disconnects the client.
+	 */
+	private static class ClientOutputStream extends OutputStream {
+		private final Client client;
+
+		ClientOutputStream(Client client) {
+			this.client = client;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] {(byte) b}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			client.enqueue(b, off, len);
+		}
+
+		@Override
+		public void flush() {
+			client.flush();
+		}
+
+		@Override
+		public void close() {
+			client.close();
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2017 SAP AG and others.
+ * Copyright (c) 2010, 2018 SAP AG and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -37,7 +37,10 @@ public class TelnetCommand {
     private final BundleContext context;
     private String host = null;
     private int port;
-    private TelnetServer telnetServer = null;
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    private long idleTimeout = 0;
+    private boolean isThreadPerConnection = false;
+    private TelnetServerControl telnetServer = null;
     private ServiceRegistration<?> configuratorRegistration;
     private boolean isEnabled = false;
     
@@ -47,6 +50,14 @@ public class TelnetCommand {
     private static final String TELNET_PID = "osgi.console.telnet";
     private static final String CONSOLE_PROP = "osgi.console";
     private static final String ENABLED = "enabled";
+    private static final String MAX_CONNECTIONS = "maxConnections";
+    private static final String IDLE_TIMEOUT = "idleTimeout";
+    private static final String MAX_CONNECTIONS_PROP = "osgi.console.telnet.maxConnections";
+    private static final String IDLE_TIMEOUT_PROP = "osgi.console.telnet.idleTimeout";
+    private static final String THREAD_PER_CONNECTION = "threadPerConnection";
+    private static final String THREAD_PER_CONNECTION_PROP = "osgi.console.telnet.threadPerConnection";
+    // no limit unless one is configured
+    private static final int DEFAULT_MAX_CONNECTIONS = 0;
     private final Object lock = new Object();
 
     public TelnetCommand(CommandProcessor processor, BundleContext context)
@@ -66,6 +77,8 @@ public class TelnetCommand {
         	}
         } else {
         	parseHostAndPort();
+        	parseLimits(context.getProperty(MAX_CONNECTIONS_PROP), context.getProperty(IDLE_TIMEOUT_PROP));
+        	isThreadPerConnection = Boolean.parseBoolean(context.getProperty(THREAD_PER_CONNECTION_PROP));
         }
     }
     
@@ -89,6 +102,34 @@ public class TelnetCommand {
         } 
     }
     
+    /**
+     * Parses the maximum number of connections and the idle timeout in seconds. 
+     * A maximum of 0 removes the limit.
+     * Values which are missing or not valid leave the current settings unchanged.
+     */
+    private void parseLimits(String maxConnectionsValue, String idleTimeoutValue) {
+    	if (maxConnectionsValue != null) {
+    		try {
+    			int value = Integer.parseInt(maxConnectionsValue.trim());
+    			if (value >= 0) {
+    				maxConnections = value;
+    			}
+    		} catch (NumberFormatException e) {
+    			// do nothing
+    		}
+    	}
+    	if (idleTimeoutValue != null) {
+    		try {
+    			long value = Long.parseLong(idleTimeoutValue.trim());
+    			if (value >= 0) {
+    				idleTimeout = value * 1000;
+    			}
+    		} catch (NumberFormatException e) {
+    			// do nothing
+    		}
+    	}
+    }
+    
     public synchronized void startService() {
     	Dictionary<String, Object> properties = new Hashtable<>();
 		properties.put("osgi.command.scope", "equinox");
@@ -156,13 +197,20 @@ public class TelnetCommand {
             }
             
             try {
-				telnetServer = new TelnetServer(context, processors, host, port);
+            	if (isThreadPerConnection) {
+            		TelnetServer server = new TelnetServer(context, processors, host, port);
+            		server.setName("equinox telnet");
+            		server.start();
+            		telnetServer = server;
+            	} else {
+            		TelnetChannelServer server = new TelnetChannelServer(context, processors, host, port, maxConnections, idleTimeout);
+            		server.setName("equinox telnet");
+            		server.start();
+            		telnetServer = server;
+            	}
 			} catch (BindException e) {
 				throw new Exception("Port " + port + " already in use");
 			}
-			
-            telnetServer.setName("equinox telnet");
-            telnetServer.start();    
         } else if ("stop".equals(command)) {
             if (telnetServer == null) {
                 System.out.println("telnet is not running.");
@@ -228,6 +276,8 @@ public class TelnetCommand {
 			
 			defaultPort = Integer.parseInt(((String)properties.get(PORT)));
 			defaultHost = (String)properties.get(HOST);
+			parseLimits((String)properties.get(MAX_CONNECTIONS), (String)properties.get(IDLE_TIMEOUT));
+			isThreadPerConnection = Boolean.parseBoolean((String)properties.get(THREAD_PER_CONNECTION));
 			if (properties.get(ENABLED) == null) {
 				isEnabled = false;
 			} else {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2017 SAP AG and others
+ * Copyright (c) 2010, 2018 SAP AG and others
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -28,8 +28,12 @@ import org.osgi.framework.BundleContext;
  * when a connection is accepted. If there are multiple CommandProcessor, a telnet connection
  * is created for each of them.
  *
+ * Each connection reads from its socket with its own thread and is not subject to the connection
+ * limit and idle timeout of the {@link TelnetChannelServer}. It is used instead of the
+ * TelnetChannelServer when the osgi.console.telnet.threadPerConnection property is true.
+ *
  */
-public class TelnetServer extends Thread {
+public class TelnetServer extends Thread implements TelnetServerControl {
 	
 	private ServerSocket server;
     private boolean isRunning = true;
@@ -84,6 +88,7 @@ public class TelnetServer extends Thread {
         }
     }
 	
+	@Override
 	public synchronized void addCommandProcessor(CommandProcessor processor) {
 		processors.add(processor);
 		if (!sockets.isEmpty()) {
@@ -97,6 +102,7 @@ public class TelnetServer extends Thread {
 		}
 	}
 	
+	@Override
 	public synchronized void removeCommandProcessor(CommandProcessor processor) {
 		processors.remove(processor);
 		List<TelnetConnection> telnetConnections = processorToConnectionsMapping.remove(processor);
@@ -107,6 +113,7 @@ public class TelnetServer extends Thread {
 		}
 	}
 	
+	@Override
 	public synchronized void stopTelnetServer() {
 		isRunning = false;
 		try {
@@ -0,0 +1,27 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.console.telnet;
+
+import org.apache.felix.service.command.CommandProcessor;
+
+/**
+ * The operations the {@link TelnetCommand} performs on a running telnet server, implemented by
+ * the {@link TelnetChannelServer} and by the {@link TelnetServer} which serves each connection
+ * with its own threads.
+ */
+interface TelnetServerControl {
+
+	void addCommandProcessor(CommandProcessor processor);
+
+	void removeCommandProcessor(CommandProcessor processor);
+
+	void stopTelnetServer();
+}
@@ -16,7 +16,6 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TimerTask;
 
 import org.eclipse.osgi.util.NLS;
 import org.osgi.framework.Bundle;
@@ -39,7 +38,7 @@ public class CoordinationImpl {
 	private CoordinationImpl enclosingCoordination;
 	private Thread thread;
 	private long totalTimeout;
-	private TimerTask timerTask;
+	private CoordinationTimerTask timerTask;
 
 	private final CoordinatorImpl coordinator;
 	private final long id;
@@ -400,7 +399,11 @@ public class CoordinationImpl {
 		return referent;
 	}
 
-	synchronized void setTimerTask(TimerTask timerTask) {
+	synchronized void setTimerTask(CoordinationTimerTask timerTask) {
+		// A coordination failed by a concurrent shutdown of the coordinator
+		// must not keep a task in the timer.
+		if (terminated)
+			return;
 		this.timerTask = timerTask;
 		deadline = new Date(System.currentTimeMillis() + totalTimeout);
 		coordinator.schedule(timerTask, deadline);
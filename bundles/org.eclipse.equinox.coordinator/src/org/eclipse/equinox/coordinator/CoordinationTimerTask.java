@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2013 IBM Corporation and others.
+ * Copyright (c) 2010, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,14 +10,23 @@
  *******************************************************************************/
 package org.eclipse.equinox.coordinator;
 
-import java.util.TimerTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.osgi.util.NLS;
 import org.osgi.service.coordinator.Coordination;
 import org.osgi.service.log.LogService;
 
-public class CoordinationTimerTask extends TimerTask {
+/*
+ * The timeout of a coordination. Like a one-shot TimerTask, the task can be
+ * canceled only until it starts to run, so a caller of cancel() learns whether
+ * the timeout may still fail the coordination.
+ */
+public class CoordinationTimerTask implements Runnable {
 	private final CoordinationImpl coordination;
+	// Set once the task either started to run or was canceled.
+	private final AtomicBoolean claimed = new AtomicBoolean();
+	private volatile ScheduledFuture<?> future;
 
 	public CoordinationTimerTask(CoordinationImpl coordination) {
 		if (coordination == null)
@@ -25,10 +34,31 @@ public class CoordinationTimerTask extends TimerTask {
 		this.coordination = coordination;
 	}
 
-	@Override
+	/*
+	 * Cancels the task. Returns true if the task had not started to run yet,
+	 * in which case it never will.
+	 */
+	public boolean cancel() {
+		if (!claimed.compareAndSet(false, true))
+			return false;
+		ScheduledFuture<?> f = future;
+		if (f != null)
+			f.cancel(false);
+		return true;
+	}
+
+	void setFuture(ScheduledFuture<?> future) {
+		this.future = future;
+		// Drop the scheduled run if the task was canceled before it was scheduled.
+		if (claimed.get())
+			future.cancel(false);
+	}
+
 	public void run() {
-		// Catch all exceptions and errors in order to prevent the timer 
-		// thread from stopping.
+		if (!claimed.compareAndSet(false, true))
+			return;
+		// Catch all exceptions and errors in order to prevent them from being
+		// swallowed by the executor.
 		try {
 			coordination.fail(Coordination.TIMEOUT);
 		} catch (Throwable t) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2017 IBM Corporation and others.
+ * Copyright (c) 2010, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,15 +13,14 @@ package org.eclipse.equinox.coordinator;
 import java.security.Permission;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.osgi.util.NLS;
 import org.osgi.framework.Bundle;
@@ -34,19 +33,42 @@ import org.osgi.service.log.LogService;
 
 public class CoordinatorImpl implements Coordinator {
 	// IDs must be positive integers and monotonically increasing.
-	private static long lastId;
-
-	private synchronized static long getNextId() {
-		if (Long.MAX_VALUE == lastId)
-			throw new IllegalStateException(NLS.bind(Messages.MaxCoordinationIdExceeded, lastId));
-		// First ID will be 1.
-		return ++lastId;
+	private static final AtomicLong lastId = new AtomicLong();
+
+	private static long getNextId() {
+		while (true) {
+			long id = lastId.get();
+			if (Long.MAX_VALUE == id)
+				throw new IllegalStateException(NLS.bind(Messages.MaxCoordinationIdExceeded, id));
+			// First ID will be 1.
+			if (lastId.compareAndSet(id, id + 1))
+				return id + 1;
+		}
 	}
 
 	// Coordination IDs must be unique across all using bundles.
-	private static final Map<Long, CoordinationImpl> idToCoordination = new HashMap<Long, CoordinationImpl>();
+	private static final ConcurrentMap<Long, CoordinationImpl> idToCoordination = new ConcurrentHashMap<Long, CoordinationImpl>();
 	// Coordination participation must be tracked across all using bundles.
-	private static final Map<Participant, CoordinationImpl> participantToCoordination = Collections.synchronizedMap(new IdentityHashMap<Participant, CoordinationImpl>());
+	// Participants are compared by identity.
+	private static final ConcurrentMap<ParticipantKey, CoordinationImpl> participantToCoordination = new ConcurrentHashMap<ParticipantKey, CoordinationImpl>();
+
+	private static class ParticipantKey {
+		private final Participant participant;
+
+		public ParticipantKey(Participant participant) {
+			this.participant = participant;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof ParticipantKey && ((ParticipantKey) obj).participant == participant;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(participant);
+		}
+	}
 
 	private static ThreadLocal<WeakCoordinationStack> coordinationStack = new ThreadLocal<WeakCoordinationStack>() {
 		@Override
@@ -89,18 +111,22 @@ public class CoordinatorImpl implements Coordinator {
 	}
 
 	private final Bundle bundle;
-	private final List<CoordinationImpl> coordinations;
+	// The coordinations created by this coordinator. The values are unused.
+	private final ConcurrentMap<CoordinationImpl, Boolean> coordinations;
 	private final LogTracker logTracker;
 	private final long maxTimeout;
-	private final Timer timer;
+	private final ScheduledThreadPoolExecutor timer;
+	// True if canceled timeouts must be purged from the timer explicitly.
+	private final boolean purgeCanceled;
 
-	private boolean shutdown;
+	private volatile boolean shutdown;
 
-	public CoordinatorImpl(Bundle bundle, LogTracker logService, Timer timer, long maxTimeout) {
+	public CoordinatorImpl(Bundle bundle, LogTracker logService, ScheduledThreadPoolExecutor timer, boolean purgeCanceled, long maxTimeout) {
 		this.bundle = bundle;
 		this.logTracker = logService;
 		this.timer = timer;
-		coordinations = new ArrayList<CoordinationImpl>();
+		this.purgeCanceled = purgeCanceled;
+		coordinations = new ConcurrentHashMap<CoordinationImpl, Boolean>();
 		if (maxTimeout < 0)
 			throw new IllegalArgumentException(NLS.bind(Messages.InvalidTimeInterval, maxTimeout));
 		this.maxTimeout = maxTimeout;
@@ -143,16 +169,20 @@ public class CoordinatorImpl implements Coordinator {
 		// by the coordination in order to avoid garbage collection. It serves no other
 		// purpose. Just "set it and forget it".
 		coordination.reference = new CoordinationWeakReference(referent, coordination);
-		synchronized (this) {
-			if (shutdown)
-				throw new IllegalStateException(NLS.bind(Messages.CoordinatorShutdown, name, timeout));
-			synchronized (CoordinatorImpl.class) {
-				coordinations.add(coordination);
-				idToCoordination.put(Long.valueOf(coordination.getId()), coordination);
-			}
+		// Add before checking the shutdown flag, so either this method sees the
+		// flag or shutdown() sees the coordination. If shutdown() fails the
+		// coordination, terminate(...) removes it from both maps.
+		Long id = Long.valueOf(coordination.getId());
+		coordinations.put(coordination, Boolean.TRUE);
+		idToCoordination.put(id, coordination);
+		if (shutdown) {
+			coordinations.remove(coordination);
+			idToCoordination.remove(id);
+			throw new IllegalStateException(NLS.bind(Messages.CoordinatorShutdown, name, timeout));
 		}
 		if (timeout > 0) {
-			TimerTask timerTask = new CoordinationTimerTask(coordination);
+			// Not scheduled if shutdown() has failed the coordination meanwhile.
+			CoordinationTimerTask timerTask = new CoordinationTimerTask(coordination);
 			coordination.setTimerTask(timerTask);
 		}
 		// Make sure to return the referent targeted towards the initiator here.
@@ -170,11 +200,9 @@ public class CoordinatorImpl implements Coordinator {
 	public Coordination getCoordination(long id) {
 		CoordinationWeakReference.processOrphanedCoordinations();
 		CoordinationReferent result = null;
-		synchronized (CoordinatorImpl.class) {
-			CoordinationImpl c = idToCoordination.get(Long.valueOf(id));
-			if (c != null)
-				result = c.getReferent();
-		}
+		CoordinationImpl c = idToCoordination.get(Long.valueOf(id));
+		if (c != null)
+			result = c.getReferent();
 		if (result != null && !result.isTerminated()) {
 			try {
 				checkPermission(CoordinationPermission.ADMIN, result.getName());
@@ -188,20 +216,17 @@ public class CoordinatorImpl implements Coordinator {
 
 	public Collection<Coordination> getCoordinations() {
 		CoordinationWeakReference.processOrphanedCoordinations();
-		ArrayList<Coordination> result;
-		synchronized (CoordinatorImpl.class) {
-			result = new ArrayList<Coordination>(idToCoordination.size());
-			for (CoordinationImpl coordination : idToCoordination.values()) {
-				// Ideally, we're only interested in coordinations that have not terminated.
-				// It's okay, however, if the coordination terminates from this point forward.
-				if (coordination.isTerminated())
-					continue;
-				try {
-					checkPermission(CoordinationPermission.ADMIN, coordination.getName());
-					result.add(coordination.getReferent());
-				} catch (SecurityException e) {
-					logTracker.log(LogService.LOG_DEBUG, NLS.bind(Messages.GetCoordinationNotPermitted, new Object[]{Thread.currentThread(), coordination.getName(), coordination.getId()}), e);
-				}
+		ArrayList<Coordination> result = new ArrayList<Coordination>(idToCoordination.size());
+		for (CoordinationImpl coordination : idToCoordination.values()) {
+			// Ideally, we're only interested in coordinations that have not terminated.
+			// It's okay, however, if the coordination terminates from this point forward.
+			if (coordination.isTerminated())
+				continue;
+			try {
+				checkPermission(CoordinationPermission.ADMIN, coordination.getName());
+				result.add(coordination.getReferent());
+			} catch (SecurityException e) {
+				logTracker.log(LogService.LOG_DEBUG, NLS.bind(Messages.GetCoordinationNotPermitted, new Object[]{Thread.currentThread(), coordination.getName(), coordination.getId()}), e);
 			}
 		}
 		result.trimToSize();
@@ -225,14 +250,7 @@ public class CoordinatorImpl implements Coordinator {
 	}
 
 	CoordinationImpl addParticipant(Participant participant, CoordinationImpl coordination) {
-		CoordinationImpl result = null;
-		synchronized (participantToCoordination) {
-			result = participantToCoordination.get(participant);
-			if (result == null) {
-				participantToCoordination.put(participant, coordination);
-			}
-		}
-		return result;
+		return participantToCoordination.putIfAbsent(new ParticipantKey(participant), coordination);
 	}
 
 	void checkPermission(String permissionType, String coordinationName) {
@@ -259,31 +277,26 @@ public class CoordinatorImpl implements Coordinator {
 	}
 
 	void purge() {
-		// Purge the timer of all canceled tasks if we're running on a supportive JCL.
-		try {
-			Timer.class.getMethod("purge", (Class<?>[]) null).invoke(timer, (Object[]) null); //$NON-NLS-1$
-		} catch (Exception e) {
-			logTracker.log(LogService.LOG_DEBUG, Messages.CanceledTaskNotPurged, e);
-		}
+		// Canceled tasks are removed right away if the JCL supports the remove on
+		// cancel policy. Otherwise purge them from the queue of the timer.
+		if (purgeCanceled)
+			timer.purge();
 	}
 
 	void push(CoordinationImpl coordination) throws CoordinationException {
 		coordinationStack.get().push(coordination);
 	}
 
-	void schedule(TimerTask task, Date deadline) {
-		timer.schedule(task, deadline);
+	void schedule(CoordinationTimerTask task, Date deadline) {
+		task.setFuture(timer.schedule(task, deadline.getTime() - System.currentTimeMillis(), TimeUnit.MILLISECONDS));
 	}
 
 	void shutdown() {
 		CoordinationWeakReference.processOrphanedCoordinations();
-		List<CoordinationImpl> coords;
-		synchronized (this) {
-			shutdown = true;
-			// Make a copy so the removal of the coordination from the list during
-			// termination does not interfere with the iteration.
-			coords = new ArrayList<CoordinationImpl>(this.coordinations);
-		}
+		shutdown = true;
+		// Make a copy so the removal of the coordination from the map during
+		// termination does not interfere with the iteration.
+		List<CoordinationImpl> coords = new ArrayList<CoordinationImpl>(this.coordinations.keySet());
 		for (CoordinationImpl coordination : coords) {
 			coordination.fail(Coordination.RELEASED);
 		}
@@ -294,12 +307,10 @@ public class CoordinatorImpl implements Coordinator {
 	 */
 	void terminate(CoordinationImpl coordination, List<Participant> participants) {
 		// A coordination has been terminated and needs to be removed from the thread local stack.
-		synchronized (this) {
-			synchronized (CoordinatorImpl.class) {
-				this.coordinations.remove(coordination);
-				idToCoordination.remove(Long.valueOf(coordination.getId()));
-				participantToCoordination.keySet().removeAll(participants);
-			}
-		}
+		this.coordinations.remove(coordination);
+		idToCoordination.remove(Long.valueOf(coordination.getId()));
+		// Iterate over a copy since the participant list is synchronized.
+		for (Participant participant : participants.toArray(new Participant[0]))
+			participantToCoordination.remove(new ParticipantKey(participant), coordination);
 	}
 }
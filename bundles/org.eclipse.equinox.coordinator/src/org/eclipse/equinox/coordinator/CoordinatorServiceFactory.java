@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2011 IBM Corporation and others.
+ * Copyright (c) 2010, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,26 +10,37 @@
  *******************************************************************************/
 package org.eclipse.equinox.coordinator;
 
-import java.util.Timer;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
 
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceFactory;
 import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.coordinator.Coordinator;
+import org.osgi.service.log.LogService;
 
 public class CoordinatorServiceFactory implements ServiceFactory<Coordinator> {
 	private final BundleContext bundleContext;
 	private final LogTracker logTracker;
-	private final Timer timer = new Timer(true);
+	private final ScheduledThreadPoolExecutor timer;
+	private final boolean purgeCanceled;
 
 	public CoordinatorServiceFactory(BundleContext bundleContext) {
 		this.bundleContext = bundleContext;
 		logTracker = new LogTracker(bundleContext, System.out);
+		timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Coordination Timer"); //$NON-NLS-1$
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		purgeCanceled = !setRemoveOnCancelPolicy(timer);
 	}
 
 	public Coordinator getService(Bundle bundle, ServiceRegistration<Coordinator> registration) {
-		return new CoordinatorImpl(bundle, logTracker, timer, getMaxTimeout());
+		return new CoordinatorImpl(bundle, logTracker, timer, purgeCanceled, getMaxTimeout());
 	}
 
 	public void ungetService(Bundle bundle, ServiceRegistration<Coordinator> registration, Coordinator service) {
@@ -37,10 +48,21 @@ public class CoordinatorServiceFactory implements ServiceFactory<Coordinator> {
 	}
 
 	void shutdown() {
-		timer.cancel();
+		timer.shutdownNow();
 		logTracker.close();
 	}
 	
+	private boolean setRemoveOnCancelPolicy(ScheduledThreadPoolExecutor executor) {
+		// Remove canceled timeouts from the queue right away if we're running on a supportive JCL.
+		try {
+			ScheduledThreadPoolExecutor.class.getMethod("setRemoveOnCancelPolicy", boolean.class).invoke(executor, Boolean.TRUE); //$NON-NLS-1$
+			return true;
+		} catch (Exception e) {
+			logTracker.log(LogService.LOG_DEBUG, Messages.CanceledTaskNotPurged, e);
+			return false;
+		}
+	}
+
 	private long getMaxTimeout() {
 		String prop = bundleContext.getProperty("org.eclipse.equinox.coordinator.timeout"); //$NON-NLS-1$
 		// Intentionally letting the possible NumberFormatException propagate.
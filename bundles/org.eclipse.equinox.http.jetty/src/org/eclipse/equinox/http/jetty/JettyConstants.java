@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2017 IBM Corporation and others.
+ * Copyright (c) 2007, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -69,6 +69,66 @@ public interface JettyConstants {
 	 */
 	public static final String HTTP_MINTHREADS = "http.minThreads"; //$NON-NLS-1$
 
+	/**
+	 * name="http.threadIdleTimeout" type="Integer" (default: 60000 -- milliseconds before an idle thread above the minimum is stopped)
+	 * @since 1.4
+	 */
+	public static final String HTTP_THREAD_IDLE_TIMEOUT = "http.threadIdleTimeout"; //$NON-NLS-1$
+
+	/**
+	 * name="http.acceptors" type="Integer" (default: -1 -- number of acceptor threads per connector chosen by Jetty)
+	 * @since 1.4
+	 */
+	public static final String HTTP_ACCEPTORS = "http.acceptors"; //$NON-NLS-1$
+
+	/**
+	 * name="http.selectors" type="Integer" (default: -1 -- number of selector threads per connector chosen by Jetty)
+	 * @since 1.4
+	 */
+	public static final String HTTP_SELECTORS = "http.selectors"; //$NON-NLS-1$
+
+	/**
+	 * name="http.acceptQueueSize" type="Integer" (default: 0 -- size of the queue of pending connections chosen by the operating system)
+	 * @since 1.4
+	 */
+	public static final String HTTP_ACCEPT_QUEUE_SIZE = "http.acceptQueueSize"; //$NON-NLS-1$
+
+	/**
+	 * name="http.idleTimeout" type="Integer" (default: 30000 -- milliseconds before an idle connection is closed)
+	 * @since 1.4
+	 */
+	public static final String HTTP_IDLE_TIMEOUT = "http.idleTimeout"; //$NON-NLS-1$
+
+	/**
+	 * name="http2.enabled" type="Boolean" (default: false -- serve HTTP/2 next to HTTP/1.1, h2c on the http connector and h2 negotiated with ALPN on the https connector)
+	 * @since 1.4
+	 */
+	public static final String HTTP2_ENABLED = "http2.enabled"; //$NON-NLS-1$
+
+	/**
+	 * name="gzip.enabled" type="Boolean" (default: false -- compress responses for clients accepting gzip)
+	 * @since 1.4
+	 */
+	public static final String GZIP_ENABLED = "gzip.enabled"; //$NON-NLS-1$
+
+	/**
+	 * name="gzip.minSize" type="Integer" (default: -1 -- minimum response size in bytes to compress, chosen by Jetty)
+	 * @since 1.4
+	 */
+	public static final String GZIP_MIN_SIZE = "gzip.minSize"; //$NON-NLS-1$
+
+	/**
+	 * name="gzip.includedMimeTypes" type="String" (comma separated mime types to compress, default: all but the excluded ones)
+	 * @since 1.4
+	 */
+	public static final String GZIP_INCLUDED_MIME_TYPES = "gzip.includedMimeTypes"; //$NON-NLS-1$
+
+	/**
+	 * name="gzip.excludedMimeTypes" type="String" (comma separated mime types not to compress, default: already compressed types chosen by Jetty)
+	 * @since 1.4
+	 */
+	public static final String GZIP_EXCLUDED_MIME_TYPES = "gzip.excludedMimeTypes"; //$NON-NLS-1$
+
 	/**
 	 * @deprecated
 	 * @since 1.3
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2017 Cognos Incorporated, IBM Corporation and others.
+ * Copyright (c) 2005, 2018 Cognos Incorporated, IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -132,6 +132,56 @@ public class Activator implements BundleActivator {
 			defaultSettings.put(JettyConstants.HTTP_MAXTHREADS, Integer.valueOf(maxThreads));
 		}
 
+		// idle time before threads above the minimum are stopped
+		int threadIdleTimeout = Details.getIntProp(context, JettyConstants.HTTP_THREAD_IDLE_TIMEOUT, -1);
+		if (threadIdleTimeout != -1) {
+			defaultSettings.put(JettyConstants.HTTP_THREAD_IDLE_TIMEOUT, Integer.valueOf(threadIdleTimeout));
+		}
+
+		// number of acceptor and selector threads of each connector
+		int acceptors = Details.getIntProp(context, JettyConstants.HTTP_ACCEPTORS, -1);
+		if (acceptors != -1) {
+			defaultSettings.put(JettyConstants.HTTP_ACCEPTORS, Integer.valueOf(acceptors));
+		}
+		int selectors = Details.getIntProp(context, JettyConstants.HTTP_SELECTORS, -1);
+		if (selectors != -1) {
+			defaultSettings.put(JettyConstants.HTTP_SELECTORS, Integer.valueOf(selectors));
+		}
+
+		// size of the queue of pending connections
+		int acceptQueueSize = Details.getIntProp(context, JettyConstants.HTTP_ACCEPT_QUEUE_SIZE, -1);
+		if (acceptQueueSize != -1) {
+			defaultSettings.put(JettyConstants.HTTP_ACCEPT_QUEUE_SIZE, Integer.valueOf(acceptQueueSize));
+		}
+
+		// idle time before connections are closed
+		int idleTimeout = Details.getIntProp(context, JettyConstants.HTTP_IDLE_TIMEOUT, -1);
+		if (idleTimeout != -1) {
+			defaultSettings.put(JettyConstants.HTTP_IDLE_TIMEOUT, Integer.valueOf(idleTimeout));
+		}
+
+		// HTTP/2 Enabled (default is false)
+		Boolean http2Enabled = Details.getBooleanProp(context, JettyConstants.HTTP2_ENABLED, false);
+		defaultSettings.put(JettyConstants.HTTP2_ENABLED, http2Enabled);
+
+		// Response compression (default is false)
+		Boolean gzipEnabled = Details.getBooleanProp(context, JettyConstants.GZIP_ENABLED, false);
+		defaultSettings.put(JettyConstants.GZIP_ENABLED, gzipEnabled);
+
+		if (gzipEnabled.booleanValue()) {
+			int gzipMinSize = Details.getIntProp(context, JettyConstants.GZIP_MIN_SIZE, -1);
+			if (gzipMinSize != -1)
+				defaultSettings.put(JettyConstants.GZIP_MIN_SIZE, Integer.valueOf(gzipMinSize));
+
+			String includedMimeTypes = Details.getStringProp(context, JettyConstants.GZIP_INCLUDED_MIME_TYPES, null);
+			if (includedMimeTypes != null)
+				defaultSettings.put(JettyConstants.GZIP_INCLUDED_MIME_TYPES, includedMimeTypes);
+
+			String excludedMimeTypes = Details.getStringProp(context, JettyConstants.GZIP_EXCLUDED_MIME_TYPES, null);
+			if (excludedMimeTypes != null)
+				defaultSettings.put(JettyConstants.GZIP_EXCLUDED_MIME_TYPES, excludedMimeTypes);
+		}
+
 		if (httpsEnabled.booleanValue()) {
 			// HTTPS Port
 
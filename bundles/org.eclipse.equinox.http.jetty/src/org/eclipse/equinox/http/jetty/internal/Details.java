@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2016 Raymond Augé and others.
+ * Copyright (c) 2016, 2018 Raymond Augé and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,7 +10,9 @@
  *******************************************************************************/
 package org.eclipse.equinox.http.jetty.internal;
 
+import java.util.ArrayList;
 import java.util.Dictionary;
+import java.util.List;
 import org.eclipse.equinox.http.jetty.JettyConstants;
 import org.osgi.framework.BundleContext;
 
@@ -136,4 +138,21 @@ public class Details {
 		return getString(dictionary, JettyConstants.PROPERTY_PREFIX + key, dflt);
 	}
 
+	public static String[] getStringArray(@SuppressWarnings("rawtypes") Dictionary dictionary, String key) {
+		Object value = dictionary.get(key);
+		if (value instanceof String[]) {
+			return (String[]) value;
+		} else if (value instanceof String) {
+			List<String> values = new ArrayList<>();
+			for (String element : ((String) value).split(",")) { //$NON-NLS-1$
+				element = element.trim();
+				if (!element.isEmpty()) {
+					values.add(element);
+				}
+			}
+			return values.toArray(new String[values.size()]);
+		}
+		return null;
+	}
+
 }
@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.equinox.http.jetty.internal;
+
+import org.eclipse.jetty.alpn.server.ALPNServerConnectionFactory;
+import org.eclipse.jetty.http2.HTTP2Cipher;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.http2.server.HTTP2ServerConnectionFactory;
+import org.eclipse.jetty.server.*;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+
+/**
+ * Creates the connection factories for HTTP/2. The Jetty HTTP/2 and ALPN packages are
+ * imported optionally, this class is only loaded when HTTP/2 is enabled so that the
+ * server works without them otherwise.
+ */
+final class Http2ConnectionFactories {
+
+	private static final String HTTP_1_1 = "http/1.1"; //$NON-NLS-1$
+
+	private Http2ConnectionFactories() {
+		// static methods only
+	}
+
+	/**
+	 * Returns the factory for HTTP/2 over plain text, which serves clients
+	 * upgrading from HTTP/1.1 as well as clients starting with HTTP/2 right away.
+	 */
+	static ConnectionFactory createCleartext(HttpConfiguration config) {
+		return new HTTP2CServerConnectionFactory(config);
+	}
+
+	/**
+	 * Returns the factories for HTTP/2 over TLS, negotiated with ALPN and falling
+	 * back to HTTP/1.1 for clients not offering h2.
+	 */
+	static ConnectionFactory[] createSecure(SslContextFactory sslContextFactory, HttpConfiguration config) {
+		HTTP2ServerConnectionFactory http2 = new HTTP2ServerConnectionFactory(config);
+		ALPNServerConnectionFactory alpn = new ALPNServerConnectionFactory(http2.getProtocol(), HTTP_1_1);
+		alpn.setDefaultProtocol(HTTP_1_1);
+		// HTTP/2 forbids a number of cipher suites, prefer the ones it allows
+		sslContextFactory.setCipherComparator(HTTP2Cipher.COMPARATOR);
+		sslContextFactory.setUseCipherSuitesOrder(true);
+		return new ConnectionFactory[] {new SslConnectionFactory(sslContextFactory, alpn.getProtocol()), alpn, http2, new HttpConnectionFactory(config)};
+	}
+}
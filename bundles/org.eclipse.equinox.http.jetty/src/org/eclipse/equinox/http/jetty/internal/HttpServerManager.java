@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2017 IBM Corporation and others.
+ * Copyright (c) 2007, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -25,6 +25,7 @@ import org.eclipse.equinox.http.jetty.JettyConstants;
 import org.eclipse.equinox.http.jetty.JettyCustomizer;
 import org.eclipse.equinox.http.servlet.HttpServiceServlet;
 import org.eclipse.jetty.server.*;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
 import org.eclipse.jetty.server.session.SessionHandler;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
@@ -37,6 +38,7 @@ import org.osgi.service.cm.ManagedServiceFactory;
 public class HttpServerManager implements ManagedServiceFactory {
 
 	private static final int DEFAULT_IDLE_TIMEOUT = 30000;
+	private static final int DEFAULT_THREAD_IDLE_TIMEOUT = 60000;
 	private static final String CONTEXT_TEMPDIR = "javax.servlet.context.tempdir"; //$NON-NLS-1$
 	private static final String DIR_PREFIX = "pid_"; //$NON-NLS-1$
 	private static final String INTERNAL_CONTEXT_CLASSLOADER = "org.eclipse.equinox.http.jetty.internal.ContextClassLoader"; //$NON-NLS-1$
@@ -71,7 +73,7 @@ public class HttpServerManager implements ManagedServiceFactory {
 	@Override
 	public synchronized void updated(String pid, Dictionary<String, ?> dictionary) throws ConfigurationException {
 		deleted(pid);
-		Server server = new Server(new QueuedThreadPool(Details.getInt(dictionary, JettyConstants.HTTP_MAXTHREADS, 200), Details.getInt(dictionary, JettyConstants.HTTP_MINTHREADS, 8)));
+		Server server = new Server(new QueuedThreadPool(Details.getInt(dictionary, JettyConstants.HTTP_MAXTHREADS, 200), Details.getInt(dictionary, JettyConstants.HTTP_MINTHREADS, 8), Details.getInt(dictionary, JettyConstants.HTTP_THREAD_IDLE_TIMEOUT, DEFAULT_THREAD_IDLE_TIMEOUT)));
 
 		JettyCustomizer customizer = createJettyCustomizer(dictionary);
 
@@ -135,7 +137,10 @@ public class HttpServerManager implements ManagedServiceFactory {
 
 		ServletContextHandler httpContext = createHttpContext(dictionary);
 		httpContext.addServlet(holder, "/*"); //$NON-NLS-1$
-		server.setHandler(httpContext);
+		if (Details.getBoolean(dictionary, JettyConstants.GZIP_ENABLED, false))
+			server.setHandler(createGzipHandler(dictionary, httpContext));
+		else
+			server.setHandler(httpContext);
 
 		if (null != customizer)
 			httpContext = (ServletContextHandler) customizer.customizeContext(httpContext, dictionary);
@@ -155,7 +160,7 @@ public class HttpServerManager implements ManagedServiceFactory {
 		servers.put(pid, server);
 	}
 
-	private ServerConnector createHttpsConnector(@SuppressWarnings("rawtypes") Dictionary dictionary, Server server, HttpConfiguration http_config) {
+	private ServerConnector createHttpsConnector(@SuppressWarnings("rawtypes") Dictionary dictionary, Server server, HttpConfiguration http_config) throws ConfigurationException {
 		ServerConnector httpsConnector = null;
 		if (Details.getBoolean(dictionary, JettyConstants.HTTPS_ENABLED, false)) {
 			// SSL Context Factory for HTTPS and SPDY
@@ -176,13 +181,23 @@ public class HttpServerManager implements ManagedServiceFactory {
 			https_config.addCustomizer(new SecureRequestCustomizer());
 
 			// HTTPS connector
-			httpsConnector = new ServerConnector(server, new SslConnectionFactory(sslContextFactory, "http/1.1"), new HttpConnectionFactory(https_config)); //$NON-NLS-1$
+			ConnectionFactory[] factories;
+			if (Details.getBoolean(dictionary, JettyConstants.HTTP2_ENABLED, false)) {
+				try {
+					factories = Http2ConnectionFactories.createSecure(sslContextFactory, https_config);
+				} catch (LinkageError | RuntimeException e) {
+					throw new ConfigurationException(JettyConstants.HTTP2_ENABLED, "HTTP/2 over TLS is not available: " + e, e); //$NON-NLS-1$
+				}
+			} else {
+				factories = new ConnectionFactory[] {new SslConnectionFactory(sslContextFactory, "http/1.1"), new HttpConnectionFactory(https_config)}; //$NON-NLS-1$
+			}
+			httpsConnector = createConnector(dictionary, server, factories);
 			httpsConnector.setPort(Details.getInt(dictionary, JettyConstants.HTTPS_PORT, 443));
 		}
 		return httpsConnector;
 	}
 
-	private ServerConnector createHttpConnector(@SuppressWarnings("rawtypes") Dictionary dictionary, Server server, HttpConfiguration http_config) {
+	private ServerConnector createHttpConnector(@SuppressWarnings("rawtypes") Dictionary dictionary, Server server, HttpConfiguration http_config) throws ConfigurationException {
 		ServerConnector httpConnector = null;
 		if (Details.getBoolean(dictionary, JettyConstants.HTTP_ENABLED, true)) {
 			// HTTP Configuration
@@ -191,14 +206,46 @@ public class HttpServerManager implements ManagedServiceFactory {
 				http_config.setSecurePort(Details.getInt(dictionary, JettyConstants.HTTPS_PORT, 443));
 			}
 			// HTTP connector
-			httpConnector = new ServerConnector(server, new HttpConnectionFactory(http_config));
+			ConnectionFactory[] factories;
+			if (Details.getBoolean(dictionary, JettyConstants.HTTP2_ENABLED, false)) {
+				try {
+					factories = new ConnectionFactory[] {new HttpConnectionFactory(http_config), Http2ConnectionFactories.createCleartext(http_config)};
+				} catch (LinkageError | RuntimeException e) {
+					throw new ConfigurationException(JettyConstants.HTTP2_ENABLED, "HTTP/2 is not available: " + e, e); //$NON-NLS-1$
+				}
+			} else {
+				factories = new ConnectionFactory[] {new HttpConnectionFactory(http_config)};
+			}
+			httpConnector = createConnector(dictionary, server, factories);
 			httpConnector.setPort(Details.getInt(dictionary, JettyConstants.HTTP_PORT, 80));
 			httpConnector.setHost(Details.getString(dictionary, JettyConstants.HTTP_HOST, null));
-			httpConnector.setIdleTimeout(DEFAULT_IDLE_TIMEOUT);
 		}
 		return httpConnector;
 	}
 
+	private ServerConnector createConnector(@SuppressWarnings("rawtypes") Dictionary dictionary, Server server, ConnectionFactory[] factories) {
+		// negative acceptor and selector counts let Jetty choose them based on the number of processors
+		ServerConnector connector = new ServerConnector(server, Details.getInt(dictionary, JettyConstants.HTTP_ACCEPTORS, -1), Details.getInt(dictionary, JettyConstants.HTTP_SELECTORS, -1), factories);
+		connector.setAcceptQueueSize(Details.getInt(dictionary, JettyConstants.HTTP_ACCEPT_QUEUE_SIZE, 0));
+		connector.setIdleTimeout(Details.getInt(dictionary, JettyConstants.HTTP_IDLE_TIMEOUT, DEFAULT_IDLE_TIMEOUT));
+		return connector;
+	}
+
+	private GzipHandler createGzipHandler(@SuppressWarnings("rawtypes") Dictionary dictionary, Handler handler) {
+		GzipHandler gzipHandler = new GzipHandler();
+		int minSize = Details.getInt(dictionary, JettyConstants.GZIP_MIN_SIZE, -1);
+		if (minSize >= 0)
+			gzipHandler.setMinGzipSize(minSize);
+		String[] includedMimeTypes = Details.getStringArray(dictionary, JettyConstants.GZIP_INCLUDED_MIME_TYPES);
+		if (includedMimeTypes != null)
+			gzipHandler.setIncludedMimeTypes(includedMimeTypes);
+		String[] excludedMimeTypes = Details.getStringArray(dictionary, JettyConstants.GZIP_EXCLUDED_MIME_TYPES);
+		if (excludedMimeTypes != null)
+			gzipHandler.setExcludedMimeTypes(excludedMimeTypes);
+		gzipHandler.setHandler(handler);
+		return gzipHandler;
+	}
+
 	public synchronized void shutdown() throws Exception {
 		for (Iterator<Server> it = servers.values().iterator(); it.hasNext();) {
 			Server server = it.next();
@@ -28,8 +28,21 @@ public class Activator implements BundleActivator, ServiceTrackerCustomizer {
 	private IExtensionRegistry registry;
 	private BundleContext context;
 
+	private final SynchronousBundleListener bundleListener = new SynchronousBundleListener() {
+		public void bundleChanged(BundleEvent event) {
+			switch (event.getType()) {
+				case BundleEvent.RESOLVED :
+				case BundleEvent.UNRESOLVED :
+				case BundleEvent.UPDATED :
+				case BundleEvent.UNINSTALLED :
+					DefaultRegistryHttpContext.bundleChanged(event.getBundle());
+			}
+		}
+	};
+
 	public void start(BundleContext context) throws Exception {
 		this.context = context;
+		context.addBundleListener(bundleListener);
 		packageAdminTracker = new ServiceTracker(context, PackageAdmin.class.getName(), this);
 		packageAdminTracker.open();
 
@@ -42,6 +55,7 @@ public class Activator implements BundleActivator, ServiceTrackerCustomizer {
 		packageAdminTracker = null;
 		registryTracker.close();
 		registryTracker = null;
+		context.removeBundleListener(bundleListener);
 		this.context = null;
 	}
 
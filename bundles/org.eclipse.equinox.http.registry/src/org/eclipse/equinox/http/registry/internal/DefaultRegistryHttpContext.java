@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2010 IBM Corporation and others
+ * Copyright (c) 2007, 2018 IBM Corporation and others
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,22 +16,82 @@ import java.util.*;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.osgi.framework.Bundle;
+import org.osgi.framework.Constants;
 import org.osgi.service.http.HttpContext;
 
 public class DefaultRegistryHttpContext implements HttpContext {
+	private static final Object NOT_FOUND = new Object();
+	private static final int MAX_CACHED_ENTRIES = 1024;
+	private static final int MAX_CACHED_MISSES = 256;
+
+	/** the live contexts, invalidated when one of their bundles changes, @GuardedBy contexts */
+	private static final Map contexts = new WeakHashMap();
+
 	private HttpContext delegate;
 	private List resourceMappings;
 	private Properties mimeMappings;
 
+	/* resource name or path to URL or Set, @GuardedBy this */
+	private Map resourceIndex = new HashMap();
+	private Map pathsIndex = new HashMap();
+	/* resource names and paths not found, kept apart so that they cannot evict the found ones, @GuardedBy this */
+	private Set resourceMisses = new HashSet();
+	private Set pathsMisses = new HashSet();
+	/* incremented whenever the index is cleared, @GuardedBy this */
+	private int indexGeneration;
+
 	public DefaultRegistryHttpContext(HttpContext delegate) {
 		this.delegate = delegate;
+		synchronized (contexts) {
+			contexts.put(this, Boolean.TRUE);
+		}
 	}
 
 	public void addResourceMapping(Bundle contributingBundle, String path) {
+		synchronized (this) {
+			if (resourceMappings == null)
+				resourceMappings = new ArrayList();
+
+			resourceMappings.add(new ResourceMapping(contributingBundle, path));
+		}
+		invalidate();
+	}
+
+	/**
+	 * Invalidates the resource index of the contexts which resolve resources against
+	 * the given bundle. Called when a bundle is updated, resolved, unresolved or
+	 * uninstalled since its entries may have changed. A fragment may change the
+	 * entries of any host, so it invalidates all contexts.
+	 */
+	public static void bundleChanged(Bundle bundle) {
+		boolean fragment = bundle.getHeaders("").get(Constants.FRAGMENT_HOST) != null; //$NON-NLS-1$
+		Object[] current;
+		synchronized (contexts) {
+			current = contexts.keySet().toArray();
+		}
+		for (int i = 0; i < current.length; i++) {
+			DefaultRegistryHttpContext context = (DefaultRegistryHttpContext) current[i];
+			if (fragment || context.resolvesAgainst(bundle))
+				context.invalidate();
+		}
+	}
+
+	private synchronized boolean resolvesAgainst(Bundle bundle) {
 		if (resourceMappings == null)
-			resourceMappings = new ArrayList();
+			return false;
+		for (Iterator it = resourceMappings.iterator(); it.hasNext();) {
+			if (((ResourceMapping) it.next()).bundle == bundle)
+				return true;
+		}
+		return false;
+	}
 
-		resourceMappings.add(new ResourceMapping(contributingBundle, path));
+	private synchronized void invalidate() {
+		resourceIndex.clear();
+		pathsIndex.clear();
+		resourceMisses.clear();
+		pathsMisses.clear();
+		indexGeneration++;
 	}
 
 	public void addMimeMapping(String mimeExtension, String mimeType) {
@@ -62,19 +122,33 @@ public class DefaultRegistryHttpContext implements HttpContext {
 		if (resourceMappings == null)
 			return null;
 
+		int generation = getIndexGeneration();
+		Object cached = getIndexed(resourceIndex, resourceMisses, name);
+		if (cached != null)
+			return cached == NOT_FOUND ? null : (URL) cached;
+
+		URL result = null;
 		for (Iterator it = resourceMappings.iterator(); it.hasNext();) {
 			ResourceMapping mapping = (ResourceMapping) it.next();
 			URL resourceURL = mapping.getResource(name);
-			if (resourceURL != null)
-				return resourceURL;
+			if (resourceURL != null) {
+				result = resourceURL;
+				break;
+			}
 		}
-		return null;
+		putIndexed(resourceIndex, resourceMisses, name, result, generation);
+		return result;
 	}
 
 	public Set getResourcePaths(String path) {
 		if (resourceMappings == null || path == null || !path.startsWith("/")) //$NON-NLS-1$
 			return null;
 
+		int generation = getIndexGeneration();
+		Object cached = getIndexed(pathsIndex, pathsMisses, path);
+		if (cached != null)
+			return cached == NOT_FOUND ? null : (Set) cached;
+
 		Set result = null;
 		for (Iterator it = resourceMappings.iterator(); it.hasNext();) {
 			ResourceMapping mapping = (ResourceMapping) it.next();
@@ -85,9 +159,40 @@ public class DefaultRegistryHttpContext implements HttpContext {
 				result.addAll(resourcePaths);
 			}
 		}
+		if (result != null)
+			result = Collections.unmodifiableSet(result);
+		putIndexed(pathsIndex, pathsMisses, path, result, generation);
 		return result;
 	}
 
+	private synchronized int getIndexGeneration() {
+		return indexGeneration;
+	}
+
+	private synchronized Object getIndexed(Map index, Set misses, String key) {
+		if (misses.contains(key))
+			return NOT_FOUND;
+		return index.get(key);
+	}
+
+	/*
+	 * The generation is the one read before the lookup. If the index was cleared
+	 * since, the value may be stale and is not kept.
+	 */
+	private synchronized void putIndexed(Map index, Set misses, String key, Object value, int generation) {
+		if (indexGeneration != generation)
+			return;
+		if (value == null) {
+			if (misses.size() >= MAX_CACHED_MISSES)
+				misses.clear();
+			misses.add(key);
+		} else {
+			if (index.size() >= MAX_CACHED_ENTRIES)
+				index.clear();
+			index.put(key, value);
+		}
+	}
+
 	public static class ResourceMapping {
 		private Bundle bundle;
 		private String bundlePath;
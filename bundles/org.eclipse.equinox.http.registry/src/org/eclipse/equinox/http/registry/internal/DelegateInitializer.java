@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.equinox.http.registry.internal;
+
+import java.util.LinkedList;
+
+/**
+ * Creates and initializes the delegates of servlet and filter contributions in the
+ * background, so the first requests do not pay for loading the contributed classes.
+ * Requests arriving while a delegate is still being initialized wait for it to complete.
+ * <p>
+ * The work is done by a small pool of daemon threads. The delegates are taken in the
+ * order they were scheduled, a thread is started on demand for each new delegate until
+ * the pool is full, and the threads exit once the queue is empty. A failing delegate
+ * does not keep the others from being initialized.
+ */
+public class DelegateInitializer implements Runnable {
+
+	static final String PROP_WARMUP = "org.eclipse.equinox.http.registry.warmup"; //$NON-NLS-1$
+
+	private static final int DEFAULT_MAX_THREADS = 4;
+
+	private final LinkedList queue = new LinkedList();
+	private final int maxThreads;
+	private int threads = 0;
+	private boolean stopped = false;
+
+	public DelegateInitializer() {
+		this(DEFAULT_MAX_THREADS);
+	}
+
+	public DelegateInitializer(int maxThreads) {
+		this.maxThreads = maxThreads < 1 ? 1 : maxThreads;
+	}
+
+	public synchronized void schedule(Runnable initializer) {
+		if (stopped)
+			return;
+		queue.add(initializer);
+		if (threads < maxThreads) {
+			threads++;
+			Thread thread = new Thread(this, "Http Registry Warm-up"); //$NON-NLS-1$
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	public synchronized void stop() {
+		stopped = true;
+		queue.clear();
+	}
+
+	public void run() {
+		while (true) {
+			Runnable initializer;
+			synchronized (this) {
+				if (queue.isEmpty()) {
+					threads--;
+					return;
+				}
+				initializer = (Runnable) queue.removeFirst();
+			}
+			try {
+				initializer.run();
+			} catch (Throwable t) {
+				// log it. The first request will retry the initialization and report the failure.
+				t.printStackTrace();
+			}
+		}
+	}
+}
@@ -43,6 +43,8 @@ public class FilterManager implements ExtensionPointTracker.Listener {
 
 	private static final String FILTER = "filter"; //$NON-NLS-1$
 
+	private static final String WARM_UP = "warm-up"; //$NON-NLS-1$
+
 	private ExtensionPointTracker tracker;
 
 	private HttpRegistryManager httpRegistryManager;
@@ -51,9 +53,15 @@ public class FilterManager implements ExtensionPointTracker.Listener {
 
 	private ServiceReference reference;
 
-	public FilterManager(HttpRegistryManager httpRegistryManager, ServiceReference reference, IExtensionRegistry registry) {
+	private DelegateInitializer delegateInitializer;
+
+	private boolean warmUpAll;
+
+	public FilterManager(HttpRegistryManager httpRegistryManager, ServiceReference reference, IExtensionRegistry registry, DelegateInitializer delegateInitializer, boolean warmUpAll) {
 		this.httpRegistryManager = httpRegistryManager;
 		this.reference = reference;
+		this.delegateInitializer = delegateInitializer;
+		this.warmUpAll = warmUpAll;
 		tracker = new ExtensionPointTracker(registry, FILTERS_EXTENSION_POINT, this);
 	}
 
@@ -124,6 +132,9 @@ public class FilterManager implements ExtensionPointTracker.Listener {
 			if (loadOnStartup)
 				wrapper.setLoadOnStartup();
 
+			if (warmUpAll || Boolean.valueOf(filterElement.getAttribute(WARM_UP)).booleanValue())
+				wrapper.setWarmUp(delegateInitializer);
+
 			String httpContextId = filterElement.getAttribute(HTTPCONTEXT_ID);
 			if (httpContextId == null) {
 				httpContextId = filterElement.getAttribute(HTTPCONTEXT_NAME);
@@ -150,9 +161,12 @@ public class FilterManager implements ExtensionPointTracker.Listener {
 	private static class FilterWrapper implements Filter {
 
 		private IConfigurationElement element;
-		private Filter delegate;
+		private volatile Filter delegate;
 		private FilterConfig config;
 		private boolean loadOnStartup = false;
+		private DelegateInitializer warmUp;
+		/** @GuardedBy this */
+		private boolean active = false;
 
 		public FilterWrapper(IConfigurationElement element) {
 			this.element = element;
@@ -162,22 +176,37 @@ public class FilterManager implements ExtensionPointTracker.Listener {
 			this.loadOnStartup = true;
 		}
 
+		public void setWarmUp(DelegateInitializer warmUp) {
+			this.warmUp = warmUp;
+		}
+
 		public void init(FilterConfig filterConfig) throws ServletException {
 			this.config = filterConfig;
-			if (loadOnStartup)
+			synchronized (this) {
+				active = true;
+			}
+			if (warmUp != null) {
+				warmUp.schedule(new Runnable() {
+					public void run() {
+						warmUpDelegate();
+					}
+				});
+			} else if (loadOnStartup)
 				initializeDelegate();
 		}
 
 		public void doFilter(ServletRequest arg0, ServletResponse arg1, FilterChain chain) throws ServletException, IOException {
-			initializeDelegate();
-			delegate.doFilter(arg0, arg1, chain);
+			Filter current = delegate;
+			if (current == null)
+				current = initializeDelegate();
+			current.doFilter(arg0, arg1, chain);
 		}
 
 		public void destroy() {
 			destroyDelegate();
 		}
 
-		private synchronized void initializeDelegate() throws ServletException {
+		private synchronized Filter initializeDelegate() throws ServletException {
 			if (delegate == null) {
 				try {
 					Filter newDelegate = (Filter) element.createExecutableExtension(CLASS);
@@ -187,9 +216,22 @@ public class FilterManager implements ExtensionPointTracker.Listener {
 					throw new ServletException(e);
 				}
 			}
+			return delegate;
+		}
+
+		synchronized void warmUpDelegate() {
+			if (!active)
+				return;
+			try {
+				initializeDelegate();
+			} catch (ServletException e) {
+				// log it. The first request will retry and report the failure.
+				e.printStackTrace();
+			}
 		}
 
 		private synchronized void destroyDelegate() {
+			active = false;
 			if (delegate != null) {
 				Filter doomedDelegate = delegate;
 				delegate = null;
@@ -89,14 +89,15 @@ public class HttpRegistryManager {
 	private Map servlets = new HashMap();
 	private Map resources = new HashMap();
 	private Set registered = new HashSet();
+	private DelegateInitializer delegateInitializer = new DelegateInitializer();
 
-	public HttpRegistryManager(ServiceReference reference, HttpService httpService, PackageAdmin packageAdmin, IExtensionRegistry registry) {
+	public HttpRegistryManager(ServiceReference reference, HttpService httpService, PackageAdmin packageAdmin, IExtensionRegistry registry, boolean warmUp) {
 		this.httpService = httpService;
 		this.packageAdmin = packageAdmin;
 
 		httpContextManager = new HttpContextManager(this, registry);
-		filterManager = new FilterManager(this, reference, registry);
-		servletManager = new ServletManager(this, reference, registry);
+		filterManager = new FilterManager(this, reference, registry, delegateInitializer, warmUp);
+		servletManager = new ServletManager(this, reference, registry, delegateInitializer, warmUp);
 		resourceManager = new ResourceManager(this, reference, registry);
 	}
 
@@ -112,6 +113,7 @@ public class HttpRegistryManager {
 		servletManager.stop();
 		filterManager.stop();
 		httpContextManager.stop();
+		delegateInitializer.stop();
 	}
 
 	public synchronized boolean addResourcesContribution(String alias, String baseName, String httpContextId, IContributor contributor) {
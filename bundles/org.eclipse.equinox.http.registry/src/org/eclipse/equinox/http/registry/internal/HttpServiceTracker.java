@@ -27,6 +27,7 @@ public class HttpServiceTracker extends ServiceTracker {
 	private BundleContext context;
 	private PackageAdmin packageAdmin;
 	private IExtensionRegistry registry;
+	private boolean warmUp;
 
 	private ServiceRegistration registration;
 	Map httpRegistryManagers = new HashMap();
@@ -36,6 +37,7 @@ public class HttpServiceTracker extends ServiceTracker {
 		this.context = context;
 		this.packageAdmin = packageAdmin;
 		this.registry = registry;
+		this.warmUp = Boolean.valueOf(context.getProperty(DelegateInitializer.PROP_WARMUP)).booleanValue();
 	}
 
 	public void open() {
@@ -54,7 +56,7 @@ public class HttpServiceTracker extends ServiceTracker {
 		if (httpService == null)
 			return null;
 
-		HttpRegistryManager httpRegistryManager = new HttpRegistryManager(reference, httpService, packageAdmin, registry);
+		HttpRegistryManager httpRegistryManager = new HttpRegistryManager(reference, httpService, packageAdmin, registry, warmUp);
 		httpRegistryManager.start();
 		httpRegistryManagers.put(reference, httpRegistryManager);
 
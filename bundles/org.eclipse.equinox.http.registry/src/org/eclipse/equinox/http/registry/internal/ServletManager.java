@@ -44,6 +44,8 @@ public class ServletManager implements ExtensionPointTracker.Listener {
 
 	private static final String FILTER = "filter"; //$NON-NLS-1$
 
+	private static final String WARM_UP = "warm-up"; //$NON-NLS-1$
+
 	private ExtensionPointTracker tracker;
 
 	private HttpRegistryManager httpRegistryManager;
@@ -52,9 +54,15 @@ public class ServletManager implements ExtensionPointTracker.Listener {
 
 	private ServiceReference reference;
 
-	public ServletManager(HttpRegistryManager httpRegistryManager, ServiceReference reference, IExtensionRegistry registry) {
+	private DelegateInitializer delegateInitializer;
+
+	private boolean warmUpAll;
+
+	public ServletManager(HttpRegistryManager httpRegistryManager, ServiceReference reference, IExtensionRegistry registry, DelegateInitializer delegateInitializer, boolean warmUpAll) {
 		this.httpRegistryManager = httpRegistryManager;
 		this.reference = reference;
+		this.delegateInitializer = delegateInitializer;
+		this.warmUpAll = warmUpAll;
 		tracker = new ExtensionPointTracker(registry, SERVLETS_EXTENSION_POINT, this);
 	}
 
@@ -125,6 +133,9 @@ public class ServletManager implements ExtensionPointTracker.Listener {
 			if (loadOnStartup)
 				wrapper.setLoadOnStartup();
 
+			if (warmUpAll || Boolean.valueOf(servletElement.getAttribute(WARM_UP)).booleanValue())
+				wrapper.setWarmUp(delegateInitializer);
+
 			String httpContextId = servletElement.getAttribute(HTTPCONTEXT_ID);
 			if (httpContextId == null) {
 				httpContextId = servletElement.getAttribute(HTTPCONTEXT_NAME);
@@ -153,9 +164,12 @@ public class ServletManager implements ExtensionPointTracker.Listener {
 
 		private static final String CLASS = "class"; //$NON-NLS-1$
 		private IConfigurationElement element;
-		private Servlet delegate;
+		private volatile Servlet delegate;
 		private ServletConfig config;
 		private boolean loadOnStartup = false;
+		private DelegateInitializer warmUp;
+		/** @GuardedBy this */
+		private boolean active = false;
 
 		public ServletWrapper(IConfigurationElement element) {
 			this.element = element;
@@ -165,9 +179,22 @@ public class ServletManager implements ExtensionPointTracker.Listener {
 			this.loadOnStartup = true;
 		}
 
+		public void setWarmUp(DelegateInitializer warmUp) {
+			this.warmUp = warmUp;
+		}
+
 		public void init(ServletConfig config) throws ServletException {
 			this.config = config;
-			if (loadOnStartup)
+			synchronized (this) {
+				active = true;
+			}
+			if (warmUp != null) {
+				warmUp.schedule(new Runnable() {
+					public void run() {
+						warmUpDelegate();
+					}
+				});
+			} else if (loadOnStartup)
 				initializeDelegate();
 		}
 
@@ -176,8 +203,10 @@ public class ServletManager implements ExtensionPointTracker.Listener {
 		}
 
 		public void service(ServletRequest arg0, ServletResponse arg1) throws ServletException, IOException {
-			initializeDelegate();
-			delegate.service(arg0, arg1);
+			Servlet current = delegate;
+			if (current == null)
+				current = initializeDelegate();
+			current.service(arg0, arg1);
 		}
 
 		public String getServletInfo() {
@@ -188,7 +217,7 @@ public class ServletManager implements ExtensionPointTracker.Listener {
 			destroyDelegate();
 		}
 
-		private synchronized void initializeDelegate() throws ServletException {
+		private synchronized Servlet initializeDelegate() throws ServletException {
 			if (delegate == null) {
 				try {
 					Servlet newDelegate = (Servlet) element.createExecutableExtension(CLASS);
@@ -198,9 +227,22 @@ public class ServletManager implements ExtensionPointTracker.Listener {
 					throw new ServletException(e);
 				}
 			}
+			return delegate;
+		}
+
+		synchronized void warmUpDelegate() {
+			if (!active)
+				return;
+			try {
+				initializeDelegate();
+			} catch (ServletException e) {
+				// log it. The first request will retry and report the failure.
+				e.printStackTrace();
+			}
 		}
 
 		private synchronized void destroyDelegate() {
+			active = false;
 			if (delegate != null) {
 				Servlet doomedDelegate = delegate;
 				delegate = null;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011, 2017 IBM Corporation and others.
+ * Copyright (c) 2011, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,9 +15,12 @@ package org.eclipse.equinox.http.servlet.tests;
 
 import static org.junit.Assert.*;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.PrintWriter;
 
 import java.lang.reflect.InvocationTargetException;
@@ -25,7 +28,10 @@ import java.lang.reflect.Method;
 import java.net.CookieHandler;
 import java.net.CookieManager;
 import java.net.CookiePolicy;
+import java.net.HttpURLConnection;
+import java.net.Socket;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -41,6 +47,7 @@ import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -3302,6 +3309,139 @@ public class ServletTest extends BaseTest {
 		}
 	}
 
+	@Test
+	public void test_Jetty_http2CleartextUpgrade() throws Exception {
+		try {
+			stopJetty();
+			System.setProperty("org.eclipse.equinox.http.jetty.http2.enabled", "true");
+		}
+		finally {
+			startJetty();
+		}
+
+		Collection<ServiceRegistration<?>> registrations = new ArrayList<ServiceRegistration<?>>();
+		try {
+			Servlet servlet = new HttpServlet() {
+				private static final long serialVersionUID = 1L;
+				@Override
+				protected void service(HttpServletRequest req, HttpServletResponse resp)
+					throws IOException, ServletException {
+					resp.getWriter().write(req.getProtocol());
+				}
+			};
+			Dictionary<String, Object> props = new Hashtable<String, Object>();
+			props.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_SERVLET_PATTERN, "/" + testName.getMethodName());
+			registrations.add(getBundleContext().registerService(Servlet.class, servlet, props));
+
+			// HTTP/1.1 clients keep working
+			Assert.assertEquals("HTTP/1.1", requestAdvisor.request(testName.getMethodName()));
+
+			// clients may upgrade the connection to h2c
+			Socket socket = new Socket("localhost", Integer.parseInt(getPort()));
+			try {
+				socket.setSoTimeout(10000);
+				write(socket.getOutputStream(),
+					"GET " + getContextPath() + "/" + testName.getMethodName() + " HTTP/1.1\r\n" +
+					"Host: localhost\r\n" +
+					"Connection: Upgrade, HTTP2-Settings\r\n" +
+					"Upgrade: h2c\r\n" +
+					"HTTP2-Settings: AAMAAABkAAQAAP__\r\n\r\n");
+				BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+				Assert.assertEquals("HTTP/1.1 101 Switching Protocols", reader.readLine());
+			}
+			finally {
+				socket.close();
+			}
+		}
+		finally {
+			for (ServiceRegistration<?> registration : registrations) {
+				registration.unregister();
+			}
+			try {
+				stopJetty();
+				System.clearProperty("org.eclipse.equinox.http.jetty.http2.enabled");
+			}
+			finally {
+				startJetty();
+			}
+		}
+	}
+
+	@Test
+	public void test_Jetty_gzip() throws Exception {
+		try {
+			stopJetty();
+			System.setProperty("org.eclipse.equinox.http.jetty.gzip.enabled", "true");
+			System.setProperty("org.eclipse.equinox.http.jetty.gzip.minSize", "100");
+			System.setProperty("org.eclipse.equinox.http.jetty.gzip.includedMimeTypes", "text/plain");
+		}
+		finally {
+			startJetty();
+		}
+
+		Collection<ServiceRegistration<?>> registrations = new ArrayList<ServiceRegistration<?>>();
+		try {
+			Servlet servlet = new HttpServlet() {
+				private static final long serialVersionUID = 1L;
+				@Override
+				protected void service(HttpServletRequest req, HttpServletResponse resp)
+					throws IOException, ServletException {
+					resp.setContentType(req.getParameter("type"));
+					int length = Integer.parseInt(req.getParameter("length"));
+					PrintWriter writer = resp.getWriter();
+					for (int i = 0; i < length; i++) {
+						writer.write('a');
+					}
+				}
+			};
+			Dictionary<String, Object> props = new Hashtable<String, Object>();
+			props.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_SERVLET_PATTERN, "/" + testName.getMethodName());
+			registrations.add(getBundleContext().registerService(Servlet.class, servlet, props));
+
+			Map<String, List<String>> headers = new HashMap<String, List<String>>();
+			headers.put("Accept-Encoding", Arrays.asList("gzip"));
+
+			// small responses and responses of other types are sent as they are
+			Map<String, List<String>> response = requestAdvisor.request(testName.getMethodName() + "?type=text/plain&length=10", headers);
+			Assert.assertNull(response.get("Content-Encoding"));
+			Assert.assertEquals("aaaaaaaaaa", response.get("responseBody").get(0));
+			response = requestAdvisor.request(testName.getMethodName() + "?type=application/json&length=1000", headers);
+			Assert.assertNull(response.get("Content-Encoding"));
+
+			URL url = new URL("http://localhost:" + getPort() + getContextPath() + "/" + testName.getMethodName() + "?type=text/plain&length=1000");
+			HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+			connection.setRequestProperty("Accept-Encoding", "gzip");
+			Assert.assertEquals("gzip", connection.getHeaderField("Content-Encoding"));
+			InputStream in = new GZIPInputStream(connection.getInputStream());
+			try {
+				int length = 0;
+				int b;
+				while ((b = in.read()) != -1) {
+					Assert.assertEquals('a', b);
+					length++;
+				}
+				Assert.assertEquals(1000, length);
+			}
+			finally {
+				in.close();
+			}
+		}
+		finally {
+			for (ServiceRegistration<?> registration : registrations) {
+				registration.unregister();
+			}
+			try {
+				stopJetty();
+				System.clearProperty("org.eclipse.equinox.http.jetty.gzip.enabled");
+				System.clearProperty("org.eclipse.equinox.http.jetty.gzip.minSize");
+				System.clearProperty("org.eclipse.equinox.http.jetty.gzip.includedMimeTypes");
+			}
+			finally {
+				startJetty();
+			}
+		}
+	}
+
 	@Test
 	public void test_Listener1() throws Exception {
 		BaseServletContextListener scl1 =
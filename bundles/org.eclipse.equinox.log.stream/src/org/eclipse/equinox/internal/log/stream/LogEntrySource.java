@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017 IBM Corporation and others.
+ * Copyright (c) 2017, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,10 +11,11 @@
 package org.eclipse.equinox.internal.log.stream;
 
 import java.io.Closeable;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
 import org.osgi.service.log.LogEntry;
@@ -30,10 +31,22 @@ public class LogEntrySource implements PushEventSource<LogEntry> {
 	private final ServiceTracker<LogReaderService, AtomicReference<LogReaderService>> withHistory;
 	private volatile PushStream<LogEntry> logStream;
 	private final ReentrantLock historyLock = new ReentrantLock();
+	private final int historyLimit;
+	private final LogQueuePolicy queuePolicy;
+	private final LogStreamProviderImpl provider;
 
-	public LogEntrySource(ServiceTracker<LogReaderService, AtomicReference<LogReaderService>> withHistory) {
+	public LogEntrySource(ServiceTracker<LogReaderService, AtomicReference<LogReaderService>> withHistory, int historyLimit, LogQueuePolicy queuePolicy, LogStreamProviderImpl provider) {
 		this.withHistory = withHistory;
+		this.historyLimit = historyLimit;
+		this.queuePolicy = queuePolicy;
+		this.provider = provider;
+	}
 
+	/*
+	 * Returns the number of entries dropped because the buffer of the stream was full.
+	 */
+	public long getDroppedCount() {
+		return queuePolicy.getDroppedCount();
 	}
 
 	public PushStream<LogEntry> getLogStream() {
@@ -47,50 +60,53 @@ public class LogEntrySource implements PushEventSource<LogEntry> {
 	/* Open method isused to connect to the source and begin receiving a stream of events.
 	 * It returns an AutoCloseable which can be used to close the event stream. 
 	 * If the close method is called on this object then the stream is terminated by sending a close event.
+	 * The source receives new entries from the provider while it has consumers.
 	 * (non-Javadoc)
 	 * @see org.osgi.util.pushstream.PushEventSource#open(org.osgi.util.pushstream.PushEventConsumer)
 	 */
 
 	@Override
 	public Closeable open(PushEventConsumer<? super LogEntry> aec) throws Exception {
-
-		LinkedBlockingDeque<LogEntry> historyList = new LinkedBlockingDeque<>();
-
-		if (!consumers.add(aec)) {
-			throw new IllegalStateException("Cannot add the same consumer multiple times"); //$NON-NLS-1$
-		}
-
 		/*when history is not equal to null then we acquire a lock to provide the full history 
 		 * to the consumer first before any other new entries
 		 */
 		if (withHistory != null) {
 			historyLock.lock();
-			try {
+		}
+		try {
+			if (!addConsumer(aec)) {
+				// the provider is closed
+				aec.accept(PushEvent.close());
+				return () -> {
+					// nothing to close
+				};
+			}
+			if (withHistory != null) {
 				AtomicReference<LogReaderService> readerRef = withHistory.getService();
 				LogReaderService reader = readerRef.get();
 				if (reader != null) {
-					// Enumeration has the most recent entry first
+					// Enumeration has the most recent entry first, only the entries which fit in the buffer are kept
+					List<LogEntry> historyList = new ArrayList<>();
 					Enumeration<LogEntry> e = reader.getLog();
 					if (e != null) {
-						while (e.hasMoreElements()) {
+						while (e.hasMoreElements() && historyList.size() < historyLimit) {
 							historyList.add(e.nextElement());
 						}
 					}
 					//Logging the history in the order of their appearance
-					if (historyList != null) {
-						while (!historyList.isEmpty()) {
-							LogEntry logEntry = historyList.removeLast();
-							logged(logEntry);
-						}
+					for (int i = historyList.size() - 1; i >= 0; i--) {
+						logged(historyList.get(i));
 					}
 				}
-			} finally {
+			}
+		} finally {
+			if (withHistory != null) {
 				historyLock.unlock();
 			}
 		}
 
 		Closeable result = () -> {
-			if (consumers.remove(aec)) {
+			if (removeConsumer(aec)) {
 				try {
 					aec.accept(PushEvent.close());
 				} catch (Exception e) {
@@ -102,6 +118,35 @@ public class LogEntrySource implements PushEventSource<LogEntry> {
 		return result;
 	}
 
+	/*
+	 * The first consumer registers the source with the provider.
+	 * Returns false if the provider is closed.
+	 */
+	private synchronized boolean addConsumer(PushEventConsumer<? super LogEntry> aec) {
+		if (consumers.contains(aec)) {
+			throw new IllegalStateException("Cannot add the same consumer multiple times"); //$NON-NLS-1$
+		}
+		if (!provider.addSource(this)) {
+			return false;
+		}
+		consumers.add(aec);
+		return true;
+	}
+
+	/*
+	 * The last consumer removes the source from the provider.
+	 * Returns false if the consumer was already removed.
+	 */
+	private synchronized boolean removeConsumer(PushEventConsumer<? super LogEntry> aec) {
+		if (!consumers.remove(aec)) {
+			return false;
+		}
+		if (consumers.isEmpty()) {
+			provider.removeSource(this);
+		}
+		return true;
+	}
+
 	public void logged(LogEntry entry) {
 		if (withHistory != null) {
 			historyLock.lock();
@@ -118,7 +163,7 @@ public class LogEntrySource implements PushEventSource<LogEntry> {
 				try {
 					long status = consumer.accept(PushEvent.data(entry));
 
-					if (status < 0) {
+					if (status < 0 && removeConsumer(consumer)) {
 						consumer.accept(PushEvent.close());
 					}
 
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.log.stream;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.osgi.service.log.LogEntry;
+import org.osgi.util.pushstream.PushEvent;
+import org.osgi.util.pushstream.QueuePolicy;
+
+/* Queue policy of the bounded buffer of a single log stream.
+ * Entries that do not fit in the buffer are counted as dropped. Terminal events are never dropped,
+ * the oldest entries are discarded to make room for them instead.
+ *   discardOldest - the oldest buffered entry is dropped to make room for the new one
+ *   block         - waits up to the block timeout for room, then drops the new entry
+ *   sample        - once the buffer is half full only every other new entry is kept,
+ *                   when it is full the oldest buffered entry is dropped
+ */
+public class LogQueuePolicy implements QueuePolicy<LogEntry, BlockingQueue<PushEvent<? extends LogEntry>>> {
+	public static final String DISCARD_OLDEST = "discardOldest"; //$NON-NLS-1$
+	public static final String BLOCK = "block"; //$NON-NLS-1$
+	public static final String SAMPLE = "sample"; //$NON-NLS-1$
+
+	private final String mode;
+	private final int capacity;
+	private final long blockTimeout;
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong sampled = new AtomicLong();
+
+	public LogQueuePolicy(String mode, int capacity, long blockTimeout) {
+		this.mode = mode;
+		this.capacity = capacity;
+		this.blockTimeout = blockTimeout;
+	}
+
+	@Override
+	public void doOffer(BlockingQueue<PushEvent<? extends LogEntry>> queue, PushEvent<? extends LogEntry> event) throws Exception {
+		if (event.isTerminal()) {
+			discardOldest(queue, event);
+			return;
+		}
+		if (BLOCK.equals(mode)) {
+			if (!queue.offer(event, blockTimeout, TimeUnit.MILLISECONDS)) {
+				dropped.incrementAndGet();
+			}
+		} else if (SAMPLE.equals(mode)) {
+			if (queue.size() >= capacity / 2 && (sampled.getAndIncrement() & 1) != 0) {
+				dropped.incrementAndGet();
+			} else {
+				discardOldest(queue, event);
+			}
+		} else {
+			discardOldest(queue, event);
+		}
+	}
+
+	private void discardOldest(BlockingQueue<PushEvent<? extends LogEntry>> queue, PushEvent<? extends LogEntry> event) {
+		while (!queue.offer(event)) {
+			if (queue.poll() != null) {
+				dropped.incrementAndGet();
+			}
+		}
+	}
+
+	/*
+	 * Returns the number of entries dropped because the buffer was full.
+	 */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+}
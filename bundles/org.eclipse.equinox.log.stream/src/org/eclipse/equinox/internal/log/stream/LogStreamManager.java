@@ -45,7 +45,7 @@ public class LogStreamManager implements BundleActivator, ServiceTrackerCustomiz
 		this.context = bc;
 		logReaderService = new ServiceTracker<>(context, LogReaderService.class, this);
 		logReaderService.open();
-		logStreamProviderFactory = new LogStreamProviderFactory(logReaderService);
+		logStreamProviderFactory = new LogStreamProviderFactory(logReaderService, context);
 		logStreamServiceRegistration = context.registerService(LogStreamProvider.class, logStreamProviderFactory, null);
 	}
 
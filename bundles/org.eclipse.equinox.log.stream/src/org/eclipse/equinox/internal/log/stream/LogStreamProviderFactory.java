@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017 IBM Corporation and others.
+ * Copyright (c) 2017, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,14 +10,14 @@
  *******************************************************************************/
 package org.eclipse.equinox.internal.log.stream;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceFactory;
 import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.log.LogEntry;
@@ -27,9 +27,17 @@ import org.osgi.util.tracker.ServiceTracker;
 
 public class LogStreamProviderFactory implements ServiceFactory<LogStreamProvider> {
 
-	Map<Bundle, LogStreamProviderImpl> providers = new HashMap<>();
-	ReentrantReadWriteLock eventProducerLock = new ReentrantReadWriteLock();
+	static final String PROP_CAPACITY = "equinox.log.stream.capacity"; //$NON-NLS-1$
+	static final String PROP_QUEUE_POLICY = "equinox.log.stream.queuePolicy"; //$NON-NLS-1$
+	static final String PROP_BLOCK_TIMEOUT = "equinox.log.stream.blockTimeout"; //$NON-NLS-1$
+	private static final int DEFAULT_CAPACITY = 1024;
+	private static final long DEFAULT_BLOCK_TIMEOUT = 100;
+
+	Map<Bundle, LogStreamProviderImpl> providers = new ConcurrentHashMap<>();
 	ServiceTracker<LogReaderService, AtomicReference<LogReaderService>> logReaderService;
+	private final int capacity;
+	private final String queuePolicy;
+	private final long blockTimeout;
 
 	private final int cores = Runtime.getRuntime().availableProcessors();
 	private final ExecutorService executor = Executors.newFixedThreadPool(cores, new ThreadFactory() {
@@ -41,24 +49,34 @@ public class LogStreamProviderFactory implements ServiceFactory<LogStreamProvide
 		}
 	});
 
-	public LogStreamProviderFactory(ServiceTracker<LogReaderService, AtomicReference<LogReaderService>> logReaderService) {
+	public LogStreamProviderFactory(ServiceTracker<LogReaderService, AtomicReference<LogReaderService>> logReaderService, BundleContext context) {
 		this.logReaderService = logReaderService;
+		this.capacity = (int) Math.max(1, getLongProperty(context, PROP_CAPACITY, DEFAULT_CAPACITY));
+		String policy = context.getProperty(PROP_QUEUE_POLICY);
+		this.queuePolicy = policy == null ? LogQueuePolicy.DISCARD_OLDEST : policy.trim();
+		this.blockTimeout = Math.max(0, getLongProperty(context, PROP_BLOCK_TIMEOUT, DEFAULT_BLOCK_TIMEOUT));
+	}
+
+	private static long getLongProperty(BundleContext context, String key, long defaultValue) {
+		String value = context.getProperty(key);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
 	}
 
-	/*Reader of providers map
+	/*Reader of providers map, no lock is taken
 	 *	1) for each provider
 	 *		- post entry to provider
 	 */
 	public void postLogEntry(LogEntry entry) {
-		eventProducerLock.readLock().lock();
-		try {
-			for (LogStreamProviderImpl provider : providers.values()) {
-				provider.logged(entry);
-			}
-		} finally {
-			eventProducerLock.readLock().unlock();
+		for (LogStreamProviderImpl provider : providers.values()) {
+			provider.logged(entry);
 		}
-
 	}
 
 	/* Writer to providers map
@@ -71,18 +89,13 @@ public class LogStreamProviderFactory implements ServiceFactory<LogStreamProvide
 
 	@Override
 	public LogStreamProviderImpl getService(Bundle bundle, ServiceRegistration<LogStreamProvider> registration) {
-		LogStreamProviderImpl logStreamProviderImpl = new LogStreamProviderImpl(logReaderService, executor);
-		eventProducerLock.writeLock().lock();
-		try {
-			providers.put(bundle, logStreamProviderImpl);
-			return logStreamProviderImpl;
-		} finally {
-			eventProducerLock.writeLock().unlock();
-		}
+		LogStreamProviderImpl logStreamProviderImpl = new LogStreamProviderImpl(logReaderService, executor, capacity, queuePolicy, blockTimeout);
+		providers.put(bundle, logStreamProviderImpl);
+		return logStreamProviderImpl;
 	}
 
 	/* 1) Remove the logStreamProviderImpl instance associated with the bundle
-	 * 2) close all existing LogStreams from the provider, outside the write lock
+	 * 2) close all existing LogStreams from the provider
 	 * (non-Javadoc)
 	 * @see org.osgi.framework.ServiceFactory#ungetService(org.osgi.framework.Bundle, org.osgi.framework.ServiceRegistration, java.lang.Object)
 	 */
@@ -90,15 +103,10 @@ public class LogStreamProviderFactory implements ServiceFactory<LogStreamProvide
 	@Override
 	public void ungetService(Bundle bundle, ServiceRegistration<LogStreamProvider> registration, LogStreamProvider service) {
 
-		LogStreamProviderImpl logStreamProviderImpl;
-
-		eventProducerLock.writeLock().lock();
-		try {
-			logStreamProviderImpl = providers.remove(bundle);
-		} finally {
-			eventProducerLock.writeLock().unlock();
+		LogStreamProviderImpl logStreamProviderImpl = providers.remove(bundle);
+		if (logStreamProviderImpl != null) {
+			logStreamProviderImpl.close();
 		}
-		logStreamProviderImpl.close();
 
 	}
 
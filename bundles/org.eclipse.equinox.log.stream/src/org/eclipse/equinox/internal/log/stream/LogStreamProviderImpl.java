@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017 IBM Corporation and others.
+ * Copyright (c) 2017, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,14 +10,16 @@
  *******************************************************************************/
 package org.eclipse.equinox.internal.log.stream;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Set;
+import java.util.List;
+import java.util.Map;
 import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.osgi.service.log.LogEntry;
 import org.osgi.service.log.LogReaderService;
 import org.osgi.service.log.stream.LogStreamProvider;
@@ -25,27 +27,41 @@ import org.osgi.util.pushstream.PushEvent;
 import org.osgi.util.pushstream.PushStream;
 import org.osgi.util.pushstream.PushStreamBuilder;
 import org.osgi.util.pushstream.PushStreamProvider;
-import org.osgi.util.pushstream.QueuePolicyOption;
 import org.osgi.util.tracker.ServiceTracker;
 
 public class LogStreamProviderImpl implements LogStreamProvider {
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static final WeakReference<LogEntrySource>[] NO_SOURCES = new WeakReference[0];
+
 	private final PushStreamProvider pushStreamProvider = new PushStreamProvider();
 	private final ServiceTracker<LogReaderService, AtomicReference<LogReaderService>> logReaderService;
-	private final WeakHashMap<LogEntrySource, Boolean> weakMap = new WeakHashMap<>();
-	private final Set<LogEntrySource> logEntrySources = Collections.newSetFromMap(weakMap);
+	/* copy on write, modified while holding the sourcesLock; sources of streams which are
+	 * no longer referenced are pruned when the array is copied */
+	private volatile WeakReference<LogEntrySource>[] logEntrySources = NO_SOURCES;
+	private final Object sourcesLock = new Object();
+	/* guarded by the sourcesLock */
+	private boolean closed;
+	/* the queue policy of each stream, which counts its dropped entries; the policy does not
+	 * reference the stream, so the entry goes away with the stream */
+	private final Map<PushStream<LogEntry>, LogQueuePolicy> queuePolicies = Collections.synchronizedMap(new WeakHashMap<>());
 
-	private final ReentrantReadWriteLock historyLock = new ReentrantReadWriteLock();
 	private final ExecutorService executor;
+	private final int capacity;
+	private final String queuePolicy;
+	private final long blockTimeout;
 
-	public LogStreamProviderImpl(ServiceTracker<LogReaderService, AtomicReference<LogReaderService>> logReaderService, ExecutorService executor) {
+	public LogStreamProviderImpl(ServiceTracker<LogReaderService, AtomicReference<LogReaderService>> logReaderService, ExecutorService executor, int capacity, String queuePolicy, long blockTimeout) {
 		this.logReaderService = logReaderService;
 		this.executor = executor;
+		this.capacity = capacity;
+		this.queuePolicy = queuePolicy;
+		this.blockTimeout = blockTimeout;
 	}
 
 	/* Create a PushStream of {@link LogEntry} objects.
 	 * The returned PushStream is 
-	 * Buffered with a buffer large enough to contain the history, if included.
-	 * Have the QueuePolicyOption.DISCARD_OLDEST queue policy option.
+	 * Buffered with a bounded buffer of the configured capacity, the history replayed is limited to the same number of entries.
+	 * Have the configured LogQueuePolicy, which counts the entries dropped when the buffer is full.
 	 * Use a shared executor.
 	 * Have a parallelism of one.
 	 * (non-Javadoc)
@@ -62,55 +78,112 @@ public class LogStreamProviderImpl implements LogStreamProvider {
 			}
 		}
 
-		// A write lock is acquired in order to add logEntrySource into the Set of logEntrySources.
-		historyLock.writeLock().lock();
-		try {
-			LogEntrySource logEntrySource = new LogEntrySource(withHistory);
-			PushStreamBuilder<LogEntry, BlockingQueue<PushEvent<? extends LogEntry>>> streamBuilder = pushStreamProvider.buildStream(logEntrySource);
-			//creating a buffered push stream
-			LinkedBlockingQueue<PushEvent<? extends LogEntry>> historyQueue = new LinkedBlockingQueue<>();
-			PushStream<LogEntry> logStream = streamBuilder.withBuffer(historyQueue).withExecutor(executor).withParallelism(1).withQueuePolicy(QueuePolicyOption.DISCARD_OLDEST).build();
-			logEntrySource.setLogStream(logStream);
-			// Adding to sources makes the source start listening for new entries
-			logEntrySources.add(logEntrySource);
-			return logStream;
-		} finally {
-			historyLock.writeLock().unlock();
+		LogQueuePolicy policy = new LogQueuePolicy(queuePolicy, capacity, blockTimeout);
+		LogEntrySource logEntrySource = new LogEntrySource(withHistory, capacity, policy, this);
+		PushStreamBuilder<LogEntry, BlockingQueue<PushEvent<? extends LogEntry>>> streamBuilder = pushStreamProvider.buildStream(logEntrySource);
+		//creating a buffered push stream backed by a ring buffer
+		BlockingQueue<PushEvent<? extends LogEntry>> buffer = new ArrayBlockingQueue<>(capacity);
+		PushStream<LogEntry> logStream = streamBuilder.withBuffer(buffer).withExecutor(executor).withParallelism(1).withQueuePolicy(policy).build();
+		logEntrySource.setLogStream(logStream);
+		queuePolicies.put(logStream, policy);
+		// The source adds itself to the sources when the stream connects to it and removes itself
+		// when the stream disconnects, the onClose handler of the stream is left to the client.
+		return logStream;
+	}
+
+	/*
+	 * Makes the source start listening for new entries.
+	 * Returns false if this provider is closed.
+	 */
+	boolean addSource(LogEntrySource source) {
+		synchronized (sourcesLock) {
+			if (closed) {
+				return false;
+			}
+			updateSources(source, null);
+			return true;
+		}
+	}
+
+	/*
+	 * Makes the source stop listening for new entries.
+	 */
+	void removeSource(LogEntrySource source) {
+		updateSources(null, source);
+	}
+
+	/*
+	 * Returns the number of sources listening for new entries.
+	 */
+	public int getSourceCount() {
+		int count = 0;
+		for (WeakReference<LogEntrySource> ref : logEntrySources) {
+			if (ref.get() != null) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/*
+	 * Returns the number of entries of a stream created by this provider which were dropped
+	 * because its buffer was full, or -1 if the stream was not created by this provider.
+	 */
+	public long getDroppedCount(PushStream<LogEntry> logStream) {
+		LogQueuePolicy policy = queuePolicies.get(logStream);
+		return policy == null ? -1 : policy.getDroppedCount();
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private void updateSources(LogEntrySource added, LogEntrySource removed) {
+		synchronized (sourcesLock) {
+			List<WeakReference<LogEntrySource>> updated = new ArrayList<>(logEntrySources.length + 1);
+			for (WeakReference<LogEntrySource> ref : logEntrySources) {
+				LogEntrySource source = ref.get();
+				if (source != null && source != removed && source != added) {
+					updated.add(ref);
+				}
+			}
+			if (added != null) {
+				updated.add(new WeakReference<>(added));
+			}
+			logEntrySources = updated.toArray(new WeakReference[updated.size()]);
 		}
 	}
 
 	/*
 	 * Send the incoming log entries to the logEntrySource.logged(entry) for the consumer to accept it.
+	 * Reads a snapshot of the sources, no lock is taken.
 	 */
 	public void logged(LogEntry entry) {
-		historyLock.readLock().lock();
-		try {
-			for (LogEntrySource logEntrySource : logEntrySources) {
+		for (WeakReference<LogEntrySource> ref : logEntrySources) {
+			LogEntrySource logEntrySource = ref.get();
+			if (logEntrySource != null) {
 				logEntrySource.logged(entry);
 			}
-		} finally {
-			historyLock.readLock().unlock();
 		}
 	}
 
 	/*
-	 * Closing the stream for each source.
+	 * Closing the stream for each source. Streams connecting later are closed right away.
 	 */
 	public void close() {
+		synchronized (sourcesLock) {
+			closed = true;
+		}
 		PushStream<LogEntry> logStream;
-		historyLock.readLock().lock();
-		try {
-			for (LogEntrySource logEntrySource : logEntrySources) {
-				logStream = logEntrySource.getLogStream();
-				try {
-					logStream.close();
-
-				} catch (Exception e) {
-					e.printStackTrace();
-				}
+		for (WeakReference<LogEntrySource> ref : logEntrySources) {
+			LogEntrySource logEntrySource = ref.get();
+			if (logEntrySource == null) {
+				continue;
+			}
+			logStream = logEntrySource.getLogStream();
+			try {
+				logStream.close();
+
+			} catch (Exception e) {
+				e.printStackTrace();
 			}
-		} finally {
-			historyLock.readLock().unlock();
 		}
 	}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2017 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.eclipse.equinox.metatype.impl;
 
+import java.io.File;
 import java.util.Dictionary;
 import java.util.Hashtable;
 import javax.xml.parsers.SAXParserFactory;
@@ -40,6 +41,8 @@ public class Activator implements BundleActivator {
 	 */
 	private static final String FILTER = "(|(&(" + Constants.OBJECTCLASS + '=' + ManagedService.class.getName() + "*)(" + Constants.SERVICE_PID + "=*))(&(" + Constants.OBJECTCLASS + '=' + MetaTypeProvider.class.getName() + ")(|(" + MetaTypeProvider.METATYPE_PID + "=*)(" + MetaTypeProvider.METATYPE_FACTORY_PID + "=*))))"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
 	private static final String SERVICE_PID = "org.osgi.impl.service.metatype.MetaTypeService"; //$NON-NLS-1$
+	// The directory in the data area holding the parsed metadata of the bundles.
+	private static final String CACHE_DIRECTORY = "metadata"; //$NON-NLS-1$
 
 	private LogTracker logServiceTracker;
 	// Could be ManagedService, ManagedServiceFactory, or MetaTypeProvider.
@@ -220,9 +223,11 @@ public class Activator implements BundleActivator {
 			properties.put(Constants.SERVICE_VENDOR, "IBM"); //$NON-NLS-1$
 			properties.put(Constants.SERVICE_DESCRIPTION, MetaTypeMsg.SERVICE_DESCRIPTION);
 			properties.put(Constants.SERVICE_PID, SERVICE_PID);
+			File cacheDirectory = bundleCtx.getDataFile(CACHE_DIRECTORY);
+			MetaTypeCache cache = cacheDirectory == null ? null : new MetaTypeCache(cacheDirectory, logService);
 			MetaTypeServiceImpl service;
 			synchronized (this) {
-				service = metaTypeService = new MetaTypeServiceImpl(saxParserFactory, logService, mtpTracker);
+				service = metaTypeService = new MetaTypeServiceImpl(saxParserFactory, logService, mtpTracker, cache);
 			}
 			bundleCtx.addBundleListener(service);
 			ServiceRegistration<?> registration = bundleCtx.registerService(new String[] {MetaTypeService.class.getName(), EquinoxMetaTypeService.class.getName()}, service, properties);
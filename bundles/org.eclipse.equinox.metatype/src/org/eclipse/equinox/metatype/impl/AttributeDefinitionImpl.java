@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2017 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -34,7 +34,7 @@ public class AttributeDefinitionImpl extends LocalizationElement implements Equi
 	Vector<String> _labels = new Vector<String>(7);
 
 	private final LogTracker logger;
-	private final ExtendableHelper helper;
+	final ExtendableHelper helper;
 
 	/**
 	 * Constructor of class AttributeDefinitionImpl.
@@ -243,7 +243,8 @@ public class AttributeDefinitionImpl extends LocalizationElement implements Equi
 	 * @see org.osgi.service.metatype.AttributeDefinition#getDefaultValue()
 	 */
 	public String[] getDefaultValue() {
-		return _defaults;
+		// A copy, the localized definitions are shared by all callers.
+		return _defaults == null ? null : _defaults.clone();
 	}
 
 	/**
@@ -270,7 +271,7 @@ public class AttributeDefinitionImpl extends LocalizationElement implements Equi
 	 * Method to set the default value of AttributeDefinition.
 	 * The given parameter is a String array of multi values.
 	 */
-	private void setDefaultValue(String[] defaults) {
+	void setDefaultValue(String[] defaults) {
 		_defaults = defaults;
 	}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2011 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -22,7 +22,7 @@ public abstract class LocalizationElement {
 	/*
 	 * Internal Method - to get resource bundle.
 	 */
-	private static ResourceBundle getResourceBundle(String localization, String locale, Bundle bundle) {
+	static ResourceBundle getResourceBundle(String localization, String locale, Bundle bundle) {
 		// Determine the base name of the bundle localization property files.
 		// If the <MetaData> 'localization' attribute was not specified,
 		// use the Bundle-Localization manifest header value instead if it exists.
@@ -123,6 +123,8 @@ public abstract class LocalizationElement {
 	private String locale;
 	// @GuardedBy("this")
 	private ResourceBundle resourceBundle;
+	// @GuardedBy("this")
+	private ResourceBundleCache resourceBundles;
 
 	public LocalizationElement(String localization) {
 		this.localization = localization;
@@ -164,7 +166,7 @@ public abstract class LocalizationElement {
 	 */
 	protected synchronized ResourceBundle getResourceBundle() {
 		if (resourceBundle == null) {
-			resourceBundle = getResourceBundle(localization, locale, bundle);
+			resourceBundle = resourceBundles != null ? resourceBundles.getResourceBundle(localization, locale) : getResourceBundle(localization, locale, bundle);
 		}
 		return resourceBundle;
 	}
@@ -177,4 +179,13 @@ public abstract class LocalizationElement {
 		this.locale = locale;
 		this.bundle = bundle;
 	}
+
+	/*
+	 * Same as setLocaleAndBundle(String, Bundle), the resource bundle is looked up in the
+	 * given cache of the bundle instead of being resolved for this element alone.
+	 */
+	synchronized void setLocaleAndBundle(String locale, Bundle bundle, ResourceBundleCache resourceBundles) {
+		setLocaleAndBundle(locale, bundle);
+		this.resourceBundles = resourceBundles;
+	}
 }
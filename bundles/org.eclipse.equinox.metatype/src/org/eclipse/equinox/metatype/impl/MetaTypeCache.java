@@ -0,0 +1,338 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.metatype.impl;
+
+import java.io.*;
+import java.util.*;
+import org.eclipse.osgi.util.NLS;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.namespace.HostNamespace;
+import org.osgi.framework.wiring.BundleWire;
+import org.osgi.framework.wiring.BundleWiring;
+import org.osgi.service.log.LogService;
+
+/*
+ * A binary copy of the designates parsed from the metatype documents of a
+ * bundle, kept in the data area of the metatype bundle so that the documents
+ * need not be parsed again the next time the bundle is asked for. There is one
+ * file per bundle id. A file is only used if the bundle and its attached
+ * fragments have the last modified times it was written with and the bundle
+ * still has the same metatype document entries; anything else, including any
+ * read error, makes the caller fall back to parsing the documents.
+ */
+final class MetaTypeCache {
+	private static final int VERSION = 1;
+	private static final String FILE_EXT = ".cache"; //$NON-NLS-1$
+	private static final String TEMP_EXT = ".tmp"; //$NON-NLS-1$
+
+	private final File directory;
+	private final LogTracker logger;
+
+	MetaTypeCache(File directory, LogTracker logger) {
+		this.directory = directory;
+		this.logger = logger;
+	}
+
+	/*
+	 * Returns the designates of each of the given entry paths of the bundle, in
+	 * the order of the paths, or null if there is no valid cache for them.
+	 */
+	List<Collection<Designate>> read(Bundle bundle, List<String> entries) {
+		File file = getFile(bundle.getBundleId());
+		if (!file.isFile())
+			return null;
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			if (in.readInt() != VERSION || in.readLong() != bundle.getLastModified() || !Arrays.equals(readLongs(in), getFragments(bundle)) || in.readInt() != entries.size())
+				return null;
+			List<Collection<Designate>> result = new ArrayList<Collection<Designate>>(entries.size());
+			for (String entry : entries) {
+				if (!entry.equals(in.readUTF()))
+					return null;
+				result.add(readDesignates(in, bundle));
+			}
+			return result;
+		} catch (Exception e) {
+			logger.log(LogService.LOG_DEBUG, NLS.bind(MetaTypeMsg.CACHE_READ_ERROR, bundle.getBundleId(), bundle.getSymbolicName()), e);
+			return null;
+		} finally {
+			close(in);
+		}
+	}
+
+	/*
+	 * Replaces the cache of the bundle with the designates parsed from each of
+	 * the given entry paths.
+	 */
+	void write(Bundle bundle, List<String> entries, List<Collection<Designate>> designates) {
+		File file = getFile(bundle.getBundleId());
+		File temp = new File(directory, file.getName() + TEMP_EXT);
+		DataOutputStream out = null;
+		try {
+			directory.mkdirs();
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+			out.writeInt(VERSION);
+			out.writeLong(bundle.getLastModified());
+			writeLongs(out, getFragments(bundle));
+			out.writeInt(entries.size());
+			for (int i = 0; i < entries.size(); i++) {
+				out.writeUTF(entries.get(i));
+				writeDesignates(out, designates.get(i));
+			}
+			out.close();
+			out = null;
+			file.delete();
+			if (!temp.renameTo(file))
+				temp.delete();
+		} catch (IOException e) {
+			// Values too long for the format end up here, the XML is simply parsed each time.
+			logger.log(LogService.LOG_DEBUG, NLS.bind(MetaTypeMsg.CACHE_WRITE_ERROR, bundle.getBundleId(), bundle.getSymbolicName()), e);
+			close(out);
+			temp.delete();
+			file.delete();
+		}
+	}
+
+	void remove(long bundleId) {
+		getFile(bundleId).delete();
+	}
+
+	private File getFile(long bundleId) {
+		return new File(directory, bundleId + FILE_EXT);
+	}
+
+	/*
+	 * Returns the bundle id and last modified time of each fragment attached to
+	 * the bundle, as the metatype documents of the fragments are found along
+	 * with those of the bundle.
+	 */
+	private static long[] getFragments(Bundle bundle) {
+		BundleWiring wiring = bundle.adapt(BundleWiring.class);
+		List<BundleWire> wires = wiring == null ? null : wiring.getProvidedWires(HostNamespace.HOST_NAMESPACE);
+		if (wires == null)
+			return new long[0];
+		long[] result = new long[wires.size() * 2];
+		for (int i = 0; i < wires.size(); i++) {
+			Bundle fragment = wires.get(i).getRequirer().getBundle();
+			result[i * 2] = fragment.getBundleId();
+			result[i * 2 + 1] = fragment.getLastModified();
+		}
+		return result;
+	}
+
+	private static void writeDesignates(DataOutputStream out, Collection<Designate> designates) throws IOException {
+		// Designates referring to the same OCD share it, so each OCD is written once.
+		Map<ObjectClassDefinitionImpl, Integer> ocds = new IdentityHashMap<ObjectClassDefinitionImpl, Integer>();
+		for (Designate designate : designates) {
+			if (!ocds.containsKey(designate.getObjectClassDefinition()))
+				ocds.put(designate.getObjectClassDefinition(), Integer.valueOf(ocds.size()));
+		}
+		ObjectClassDefinitionImpl[] ordered = new ObjectClassDefinitionImpl[ocds.size()];
+		for (Map.Entry<ObjectClassDefinitionImpl, Integer> entry : ocds.entrySet())
+			ordered[entry.getValue().intValue()] = entry.getKey();
+		out.writeInt(ordered.length);
+		for (ObjectClassDefinitionImpl ocd : ordered)
+			writeObjectClassDefinition(out, ocd);
+		out.writeInt(designates.size());
+		for (Designate designate : designates) {
+			out.writeInt(ocds.get(designate.getObjectClassDefinition()).intValue());
+			writeString(out, designate.getPid());
+			writeString(out, designate.getFactoryPid());
+			writeString(out, designate.getBundle());
+			out.writeBoolean(designate.isMerge());
+			out.writeBoolean(designate.isOptional());
+		}
+	}
+
+	private Collection<Designate> readDesignates(DataInputStream in, Bundle bundle) throws IOException {
+		ObjectClassDefinitionImpl[] ocds = new ObjectClassDefinitionImpl[in.readInt()];
+		for (int i = 0; i < ocds.length; i++)
+			ocds[i] = readObjectClassDefinition(in, bundle);
+		int size = in.readInt();
+		Collection<Designate> designates = new ArrayList<Designate>(size);
+		for (int i = 0; i < size; i++) {
+			Designate.Builder builder = new Designate.Builder(ocds[in.readInt()]);
+			builder.pid(readString(in)).factoryPid(readString(in)).bundle(readString(in));
+			builder.merge(in.readBoolean()).optional(in.readBoolean());
+			designates.add(builder.build());
+		}
+		return designates;
+	}
+
+	private static void writeObjectClassDefinition(DataOutputStream out, ObjectClassDefinitionImpl ocd) throws IOException {
+		writeString(out, ocd._name);
+		writeString(out, ocd._description);
+		writeString(out, ocd._id);
+		out.writeInt(ocd._type);
+		writeString(out, ocd.getLocalization());
+		writeExtensionAttributes(out, ocd.helper);
+		List<Icon> icons = ocd.getIcons();
+		out.writeInt(icons == null ? 0 : icons.size());
+		if (icons != null) {
+			for (Icon icon : icons) {
+				writeString(out, icon.getIconName());
+				Integer size = icon.getIconSize();
+				out.writeBoolean(size != null);
+				if (size != null)
+					out.writeInt(size.intValue());
+			}
+		}
+		writeAttributeDefinitions(out, ocd._required);
+		writeAttributeDefinitions(out, ocd._optional);
+	}
+
+	private ObjectClassDefinitionImpl readObjectClassDefinition(DataInputStream in, Bundle bundle) throws IOException {
+		String name = readString(in);
+		String description = readString(in);
+		String id = readString(in);
+		int type = in.readInt();
+		String localization = readString(in);
+		ObjectClassDefinitionImpl ocd = new ObjectClassDefinitionImpl(name, description, id, type, localization, new ExtendableHelper(readExtensionAttributes(in)));
+		int size = in.readInt();
+		List<Icon> icons = new ArrayList<Icon>(size);
+		for (int i = 0; i < size; i++) {
+			String iconName = readString(in);
+			Integer iconSize = in.readBoolean() ? Integer.valueOf(in.readInt()) : null;
+			icons.add(new Icon(iconName, iconSize, bundle));
+		}
+		ocd.setIcons(icons);
+		readAttributeDefinitions(in, ocd, true);
+		readAttributeDefinitions(in, ocd, false);
+		return ocd;
+	}
+
+	private static void writeAttributeDefinitions(DataOutputStream out, Vector<AttributeDefinitionImpl> ads) throws IOException {
+		out.writeInt(ads.size());
+		for (AttributeDefinitionImpl ad : ads) {
+			writeString(out, ad._id);
+			writeString(out, ad._name);
+			writeString(out, ad._description);
+			out.writeInt(ad._dataType);
+			out.writeInt(ad._cardinality);
+			// The parser converts min and max from their string form, which is what is written.
+			writeString(out, ad.getMin());
+			writeString(out, ad.getMax());
+			out.writeBoolean(ad._isRequired);
+			writeString(out, ad.getLocalization());
+			writeExtensionAttributes(out, ad.helper);
+			writeStrings(out, ad._defaults);
+			writeStrings(out, ad._labels == null ? null : ad._labels.toArray(new String[ad._labels.size()]));
+			writeStrings(out, ad._values == null ? null : ad._values.toArray(new String[ad._values.size()]));
+		}
+	}
+
+	private void readAttributeDefinitions(DataInputStream in, ObjectClassDefinitionImpl ocd, boolean isRequired) throws IOException {
+		int size = in.readInt();
+		for (int i = 0; i < size; i++) {
+			String id = readString(in);
+			String name = readString(in);
+			String description = readString(in);
+			int type = in.readInt();
+			int cardinality = in.readInt();
+			Object min = DataParser.convert(readString(in), type);
+			Object max = DataParser.convert(readString(in), type);
+			boolean required = in.readBoolean();
+			String localization = readString(in);
+			Map<String, Map<String, String>> extensionAttributes = readExtensionAttributes(in);
+			AttributeDefinitionImpl ad = new AttributeDefinitionImpl(id, name, description, type, cardinality, min, max, required, localization, logger, extensionAttributes);
+			String[] defaults = readStrings(in);
+			if (defaults != null)
+				ad.setDefaultValue(defaults);
+			String[] labels = readStrings(in);
+			String[] values = readStrings(in);
+			if (labels != null && values != null)
+				ad.setOption(new Vector<String>(Arrays.asList(labels)), new Vector<String>(Arrays.asList(values)), false);
+			ocd.addAttributeDefinition(ad, isRequired);
+		}
+	}
+
+	private static void writeExtensionAttributes(DataOutputStream out, ExtendableHelper helper) throws IOException {
+		Set<String> uris = helper.getExtensionUris();
+		out.writeInt(uris.size());
+		for (String uri : uris) {
+			writeString(out, uri);
+			Map<String, String> attributes = helper.getExtensionAttributes(uri);
+			out.writeInt(attributes.size());
+			for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+				writeString(out, attribute.getKey());
+				writeString(out, attribute.getValue());
+			}
+		}
+	}
+
+	private static Map<String, Map<String, String>> readExtensionAttributes(DataInputStream in) throws IOException {
+		int size = in.readInt();
+		Map<String, Map<String, String>> result = new HashMap<String, Map<String, String>>(size);
+		for (int i = 0; i < size; i++) {
+			String uri = readString(in);
+			int attributesSize = in.readInt();
+			Map<String, String> attributes = new HashMap<String, String>(attributesSize);
+			for (int j = 0; j < attributesSize; j++)
+				attributes.put(readString(in), readString(in));
+			result.put(uri, attributes);
+		}
+		return result;
+	}
+
+	private static void writeLongs(DataOutputStream out, long[] values) throws IOException {
+		out.writeInt(values.length);
+		for (long value : values)
+			out.writeLong(value);
+	}
+
+	private static long[] readLongs(DataInputStream in) throws IOException {
+		long[] values = new long[in.readInt()];
+		for (int i = 0; i < values.length; i++)
+			values[i] = in.readLong();
+		return values;
+	}
+
+	private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+		if (values == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(values.length);
+		for (String value : values)
+			writeString(out, value);
+	}
+
+	private static String[] readStrings(DataInputStream in) throws IOException {
+		int size = in.readInt();
+		if (size < 0)
+			return null;
+		String[] values = new String[size];
+		for (int i = 0; i < size; i++)
+			values[i] = readString(in);
+		return values;
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null)
+			out.writeUTF(value);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	private static void close(Closeable closeable) {
+		if (closeable == null)
+			return;
+		try {
+			closeable.close();
+		} catch (IOException e) {
+			// Ignore.
+		}
+	}
+}
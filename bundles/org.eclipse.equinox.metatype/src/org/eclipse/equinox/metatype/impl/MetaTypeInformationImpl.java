@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2017 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -31,8 +31,8 @@ public class MetaTypeInformationImpl extends MetaTypeProviderImpl implements Equ
 	/**
 	 * Constructor of class MetaTypeInformationImpl.
 	 */
-	MetaTypeInformationImpl(Bundle bundle, SAXParser parser, LogTracker logger) {
-		super(bundle, parser, logger);
+	MetaTypeInformationImpl(Bundle bundle, SAXParser parser, LogTracker logger, MetaTypeCache cache) {
+		super(bundle, parser, logger, cache);
 	}
 
 	/*
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2013 IBM Corporation.
+ * Copyright (c) 2005, 2018 IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -42,6 +42,8 @@ public class MetaTypeMsg extends NLS {
 	public static String INVALID_DEFAULTS_XML;
 	public static String INVALID_OPTIONS_XML;
 	public static String VALUE_NOT_A_NUMBER;
+	public static String CACHE_READ_ERROR;
+	public static String CACHE_WRITE_ERROR;
 
 	static {
 		// initialize resource bundles
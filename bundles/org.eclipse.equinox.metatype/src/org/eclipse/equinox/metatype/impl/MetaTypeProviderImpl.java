@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2017 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,8 @@ package org.eclipse.equinox.metatype.impl;
 import java.io.IOException;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.xml.parsers.SAXParser;
 import org.eclipse.equinox.metatype.EquinoxObjectClassDefinition;
 import org.eclipse.osgi.util.NLS;
@@ -44,19 +46,25 @@ public class MetaTypeProviderImpl implements MetaTypeProvider {
 	String[] _locales;
 	boolean _isThereMeta = false;
 
+	// The localized OCDs handed out, keyed by pid and locale. They are never modified once
+	// localized, so they are shared by all callers instead of being cloned for each call.
+	private final ConcurrentMap<String, ObjectClassDefinitionImpl> _localizedOCDs = new ConcurrentHashMap<String, ObjectClassDefinitionImpl>();
+	private final ResourceBundleCache _resourceBundles;
+
 	// Give access to subclasses.
 	protected final LogTracker logger;
 
 	/**
 	 * Constructor of class MetaTypeProviderImpl.
 	 */
-	MetaTypeProviderImpl(Bundle bundle, SAXParser parser, LogTracker logger) {
+	MetaTypeProviderImpl(Bundle bundle, SAXParser parser, LogTracker logger, MetaTypeCache cache) {
 
 		this._bundle = bundle;
 		this.logger = logger;
+		this._resourceBundles = new ResourceBundleCache(bundle);
 
 		// read all bundle's metadata files and build internal data structures
-		_isThereMeta = readMetaFiles(bundle, parser);
+		_isThereMeta = readMetaFiles(bundle, parser, cache);
 
 		if (!_isThereMeta) {
 			logger.log(LogService.LOG_DEBUG, NLS.bind(MetaTypeMsg.METADATA_NOT_FOUND, bundle.getSymbolicName(), bundle.getBundleId()));
@@ -81,32 +89,55 @@ public class MetaTypeProviderImpl implements MetaTypeProvider {
 	 * @param bundle The bundle object for which the metadata should be read
 	 * @param parserFactory The bundle object for which the metadata should be
 	 *        read
+	 * @param cache The cache of parsed metadata to use, or null to always
+	 *        parse the metadata files
 	 * @return void
 	 * @throws IOException If there are errors accessing the metadata.xml file
 	 */
-	private boolean readMetaFiles(Bundle bundle, SAXParser saxParser) {
+	private boolean readMetaFiles(Bundle bundle, SAXParser saxParser, MetaTypeCache cache) {
 		Enumeration<URL> entries = bundle.findEntries(MetaTypeService.METATYPE_DOCUMENTS_LOCATION, "*", false); //$NON-NLS-1$
 		if (entries == null)
 			return false;
-		boolean result = false;
+		List<URL> documents = new ArrayList<URL>();
+		List<String> paths = new ArrayList<String>();
 		for (URL entry : Collections.list(entries)) {
 			if (entry.getPath().endsWith("/")) //$NON-NLS-1$
 				continue;
-			DataParser parser = new DataParser(bundle, entry, saxParser, logger);
-			try {
-				Collection<Designate> designates = parser.doParse();
-				if (!designates.isEmpty()) {
-					result = true;
+			documents.add(entry);
+			paths.add(entry.getPath());
+		}
+		List<Collection<Designate>> allDesignates = cache == null ? null : cache.read(bundle, paths);
+		if (allDesignates == null) {
+			allDesignates = new ArrayList<Collection<Designate>>(documents.size());
+			boolean parsed = true;
+			for (URL entry : documents) {
+				DataParser parser = new DataParser(bundle, entry, saxParser, logger);
+				try {
+					allDesignates.add(parser.doParse());
+				} catch (Exception e) {
+					parsed = false;
+					logger.log(LogService.LOG_ERROR, NLS.bind(MetaTypeMsg.METADATA_FILE_PARSE_ERROR, new Object[] {entry, bundle.getBundleId(), bundle.getSymbolicName()}), e);
 				}
-				for (Designate designate : designates) {
-					if (designate.isFactory()) {
-						_allFPidOCDs.put(designate.getFactoryPid(), designate.getObjectClassDefinition());
-					} else {
-						_allPidOCDs.put(designate.getPid(), designate.getObjectClassDefinition());
-					}
+			}
+			// Documents that failed to parse are parsed, and reported, again the next time.
+			if (cache != null) {
+				if (parsed)
+					cache.write(bundle, paths, allDesignates);
+				else
+					cache.remove(bundle.getBundleId());
+			}
+		}
+		boolean result = false;
+		for (Collection<Designate> designates : allDesignates) {
+			if (!designates.isEmpty()) {
+				result = true;
+			}
+			for (Designate designate : designates) {
+				if (designate.isFactory()) {
+					_allFPidOCDs.put(designate.getFactoryPid(), designate.getObjectClassDefinition());
+				} else {
+					_allPidOCDs.put(designate.getPid(), designate.getObjectClassDefinition());
 				}
-			} catch (Exception e) {
-				logger.log(LogService.LOG_ERROR, NLS.bind(MetaTypeMsg.METADATA_FILE_PARSE_ERROR, new Object[] {entry, bundle.getBundleId(), bundle.getSymbolicName()}), e);
 			}
 		}
 		return result;
@@ -124,18 +155,26 @@ public class MetaTypeProviderImpl implements MetaTypeProvider {
 			throw new IllegalArgumentException(NLS.bind(MetaTypeMsg.ASK_INVALID_LOCALE, pid, locale));
 		}
 
-		ObjectClassDefinitionImpl ocd;
-		if (_allPidOCDs.containsKey(pid)) {
-			ocd = (ObjectClassDefinitionImpl) (_allPidOCDs.get(pid)).clone();
-			ocd.setResourceBundle(locale, _bundle);
-			return ocd;
-		} else if (_allFPidOCDs.containsKey(pid)) {
-			ocd = (ObjectClassDefinitionImpl) (_allFPidOCDs.get(pid)).clone();
-			ocd.setResourceBundle(locale, _bundle);
+		if (!_resourceBundles.checkDefaultLocale()) {
+			// the fallback chains of the localized OCDs have changed
+			_localizedOCDs.clear();
+		}
+		String key = pid + '\u0000' + (locale == null ? "" : locale); //$NON-NLS-1$
+		ObjectClassDefinitionImpl ocd = _localizedOCDs.get(key);
+		if (ocd != null) {
 			return ocd;
-		} else {
+		}
+		ObjectClassDefinitionImpl source = _allPidOCDs.get(pid);
+		if (source == null) {
+			source = _allFPidOCDs.get(pid);
+		}
+		if (source == null) {
 			throw new IllegalArgumentException(NLS.bind(MetaTypeMsg.OCD_PID_NOT_FOUND, pid));
 		}
+		ocd = (ObjectClassDefinitionImpl) source.clone();
+		ocd.setResourceBundle(locale, _bundle, _resourceBundles);
+		ObjectClassDefinitionImpl existing = _localizedOCDs.putIfAbsent(key, ocd);
+		return existing != null ? existing : ocd;
 	}
 
 	/**
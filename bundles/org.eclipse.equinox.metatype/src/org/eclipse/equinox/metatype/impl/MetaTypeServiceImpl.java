@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2017 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -32,14 +32,24 @@ public class MetaTypeServiceImpl implements EquinoxMetaTypeService, SynchronousB
 
 	private final LogTracker logger;
 	private final ServiceTracker<Object, Object> metaTypeProviderTracker;
+	// The parsed metadata kept across restarts, or null if there is no data area.
+	private final MetaTypeCache cache;
 
 	/**
 	 * Constructor of class MetaTypeServiceImpl.
 	 */
 	public MetaTypeServiceImpl(SAXParserFactory parserFactory, LogTracker logger, ServiceTracker<Object, Object> metaTypeProviderTracker) {
+		this(parserFactory, logger, metaTypeProviderTracker, null);
+	}
+
+	/**
+	 * Constructor of class MetaTypeServiceImpl.
+	 */
+	MetaTypeServiceImpl(SAXParserFactory parserFactory, LogTracker logger, ServiceTracker<Object, Object> metaTypeProviderTracker, MetaTypeCache cache) {
 		this._parserFactory = parserFactory;
 		this.logger = logger;
 		this.metaTypeProviderTracker = metaTypeProviderTracker;
+		this.cache = cache;
 	}
 
 	/*
@@ -58,6 +68,7 @@ public class MetaTypeServiceImpl implements EquinoxMetaTypeService, SynchronousB
 		// Avoid synthetic accessor method warnings.
 		final LogTracker loggerTemp = this.logger;
 		final ServiceTracker<Object, Object> tracker = this.metaTypeProviderTracker;
+		final MetaTypeCache cacheTemp = this.cache;
 		Long bID = Long.valueOf(b.getBundleId());
 		synchronized (_mtps) {
 			if (_mtps.containsKey(bID))
@@ -66,7 +77,7 @@ public class MetaTypeServiceImpl implements EquinoxMetaTypeService, SynchronousB
 				public EquinoxMetaTypeInformation run() {
 					MetaTypeInformationImpl impl = null;
 					try {
-						impl = new MetaTypeInformationImpl(b, newParser(), loggerTemp);
+						impl = new MetaTypeInformationImpl(b, newParser(), loggerTemp, cacheTemp);
 					} catch (Exception e) {
 						loggerTemp.log(LogService.LOG_ERROR, NLS.bind(MetaTypeMsg.METADATA_PARSE_ERROR, b.getBundleId(), b.getSymbolicName()), e);
 					}
@@ -120,14 +131,19 @@ public class MetaTypeServiceImpl implements EquinoxMetaTypeService, SynchronousB
 
 		switch (type) {
 			case BundleEvent.UPDATED :
+			case BundleEvent.UNRESOLVED :
+				// Refreshing a bundle also attaches and detaches fragments.
+				_mtps.remove(bID);
+				break;
 			case BundleEvent.UNINSTALLED :
 				_mtps.remove(bID);
+				if (cache != null)
+					cache.remove(bID.longValue());
 				break;
 			case BundleEvent.INSTALLED :
 			case BundleEvent.RESOLVED :
 			case BundleEvent.STARTED :
 			case BundleEvent.STOPPED :
-			case BundleEvent.UNRESOLVED :
 			default :
 				break;
 		}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2011 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -28,13 +28,13 @@ public class ObjectClassDefinitionImpl extends LocalizationElement implements Eq
 		}
 	};
 
-	private final String _name;
-	private final String _id;
-	private final String _description;
-	private final int _type;
-	private final Vector<AttributeDefinitionImpl> _required = new Vector<AttributeDefinitionImpl>(7);
-	private final Vector<AttributeDefinitionImpl> _optional = new Vector<AttributeDefinitionImpl>(7);
-	private final ExtendableHelper helper;
+	final String _name;
+	final String _id;
+	final String _description;
+	final int _type;
+	final Vector<AttributeDefinitionImpl> _required = new Vector<AttributeDefinitionImpl>(7);
+	final Vector<AttributeDefinitionImpl> _optional = new Vector<AttributeDefinitionImpl>(7);
+	final ExtendableHelper helper;
 
 	// @GuardedBy("this")
 	private List<Icon> icons;
@@ -203,6 +203,10 @@ public class ObjectClassDefinitionImpl extends LocalizationElement implements Eq
 		return null;
 	}
 
+	synchronized List<Icon> getIcons() {
+		return icons;
+	}
+
 	synchronized void setIcons(List<Icon> icons) {
 		// Do nothing if icons is null or empty.
 		if (icons == null || icons.isEmpty())
@@ -215,20 +219,21 @@ public class ObjectClassDefinitionImpl extends LocalizationElement implements Eq
 	}
 
 	/**
-	 * Method to set the resource bundle for this OCD and all its ADs.
+	 * Method to set the resource bundle for this OCD and all its ADs, looked up
+	 * in the given resource bundle cache of the bundle.
 	 */
-	void setResourceBundle(String assignedLocale, Bundle bundle) {
-		setLocaleAndBundle(assignedLocale, bundle);
+	void setResourceBundle(String assignedLocale, Bundle bundle, ResourceBundleCache resourceBundles) {
+		setLocaleAndBundle(assignedLocale, bundle, resourceBundles);
 		Enumeration<AttributeDefinitionImpl> allADReqs = _required.elements();
 		while (allADReqs.hasMoreElements()) {
 			AttributeDefinitionImpl ad = allADReqs.nextElement();
-			ad.setLocaleAndBundle(assignedLocale, bundle);
+			ad.setLocaleAndBundle(assignedLocale, bundle, resourceBundles);
 		}
 
 		Enumeration<AttributeDefinitionImpl> allADOpts = _optional.elements();
 		while (allADOpts.hasMoreElements()) {
 			AttributeDefinitionImpl ad = allADOpts.nextElement();
-			ad.setLocaleAndBundle(assignedLocale, bundle);
+			ad.setLocaleAndBundle(assignedLocale, bundle, resourceBundles);
 		}
 	}
 
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.metatype.impl;
+
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.osgi.framework.Bundle;
+
+/*
+ * The resource bundles of one bundle, resolved through the locale fallback
+ * chain once per localization base name and locale and then shared by all
+ * the localized object class definitions of the bundle. The cache is dropped
+ * together with its MetaTypeProviderImpl when the bundle is updated.
+ */
+final class ResourceBundleCache {
+	// Marks a localization and locale for which no resource bundle exists.
+	private static final Object NONE = new Object();
+
+	private final Bundle bundle;
+	private final ConcurrentMap<String, Object> bundles = new ConcurrentHashMap<String, Object>();
+	// The default locale the cached fallback chains were resolved with.
+	private volatile String defaultLocale = Locale.getDefault().toString();
+
+	ResourceBundleCache(Bundle bundle) {
+		this.bundle = bundle;
+	}
+
+	ResourceBundle getResourceBundle(String localization, String locale) {
+		String key = (localization == null ? "" : localization) + '\u0000' + (locale == null ? "" : locale); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		Object result = bundles.get(key);
+		if (result == null) {
+			result = LocalizationElement.getResourceBundle(localization, locale, bundle);
+			if (result == null)
+				result = NONE;
+			Object existing = bundles.putIfAbsent(key, result);
+			if (existing != null)
+				result = existing;
+		}
+		return result == NONE ? null : (ResourceBundle) result;
+	}
+
+	/*
+	 * Returns true if the default locale is still the one the cached entries
+	 * were resolved with. Otherwise the cache is cleared and false is returned,
+	 * the caller must then drop whatever it localized with the old entries.
+	 */
+	boolean checkDefaultLocale() {
+		String current = Locale.getDefault().toString();
+		if (current.equals(defaultLocale))
+			return true;
+		bundles.clear();
+		defaultLocale = current;
+		return false;
+	}
+}
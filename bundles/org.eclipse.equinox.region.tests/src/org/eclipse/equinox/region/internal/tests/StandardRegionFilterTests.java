@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011, 2013 VMware Inc.
+ * Copyright (c) 2011, 2018 VMware Inc.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -261,4 +261,62 @@ public class StandardRegionFilterTests {
 		assertFalse(negateServices.isAllowed(barService.getReference()));
 		assertFalse(negateServices.isAllowed(barServiceCapability));
 	}
+
+	private static final String[] INDEX_POLICY = new String[] {"(" + BundleRevision.PACKAGE_NAMESPACE + "=foo)", //
+			"(" + BundleRevision.PACKAGE_NAMESPACE + "=foo.bar*)", //
+			"(" + BundleRevision.PACKAGE_NAMESPACE + "=a\\*b)", //
+			"(" + BundleRevision.PACKAGE_NAMESPACE + "=x*y)", //
+			"(&(" + BundleRevision.PACKAGE_NAMESPACE + "=z)(version>=1.0))", //
+			"(" + Constants.VERSION_ATTRIBUTE + "=1.0.0)", //
+			"(" + Constants.OBJECTCLASS + "=foo.Service)", //
+			"(" + Constants.OBJECTCLASS + "=bar.*)"};
+
+	private static final Object[] INDEX_VALUES = new Object[] {"foo", "fo", "foo.bar", "foo.barista", "foo.ba", "a*b", "ab", "xzy", "z", "1.0.0", new Version(1, 0, 0), //
+			new String[] {"baz", "foo"}, new String[] {"baz"}, Arrays.asList("foo.bar.x"), Arrays.asList("baz"), Arrays.asList(new Version(1, 0, 0)), Long.valueOf(1)};
+
+	@Test
+	public void testIndexedDecisions() throws InvalidSyntaxException {
+		Collection<Collection<String>> policies = new ArrayList<Collection<String>>();
+		for (String policy : INDEX_POLICY) {
+			policies.add(Collections.singletonList(policy));
+		}
+		policies.add(Arrays.asList(INDEX_POLICY));
+
+		String[] keys = new String[] {BundleRevision.PACKAGE_NAMESPACE, Constants.VERSION_ATTRIBUTE, Constants.OBJECTCLASS};
+		for (Collection<String> policy : policies) {
+			RegionFilter regionFilter = createRegionFilter(RegionFilter.VISIBLE_PACKAGE_NAMESPACE, policy);
+			for (String key : keys) {
+				for (Object value : INDEX_VALUES) {
+					Map<String, Object> attrs = new HashMap<String, Object>();
+					attrs.put(Constants.VERSION_ATTRIBUTE, new Version(1, 0, 0));
+					attrs.put(key, value);
+					assertEquals(policy + " " + attrs, matchesAny(policy, attrs), regionFilter.isAllowed(RegionFilter.VISIBLE_PACKAGE_NAMESPACE, attrs));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testIndexedServiceDecisions() throws InvalidSyntaxException {
+		String[][] objectClasses = new String[][] { {"foo.Service"}, {"bar.Service"}, {"baz.Service", "bar.Other"}, {"baz.Service"}};
+		for (String[] objectClass : objectClasses) {
+			ServiceRegistration<Object> registration = new StubServiceRegistration<Object>(new StubBundleContext(), objectClass);
+			ServiceReference<Object> reference = registration.getReference();
+			RegionFilter regionFilter = createRegionFilter(RegionFilter.VISIBLE_OSGI_SERVICE_NAMESPACE, Arrays.asList(INDEX_POLICY));
+			boolean expected = false;
+			for (String policy : INDEX_POLICY) {
+				expected |= FrameworkUtil.createFilter(policy).match(reference);
+			}
+			assertEquals(Arrays.toString(objectClass), expected, regionFilter.isAllowed(reference));
+		}
+	}
+
+	private static boolean matchesAny(Collection<String> filters, Map<String, Object> attrs) throws InvalidSyntaxException {
+		for (String filter : filters) {
+			if (FrameworkUtil.createFilter(filter).matches(attrs)) {
+				return true;
+			}
+		}
+		return false;
+	}
 }
@@ -0,0 +1,229 @@
+/*******************************************************************************
+ * Copyright (c) 2018 VMware Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   VMware Inc. - initial contribution
+ *******************************************************************************/
+
+package org.eclipse.equinox.region.internal.tests.hook;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.*;
+import org.eclipse.equinox.region.*;
+import org.eclipse.equinox.region.internal.tests.RegionReflectionUtils;
+import org.eclipse.virgo.teststubs.osgi.framework.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.*;
+import org.osgi.framework.hooks.bundle.EventHook;
+import org.osgi.framework.hooks.bundle.FindHook;
+
+/**
+ * The find hooks cache their visibility decisions. These tests make a decision, change the digraph, a bundle or a
+ * service so that the decision no longer holds, and check that the hooks do not answer from the stale cache.
+ */
+public class RegionVisibilityCacheTests {
+
+	private static final Version BUNDLE_VERSION = new Version("0");
+
+	private static final String REGION_A = "RegionA";
+
+	private static final String REGION_B = "RegionB";
+
+	private static final String BUNDLE_A = "BundleA";
+
+	private static final String BUNDLE_B = "BundleB";
+
+	private static final String BUNDLE_X = "BundleX";
+
+	private static final String SERVICE_PROPERTY = "cache.test";
+
+	private long bundleId;
+
+	private RegionDigraph digraph;
+
+	private FindHook bundleFindHook;
+
+	private EventHook bundleEventHook;
+
+	private org.osgi.framework.hooks.service.FindHook serviceFindHook;
+
+	private org.osgi.framework.hooks.service.EventHook serviceEventHook;
+
+	private ThreadLocal<Region> threadLocal;
+
+	private Bundle bundleA;
+
+	private Bundle bundleB;
+
+	@Before
+	public void setUp() throws Exception {
+		this.bundleId = 1L;
+		StubBundle stubSystemBundle = new StubBundle(0L, "osgi.framework", new Version("0"), "loc");
+		StubBundleContext stubBundleContext = new StubBundleContext();
+		stubBundleContext.addInstalledBundle(stubSystemBundle);
+		this.threadLocal = new ThreadLocal<Region>();
+		this.digraph = RegionReflectionUtils.newStandardRegionDigraph(stubBundleContext, this.threadLocal);
+		this.bundleFindHook = RegionReflectionUtils.newRegionBundleFindHook(this.digraph, stubSystemBundle.getBundleId());
+		this.bundleEventHook = RegionReflectionUtils.newRegionBundleEventHook(this.digraph, this.threadLocal, stubSystemBundle.getBundleId());
+		this.serviceFindHook = RegionReflectionUtils.newRegionServiceFindHook(this.digraph);
+		this.serviceEventHook = RegionReflectionUtils.newRegionServiceEventHook(this.digraph);
+
+		this.bundleA = createBundle(BUNDLE_A);
+		this.digraph.createRegion(REGION_A).addBundle(this.bundleA);
+		this.bundleB = createBundle(BUNDLE_B);
+		this.digraph.createRegion(REGION_B).addBundle(this.bundleB);
+	}
+
+	@Test
+	public void testConnectionAdded() throws BundleException, InvalidSyntaxException {
+		assertFalse(isVisible(this.bundleB));
+		assertFalse(isVisible(this.bundleB));
+
+		region(REGION_A).connectRegion(region(REGION_B), bundleFilter(BUNDLE_B));
+		assertTrue(isVisible(this.bundleB));
+	}
+
+	@Test
+	public void testFilterReplaced() throws BundleException, InvalidSyntaxException {
+		region(REGION_A).connectRegion(region(REGION_B), bundleFilter(BUNDLE_B));
+		assertTrue(isVisible(this.bundleB));
+
+		this.digraph.replaceConnection(region(REGION_A), bundleFilter(BUNDLE_X), region(REGION_B));
+		assertFalse(isVisible(this.bundleB));
+
+		this.digraph.replaceConnection(region(REGION_A), bundleFilter(BUNDLE_B), region(REGION_B));
+		assertTrue(isVisible(this.bundleB));
+	}
+
+	@Test
+	public void testConnectionRemoved() throws BundleException, InvalidSyntaxException {
+		region(REGION_A).connectRegion(region(REGION_B), bundleFilter(BUNDLE_B));
+		assertTrue(isVisible(this.bundleB));
+
+		this.digraph.replaceConnection(region(REGION_A), null, region(REGION_B));
+		assertFalse(isVisible(this.bundleB));
+	}
+
+	@Test
+	public void testRegionAdded() throws BundleException, InvalidSyntaxException {
+		Bundle x = createBundle(BUNDLE_X);
+		assertFalse(isVisible(x));
+
+		Region regionX = this.digraph.createRegion("RegionX");
+		regionX.addBundle(x);
+		region(REGION_A).connectRegion(regionX, bundleFilter(BUNDLE_X));
+		assertTrue(isVisible(x));
+	}
+
+	@Test
+	public void testRegionRemoved() throws BundleException, InvalidSyntaxException {
+		region(REGION_A).connectRegion(region(REGION_B), bundleFilter(BUNDLE_B));
+		assertTrue(isVisible(this.bundleB));
+
+		this.digraph.removeRegion(region(REGION_B));
+		assertFalse(isVisible(this.bundleB));
+	}
+
+	@Test
+	public void testBundleAddedAndRemoved() throws BundleException, InvalidSyntaxException {
+		region(REGION_A).connectRegion(region(REGION_B), bundleFilter(BUNDLE_X));
+		Bundle x = createBundle(BUNDLE_X);
+		assertFalse(isVisible(x));
+
+		region(REGION_B).addBundle(x);
+		assertTrue(isVisible(x));
+
+		region(REGION_B).removeBundle(x);
+		assertFalse(isVisible(x));
+	}
+
+	@Test
+	public void testBundleInstalledAndUninstalled() throws BundleException, InvalidSyntaxException {
+		region(REGION_A).connectRegion(region(REGION_B), bundleFilter(BUNDLE_X));
+		Bundle x = createBundle(BUNDLE_X);
+		assertFalse(isVisible(x));
+
+		this.threadLocal.set(region(REGION_B));
+		try {
+			this.bundleEventHook.event(new BundleEvent(BundleEvent.INSTALLED, x, this.bundleB), new ArrayList<BundleContext>());
+		} finally {
+			this.threadLocal.remove();
+		}
+		assertTrue(isVisible(x));
+
+		this.bundleEventHook.event(new BundleEvent(BundleEvent.UNINSTALLED, x), new ArrayList<BundleContext>());
+		assertFalse(isVisible(x));
+	}
+
+	@Test
+	public void testBundleUpdated() throws BundleException, InvalidSyntaxException {
+		region(REGION_A).connectRegion(region(REGION_B), bundleFilter(BUNDLE_B));
+		assertTrue(isVisible(this.bundleB));
+
+		// the same bundle with a new symbolic name after an update
+		Bundle updated = new StubBundle(this.bundleB.getBundleId(), "UpdatedB", BUNDLE_VERSION, this.bundleB.getLocation());
+		this.bundleEventHook.event(new BundleEvent(BundleEvent.UPDATED, updated), new ArrayList<BundleContext>());
+		assertFalse(isVisible(updated));
+	}
+
+	@Test
+	public void testServiceModified() throws BundleException, InvalidSyntaxException {
+		RegionFilterBuilder builder = this.digraph.createRegionFilterBuilder();
+		builder.allow(RegionFilter.VISIBLE_SERVICE_NAMESPACE, "(" + SERVICE_PROPERTY + "=visible)");
+		region(REGION_A).connectRegion(region(REGION_B), builder.build());
+
+		StubServiceRegistration<Object> registration = new StubServiceRegistration<Object>((StubBundleContext) this.bundleB.getBundleContext(), "service");
+		registration.setProperties(serviceProperties("visible"));
+		ServiceReference<Object> reference = new StubServiceReference<Object>(registration);
+		assertTrue(isVisible(reference));
+
+		registration.setProperties(serviceProperties("hidden"));
+		this.serviceEventHook.event(new ServiceEvent(ServiceEvent.MODIFIED, reference), new ArrayList<BundleContext>());
+		assertFalse(isVisible(reference));
+
+		registration.setProperties(serviceProperties("visible"));
+		this.serviceEventHook.event(new ServiceEvent(ServiceEvent.MODIFIED, reference), new ArrayList<BundleContext>());
+		assertTrue(isVisible(reference));
+	}
+
+	private boolean isVisible(Bundle candidate) {
+		Collection<Bundle> candidates = new ArrayList<Bundle>();
+		candidates.add(candidate);
+		this.bundleFindHook.find(this.bundleA.getBundleContext(), candidates);
+		return candidates.contains(candidate);
+	}
+
+	private boolean isVisible(ServiceReference<?> candidate) {
+		Collection<ServiceReference<?>> candidates = new ArrayList<ServiceReference<?>>();
+		candidates.add(candidate);
+		this.serviceFindHook.find(this.bundleA.getBundleContext(), "service", null, false, candidates);
+		return candidates.contains(candidate);
+	}
+
+	private Region region(String regionName) {
+		return this.digraph.getRegion(regionName);
+	}
+
+	private RegionFilter bundleFilter(String bundleSymbolicName) throws InvalidSyntaxException {
+		RegionFilterBuilder builder = this.digraph.createRegionFilterBuilder();
+		builder.allow(RegionFilter.VISIBLE_BUNDLE_NAMESPACE, "(" + RegionFilter.VISIBLE_BUNDLE_NAMESPACE + "=" + bundleSymbolicName + ")");
+		return builder.build();
+	}
+
+	private Dictionary<String, Object> serviceProperties(String value) {
+		Dictionary<String, Object> properties = new Hashtable<String, Object>();
+		properties.put(SERVICE_PROPERTY, value);
+		return properties;
+	}
+
+	private Bundle createBundle(String bundleSymbolicName) {
+		return new StubBundle(this.bundleId++, bundleSymbolicName, BUNDLE_VERSION, "loc:" + bundleSymbolicName);
+	}
+}
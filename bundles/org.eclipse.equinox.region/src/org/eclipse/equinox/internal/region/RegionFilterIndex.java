@@ -0,0 +1,272 @@
+/*******************************************************************************
+ * Copyright (c) 2018 VMware Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   VMware Inc. - initial contribution
+ *******************************************************************************/
+
+package org.eclipse.equinox.internal.region;
+
+import java.lang.reflect.Array;
+import java.util.*;
+import org.osgi.framework.Filter;
+import org.osgi.framework.ServiceReference;
+
+/**
+ * {@link RegionFilterIndex} evaluates the filters a {@link StandardRegionFilter} has for one namespace.
+ * <p>
+ * Filters of the form <code>(key=value)</code> are looked up in a hash table and filters of the form
+ * <code>(key=prefix*)</code> in a prefix trie, both keyed by the attribute. All other filters are matched one by one
+ * as before. The index only decides on string attribute values, or arrays and collections of strings; for any other
+ * attribute type the filters of that attribute are matched one by one, so that the type conversions of the framework
+ * filter implementation apply unchanged.
+ * <p />
+ *
+ * <strong>Concurrent Semantics</strong><br />
+ * Immutable and therefore thread safe.
+ */
+final class RegionFilterIndex {
+
+	private static final int NO_MATCH = 0;
+
+	private static final int MATCH = 1;
+
+	private static final int UNKNOWN = 2;
+
+	private final boolean all;
+
+	private final AttributeIndex[] attributes;
+
+	private final Filter[] others;
+
+	RegionFilterIndex(Collection<Filter> filters) {
+		boolean allFilter = false;
+		Map<String, AttributeIndex> indexed = new LinkedHashMap<String, AttributeIndex>();
+		List<Filter> remaining = new ArrayList<Filter>();
+		for (Filter filter : filters) {
+			if (filter == StandardRegionFilter.ALL) {
+				allFilter = true;
+			} else if (!index(filter, indexed)) {
+				remaining.add(filter);
+			}
+		}
+		this.all = allFilter;
+		this.attributes = indexed.values().toArray(new AttributeIndex[indexed.size()]);
+		this.others = remaining.toArray(new Filter[remaining.size()]);
+	}
+
+	boolean matches(Map<String, ?> attrs) {
+		if (this.all) {
+			return true;
+		}
+		for (AttributeIndex index : this.attributes) {
+			int result = index.match(attrs.get(index.key));
+			if (result == MATCH) {
+				return true;
+			}
+			if (result == UNKNOWN) {
+				for (Filter filter : index.filters) {
+					if (filter.matches(attrs)) {
+						return true;
+					}
+				}
+			}
+		}
+		for (Filter filter : this.others) {
+			if (filter.matches(attrs)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	boolean matches(ServiceReference<?> service) {
+		if (this.all) {
+			return true;
+		}
+		for (AttributeIndex index : this.attributes) {
+			int result = index.match(service.getProperty(index.key));
+			if (result == MATCH) {
+				return true;
+			}
+			if (result == UNKNOWN) {
+				for (Filter filter : index.filters) {
+					if (filter.match(service)) {
+						return true;
+					}
+				}
+			}
+		}
+		for (Filter filter : this.others) {
+			if (filter.match(service)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds the given filter to the index if it is a simple equality or prefix filter.
+	 *
+	 * @return <code>true</code> if the filter was indexed and <code>false</code> if it must be matched as is
+	 */
+	private static boolean index(Filter filter, Map<String, AttributeIndex> indexed) {
+		// relies on the normalized form of the filter, anything unexpected is matched as is
+		String spec = filter.toString();
+		int length = spec.length();
+		if (length < 4 || spec.charAt(0) != '(' || spec.charAt(length - 1) != ')') {
+			return false;
+		}
+		int equals = spec.indexOf('=');
+		if (equals < 2) {
+			return false;
+		}
+		String key = spec.substring(1, equals);
+		for (int i = 0; i < key.length(); i++) {
+			char c = key.charAt(i);
+			if (Character.isWhitespace(c) || "()&|!<>~*\\".indexOf(c) >= 0) { //$NON-NLS-1$
+				return false;
+			}
+		}
+
+		StringBuilder value = new StringBuilder(length - equals);
+		boolean prefix = false;
+		for (int i = equals + 1; i < length - 1; i++) {
+			char c = spec.charAt(i);
+			if (prefix || c == '(' || c == ')') {
+				// something follows the wildcard or the value is not escaped
+				return false;
+			}
+			if (c == '\\') {
+				if (++i == length - 1) {
+					return false;
+				}
+				value.append(spec.charAt(i));
+			} else if (c == '*') {
+				prefix = true;
+			} else {
+				value.append(c);
+			}
+		}
+		// presence filters and values the framework might trim are matched as is
+		if (value.length() == 0 || Character.isWhitespace(value.charAt(0)) || Character.isWhitespace(value.charAt(value.length() - 1))) {
+			return false;
+		}
+
+		AttributeIndex index = indexed.get(key);
+		if (index == null) {
+			index = new AttributeIndex(key);
+			indexed.put(key, index);
+		}
+		if (prefix) {
+			index.addPrefix(value.toString());
+		} else {
+			index.values.add(value.toString());
+		}
+		index.filters.add(filter);
+		return true;
+	}
+
+	/**
+	 * The equality and prefix filters for one attribute.
+	 */
+	private static final class AttributeIndex {
+
+		final String key;
+
+		final Set<String> values = new HashSet<String>();
+
+		final List<Filter> filters = new ArrayList<Filter>();
+
+		private PrefixNode prefixes;
+
+		AttributeIndex(String key) {
+			this.key = key;
+		}
+
+		void addPrefix(String prefix) {
+			if (this.prefixes == null) {
+				this.prefixes = new PrefixNode();
+			}
+			PrefixNode node = this.prefixes;
+			for (int i = 0; i < prefix.length(); i++) {
+				node = node.child(prefix.charAt(i), true);
+			}
+			node.terminal = true;
+		}
+
+		int match(Object value) {
+			if (value == null) {
+				return NO_MATCH;
+			}
+			if (value instanceof String) {
+				return matchString((String) value) ? MATCH : NO_MATCH;
+			}
+			if (value instanceof String[]) {
+				for (String element : (String[]) value) {
+					if (element != null && matchString(element)) {
+						return MATCH;
+					}
+				}
+				return NO_MATCH;
+			}
+			if (value instanceof Collection) {
+				for (Object element : (Collection<?>) value) {
+					if (!(element instanceof String)) {
+						return UNKNOWN;
+					}
+				}
+				for (Object element : (Collection<?>) value) {
+					if (matchString((String) element)) {
+						return MATCH;
+					}
+				}
+				return NO_MATCH;
+			}
+			if (value.getClass().isArray() && Array.getLength(value) == 0) {
+				return NO_MATCH;
+			}
+			return UNKNOWN;
+		}
+
+		private boolean matchString(String value) {
+			if (this.values.contains(value)) {
+				return true;
+			}
+			PrefixNode node = this.prefixes;
+			for (int i = 0; node != null; i++) {
+				if (node.terminal) {
+					return true;
+				}
+				if (i == value.length()) {
+					return false;
+				}
+				node = node.child(value.charAt(i), false);
+			}
+			return false;
+		}
+	}
+
+	private static final class PrefixNode {
+
+		private Map<Character, PrefixNode> children;
+
+		boolean terminal;
+
+		PrefixNode child(char c, boolean create) {
+			PrefixNode child = this.children == null ? null : this.children.get(Character.valueOf(c));
+			if (child == null && create) {
+				if (this.children == null) {
+					this.children = new HashMap<Character, PrefixNode>(4);
+				}
+				child = new PrefixNode();
+				this.children.put(Character.valueOf(c), child);
+			}
+			return child;
+		}
+	}
+}
@@ -65,6 +65,14 @@ public final class StandardRegionDigraph implements BundleIdToRegionMapping, Reg
 	private long originUpdateCount;
 	private final AtomicLong updateCount = new AtomicLong();
 
+	private final RegionVisibilityCache visibilityCache = new RegionVisibilityCache(new RegionVisibilityCache.UpdateCounter() {
+
+		@Override
+		public long getUpdateCount() {
+			return updateCount.get();
+		}
+	});
+
 	private volatile Region defaultRegion;
 
 	public StandardRegionDigraph(StandardRegionDigraph origin) throws BundleException {
@@ -390,6 +398,15 @@ public final class StandardRegionDigraph implements BundleIdToRegionMapping, Reg
 		this.subgraphTraverser.visitSubgraph(startingRegion, visitor);
 	}
 
+	/**
+	 * Returns the cache of the visibility decisions made by the find hooks of this digraph.
+	 * 
+	 * @return the visibility cache
+	 */
+	public RegionVisibilityCache getVisibilityCache() {
+		return this.visibilityCache;
+	}
+
 	/**
 	 * Returns a snapshot of filtered regions
 	 * 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011, 2016 VMware Inc and others.
+ * Copyright (c) 2011, 2018 VMware Inc and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -33,6 +33,7 @@ public final class StandardRegionFilter implements RegionFilter {
 
 	private static final String BUNDLE_ID_ATTR = "id"; //$NON-NLS-1$
 	private final Map<String, Collection<Filter>> filters;
+	private final Map<String, RegionFilterIndex> indexes;
 
 	public StandardRegionFilter(Map<String, Collection<Filter>> filters) {
 		if (filters == null) {
@@ -44,6 +45,10 @@ public final class StandardRegionFilter implements RegionFilter {
 			Collection<Filter> namespaceFilters = new ArrayList<Filter>(namespace.getValue());
 			this.filters.put(namespace.getKey(), namespaceFilters);
 		}
+		this.indexes = new HashMap<String, RegionFilterIndex>((int) ((filters.size() / 0.75) + 1));
+		for (Map.Entry<String, Collection<Filter>> namespace : this.filters.entrySet()) {
+			this.indexes.put(namespace.getKey(), new RegionFilterIndex(namespace.getValue()));
+		}
 	}
 
 	public boolean isAllowed(Bundle bundle) {
@@ -83,28 +88,16 @@ public final class StandardRegionFilter implements RegionFilter {
 		return isAllowed(VISIBLE_BUNDLE_NAMESPACE, bundleAttributes);
 	}
 
-	private static boolean match(Collection<Filter> filters, Map<String, ?> attrs) {
-		if (filters == null)
-			return false;
-		for (Filter filter : filters) {
-			if (filter == ALL || filter.matches(attrs))
-				return true;
-		}
-		return false;
+	private static boolean match(RegionFilterIndex index, Map<String, ?> attrs) {
+		return index != null && index.matches(attrs);
 	}
 
-	private static boolean match(Collection<Filter> filters, ServiceReference<?> service) {
-		if (filters == null)
-			return false;
-		for (Filter filter : filters) {
-			if (filter == ALL || filter.match(service))
-				return true;
-		}
-		return false;
+	private static boolean match(RegionFilterIndex index, ServiceReference<?> service) {
+		return index != null && index.matches(service);
 	}
 
 	public boolean isAllowed(ServiceReference<?> service) {
-		if (match(filters.get(VISIBLE_OSGI_SERVICE_NAMESPACE), service))
+		if (match(indexes.get(VISIBLE_OSGI_SERVICE_NAMESPACE), service))
 			return true;
 		return matchAll(VISIBLE_OSGI_SERVICE_NAMESPACE, service);
 	}
@@ -118,7 +111,7 @@ public final class StandardRegionFilter implements RegionFilter {
 	 */
 	@Override
 	public boolean isAllowed(String namespace, Map<String, ?> attributes) {
-		if (match(filters.get(namespace), attributes))
+		if (match(indexes.get(namespace), attributes))
 			return true;
 		return matchAll(namespace, attributes);
 	}
@@ -127,7 +120,7 @@ public final class StandardRegionFilter implements RegionFilter {
 	static final String[] serviceNamespaces = new String[] {VISIBLE_OSGI_SERVICE_NAMESPACE, VISIBLE_SERVICE_NAMESPACE};
 
 	private boolean matchAll(final String namespace, final Map<String, ?> attributes) {
-		Collection<Filter> allMatching = filters.get(VISIBLE_ALL_NAMESPACE);
+		RegionFilterIndex allMatching = indexes.get(VISIBLE_ALL_NAMESPACE);
 		if (allMatching == null) {
 			return false;
 		}
@@ -152,7 +145,7 @@ public final class StandardRegionFilter implements RegionFilter {
 	}
 
 	private boolean matchAll(final String namespace, final ServiceReference<?> service) {
-		Collection<Filter> allMatching = filters.get(VISIBLE_ALL_NAMESPACE);
+		RegionFilterIndex allMatching = indexes.get(VISIBLE_ALL_NAMESPACE);
 		if (allMatching == null) {
 			return false;
 		}
@@ -35,7 +35,14 @@ final class SubgraphTraverser {
 	private void visitRemainingSubgraph(Region r, RegionDigraphVisitor visitor, Set<Region> path) {
 		if (!path.contains(r)) {
 			if (visitor.visit(r)) {
-				traverseEdges(r, visitor, path);
+				// the path holds the regions between the starting region and the current one, it is
+				// extended while the edges of r are traversed and shrunk again afterwards
+				path.add(r);
+				try {
+					traverseEdges(r, visitor, path);
+				} finally {
+					path.remove(r);
+				}
 			}
 		}
 	}
@@ -44,7 +51,7 @@ final class SubgraphTraverser {
 		for (FilteredRegion fr : r.getEdges()) {
 			if (visitor.preEdgeTraverse(fr.getFilter())) {
 				try {
-					visitRemainingSubgraph(fr.getRegion(), visitor, extendPath(r, path));
+					visitRemainingSubgraph(fr.getRegion(), visitor, path);
 				} finally {
 					visitor.postEdgeTraverse(fr.getFilter());
 				}
@@ -52,10 +59,4 @@ final class SubgraphTraverser {
 		}
 	}
 
-	private Set<Region> extendPath(Region r, Set<Region> path) {
-		Set<Region> newPath = new HashSet<Region>(path);
-		newPath.add(r);
-		return newPath;
-	}
-
 }
\ No newline at end of file
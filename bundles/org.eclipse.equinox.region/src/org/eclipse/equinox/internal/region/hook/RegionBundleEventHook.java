@@ -36,10 +36,13 @@ public final class RegionBundleEventHook implements EventHook {
 
 	private final long hookImplID;
 
+	private final RegionVisibilityCache visibilityCache;
+
 	public RegionBundleEventHook(RegionDigraph regionDigraph, ThreadLocal<Region> threadLocal, long hookImplID) {
 		this.regionDigraph = regionDigraph;
 		this.threadLocal = threadLocal;
 		this.hookImplID = hookImplID;
+		this.visibilityCache = RegionVisibilityCache.getCache(regionDigraph);
 	}
 
 	/**
@@ -50,6 +53,9 @@ public final class RegionBundleEventHook implements EventHook {
 		Bundle eventBundle = event.getBundle();
 		if (event.getType() == BundleEvent.INSTALLED) {
 			bundleInstalled(eventBundle, event.getOrigin());
+		} else if (this.visibilityCache != null && (event.getType() == BundleEvent.UPDATED || event.getType() == BundleEvent.UNINSTALLED)) {
+			// the symbolic name and version the region filters match may have changed
+			this.visibilityCache.bundleChanged(eventBundle);
 		}
 		Map<Region, Boolean> regionAccess = new HashMap<Region, Boolean>();
 		Iterator<BundleContext> i = contexts.iterator();
@@ -30,9 +30,12 @@ public final class RegionBundleFindHook implements FindHook {
 
 	private final long hookImplID;
 
+	private final RegionVisibilityCache visibilityCache;
+
 	public RegionBundleFindHook(RegionDigraph regionDigraph, long hookImplID) {
 		this.regionDigraph = regionDigraph;
 		this.hookImplID = hookImplID;
+		this.visibilityCache = RegionVisibilityCache.getCache(regionDigraph);
 	}
 
 	/**
@@ -53,7 +56,20 @@ public final class RegionBundleFindHook implements FindHook {
 		}
 
 		Region finderRegion = this.regionDigraph.getRegion(finderBundle);
-		RegionBundleFindHook.find(finderRegion, bundles);
+		if (this.visibilityCache == null || finderRegion == null) {
+			RegionBundleFindHook.find(finderRegion, bundles);
+			return;
+		}
+
+		RegionVisibilityCache.Lookup<Bundle> lookup = this.visibilityCache.lookupBundles(finderRegion, bundles);
+		if (!lookup.unknown.isEmpty()) {
+			Visitor visitor = new Visitor(lookup.unknown);
+			finderRegion.visitSubgraph(visitor);
+			this.visibilityCache.completeBundles(finderRegion, lookup, visitor.getAllowed());
+		}
+		if (!lookup.hidden.isEmpty()) {
+			bundles.removeAll(lookup.hidden);
+		}
 	}
 
 	static void find(Region finderRegion, Collection<Bundle> bundles) {
@@ -34,8 +34,11 @@ public final class RegionServiceEventHook implements EventHook {
 
 	private final RegionDigraph regionDigraph;
 
+	private final RegionVisibilityCache visibilityCache;
+
 	public RegionServiceEventHook(RegionDigraph regionDigraph) {
 		this.regionDigraph = regionDigraph;
+		this.visibilityCache = RegionVisibilityCache.getCache(regionDigraph);
 	}
 
 	/**
@@ -43,6 +46,10 @@ public final class RegionServiceEventHook implements EventHook {
 	 */
 	public void event(ServiceEvent event, Collection<BundleContext> contexts) {
 		ServiceReference<?> eventService = event.getServiceReference();
+		if (this.visibilityCache != null && event.getType() != ServiceEvent.REGISTERED) {
+			// the properties the region filters match may have changed
+			this.visibilityCache.serviceChanged(eventService);
+		}
 		Map<Region, Boolean> regionAccess = new HashMap<Region, Boolean>();
 		Iterator<BundleContext> i = contexts.iterator();
 		while (i.hasNext()) {
@@ -28,8 +28,11 @@ public final class RegionServiceFindHook implements FindHook {
 
 	private final RegionDigraph regionDigraph;
 
+	private final RegionVisibilityCache visibilityCache;
+
 	public RegionServiceFindHook(RegionDigraph regionDigraph) {
 		this.regionDigraph = regionDigraph;
+		this.visibilityCache = RegionVisibilityCache.getCache(regionDigraph);
 	}
 
 	/**
@@ -47,7 +50,20 @@ public final class RegionServiceFindHook implements FindHook {
 		}
 
 		Region finderRegion = this.regionDigraph.getRegion(finderBundle);
-		RegionServiceFindHook.find(finderRegion, references);
+		if (this.visibilityCache == null || finderRegion == null) {
+			RegionServiceFindHook.find(finderRegion, references);
+			return;
+		}
+
+		RegionVisibilityCache.Lookup<ServiceReference<?>> lookup = this.visibilityCache.lookupServices(finderRegion, references);
+		if (!lookup.unknown.isEmpty()) {
+			Visitor visitor = new Visitor(lookup.unknown);
+			finderRegion.visitSubgraph(visitor);
+			this.visibilityCache.completeServices(finderRegion, lookup, visitor.getAllowed());
+		}
+		if (!lookup.hidden.isEmpty()) {
+			references.removeAll(lookup.hidden);
+		}
 	}
 
 	static void find(Region finderRegion, Collection<ServiceReference<?>> references) {
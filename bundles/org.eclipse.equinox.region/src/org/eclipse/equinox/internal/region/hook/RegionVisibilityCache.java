@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2018 VMware Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   VMware Inc. - initial contribution
+ *******************************************************************************/
+
+package org.eclipse.equinox.internal.region.hook;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.eclipse.equinox.internal.region.StandardRegionDigraph;
+import org.eclipse.equinox.region.Region;
+import org.eclipse.equinox.region.RegionDigraph;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.ServiceReference;
+
+/**
+ * {@link RegionVisibilityCache} remembers which bundles and services are visible from a region, so that the find
+ * hooks do not need to traverse the {@link RegionDigraph} again for candidates they have already decided.
+ * <p>
+ * The cache is dropped when the update count of the digraph changes, which happens whenever a region, a connection
+ * or the region membership of a bundle changes. The decisions for a single bundle or service are dropped when its
+ * attributes may have changed, that is when the bundle is updated or uninstalled, or the properties of the service
+ * are modified or it is unregistered.
+ * <p />
+ * 
+ * <strong>Concurrent Semantics</strong><br />
+ * Thread safe. Lookups do not lock.
+ */
+public final class RegionVisibilityCache {
+
+	/**
+	 * The result of looking up candidates in the cache.
+	 */
+	static final class Lookup<C> {
+
+		final long generation;
+
+		/** candidates whose visibility is not known yet */
+		final Collection<C> unknown = new ArrayList<C>();
+
+		/** candidates known to be invisible */
+		final Set<C> hidden = new HashSet<C>();
+
+		Lookup(long generation) {
+			this.generation = generation;
+		}
+	}
+
+	/**
+	 * Supplies the update count of the cached digraph.
+	 */
+	public interface UpdateCounter {
+
+		long getUpdateCount();
+	}
+
+	private final UpdateCounter counter;
+
+	private final Object monitor = new Object();
+
+	private final ConcurrentMap<Region, ConcurrentMap<Bundle, Boolean>> bundles = new ConcurrentHashMap<Region, ConcurrentMap<Bundle, Boolean>>();
+
+	private final ConcurrentMap<Region, ConcurrentMap<ServiceReference<?>, Boolean>> services = new ConcurrentHashMap<Region, ConcurrentMap<ServiceReference<?>, Boolean>>();
+
+	private volatile long updateCount = -1;
+
+	// incremented whenever cached decisions are dropped, guarded by monitor
+	private volatile long generation;
+
+	public RegionVisibilityCache(UpdateCounter counter) {
+		this.counter = counter;
+	}
+
+	/**
+	 * Returns the visibility cache of the given digraph, or <code>null</code> if the digraph does not have one.
+	 */
+	static RegionVisibilityCache getCache(RegionDigraph digraph) {
+		return digraph instanceof StandardRegionDigraph ? ((StandardRegionDigraph) digraph).getVisibilityCache() : null;
+	}
+
+	Lookup<Bundle> lookupBundles(Region finderRegion, Collection<Bundle> candidates) {
+		return lookup(this.bundles, finderRegion, candidates);
+	}
+
+	void completeBundles(Region finderRegion, Lookup<Bundle> lookup, Collection<Bundle> allowed) {
+		complete(this.bundles, finderRegion, lookup, allowed);
+	}
+
+	Lookup<ServiceReference<?>> lookupServices(Region finderRegion, Collection<ServiceReference<?>> candidates) {
+		return lookup(this.services, finderRegion, candidates);
+	}
+
+	void completeServices(Region finderRegion, Lookup<ServiceReference<?>> lookup, Collection<ServiceReference<?>> allowed) {
+		complete(this.services, finderRegion, lookup, allowed);
+	}
+
+	/**
+	 * Drops the decisions for the given bundle.
+	 * 
+	 * @param bundle the bundle that was updated or uninstalled
+	 */
+	void bundleChanged(Bundle bundle) {
+		synchronized (this.monitor) {
+			this.generation++;
+			for (Map<Bundle, Boolean> decisions : this.bundles.values()) {
+				decisions.remove(bundle);
+			}
+		}
+	}
+
+	/**
+	 * Drops the decisions for the given service.
+	 * 
+	 * @param reference the service that was modified or unregistered
+	 */
+	void serviceChanged(ServiceReference<?> reference) {
+		synchronized (this.monitor) {
+			this.generation++;
+			for (Map<ServiceReference<?>, Boolean> decisions : this.services.values()) {
+				decisions.remove(reference);
+			}
+		}
+	}
+
+	private long validate() {
+		long current = this.counter.getUpdateCount();
+		if (current != this.updateCount) {
+			synchronized (this.monitor) {
+				if (current != this.updateCount) {
+					this.generation++;
+					this.bundles.clear();
+					this.services.clear();
+					this.updateCount = current;
+				}
+			}
+		}
+		return this.generation;
+	}
+
+	private <C> Lookup<C> lookup(ConcurrentMap<Region, ConcurrentMap<C, Boolean>> cache, Region finderRegion, Collection<C> candidates) {
+		Lookup<C> lookup = new Lookup<C>(validate());
+		Map<C, Boolean> decisions = cache.get(finderRegion);
+		for (C candidate : candidates) {
+			Boolean visible = decisions == null ? null : decisions.get(candidate);
+			if (visible == null) {
+				lookup.unknown.add(candidate);
+			} else if (!visible.booleanValue()) {
+				lookup.hidden.add(candidate);
+			}
+		}
+		return lookup;
+	}
+
+	private <C> void complete(ConcurrentMap<Region, ConcurrentMap<C, Boolean>> cache, Region finderRegion, Lookup<C> lookup, Collection<C> allowed) {
+		for (C candidate : lookup.unknown) {
+			if (!allowed.contains(candidate)) {
+				lookup.hidden.add(candidate);
+			}
+		}
+		synchronized (this.monitor) {
+			// do not store decisions made while the digraph or a candidate changed
+			if (lookup.generation != this.generation || this.counter.getUpdateCount() != this.updateCount) {
+				return;
+			}
+			ConcurrentMap<C, Boolean> decisions = cache.get(finderRegion);
+			if (decisions == null) {
+				decisions = new ConcurrentHashMap<C, Boolean>();
+				cache.put(finderRegion, decisions);
+			}
+			for (C candidate : lookup.unknown) {
+				decisions.put(candidate, Boolean.valueOf(!lookup.hidden.contains(candidate)));
+			}
+		}
+	}
+}
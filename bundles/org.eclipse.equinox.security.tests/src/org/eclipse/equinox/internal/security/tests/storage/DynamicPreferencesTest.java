@@ -14,17 +14,13 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
-import java.io.IOException;
-import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Map;
-import org.eclipse.core.tests.harness.BundleTestingHelper;
 import org.eclipse.equinox.internal.security.storage.StorageUtils;
-import org.eclipse.equinox.internal.security.tests.SecurityTestsActivator;
 import org.eclipse.equinox.security.storage.ISecurePreferences;
 import org.eclipse.equinox.security.storage.StorageException;
 import org.junit.Test;
-import org.osgi.framework.*;
+import org.osgi.framework.Bundle;
 
 /**
  * In those tests listener is used to synchronize with the asynchronous registry processing
@@ -32,9 +28,6 @@ import org.osgi.framework.*;
  */
 public class DynamicPreferencesTest extends StorageAbstractTest {
 
-	final private static int MAX_TIME_PER_BUNDLE = 10000; // maximum time to wait for bundle event in milliseconds
-	public static final String TEST_FILES_ROOT = "Plugin_Testing/";
-
 	final private static String key = "password";
 	final private static String unassignedKey = "unknown";
 	final private static String value = "p[[pkknb#";
@@ -179,48 +172,4 @@ public class DynamicPreferencesTest extends StorageAbstractTest {
 		return getOptions(null);
 	}
 
-	/**
-	 * Synchronizes to ensure bundle XML contribution has been processed
-	 * before method returns.
-	 */
-	protected Bundle installBundle(String bundlePath) throws MalformedURLException, BundleException, IOException {
-		BundleContext bundleContext = SecurityTestsActivator.getDefault().getBundleContext();
-		Bundle bundle = null;
-		WaitingRegistryListener listener = new WaitingRegistryListener();
-		listener.register("org.eclipse.equinox.security.secureStorage");
-
-		try {
-			bundle = BundleTestingHelper.installBundle("0.1", bundleContext, TEST_FILES_ROOT + bundlePath);
-			BundleTestingHelper.refreshPackages(bundleContext, new Bundle[] {bundle});
-			// synchronization: listener should receive 1 group of events
-			assertTrue(listener.waitFor(1, MAX_TIME_PER_BUNDLE) == 1);
-		} finally {
-			listener.unregister();
-		}
-		return bundle;
-	}
-
-	/**
-	 * Synchronizes to ensure bundle XML contribution has been processed
-	 * before method returns.
-	 */
-	protected boolean uninstallBundle(Bundle bundle) throws BundleException {
-		WaitingRegistryListener listener = new WaitingRegistryListener();
-		listener.register("org.eclipse.equinox.security.secureStorage");
-		try {
-			bundle.uninstall();
-			bundle = null;
-			// synchronization: listener should receive 1 group of events
-			// There might be lots of active listeners by the time this test is run
-			// so give it some time - hence multiplication by 10
-			assertTrue(listener.waitFor(1, 10 * MAX_TIME_PER_BUNDLE) == 1);
-			return true;
-		} finally {
-			listener.unregister();
-			// in case of exception in the process 
-			if (bundle != null)
-				bundle.uninstall();
-		}
-	}
-
 }
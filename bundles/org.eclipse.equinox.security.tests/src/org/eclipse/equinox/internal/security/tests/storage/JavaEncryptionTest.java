@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.security.tests.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import javax.crypto.BadPaddingException;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.PBEKeySpec;
+import org.eclipse.equinox.internal.security.storage.*;
+import org.eclipse.equinox.internal.security.storage.friends.IStorageConstants;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the cache of secret keys kept by {@link JavaEncryption}.
+ */
+public class JavaEncryptionTest {
+
+	final private static String clearText = "sample value";
+
+	private JavaEncryption encryption;
+
+	@Before
+	public void setUp() {
+		encryption = new JavaEncryption();
+		encryption.setAlgorithms(IStorageConstants.DEFAULT_CIPHER, IStorageConstants.DEFAULT_KEY_FACTORY);
+	}
+
+	@Test
+	public void testKeyCachedAfterDecrypt() throws Exception {
+		PasswordExt password = newPassword("password1");
+		CryptoData data = encryption.encrypt(password, StorageUtils.getBytes(clearText));
+		assertEquals("Key cached by encryption", 0, getKeyCache().size());
+
+		assertEquals(clearText, StorageUtils.getString(encryption.decrypt(password, data)));
+		SecretKey key = getCachedKey(password);
+		assertNotNull("Key not cached", key);
+
+		// hit
+		assertEquals(clearText, StorageUtils.getString(encryption.decrypt(password, data)));
+		data = encryption.encrypt(password, StorageUtils.getBytes(clearText));
+		assertEquals(clearText, StorageUtils.getString(encryption.decrypt(password, data)));
+		assertSame("Key not reused", key, getCachedKey(password));
+		assertFalse("Key in use destroyed", isDestroyed(key));
+		assertEquals(1, getKeyCache().size());
+	}
+
+	@Test
+	public void testWrongPasswordNotCached() throws Exception {
+		PasswordExt password = newPassword("password1");
+		// a wrong key can decrypt a value without padding errors by chance, try until it fails
+		for (int i = 0; i < 100; i++) {
+			CryptoData data = encryption.encrypt(password, StorageUtils.getBytes(clearText));
+			PasswordExt wrongPassword = newPassword("password2");
+			try {
+				encryption.decrypt(wrongPassword, data);
+			} catch (BadPaddingException e) {
+				assertNull("Wrong password cached", getCachedKey(wrongPassword));
+				return;
+			}
+		}
+		assertTrue("Wrong password never detected", false);
+	}
+
+	@Test
+	public void testClear() throws Exception {
+		PasswordExt password1 = newPassword("password1");
+		PasswordExt password2 = newPassword("password2");
+		SecretKey key1 = decrypt(password1);
+		SecretKey key2 = decrypt(password2);
+
+		encryption.clearKeyCache(password1);
+		assertNull("Key of the password not dropped", getCachedKey(password1));
+		assertTrue("Dropped key not destroyed", isDestroyed(key1));
+		assertSame("Key of another password dropped", key2, getCachedKey(password2));
+
+		encryption.clearKeyCache();
+		assertEquals(0, getKeyCache().size());
+		assertTrue("Cleared key not destroyed", isDestroyed(key2));
+
+		// a new key is generated and cached after the clear
+		SecretKey key = decrypt(password1);
+		assertFalse(isDestroyed(key));
+		assertSame(key, getCachedKey(password1));
+	}
+
+	@Test
+	public void testEvictedKeyDestroyed() throws Exception {
+		PasswordExt first = newPassword("password0");
+		SecretKey firstKey = decrypt(first);
+		int size;
+		int i = 1;
+		do {
+			size = getKeyCache().size();
+			decrypt(newPassword("password" + i++));
+		} while (getKeyCache().size() > size);
+		assertNull("Least recently used key not evicted", getCachedKey(first));
+		assertTrue("Evicted key not destroyed", isDestroyed(firstKey));
+	}
+
+	/**
+	 * Not all keys report that they are destroyed, some only clear their key material
+	 */
+	private static boolean isDestroyed(SecretKey key) {
+		if (key.isDestroyed())
+			return true;
+		try {
+			return key.getEncoded() == null;
+		} catch (RuntimeException e) {
+			return true;
+		}
+	}
+
+	private static PasswordExt newPassword(String password) {
+		return new PasswordExt(new PBEKeySpec(password.toCharArray()), "test");
+	}
+
+	/**
+	 * Encrypts and decrypts a value, returns the cached key
+	 */
+	private SecretKey decrypt(PasswordExt password) throws Exception {
+		CryptoData data = encryption.encrypt(password, StorageUtils.getBytes(clearText));
+		assertEquals(clearText, StorageUtils.getString(encryption.decrypt(password, data)));
+		SecretKey key = getCachedKey(password);
+		assertNotNull("Key not cached", key);
+		return key;
+	}
+
+	private Map<?, ?> getKeyCache() throws Exception {
+		return (Map<?, ?>) getField(encryption, "keyCache");
+	}
+
+	private SecretKey getCachedKey(PasswordExt password) throws Exception {
+		Map<?, ?> keyCache = getKeyCache();
+		synchronized (keyCache) {
+			for (Map.Entry<?, ?> entry : keyCache.entrySet()) {
+				if (getField(entry.getKey(), "password") == password.getPassword())
+					return (SecretKey) getField(entry.getValue(), "key");
+			}
+		}
+		return null;
+	}
+
+	private static Object getField(Object object, String name) throws Exception {
+		Field field = object.getClass().getDeclaredField(name);
+		field.setAccessible(true);
+		return field.get(object);
+	}
+}
@@ -138,6 +138,26 @@ abstract public class SecurePreferencesTest extends StorageAbstractTest {
 		}
 	}
 
+	/**
+	 * Test reading several values of a node at once
+	 */
+	@Test
+	public void testGetAll() throws IOException, StorageException {
+		ISecurePreferences preferences = newPreferences(getStorageLocation(), getOptions());
+		fill(preferences);
+
+		ISecurePreferences node3 = preferences.node(path3);
+		Map<?, ?> values = node3.getAll(new String[] {key, secondKey, clearTextKey, unicodeKey, unassignedKey});
+		assertEquals(4, values.size());
+		assertEquals(value, values.get(key));
+		assertEquals(secondValue, values.get(secondKey));
+		assertEquals(clearTextValue, values.get(clearTextKey));
+		assertEquals(unicodeValue, values.get(unicodeKey));
+		assertFalse(values.containsKey(unassignedKey));
+
+		assertTrue(node3.getAll(new String[0]).isEmpty());
+	}
+
 	/**
 	 * Test relative names, absolute names, and children names
 	 * @throws StorageException 
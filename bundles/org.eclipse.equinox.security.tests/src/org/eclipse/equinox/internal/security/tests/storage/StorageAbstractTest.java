@@ -10,24 +10,32 @@
  *******************************************************************************/
 package org.eclipse.equinox.internal.security.tests.storage;
 
+import static org.junit.Assert.assertTrue;
+
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.*;
 import javax.crypto.spec.PBEKeySpec;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.tests.harness.BundleTestingHelper;
 import org.eclipse.core.tests.harness.FileSystemHelper;
 import org.eclipse.equinox.internal.security.storage.*;
+import org.eclipse.equinox.internal.security.tests.SecurityTestsActivator;
 import org.eclipse.equinox.security.storage.ISecurePreferences;
 import org.eclipse.equinox.security.storage.SecurePreferencesFactory;
 import org.eclipse.equinox.security.storage.provider.IProviderHints;
 import org.junit.After;
+import org.osgi.framework.*;
 
 /**
  * Temp directory is used for storage.
  */
 public class StorageAbstractTest {
 
+	final private static int MAX_TIME_PER_BUNDLE = 10000; // maximum time to wait for bundle event in milliseconds
+	public static final String TEST_FILES_ROOT = "Plugin_Testing/";
+
 	final protected String defaultFileName = "secure_storage_test.equinox";
 
 	private List<ISecurePreferences> openPreferences = new ArrayList<ISecurePreferences>(5); // <ISecurePreferences>
@@ -94,4 +102,48 @@ public class StorageAbstractTest {
 		tempDir = tempDir.append(defaultFileName);
 		return tempDir.toFile().toURL();
 	}
+
+	/**
+	 * Synchronizes to ensure bundle XML contribution has been processed
+	 * before method returns.
+	 */
+	protected Bundle installBundle(String bundlePath) throws MalformedURLException, BundleException, IOException {
+		BundleContext bundleContext = SecurityTestsActivator.getDefault().getBundleContext();
+		Bundle bundle = null;
+		WaitingRegistryListener listener = new WaitingRegistryListener();
+		listener.register("org.eclipse.equinox.security.secureStorage");
+
+		try {
+			bundle = BundleTestingHelper.installBundle("0.1", bundleContext, TEST_FILES_ROOT + bundlePath);
+			BundleTestingHelper.refreshPackages(bundleContext, new Bundle[] {bundle});
+			// synchronization: listener should receive 1 group of events
+			assertTrue(listener.waitFor(1, MAX_TIME_PER_BUNDLE) == 1);
+		} finally {
+			listener.unregister();
+		}
+		return bundle;
+	}
+
+	/**
+	 * Synchronizes to ensure bundle XML contribution has been processed
+	 * before method returns.
+	 */
+	protected boolean uninstallBundle(Bundle bundle) throws BundleException {
+		WaitingRegistryListener listener = new WaitingRegistryListener();
+		listener.register("org.eclipse.equinox.security.secureStorage");
+		try {
+			bundle.uninstall();
+			bundle = null;
+			// synchronization: listener should receive 1 group of events
+			// There might be lots of active listeners by the time this test is run
+			// so give it some time - hence multiplication by 10
+			assertTrue(listener.waitFor(1, 10 * MAX_TIME_PER_BUNDLE) == 1);
+			return true;
+		} finally {
+			listener.unregister();
+			// in case of exception in the process 
+			if (bundle != null)
+				bundle.uninstall();
+		}
+	}
 }
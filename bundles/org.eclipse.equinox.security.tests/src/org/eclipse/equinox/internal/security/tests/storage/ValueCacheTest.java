@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.security.tests.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import org.eclipse.equinox.internal.security.storage.*;
+import org.eclipse.equinox.security.storage.ISecurePreferences;
+import org.junit.*;
+import org.osgi.framework.Bundle;
+
+/**
+ * Tests the cache of decrypted values kept by the root node when
+ * {@link SecurePreferencesRoot#VALUE_CACHE_TIMEOUT} is set.
+ */
+public class ValueCacheTest extends StorageAbstractTest {
+
+	final private static long TIMEOUT = 1000; // value cache timeout in milliseconds
+
+	final private static String key = "password";
+	final private static String value = "p[[pkknb#";
+	final private static String value2 = "34534534535";
+	final private static String defaultValue = "default";
+
+	private Bundle bundle;
+
+	@Before
+	public void setUp() throws Exception {
+		System.setProperty(SecurePreferencesRoot.VALUE_CACHE_TIMEOUT, Long.toString(TIMEOUT));
+		// values protected by the default password are never cached; use a password provider
+		bundle = installBundle("priority/high");
+	}
+
+	@After
+	public void cleanUp() throws Exception {
+		System.getProperties().remove(SecurePreferencesRoot.VALUE_CACHE_TIMEOUT);
+		if (bundle != null)
+			uninstallBundle(bundle);
+	}
+
+	protected Map<String, Object> getOptions() {
+		// Don't specify default password; values have to go through the password provider
+		return getOptions(null);
+	}
+
+	private SecurePreferencesRoot getRoot(ISecurePreferences preferences) {
+		return ((SecurePreferencesWrapper) preferences).getContainer().getRootData();
+	}
+
+	@Test
+	public void testGetCachesValue() throws Exception {
+		ISecurePreferences preferences = newPreferences(getStorageLocation(), getOptions());
+		SecurePreferencesRoot root = getRoot(preferences);
+		SecurePreferences node = root.node("abc");
+		preferences.node("/abc").put(key, value, true);
+		assertFalse(root.isValueCached(node, key));
+
+		assertEquals(value, preferences.node("/abc").get(key, defaultValue));
+		assertTrue(root.isValueCached(node, key));
+		assertEquals(value, preferences.node("/abc").get(key, defaultValue));
+	}
+
+	@Test
+	public void testTimeout() throws Exception {
+		ISecurePreferences preferences = newPreferences(getStorageLocation(), getOptions());
+		SecurePreferencesRoot root = getRoot(preferences);
+		SecurePreferences node = root.node("abc");
+		preferences.node("/abc").put(key, value, true);
+		assertEquals(value, preferences.node("/abc").get(key, defaultValue));
+		assertTrue(root.isValueCached(node, key));
+
+		Thread.sleep(TIMEOUT + 500);
+		assertFalse(root.isValueCached(node, key));
+		// an expired value is decrypted again
+		assertEquals(value, preferences.node("/abc").get(key, defaultValue));
+		assertTrue(root.isValueCached(node, key));
+	}
+
+	@Test
+	public void testPut() throws Exception {
+		ISecurePreferences preferences = newPreferences(getStorageLocation(), getOptions());
+		SecurePreferencesRoot root = getRoot(preferences);
+		SecurePreferences node = root.node("abc");
+		ISecurePreferences abc = preferences.node("/abc");
+		abc.put(key, value, true);
+		assertEquals(value, abc.get(key, defaultValue));
+		assertTrue(root.isValueCached(node, key));
+
+		abc.put(key, value2, true);
+		assertFalse(root.isValueCached(node, key));
+		assertEquals(value2, abc.get(key, defaultValue));
+	}
+
+	@Test
+	public void testRemove() throws Exception {
+		ISecurePreferences preferences = newPreferences(getStorageLocation(), getOptions());
+		SecurePreferencesRoot root = getRoot(preferences);
+		SecurePreferences node = root.node("abc");
+		ISecurePreferences abc = preferences.node("/abc");
+		abc.put(key, value, true);
+		assertEquals(value, abc.get(key, defaultValue));
+		assertTrue(root.isValueCached(node, key));
+
+		abc.remove(key);
+		assertFalse(root.isValueCached(node, key));
+		assertEquals(defaultValue, abc.get(key, defaultValue));
+	}
+
+	@Test
+	public void testClear() throws Exception {
+		ISecurePreferences preferences = newPreferences(getStorageLocation(), getOptions());
+		SecurePreferencesRoot root = getRoot(preferences);
+		SecurePreferences node = root.node("abc");
+		ISecurePreferences abc = preferences.node("/abc");
+		abc.put(key, value, true);
+		assertEquals(value, abc.get(key, defaultValue));
+		assertTrue(root.isValueCached(node, key));
+
+		abc.clear();
+		assertFalse(root.isValueCached(node, key));
+		assertEquals(defaultValue, abc.get(key, defaultValue));
+	}
+
+	@Test
+	public void testRemoveNode() throws Exception {
+		ISecurePreferences preferences = newPreferences(getStorageLocation(), getOptions());
+		SecurePreferencesRoot root = getRoot(preferences);
+		SecurePreferences node = root.node("abc");
+		SecurePreferences child = root.node("abc/child");
+		preferences.node("/abc").put(key, value, true);
+		preferences.node("/abc/child").put(key, value2, true);
+		assertEquals(value, preferences.node("/abc").get(key, defaultValue));
+		assertEquals(value2, preferences.node("/abc/child").get(key, defaultValue));
+		assertTrue(root.isValueCached(node, key));
+		assertTrue(root.isValueCached(child, key));
+
+		preferences.node("/abc").removeNode();
+		assertFalse(root.isValueCached(node, key));
+		assertFalse(root.isValueCached(child, key));
+	}
+
+	@Test
+	public void testClearPasswordCache() throws Exception {
+		ISecurePreferences preferences = newPreferences(getStorageLocation(), getOptions());
+		SecurePreferencesRoot root = getRoot(preferences);
+		SecurePreferences node = root.node("abc");
+		preferences.node("/abc").put(key, value, true);
+		assertEquals(value, preferences.node("/abc").get(key, defaultValue));
+		assertTrue(root.isValueCached(node, key));
+
+		root.clearPasswordCache();
+		assertFalse(root.isValueCached(node, key));
+	}
+
+	@Test
+	public void testDefaultPasswordNotCached() throws Exception {
+		ISecurePreferences preferences = newPreferences(getStorageLocation(), getOptions("password"));
+		SecurePreferencesRoot root = getRoot(preferences);
+		SecurePreferences node = root.node("abc");
+		preferences.node("/abc").put(key, value, true);
+		assertEquals(value, preferences.node("/abc").get(key, defaultValue));
+		assertFalse(root.isValueCached(node, key));
+	}
+}
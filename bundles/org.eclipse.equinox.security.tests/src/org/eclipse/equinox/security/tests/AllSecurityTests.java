@@ -20,7 +20,7 @@ import org.junit.runners.Suite.SuiteClasses;
  * As such this tests should be run in a headless mode.
  */
 @RunWith(Suite.class)
-@SuiteClasses({Base64Test.class, SlashEncodeTest.class, DefaultPreferencesTest.class, DynamicPreferencesTest.class, WinPreferencesTest.class})
+@SuiteClasses({Base64Test.class, SlashEncodeTest.class, DefaultPreferencesTest.class, DynamicPreferencesTest.class, JavaEncryptionTest.class, ValueCacheTest.class, WinPreferencesTest.class})
 public class AllSecurityTests {
 	//see @SuiteClasses
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2017 IBM Corporation and others.
+ * Copyright (c) 2008, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,6 +16,8 @@ import java.util.*;
 import javax.crypto.*;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.PBEParameterSpec;
+import javax.security.auth.DestroyFailedException;
+import javax.security.auth.Destroyable;
 import org.eclipse.core.runtime.jobs.ILock;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.core.runtime.preferences.ConfigurationScope;
@@ -45,6 +47,11 @@ public class JavaEncryption {
 
 	static private final int SALT_ITERATIONS = 10;
 
+	/**
+	 * Maximum number of secret keys kept in the key cache
+	 */
+	static private final int MAX_CACHED_KEYS = 16;
+
 	private String keyFactoryAlgorithm = null;
 	private String cipherAlgorithm = null;
 
@@ -52,6 +59,55 @@ public class JavaEncryption {
 
 	private HashMap availableCiphers;
 
+	/**
+	 * Secret keys generated from passwords, least recently used first:
+	 *    <KeyCacheEntry>(password, key factory) -> <CachedKey>
+	 * The salt only comes into play when the cipher is initialized, so one key
+	 * serves all values encrypted with the same password. A key is only cached
+	 * once it has decrypted a value, so a wrong password is never cached.
+	 */
+	private final LinkedHashMap keyCache = new LinkedHashMap(MAX_CACHED_KEYS, 0.75f, true);
+
+	/**
+	 * Key of the key cache. Passwords are compared by identity: the same
+	 * PBEKeySpec is reused for as long as the password is cached by the
+	 * secure preferences root.
+	 */
+	private static class KeyCacheEntry {
+		final PBEKeySpec password;
+		final String keyFactoryAlgorithm;
+
+		KeyCacheEntry(PBEKeySpec password, String keyFactoryAlgorithm) {
+			this.password = password;
+			this.keyFactoryAlgorithm = keyFactoryAlgorithm;
+		}
+
+		public int hashCode() {
+			return System.identityHashCode(password) ^ keyFactoryAlgorithm.hashCode();
+		}
+
+		public boolean equals(Object obj) {
+			if (!(obj instanceof KeyCacheEntry))
+				return false;
+			KeyCacheEntry other = (KeyCacheEntry) obj;
+			return password == other.password && keyFactoryAlgorithm.equals(other.keyFactoryAlgorithm);
+		}
+	}
+
+	/**
+	 * A secret key of the key cache. A key dropped from the cache is destroyed
+	 * as soon as no encryption or decryption uses it any more.
+	 */
+	private static class CachedKey {
+		final SecretKey key;
+		int users; // guarded by keyCache
+		boolean dropped; // guarded by keyCache
+
+		CachedKey(SecretKey key) {
+			this.key = key;
+		}
+	}
+
 	public JavaEncryption() {
 		// placeholder
 	}
@@ -127,15 +183,108 @@ public class JavaEncryption {
 		AuthPlugin.getDefault().logMessage(msg);
 	}
 
+	/**
+	 * Drops and destroys the cached secret keys. Called when cached passwords
+	 * are discarded.
+	 */
+	public void clearKeyCache() {
+		synchronized (keyCache) {
+			for (Iterator i = keyCache.values().iterator(); i.hasNext();)
+				drop((CachedKey) i.next());
+			keyCache.clear();
+		}
+	}
+
+	/**
+	 * Drops and destroys the cached secret keys of a password. Called when the
+	 * password is removed from the password cache.
+	 */
+	public void clearKeyCache(PasswordExt passwordExt) {
+		synchronized (keyCache) {
+			for (Iterator i = keyCache.entrySet().iterator(); i.hasNext();) {
+				Map.Entry entry = (Map.Entry) i.next();
+				if (((KeyCacheEntry) entry.getKey()).password == passwordExt.getPassword()) {
+					drop((CachedKey) entry.getValue());
+					i.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the cached key of the password, or null. The key is in use until
+	 * it is released.
+	 */
+	private CachedKey acquireKey(KeyCacheEntry entry) {
+		synchronized (keyCache) {
+			CachedKey cached = (CachedKey) keyCache.get(entry);
+			if (cached != null)
+				cached.users++;
+			return cached;
+		}
+	}
+
+	private void releaseKey(CachedKey cached) {
+		synchronized (keyCache) {
+			cached.users--;
+			if (cached.dropped && cached.users == 0)
+				destroy(cached.key);
+		}
+	}
+
+	/**
+	 * Caches a key which has decrypted a value. Returns false if another thread
+	 * has already cached a key for the password.
+	 */
+	private boolean cacheKey(KeyCacheEntry entry, SecretKey key) {
+		synchronized (keyCache) {
+			if (keyCache.containsKey(entry))
+				return false;
+			keyCache.put(entry, new CachedKey(key));
+			if (keyCache.size() > MAX_CACHED_KEYS) {
+				Iterator eldest = keyCache.values().iterator();
+				drop((CachedKey) eldest.next());
+				eldest.remove();
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Called while holding the keyCache lock.
+	 */
+	private static void drop(CachedKey cached) {
+		cached.dropped = true;
+		if (cached.users == 0)
+			destroy(cached.key);
+	}
+
+	private SecretKey generateKey(PBEKeySpec password) throws NoSuchAlgorithmException, InvalidKeySpecException {
+		SecretKeyFactory keyFactory = SecretKeyFactory.getInstance(keyFactoryAlgorithm);
+		return keyFactory.generateSecret(password);
+	}
+
+	private static void destroy(SecretKey key) {
+		if (!(key instanceof Destroyable))
+			return;
+		try {
+			((Destroyable) key).destroy();
+		} catch (DestroyFailedException e) {
+			// not all providers support it; the key will be garbage collected
+		}
+	}
+
 	public CryptoData encrypt(PasswordExt passwordExt, byte[] clearText) throws StorageException {
 		init();
 		return internalEncrypt(passwordExt, clearText);
 	}
 
 	private CryptoData internalEncrypt(PasswordExt passwordExt, byte[] clearText) throws StorageException {
+		CachedKey cached = null;
+		SecretKey key = null;
 		try {
-			SecretKeyFactory keyFactory = SecretKeyFactory.getInstance(keyFactoryAlgorithm);
-			SecretKey key = keyFactory.generateSecret(passwordExt.getPassword());
+			cached = acquireKey(new KeyCacheEntry(passwordExt.getPassword(), keyFactoryAlgorithm));
+			key = (cached != null) ? cached.key : generateKey(passwordExt.getPassword());
 
 			byte[] salt = new byte[8];
 			SecureRandom random = new SecureRandom();
@@ -168,18 +317,28 @@ public class JavaEncryption {
 		} catch (NoSuchAlgorithmException e) {
 			handle(e, StorageException.INTERNAL_ERROR);
 			return null;
+		} finally {
+			// only keys which have decrypted a value are cached
+			if (cached != null)
+				releaseKey(cached);
+			else if (key != null)
+				destroy(key);
 		}
 	}
 
 	public byte[] decrypt(PasswordExt passwordExt, CryptoData encryptedData) throws StorageException, IllegalStateException, IllegalBlockSizeException, BadPaddingException {
 		init();
-		return internalDecrypt(passwordExt, encryptedData);
+		return internalDecrypt(passwordExt, encryptedData, true);
 	}
 
-	private byte[] internalDecrypt(PasswordExt passwordExt, CryptoData encryptedData) throws StorageException, IllegalStateException, IllegalBlockSizeException, BadPaddingException {
+	private byte[] internalDecrypt(PasswordExt passwordExt, CryptoData encryptedData, boolean cacheKey) throws StorageException, IllegalStateException, IllegalBlockSizeException, BadPaddingException {
+		KeyCacheEntry entry = new KeyCacheEntry(passwordExt.getPassword(), keyFactoryAlgorithm);
+		CachedKey cached = null;
+		SecretKey key = null;
+		boolean keyCached = false;
 		try {
-			SecretKeyFactory keyFactory = SecretKeyFactory.getInstance(keyFactoryAlgorithm);
-			SecretKey key = keyFactory.generateSecret(passwordExt.getPassword());
+			cached = acquireKey(entry);
+			key = (cached != null) ? cached.key : generateKey(passwordExt.getPassword());
 
 			PBEParameterSpec entropy = new PBEParameterSpec(encryptedData.getSalt(), SALT_ITERATIONS);
 
@@ -187,6 +346,8 @@ public class JavaEncryption {
 			c.init(Cipher.DECRYPT_MODE, key, entropy);
 
 			byte[] result = c.doFinal(encryptedData.getData());
+			if (cached == null && cacheKey)
+				keyCached = cacheKey(entry, key);
 			return result;
 		} catch (InvalidAlgorithmParameterException e) {
 			handle(e, StorageException.INTERNAL_ERROR);
@@ -203,6 +364,11 @@ public class JavaEncryption {
 		} catch (NoSuchAlgorithmException e) {
 			handle(e, StorageException.INTERNAL_ERROR);
 			return null;
+		} finally {
+			if (cached != null)
+				releaseKey(cached);
+			else if (key != null && !keyCached)
+				destroy(key);
 		}
 	}
 
@@ -296,7 +462,7 @@ public class JavaEncryption {
 			cipherAlgorithm = testCipher;
 			keyFactoryAlgorithm = testKeyFactory;
 			CryptoData encrypted = internalEncrypt(samplePassword, StorageUtils.getBytes(sampleText));
-			byte[] roundtripBytes = internalDecrypt(samplePassword, encrypted);
+			byte[] roundtripBytes = internalDecrypt(samplePassword, encrypted, false);
 			String result = StorageUtils.getString(roundtripBytes);
 			return sampleText.equals(result);
 		} catch (Exception e) {
@@ -249,10 +249,38 @@ public class SecurePreferences {
 		checkRemoved();
 		if (!hasKey(key))
 			return def;
+		return getValue(key, container, null);
+	}
+
+	/**
+	 * Retrieves values of the given keys in one pass. Keys without values are
+	 * skipped. The password of each module is obtained only once.
+	 * @return map: <String>key -> <String>value
+	 */
+	public Map getAll(String[] keys, SecurePreferencesContainer container) throws StorageException {
+		checkRemoved();
+		Map result = new HashMap(keys.length);
+		Map passwords = new HashMap(2); // module ID -> PasswordExt
+		for (int i = 0; i < keys.length; i++) {
+			if (hasKey(keys[i]))
+				result.put(keys[i], getValue(keys[i], container, passwords));
+		}
+		return result;
+	}
+
+	/**
+	 * Decrypts the value of the key.
+	 * @param passwords passwords already obtained in this operation, might be null
+	 */
+	private String getValue(String key, SecurePreferencesContainer container, Map passwords) throws StorageException {
 		String encryptedValue = internalGet(key);
 		if (encryptedValue == null)
 			return null;
 
+		String cachedValue = getRoot().getCachedValue(this, key, encryptedValue);
+		if (cachedValue != null)
+			return cachedValue;
+
 		CryptoData data = new CryptoData(encryptedValue);
 		String moduleID = data.getModuleID();
 		if (moduleID == null) { // clear-text value, not encrypted
@@ -261,13 +289,22 @@ public class SecurePreferences {
 			return StorageUtils.getString(data.getData());
 		}
 
-		PasswordExt passwordExt = getRoot().getPassword(moduleID, container, false);
-		if (passwordExt == null)
-			throw new StorageException(StorageException.NO_PASSWORD, SecAuthMessages.loginNoPassword);
+		PasswordExt passwordExt = (passwords == null) ? null : (PasswordExt) passwords.get(moduleID);
+		if (passwordExt == null) {
+			passwordExt = getRoot().getPassword(moduleID, container, false);
+			if (passwordExt == null)
+				throw new StorageException(StorageException.NO_PASSWORD, SecAuthMessages.loginNoPassword);
+			if (passwords != null)
+				passwords.put(moduleID, passwordExt);
+		}
 
 		try {
 			byte[] clearText = getRoot().getCipher().decrypt(passwordExt, data);
-			return StorageUtils.getString(clearText);
+			String value = StorageUtils.getString(clearText);
+			// values of the default password depend on the container options, do not share them
+			if (!DEFAULT_PASSWORD_ID.equals(moduleID))
+				getRoot().cacheValue(this, key, encryptedValue, value);
+			return value;
 		} catch (IllegalBlockSizeException e) { // invalid password?
 			throw new StorageException(StorageException.DECRYPTION_ERROR, e);
 		} catch (BadPaddingException e) { // invalid password?
@@ -299,6 +336,7 @@ public class SecurePreferences {
 		if (values == null)
 			values = new HashMap(5);
 		values.put(key, value);
+		getRoot().removeCachedValue(this, key);
 	}
 
 	protected String internalGet(String key) {
@@ -315,6 +353,7 @@ public class SecurePreferences {
 		checkRemoved();
 		if (values != null)
 			values.clear();
+		getRoot().removeCachedValues(this);
 		markModified();
 	}
 
@@ -322,6 +361,7 @@ public class SecurePreferences {
 		checkRemoved();
 		if (values != null) {
 			values.remove(key);
+			getRoot().removeCachedValue(this, key);
 			markModified();
 		}
 	}
@@ -334,13 +374,19 @@ public class SecurePreferences {
 	}
 
 	public void markRemoved() {
+		markRemoved(getRoot());
+	}
+
+	private void markRemoved(SecurePreferencesRoot rootNode) {
+		// navigation to the root fails once the parent is marked as removed
+		rootNode.removeCachedValues(this);
 		removed = true;
 		if (children == null)
 			return;
 		for (Iterator i = children.entrySet().iterator(); i.hasNext();) {
 			Map.Entry entry = (Map.Entry) i.next();
 			SecurePreferences child = (SecurePreferences) entry.getValue();
-			child.markRemoved();
+			child.markRemoved(rootNode);
 		}
 	}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2016 IBM Corporation and others.
+ * Copyright (c) 2008, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -27,6 +27,7 @@ import org.eclipse.equinox.security.storage.StorageException;
 import org.eclipse.equinox.security.storage.provider.*;
 import org.eclipse.osgi.framework.log.FrameworkLogEntry;
 import org.eclipse.osgi.util.NLS;
+import org.osgi.framework.BundleContext;
 
 /**
  * Root secure preference node. In addition to usual things it stores location, modified
@@ -67,6 +68,12 @@ public class SecurePreferencesRoot extends SecurePreferences implements IStorage
 	 */
 	static protected final int MAX_ATTEMPTS = 20;
 
+	/**
+	 * Framework property: number of milliseconds decrypted values are kept in memory.
+	 * Values are not cached unless this is set.
+	 */
+	static final public String VALUE_CACHE_TIMEOUT = "org.eclipse.equinox.security.storage.valueCacheTimeout"; //$NON-NLS-1$
+
 	static private ILock lock = Job.getJobManager().newLock();
 
 	private URL location;
@@ -79,12 +86,48 @@ public class SecurePreferencesRoot extends SecurePreferences implements IStorage
 
 	private Map passwordCache = new HashMap(5); // cached passwords: module ID -> PasswordExt 
 
+	private final long valueCacheTimeout;
+
+	private final Map valueCache = new HashMap(); // decrypted values: SecurePreferences -> (key -> CachedValue)
+
+	private long nextValueCacheSweep = 0; // guarded by valueCache
+
+	private static class CachedValue {
+		final String encryptedValue;
+		final char[] value;
+		final long expires;
+
+		CachedValue(String encryptedValue, char[] value, long expires) {
+			this.encryptedValue = encryptedValue;
+			this.value = value;
+			this.expires = expires;
+		}
+
+		void clear() {
+			Arrays.fill(value, '\0');
+		}
+	}
+
 	public SecurePreferencesRoot(URL location) throws IOException {
 		super(null, null);
 		this.location = location;
+		this.valueCacheTimeout = readValueCacheTimeout();
 		load();
 	}
 
+	private static long readValueCacheTimeout() {
+		AuthPlugin plugin = AuthPlugin.getDefault();
+		BundleContext context = (plugin == null) ? null : plugin.getBundleContext();
+		String timeout = (context == null) ? null : context.getProperty(VALUE_CACHE_TIMEOUT);
+		if (timeout == null)
+			return 0;
+		try {
+			return Long.parseLong(timeout.trim());
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
 	public URL getLocation() {
 		return location;
 	}
@@ -379,15 +422,142 @@ public class SecurePreferencesRoot extends SecurePreferences implements IStorage
 	}
 
 	public void cachePassword(String moduleID, PasswordExt passwordExt) {
+		PasswordExt replaced;
 		synchronized (passwordCache) {
-			passwordCache.put(moduleID, passwordExt);
+			replaced = (PasswordExt) passwordCache.put(moduleID, passwordExt);
 		}
+		if (replaced != null && replaced.getPassword() != passwordExt.getPassword())
+			cipher.clearKeyCache(replaced);
 	}
 
 	public void clearPasswordCache() {
 		synchronized (passwordCache) {
 			passwordCache.clear();
 		}
+		cipher.clearKeyCache();
+		clearValueCache();
+	}
+
+	/**
+	 * Returns the decrypted value cached for the key of the node, or null. The cached value
+	 * is only used while the key is still associated with the same encrypted value.
+	 */
+	String getCachedValue(SecurePreferences node, String key, String encryptedValue) {
+		if (valueCacheTimeout <= 0)
+			return null;
+		synchronized (valueCache) {
+			long now = System.currentTimeMillis();
+			sweepValueCache(now);
+			Map nodeValues = (Map) valueCache.get(node);
+			if (nodeValues == null)
+				return null;
+			CachedValue cached = (CachedValue) nodeValues.get(key);
+			if (cached == null)
+				return null;
+			if (cached.expires <= now || cached.encryptedValue != encryptedValue) {
+				cached.clear();
+				nodeValues.remove(key);
+				return null;
+			}
+			return new String(cached.value);
+		}
+	}
+
+	void cacheValue(SecurePreferences node, String key, String encryptedValue, String value) {
+		if (valueCacheTimeout <= 0 || value == null)
+			return;
+		synchronized (valueCache) {
+			long now = System.currentTimeMillis();
+			sweepValueCache(now);
+			Map nodeValues = (Map) valueCache.get(node);
+			if (nodeValues == null) {
+				nodeValues = new HashMap(5);
+				valueCache.put(node, nodeValues);
+			}
+			CachedValue previous = (CachedValue) nodeValues.put(key, new CachedValue(encryptedValue, value.toCharArray(), now + valueCacheTimeout));
+			if (previous != null)
+				previous.clear();
+		}
+	}
+
+	/**
+	 * Returns true if a decrypted value that has not yet expired is cached for the key of the node.
+	 */
+	public boolean isValueCached(SecurePreferences node, String key) {
+		synchronized (valueCache) {
+			Map nodeValues = (Map) valueCache.get(node);
+			if (nodeValues == null)
+				return false;
+			CachedValue cached = (CachedValue) nodeValues.get(key);
+			return cached != null && cached.expires > System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Clears and drops the decrypted value cached for the key of the node.
+	 */
+	void removeCachedValue(SecurePreferences node, String key) {
+		if (valueCacheTimeout <= 0)
+			return;
+		synchronized (valueCache) {
+			Map nodeValues = (Map) valueCache.get(node);
+			if (nodeValues == null)
+				return;
+			CachedValue cached = (CachedValue) nodeValues.remove(key);
+			if (cached != null)
+				cached.clear();
+			if (nodeValues.isEmpty())
+				valueCache.remove(node);
+		}
+	}
+
+	/**
+	 * Clears and drops all decrypted values cached for the node.
+	 */
+	void removeCachedValues(SecurePreferences node) {
+		if (valueCacheTimeout <= 0)
+			return;
+		synchronized (valueCache) {
+			Map nodeValues = (Map) valueCache.remove(node);
+			if (nodeValues == null)
+				return;
+			for (Iterator i = nodeValues.values().iterator(); i.hasNext();)
+				((CachedValue) i.next()).clear();
+		}
+	}
+
+	/**
+	 * Clears and drops all cached decrypted values.
+	 */
+	public void clearValueCache() {
+		synchronized (valueCache) {
+			for (Iterator i = valueCache.values().iterator(); i.hasNext();) {
+				for (Iterator j = ((Map) i.next()).values().iterator(); j.hasNext();)
+					((CachedValue) j.next()).clear();
+			}
+			valueCache.clear();
+		}
+	}
+
+	/**
+	 * Clears expired values; runs at most once per timeout period. Called with the valueCache lock held.
+	 */
+	private void sweepValueCache(long now) {
+		if (now < nextValueCacheSweep)
+			return;
+		nextValueCacheSweep = now + valueCacheTimeout;
+		for (Iterator i = valueCache.values().iterator(); i.hasNext();) {
+			Map nodeValues = (Map) i.next();
+			for (Iterator j = nodeValues.values().iterator(); j.hasNext();) {
+				CachedValue cached = (CachedValue) j.next();
+				if (cached.expires <= now) {
+					cached.clear();
+					j.remove();
+				}
+			}
+			if (nodeValues.isEmpty())
+				i.remove();
+		}
 	}
 
 	private long getLastModified() {
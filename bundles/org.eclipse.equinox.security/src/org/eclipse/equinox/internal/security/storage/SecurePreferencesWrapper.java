@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008 IBM Corporation and others.
+ * Copyright (c) 2008, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,7 @@
 package org.eclipse.equinox.internal.security.storage;
 
 import java.io.IOException;
+import java.util.Map;
 import org.eclipse.equinox.security.storage.ISecurePreferences;
 import org.eclipse.equinox.security.storage.StorageException;
 
@@ -106,6 +107,10 @@ public class SecurePreferencesWrapper implements ISecurePreferences {
 		return node.get(key, def, container);
 	}
 
+	public Map getAll(String[] keys) throws StorageException {
+		return node.getAll(keys, container);
+	}
+
 	public void put(String key, String value, boolean encrypt) throws StorageException {
 		node.put(key, value, encrypt, container);
 	}
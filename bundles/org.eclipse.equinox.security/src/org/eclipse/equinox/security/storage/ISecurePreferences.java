@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008 IBM Corporation and others.
+ * Copyright (c) 2008, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,7 @@
 package org.eclipse.equinox.security.storage;
 
 import java.io.IOException;
+import java.util.Map;
 
 /**
  * This interface describes functionality provided by secure preferences. Secure
@@ -92,6 +93,21 @@ public interface ISecurePreferences {
 	 */
 	public String get(String key, String def) throws StorageException;
 
+	/**
+	 * Retrieves values associated with the keys in this node. Encrypted values are 
+	 * decrypted; the password of each password provider module is obtained only 
+	 * once for the whole operation. This allows to load a set of related values,
+	 * such as credentials, at once.
+	 * @param keys keys with which the values are associated
+	 * @return map of keys to their values; keys not associated with any value 
+	 * are not included
+	 * @throws StorageException if exception occurred during decryption
+	 * @throws IllegalStateException if this node (or an ancestor) has been removed with 
+	 * the {@link #removeNode()} method.
+	 * @since 1.3
+	 */
+	public Map getAll(String[] keys) throws StorageException;
+
 	/**
 	 * Removes value associated with the key.
 	 * @param key key with which a value is associated
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2013 IBM Corporation and others.
+ * Copyright (c) 2008, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -42,22 +42,28 @@ public class TransformInstanceListData extends ServiceTracker<URL, URL> {
 	private List<TransformTuple> rawTuples = new ArrayList<TransformTuple>();
 
 	/**
-	 * Map from bundle ID -> boolean representing whether or not a given bundle currently has any transforms registered against it.
+	 * Map from bundle symbolic name -> the matcher of the transforms registered against the bundle.
 	 */
-	private Map<String, Boolean> bundleIdToTransformPresence = new HashMap<String, Boolean>();
+	private Map<String, TransformMatcher> bundleNameToMatcher = new HashMap<String, TransformMatcher>();
 	private final EquinoxLogServices logServices;
+	/**
+	 * The cache of transformed entries, cleared whenever the tracked services change.
+	 */
+	private final TransformedEntryCache entryCache;
 
 	/**
 	 * Create a new transform list bound to the given context. If new transforms are registered against the given context the contents of this list will change.
 	 * @param context the bundle context
 	 * @param logServices 
+	 * @param entryCache the cache of transformed entries to clear when the tracked services change
 	 * @throws InvalidSyntaxException thrown if there's an issue listening for changes to the given transformer type
 	 */
-	public TransformInstanceListData(BundleContext context, EquinoxLogServices logServices) throws InvalidSyntaxException {
+	public TransformInstanceListData(BundleContext context, EquinoxLogServices logServices, TransformedEntryCache entryCache) throws InvalidSyntaxException {
 		super(context, context.createFilter("(&(objectClass=" //$NON-NLS-1$
 				+ URL.class.getName() + ")(" + TransformTuple.TRANSFORMER_TYPE //$NON-NLS-1$
 				+ "=*))"), null); //$NON-NLS-1$
 		this.logServices = logServices;
+		this.entryCache = entryCache;
 		open();
 	}
 
@@ -91,25 +97,35 @@ public class TransformInstanceListData extends ServiceTracker<URL, URL> {
 	 * @return the presence of associated transforms.
 	 */
 	public synchronized boolean hasTransformsFor(Bundle bundle) {
+		return !getTransformMatcher(bundle).isEmpty();
+	}
+
+	/**
+	 * Return the matcher of the transforms who's bundle pattern matches the ID of the provided bundle. 
+	 * The matcher is built the first time it is requested for a bundle ID and reused until a change is detected.
+	 * @param bundle the bundle
+	 * @return the matcher of the associated transforms.  Never <code>null</code>.
+	 */
+	public synchronized TransformMatcher getTransformMatcher(Bundle bundle) {
 		if (stale)
 			rebuildTransformMap();
 
 		String bundleName = bundle.getSymbolicName();
-		Boolean hasTransformsFor = bundleIdToTransformPresence.get(bundleName);
-
-		if (hasTransformsFor == null) {
-			hasTransformsFor = Boolean.FALSE;
-			for (Iterator<TransformTuple> i = rawTuples.iterator(); i.hasNext();) {
-				TransformTuple tuple = i.next();
-				if (tuple.bundlePattern.matcher(bundleName).matches()) {
-					hasTransformsFor = Boolean.TRUE;
-				}
-			}
-
-			bundleIdToTransformPresence.put(bundleName, hasTransformsFor);
+		if (bundleName == null || rawTuples.isEmpty())
+			return TransformMatcher.EMPTY;
+		TransformMatcher matcher = bundleNameToMatcher.get(bundleName);
+
+		if (matcher == null) {
+			String[] types = transformerToTuple.keySet().toArray(new String[transformerToTuple.size()]);
+			TransformTuple[][] tuples = new TransformTuple[types.length][];
+			for (int i = 0; i < types.length; i++)
+				tuples[i] = transformerToTuple.get(types[i]);
+			matcher = TransformMatcher.create(bundleName, types, tuples);
+
+			bundleNameToMatcher.put(bundleName, matcher);
 		}
 
-		return hasTransformsFor.booleanValue();
+		return matcher;
 	}
 
 	/**
@@ -118,7 +134,7 @@ public class TransformInstanceListData extends ServiceTracker<URL, URL> {
 	private void rebuildTransformMap() {
 		transformerToTuple.clear();
 		rawTuples.clear();
-		bundleIdToTransformPresence.clear();
+		bundleNameToMatcher.clear();
 
 		ServiceReference<URL>[] serviceReferences = getServiceReferences();
 		stale = false;
@@ -157,16 +173,19 @@ public class TransformInstanceListData extends ServiceTracker<URL, URL> {
 			return super.addingService(reference);
 		} finally {
 			stale = true;
+			entryCache.clear();
 		}
 	}
 
 	public void modifiedService(ServiceReference<URL> reference, URL service) {
 		super.modifiedService(reference, service);
 		stale = true;
+		entryCache.clear();
 	}
 
 	public void removedService(ServiceReference<URL> reference, URL service) {
 		super.removedService(reference, service);
 		stale = true;
+		entryCache.clear();
 	}
 }
\ No newline at end of file
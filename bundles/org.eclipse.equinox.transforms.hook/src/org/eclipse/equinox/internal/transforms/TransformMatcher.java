@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.equinox.internal.transforms;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The transform tuples that apply to the bundles with a particular symbolic name, in the order they are consulted.
+ * Matchers are built once per bundle name and thrown away whenever the registered tuples change.
+ * Each path pattern is reduced to the literal prefix every matching path must start with so that the regular expression only runs for paths that have the prefix.
+ */
+public class TransformMatcher {
+
+	/**
+	 * Used for bundles without any applicable transform tuples.
+	 */
+	static final TransformMatcher EMPTY = new TransformMatcher(new String[0], new TransformTuple[0]);
+
+	private static final String META_CHARACTERS = "\\^$.|?*+()[]{}"; //$NON-NLS-1$
+
+	private final String[] types;
+	private final TransformTuple[] tuples;
+	private final String[] prefixes;
+
+	/**
+	 * Create a matcher for the given tuples.
+	 * @param types the transform type of each tuple
+	 * @param tuples the tuples whose bundle pattern matches the bundle name
+	 */
+	TransformMatcher(String[] types, TransformTuple[] tuples) {
+		this.types = types;
+		this.tuples = tuples;
+		this.prefixes = new String[tuples.length];
+		for (int i = 0; i < tuples.length; i++)
+			prefixes[i] = getLiteralPrefix(tuples[i].pathPattern.pattern());
+	}
+
+	/**
+	 * Create the matcher for the bundles with the given symbolic name.
+	 * @param bundleName the symbolic name of the bundle
+	 * @param types the transform types in the order they are consulted
+	 * @param tuplesByType the tuples of each of the given types
+	 * @return the matcher
+	 */
+	static TransformMatcher create(String bundleName, String[] types, TransformTuple[][] tuplesByType) {
+		List<String> matchingTypes = new ArrayList<String>();
+		List<TransformTuple> matchingTuples = new ArrayList<TransformTuple>();
+		for (int i = 0; i < types.length; i++) {
+			TransformTuple[] tuples = tuplesByType[i];
+			for (int j = 0; j < tuples.length; j++) {
+				if (tuples[j].bundlePattern.matcher(bundleName).matches()) {
+					matchingTypes.add(types[i]);
+					matchingTuples.add(tuples[j]);
+				}
+			}
+		}
+		if (matchingTuples.isEmpty())
+			return EMPTY;
+		return new TransformMatcher(matchingTypes.toArray(new String[matchingTypes.size()]), matchingTuples.toArray(new TransformTuple[matchingTuples.size()]));
+	}
+
+	/**
+	 * Return whether any transform tuple applies to the bundle.
+	 * @return whether any transform tuple applies to the bundle
+	 */
+	public boolean isEmpty() {
+		return tuples.length == 0;
+	}
+
+	/**
+	 * Return the index of the next tuple matching the given path, starting the search at the given index.
+	 * @param path the entry path
+	 * @param start the index of the first tuple to consider
+	 * @return the index of the matching tuple or -1 if there is none
+	 */
+	public int match(String path, int start) {
+		for (int i = start; i < tuples.length; i++) {
+			if (path.startsWith(prefixes[i]) && tuples[i].pathPattern.matcher(path).matches())
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Return the transform type of the tuple at the given index.
+	 * @param index the index of the tuple
+	 * @return the transform type
+	 */
+	public String getType(int index) {
+		return types[index];
+	}
+
+	/**
+	 * Return the tuple at the given index.
+	 * @param index the index of the tuple
+	 * @return the tuple
+	 */
+	public TransformTuple getTuple(int index) {
+		return tuples[index];
+	}
+
+	/**
+	 * Return the literal text every string matching the given regular expression starts with.
+	 * The prefix ends at the first meta character, a character followed by an optional quantifier is left out and expressions with an alternation have no prefix.
+	 * @param regex the regular expression
+	 * @return the literal prefix, possibly empty
+	 */
+	public static String getLiteralPrefix(String regex) {
+		if (regex.indexOf('|') >= 0)
+			return ""; //$NON-NLS-1$
+		int end = 0;
+		while (end < regex.length() && META_CHARACTERS.indexOf(regex.charAt(end)) < 0)
+			end++;
+		if (end > 0 && end < regex.length()) {
+			char next = regex.charAt(end);
+			if (next == '?' || next == '*' || next == '{')
+				end--;
+		}
+		return regex.substring(0, end);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008 IBM Corporation and others.
+ * Copyright (c) 2008, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,7 @@ package org.eclipse.equinox.internal.transforms;
 
 import java.net.URL;
 import java.util.regex.Pattern;
+import org.eclipse.equinox.internal.transforms.util.URLTimestamp;
 
 /**
  * Class that represents an association between a bundle pattern, a path pattern, and the location of a transformer to apply to any resource that matches both the bundle and path pattern.
@@ -26,4 +27,26 @@ public class TransformTuple {
 	public Pattern bundlePattern;
 	public Pattern pathPattern;
 	public URL transformerUrl;
+
+	/**
+	 * The minimum time in milliseconds between two checks of the modification time of the resource at the transformer URL.
+	 */
+	private static final long CHECK_INTERVAL = 1000;
+	private volatile long transformerLastModified;
+	private volatile long nextCheck;
+
+	/**
+	 * Return the last modification time of the resource at the transformer URL.
+	 * The resource is checked at most once per second so that reading many entries with the same transformer stays cheap.
+	 * Only file URLs are checked, changes of transformers at other URLs are not detected.
+	 * @return the last modification time or 0 if it is unknown
+	 */
+	public long getTransformerLastModified() {
+		long now = System.currentTimeMillis();
+		if (now >= nextCheck) {
+			transformerLastModified = URLTimestamp.getLastModified(transformerUrl);
+			nextCheck = now + CHECK_INTERVAL;
+		}
+		return transformerLastModified;
+	}
 }
\ No newline at end of file
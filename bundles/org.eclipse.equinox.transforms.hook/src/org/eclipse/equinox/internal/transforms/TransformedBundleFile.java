@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2013 IBM Corporation and others.
+ * Copyright (c) 2006, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,9 +13,8 @@ package org.eclipse.equinox.internal.transforms;
 
 import java.io.*;
 import java.util.Enumeration;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import org.eclipse.equinox.internal.transforms.LazyInputStream.InputStreamProvider;
+import org.eclipse.equinox.internal.transforms.TransformedEntryCache.Key;
 import org.eclipse.osgi.framework.log.FrameworkLogEntry;
 import org.eclipse.osgi.internal.debug.Debug;
 import org.eclipse.osgi.internal.framework.EquinoxContainer;
@@ -64,13 +63,7 @@ public class TransformedBundleFile extends BundleFileWrapper {
 		if (generation.getRevision() == null || path == null || original == null)
 			return original;
 
-		LazyInputStream stream = new LazyInputStream(new InputStreamProvider() {
-
-			public InputStream getInputStream() throws IOException {
-				return original.getInputStream();
-			}
-		});
-		InputStream wrappedStream = getInputStream(stream, generation.getRevision().getBundle(), path);
+		InputStream wrappedStream = getInputStream(original, generation.getRevision().getBundle(), path);
 		if (wrappedStream == null)
 			return original;
 		return new TransformedBundleEntry(this, original, wrappedStream);
@@ -87,47 +80,58 @@ public class TransformedBundleFile extends BundleFileWrapper {
 	 * @return the transformed stream
 	 */
 	protected InputStream getInputStream(InputStream inputStream, Bundle bundle, String path) {
-		String namespace = bundle.getSymbolicName();
+		return getInputStream(inputStream, null, bundle, path);
+	}
 
-		String[] transformTypes = transformerHook.getTransformTypes();
-		if (transformTypes.length == 0)
-			return null;
-		for (int i = 0; i < transformTypes.length; i++) {
-			StreamTransformer transformer = transformerHook.getTransformer(transformTypes[i]);
+	/**
+	 * Return the transformed content of the given entry. 
+	 * The content is served from the entry cache of the transformer hook if it has been transformed before.
+	 * 
+	 * @param original
+	 *            the entry to transform
+	 * @param bundle
+	 *            the bundle the entry belongs to
+	 * @return the transformed stream
+	 */
+	private InputStream getInputStream(final BundleEntry original, Bundle bundle, String path) {
+		LazyInputStream stream = new LazyInputStream(new InputStreamProvider() {
+
+			public InputStream getInputStream() throws IOException {
+				return original.getInputStream();
+			}
+		});
+		return getInputStream(stream, original, bundle, path);
+	}
+
+	private InputStream getInputStream(InputStream inputStream, BundleEntry original, Bundle bundle, String path) {
+		TransformMatcher matcher = transformerHook.getTransformMatcher(bundle);
+		for (int i = matcher.match(path, 0); i >= 0; i = matcher.match(path, i + 1)) {
+			StreamTransformer transformer = transformerHook.getTransformer(matcher.getType(i));
 			if (transformer == null)
 				continue;
-			TransformTuple[] transformTuples = transformerHook.getTransformsFor(transformTypes[i]);
-			if (transformTuples == null)
-				continue;
-			for (int j = 0; j < transformTuples.length; j++) {
-				TransformTuple transformTuple = transformTuples[j];
-				if (match(transformTuple.bundlePattern, namespace) && match(transformTuple.pathPattern, path)) {
-					try {
-						return transformer.getInputStream(inputStream, transformTuple.transformerUrl);
-					} catch (IOException e) {
-						generation.getBundleInfo().getStorage().getLogServices().log(EquinoxContainer.NAME, FrameworkLogEntry.ERROR, "Problem obtaining transformed stream from transformer : " //$NON-NLS-1$
-								+ transformer.getClass().getName(), e);
+			TransformTuple transformTuple = matcher.getTuple(i);
+			Key key = null;
+			if (original != null) {
+				key = new Key(generation.getBundleInfo().getBundleId(), generation.getGenerationId(), path, original.getTime(), transformer, transformTuple.transformerUrl.toExternalForm(), transformTuple.getTransformerLastModified());
+				byte[] cached = transformerHook.getEntryCache().get(key);
+				if (cached != null)
+					return new ByteArrayInputStream(cached);
+			}
+			try {
+				InputStream transformed = transformer.getInputStream(inputStream, transformTuple.transformerUrl);
+				if (key == null || transformed == null)
+					return transformed;
+				return new CachingInputStream(transformed, key);
+			} catch (IOException e) {
+				generation.getBundleInfo().getStorage().getLogServices().log(EquinoxContainer.NAME, FrameworkLogEntry.ERROR, "Problem obtaining transformed stream from transformer : " //$NON-NLS-1$
+						+ transformer.getClass().getName(), e);
 
-					}
-				}
 			}
 		}
 
 		return null;
 	}
 
-	/**
-	 * Return whether the given string matches the given pattern.
-	 * 
-	 * @param pattern
-	 * @param string
-	 * @return whether the given string matches the given pattern
-	 */
-	private boolean match(Pattern pattern, String string) {
-		Matcher matcher = pattern.matcher(string);
-		return matcher.matches();
-	}
-
 	/**
 	 * This file is a copy of {@link ZipBundleFile#getFile(String, boolean)}
 	 * with modifications.
@@ -242,4 +246,58 @@ public class TransformedBundleFile extends BundleFileWrapper {
 	public String toString() {
 		return delegate.toString();
 	}
+
+	/**
+	 * A transformed stream that hands its content to the entry cache once it has been read completely.
+	 */
+	private class CachingInputStream extends FilterInputStream {
+		private final Key key;
+		private ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+		CachingInputStream(InputStream transformed, Key key) {
+			super(transformed);
+			this.key = key;
+		}
+
+		public int read() throws IOException {
+			int result = super.read();
+			if (result < 0)
+				cacheContent();
+			else if (content != null) {
+				content.write(result);
+				if (content.size() > TransformedEntryCache.MAX_ENTRY_SIZE)
+					content = null;
+			}
+			return result;
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException {
+			int result = super.read(b, off, len);
+			if (result < 0)
+				cacheContent();
+			else if (content != null) {
+				content.write(b, off, result);
+				if (content.size() > TransformedEntryCache.MAX_ENTRY_SIZE)
+					content = null;
+			}
+			return result;
+		}
+
+		public long skip(long n) throws IOException {
+			// skipped content is not seen, so it can not be cached
+			content = null;
+			return super.skip(n);
+		}
+
+		public boolean markSupported() {
+			return false;
+		}
+
+		private void cacheContent() {
+			if (content == null)
+				return;
+			transformerHook.getEntryCache().put(key, content.toByteArray(), generation.getExtractFile(".tfcache")); //$NON-NLS-1$
+			content = null;
+		}
+	}
 }
@@ -0,0 +1,289 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.equinox.internal.transforms;
+
+import java.io.*;
+import java.util.*;
+import java.util.Map.Entry;
+
+/**
+ * A bounded cache of the transformed content of bundle entries, shared by all transformed bundle files.
+ * Recently used content is held in memory.  Content pushed out of memory is spilled to the data area of the bundle it belongs to and read back from there until the spill limit is reached as well.
+ * Spilled content is only trusted within the framework run that wrote it since the transformer identity it is keyed by does not survive a restart.
+ * The cache is cleared whenever the registered transformers or transforms change so that it never holds on to a transformer that went away.
+ */
+public class TransformedEntryCache {
+
+	/**
+	 * The default maximum number of bytes held in memory.
+	 */
+	private static final long MAX_MEMORY_SIZE = 4 * 1024 * 1024;
+	/**
+	 * The default maximum number of bytes spilled to disk.
+	 */
+	private static final long MAX_SPILLED_SIZE = 64 * 1024 * 1024;
+	/**
+	 * Content larger than this is not cached.
+	 */
+	public static final int MAX_ENTRY_SIZE = 1024 * 1024;
+
+	private final long maxMemorySize;
+	private final long maxSpilledSize;
+
+	private final LinkedHashMap<Key, byte[]> memory = new LinkedHashMap<Key, byte[]>(16, 0.75f, true);
+	private final LinkedHashMap<Key, SpilledEntry> spilled = new LinkedHashMap<Key, SpilledEntry>(16, 0.75f, true);
+	/**
+	 * The directory each evicted entry is spilled to.
+	 */
+	private final Map<Key, File> spillDirectories = new HashMap<Key, File>();
+	/**
+	 * The spill directories left over from previous runs have been emptied.
+	 */
+	private final Set<File> clearedDirectories = new HashSet<File>();
+	private long memorySize;
+	private long spilledSize;
+	private long nextSpillId;
+
+	/**
+	 * Create a cache with the default limits.
+	 */
+	public TransformedEntryCache() {
+		this(MAX_MEMORY_SIZE, MAX_SPILLED_SIZE);
+	}
+
+	/**
+	 * Create a cache with the given limits.
+	 * @param maxMemorySize the maximum number of bytes held in memory
+	 * @param maxSpilledSize the maximum number of bytes spilled to disk
+	 */
+	public TransformedEntryCache(long maxMemorySize, long maxSpilledSize) {
+		this.maxMemorySize = maxMemorySize;
+		this.maxSpilledSize = maxSpilledSize;
+	}
+
+	/**
+	 * Return the cached content for the given key.
+	 * @param key the key
+	 * @return the content or <code>null</code> if it is not cached
+	 */
+	public byte[] get(Key key) {
+		SpilledEntry spilledEntry;
+		synchronized (this) {
+			byte[] content = memory.get(key);
+			if (content != null)
+				return content;
+			spilledEntry = spilled.get(key);
+			if (spilledEntry == null)
+				return null;
+		}
+		try {
+			return readFile(spilledEntry.file, spilledEntry.size);
+		} catch (IOException e) {
+			synchronized (this) {
+				if (spilled.get(key) == spilledEntry) {
+					spilled.remove(key);
+					spilledSize -= spilledEntry.size;
+				}
+			}
+			spilledEntry.file.delete();
+			return null;
+		}
+	}
+
+	/**
+	 * Cache the given content.
+	 * @param key the key
+	 * @param content the transformed content
+	 * @param spillDirectory the directory to spill the content to once it is pushed out of memory
+	 */
+	public void put(Key key, byte[] content, File spillDirectory) {
+		if (content.length > MAX_ENTRY_SIZE)
+			return;
+		Map<Key, byte[]> evicted = new LinkedHashMap<Key, byte[]>();
+		Map<Key, File> targets = new HashMap<Key, File>();
+		synchronized (this) {
+			byte[] previous = memory.put(key, content);
+			if (previous != null)
+				memorySize -= previous.length;
+			memorySize += content.length;
+			spillDirectories.put(key, spillDirectory);
+			for (Iterator<Entry<Key, byte[]>> i = memory.entrySet().iterator(); memorySize > maxMemorySize && i.hasNext();) {
+				Entry<Key, byte[]> entry = i.next();
+				i.remove();
+				memorySize -= entry.getValue().length;
+				File directory = spillDirectories.remove(entry.getKey());
+				if (!spilled.containsKey(entry.getKey())) {
+					evicted.put(entry.getKey(), entry.getValue());
+					targets.put(entry.getKey(), new File(directory, Long.toString(nextSpillId++)));
+				}
+			}
+		}
+		for (Entry<Key, byte[]> entry : evicted.entrySet())
+			spill(entry.getKey(), entry.getValue(), targets.get(entry.getKey()));
+	}
+
+	/**
+	 * Drop all cached content and delete the spilled files.
+	 */
+	public void clear() {
+		List<File> files;
+		synchronized (this) {
+			files = new ArrayList<File>(spilled.size());
+			for (SpilledEntry spilledEntry : spilled.values())
+				files.add(spilledEntry.file);
+			memory.clear();
+			spilled.clear();
+			spillDirectories.clear();
+			memorySize = 0;
+			spilledSize = 0;
+		}
+		for (File file : files)
+			file.delete();
+	}
+
+	/**
+	 * Return the number of bytes currently held in memory.
+	 * @return the number of bytes held in memory
+	 */
+	public synchronized long getMemorySize() {
+		return memorySize;
+	}
+
+	/**
+	 * Return the number of bytes currently spilled to disk.
+	 * @return the number of bytes spilled to disk
+	 */
+	public synchronized long getSpilledSize() {
+		return spilledSize;
+	}
+
+	private void spill(Key key, byte[] content, File file) {
+		try {
+			File directory = file.getParentFile();
+			synchronized (this) {
+				if (clearedDirectories.add(directory))
+					deleteFiles(directory);
+			}
+			if (!directory.exists() && !directory.mkdirs())
+				return;
+			writeFile(file, content);
+		} catch (IOException e) {
+			file.delete();
+			return;
+		}
+		List<File> deleted = new ArrayList<File>();
+		synchronized (this) {
+			SpilledEntry previous = spilled.put(key, new SpilledEntry(file, content.length));
+			if (previous != null) {
+				spilledSize -= previous.size;
+				deleted.add(previous.file);
+			}
+			spilledSize += content.length;
+			for (Iterator<SpilledEntry> i = spilled.values().iterator(); spilledSize > maxSpilledSize && i.hasNext();) {
+				SpilledEntry spilledEntry = i.next();
+				i.remove();
+				spilledSize -= spilledEntry.size;
+				deleted.add(spilledEntry.file);
+			}
+		}
+		for (File old : deleted)
+			old.delete();
+	}
+
+	private static void deleteFiles(File directory) {
+		File[] files = directory.listFiles();
+		if (files == null)
+			return;
+		for (int i = 0; i < files.length; i++)
+			files[i].delete();
+	}
+
+	private static byte[] readFile(File file, int size) throws IOException {
+		DataInputStream in = new DataInputStream(new FileInputStream(file));
+		try {
+			byte[] content = new byte[size];
+			in.readFully(content);
+			return content;
+		} finally {
+			in.close();
+		}
+	}
+
+	private static void writeFile(File file, byte[] content) throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content);
+		} finally {
+			out.close();
+		}
+	}
+
+	private static class SpilledEntry {
+		final File file;
+		final int size;
+
+		SpilledEntry(File file, int size) {
+			this.file = file;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * Identifies the transformed content of an entry: the bundle generation, the entry path, the last modification time of the original entry, the transformer applied to it and the last modification time of the transformer resource.
+	 */
+	public static class Key {
+		private final long bundleId;
+		private final long generationId;
+		private final String path;
+		private final long lastModified;
+		private final StreamTransformer transformer;
+		private final String transformerUrl;
+		private final long transformerLastModified;
+
+		/**
+		 * Create a key.
+		 * @param bundleId the ID of the bundle
+		 * @param generationId the ID of the bundle generation
+		 * @param path the entry path
+		 * @param lastModified the last modification time of the original entry
+		 * @param transformer the transformer applied to the entry
+		 * @param transformerUrl the url passed to the transformer
+		 * @param transformerLastModified the last modification time of the resource at the transformer url
+		 */
+		public Key(long bundleId, long generationId, String path, long lastModified, StreamTransformer transformer, String transformerUrl, long transformerLastModified) {
+			this.bundleId = bundleId;
+			this.generationId = generationId;
+			this.path = path;
+			this.lastModified = lastModified;
+			this.transformer = transformer;
+			this.transformerUrl = transformerUrl;
+			this.transformerLastModified = transformerLastModified;
+		}
+
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return bundleId == other.bundleId && generationId == other.generationId && lastModified == other.lastModified && transformerLastModified == other.transformerLastModified && transformer == other.transformer && path.equals(other.path) && transformerUrl.equals(other.transformerUrl);
+		}
+
+		public int hashCode() {
+			int result = (int) (bundleId ^ (bundleId >>> 32));
+			result = 31 * result + (int) (generationId ^ (generationId >>> 32));
+			result = 31 * result + path.hashCode();
+			result = 31 * result + (int) (lastModified ^ (lastModified >>> 32));
+			result = 31 * result + System.identityHashCode(transformer);
+			result = 31 * result + transformerUrl.hashCode();
+			return 31 * result + (int) (transformerLastModified ^ (transformerLastModified >>> 32));
+		}
+	}
+}
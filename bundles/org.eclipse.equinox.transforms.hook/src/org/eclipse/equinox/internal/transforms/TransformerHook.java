@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2013 IBM Corporation and others.
+ * Copyright (c) 2008, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -26,6 +26,7 @@ import org.osgi.framework.*;
 public class TransformerHook implements BundleFileWrapperFactoryHook, HookConfigurator, ActivatorHookFactory, BundleActivator {
 	private volatile TransformerList transformers;
 	private volatile TransformInstanceListData templates;
+	private final TransformedEntryCache entryCache = new TransformedEntryCache();
 	private EquinoxLogServices logServices;
 
 	/**
@@ -45,12 +46,12 @@ public class TransformerHook implements BundleFileWrapperFactoryHook, HookConfig
 
 	public void start(BundleContext context) throws BundleException {
 		try {
-			this.transformers = new TransformerList(context, logServices);
+			this.transformers = new TransformerList(context, logServices, entryCache);
 		} catch (InvalidSyntaxException e) {
 			throw new BundleException("Problem registering service tracker: transformers", e); //$NON-NLS-1$
 		}
 		try {
-			this.templates = new TransformInstanceListData(context, logServices);
+			this.templates = new TransformInstanceListData(context, logServices, entryCache);
 		} catch (InvalidSyntaxException e) {
 			transformers.close();
 			transformers = null;
@@ -62,6 +63,7 @@ public class TransformerHook implements BundleFileWrapperFactoryHook, HookConfig
 	public void stop(BundleContext context) {
 		transformers.close();
 		templates.close();
+		entryCache.clear();
 	}
 
 	void log(int severity, String msg, Throwable t) {
@@ -101,4 +103,13 @@ public class TransformerHook implements BundleFileWrapperFactoryHook, HookConfig
 		TransformInstanceListData current = templates;
 		return current == null ? false : current.hasTransformsFor(bundle);
 	}
+
+	public TransformMatcher getTransformMatcher(Bundle bundle) {
+		TransformInstanceListData current = templates;
+		return current == null ? TransformMatcher.EMPTY : current.getTransformMatcher(bundle);
+	}
+
+	TransformedEntryCache getEntryCache() {
+		return entryCache;
+	}
 }
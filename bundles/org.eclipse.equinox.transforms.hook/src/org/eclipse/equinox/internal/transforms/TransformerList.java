@@ -33,17 +33,23 @@ public class TransformerList extends ServiceTracker<Object, Object> {
 	 */
 	private HashMap<String, StreamTransformer> transformers = new HashMap<String, StreamTransformer>();
 	private final EquinoxLogServices logServices;
+	/**
+	 * The cache of transformed entries, cleared whenever the tracked services change.
+	 */
+	private final TransformedEntryCache entryCache;
 
 	/**
 	 * Create a new instance of this list.
 	 * @param context the context to track
+	 * @param entryCache the cache of transformed entries to clear when the tracked services change
 	 * @throws InvalidSyntaxException thrown if there's an issue listening for changes to the given transformer type
 	 */
-	public TransformerList(BundleContext context, EquinoxLogServices logServices) throws InvalidSyntaxException {
+	public TransformerList(BundleContext context, EquinoxLogServices logServices, TransformedEntryCache entryCache) throws InvalidSyntaxException {
 		super(context, context.createFilter("(&(objectClass=" //$NON-NLS-1$
 				+ Object.class.getName() + ")(" + TransformTuple.TRANSFORMER_TYPE //$NON-NLS-1$
 				+ "=*))"), null); //$NON-NLS-1$
 		this.logServices = logServices;
+		this.entryCache = entryCache;
 		open();
 	}
 
@@ -104,16 +110,19 @@ public class TransformerList extends ServiceTracker<Object, Object> {
 			return super.addingService(reference);
 		} finally {
 			stale = true;
+			entryCache.clear();
 		}
 	}
 
 	public void modifiedService(ServiceReference<Object> reference, Object service) {
 		super.modifiedService(reference, service);
 		stale = true;
+		entryCache.clear();
 	}
 
 	public void removedService(ServiceReference<Object> reference, Object service) {
 		super.removedService(reference, service);
 		stale = true;
+		entryCache.clear();
 	}
 }
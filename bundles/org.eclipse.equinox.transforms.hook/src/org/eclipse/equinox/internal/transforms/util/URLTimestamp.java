@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.equinox.internal.transforms.util;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+/**
+ * Reads the modification time of transformer resources. 
+ * Shared by the transformer hook and the transformer implementations so that changes of a transformer are detected the same way everywhere.
+ */
+public class URLTimestamp {
+
+	private URLTimestamp() {
+		// static helper
+	}
+
+	/**
+	 * Return the last modification time of the resource at the given URL.
+	 * Only file URLs are checked. Opening a connection to find the time of other URLs can be as expensive as reading the resource, 
+	 * or block on the network, so changes of resources at other URLs are not detected.
+	 * @param url the URL
+	 * @return the last modification time or 0 if it is unknown
+	 */
+	public static long getLastModified(URL url) {
+		if (!"file".equals(url.getProtocol())) //$NON-NLS-1$
+			return 0;
+		try {
+			return new File(url.toURI()).lastModified();
+		} catch (URISyntaxException e) {
+			return new File(url.getPath()).lastModified();
+		} catch (IllegalArgumentException e) {
+			return new File(url.getPath()).lastModified();
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2008 IBM Corporation and others.
+ * Copyright (c) 2006, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -20,8 +20,7 @@ import java.io.*;
 public class Pipe {
 
 	protected InputStream input;
-	private PipedInputStream pipedInputStream;
-	protected PipedOutputStream pipedOutputStream;
+	private InputStream pipedInputStream;
 
 	/**
 	 * Create a new Pipe based on the provided input stream.
@@ -31,73 +30,67 @@ public class Pipe {
 	public Pipe(InputStream original) throws IOException {
 		this.input = original;
 
-		// The following streams do the majority of the work.  
-		// The first operation on the input stream will provoke a new thread to start.
-		// This thread will invoke pipeInput and push the data from the original input stream to the output stream.
-		// The output stream is tied to this input stream via PipedI/OStream properties so the data is available to callers on the input stream.
-		// Any IOException thrown from within the thread will be caught and rethrown to callers of methods on this stream.
-		this.pipedInputStream = new PipedInputStream() {
-			protected IOException failure;
-			private boolean started = false;
-			protected Object lock = this;
-
-			private void start() throws IOException {
-				synchronized (lock) {
-					if (failure != null) {
-						IOException e = new IOException("Problem piping the stream."); //$NON-NLS-1$
-						e.fillInStackTrace();
-						e.initCause(failure);
-						throw e;
-					}
-					if (!started) {
-						started = true;
-						Thread pipeThread = new Thread(new Runnable() {
-							public void run() {
-								try {
-									pipeInput(input, pipedOutputStream);
-									pipedOutputStream.close();
-								} catch (IOException e) {
-									synchronized (lock) {
-										failure = e;
-									}
-								}
-							}
-						});
-						pipeThread.start();
+		// The first operation on this input stream invokes pipeInput in the calling thread.
+		// The data pushed from the original input stream to the output stream is collected in memory and served to callers from there.
+		// Any IOException thrown from pipeInput is rethrown to callers of methods on this stream.
+		this.pipedInputStream = new InputStream() {
+			private IOException failure;
+			private InputStream result;
+
+			private synchronized InputStream start() throws IOException {
+				if (failure != null) {
+					IOException e = new IOException("Problem piping the stream."); //$NON-NLS-1$
+					e.fillInStackTrace();
+					e.initCause(failure);
+					throw e;
+				}
+				if (result == null) {
+					Buffer buffer = new Buffer();
+					try {
+						pipeInput(input, buffer);
+					} catch (IOException e) {
+						failure = e;
+						return start();
+					} finally {
+						input.close();
 					}
+					result = buffer.getInputStream();
 				}
+				return result;
+			}
+
+			public int available() throws IOException {
+				return start().available();
+			}
+
+			public int read() throws IOException {
+				return start().read();
 			}
 
-			public synchronized int available() throws IOException {
-				start();
-				return super.available();
+			public int read(byte[] b, int off, int len) throws IOException {
+				return start().read(b, off, len);
 			}
 
-			public synchronized int read() throws IOException {
-				start();
-				int c = super.read();
-				return c;
+			public long skip(long n) throws IOException {
+				return start().skip(n);
 			}
 
-			public int read(byte[] b) throws IOException {
-				start();
-				return super.read(b);
+			public boolean markSupported() {
+				return true;
 			}
 
-			public synchronized int read(byte[] b, int off, int len) throws IOException {
-				start();
-				return super.read(b, off, len);
+			public synchronized void mark(int readlimit) {
+				try {
+					start().mark(readlimit);
+				} catch (IOException e) {
+					// the failure is reported by the next read
+				}
 			}
 
 			public synchronized void reset() throws IOException {
-				started = false;
-				failure = null;
-				input.reset();
-				super.reset();
+				start().reset();
 			}
 		};
-		this.pipedOutputStream = new PipedOutputStream(pipedInputStream);
-
 	}
 
 	/**
@@ -119,8 +112,21 @@ public class Pipe {
 	protected void pipeInput(InputStream original, OutputStream result) throws IOException {
 		byte[] buffer = new byte[2048];
 		int len = 0;
-		while ((len = original.read(buffer)) != 0) {
+		while ((len = original.read(buffer)) != -1) {
 			result.write(buffer, 0, len);
 		}
 	}
+
+	/**
+	 * A growable buffer whose content is read back without copying it.
+	 */
+	private static class Buffer extends ByteArrayOutputStream {
+		Buffer() {
+			super(2048);
+		}
+
+		InputStream getInputStream() {
+			return new ByteArrayInputStream(buf, 0, count);
+		}
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2008 IBM Corporation and others.
+ * Copyright (c) 2006, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,12 +14,12 @@ package org.eclipse.equinox.internal.transforms.xslt;
 import java.io.*;
 import java.lang.ref.SoftReference;
 import java.net.URL;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 import javax.xml.transform.*;
 import javax.xml.transform.sax.SAXSource;
 import javax.xml.transform.stream.StreamResult;
 import org.eclipse.equinox.internal.transforms.Pipe;
+import org.eclipse.equinox.internal.transforms.util.URLTimestamp;
 import org.eclipse.osgi.framework.log.FrameworkLog;
 import org.eclipse.osgi.framework.log.FrameworkLogEntry;
 import org.osgi.framework.FrameworkEvent;
@@ -35,18 +35,21 @@ public class XSLTStreamTransformer {
 
 	/**
 	 * Subclass of Pipe that is able to apply XSLT Transformers to the original input stream.  
+	 * The transform runs in the thread that first reads the piped stream, using a transformer of that thread.
 	 * All handling of XML is done with validation and entity resolution disabled to improve performance and prevent undesired network access.
 	 */
 	class XSLTPipe extends Pipe {
-		private Transformer transformer;
+		private Templates template;
 
-		public XSLTPipe(InputStream original, Transformer transformer) throws IOException {
+		public XSLTPipe(InputStream original, Templates template) throws IOException {
 			super(original);
-			this.transformer = transformer;
+			this.template = template;
 		}
 
 		protected void pipeInput(InputStream original, OutputStream result) throws IOException {
+			Transformer transformer = null;
 			try {
+				transformer = acquireTransformer(template);
 				InputSource streamSource = new InputSource(original);
 				XMLReader reader = XMLReaderFactory.createXMLReader();
 				if (resolver != null)
@@ -57,6 +60,7 @@ public class XSLTStreamTransformer {
 
 				SAXSource saxSource = new SAXSource(reader, streamSource);
 				transformer.transform(saxSource, new StreamResult(result));
+				releaseTransformer(template, transformer);
 			} catch (TransformerException e) {
 				log(FrameworkEvent.ERROR, "Could not perform transform.", e); //$NON-NLS-1$
 				throw new IOException(e.getMessage());
@@ -67,6 +71,29 @@ public class XSLTStreamTransformer {
 		}
 	}
 
+	/**
+	 * A compiled XSLT transformation along with the last modification time of its source.
+	 */
+	private static class TemplateEntry {
+		final long lastModified;
+		final SoftReference templatesRef;
+		/**
+		 * The time after which the modification time of the source has to be checked again.
+		 */
+		volatile long nextCheck;
+
+		TemplateEntry(long lastModified, Templates templates, long nextCheck) {
+			this.lastModified = lastModified;
+			this.templatesRef = new SoftReference(templates);
+			this.nextCheck = nextCheck;
+		}
+	}
+
+	/**
+	 * The minimum time in milliseconds between two checks of the modification time of a template source.
+	 */
+	private static final long CHECK_INTERVAL = 1000;
+
 	/**
 	 * The dummy entity resolver which returns empty content for all external entity requests.
 	 */
@@ -83,12 +110,23 @@ public class XSLTStreamTransformer {
 	private ServiceTracker logTracker;
 
 	/**
-	 * A map containing compiled XSLT transformations.  
+	 * A map containing compiled XSLT transformations keyed by the external form of their URL.  
 	 * These transforms are held by soft references so that we don't bloat memory for this purpose.  
 	 * After startup these transforms are of little use.
+	 * The map is only locked to look up and store entries, templates are compiled outside of the lock.
 	 */
 	private static final Map templateMap = new HashMap();
 
+	/**
+	 * The transformers of the current thread that are not in use, keyed by their templates. 
+	 * A transformer is not thread safe but may be reused for subsequent transformations by the same thread.
+	 */
+	private static final ThreadLocal idleTransformers = new ThreadLocal() {
+		protected Object initialValue() {
+			return new WeakHashMap();
+		}
+	};
+
 	/**
 	 * Create a new instance of this transformer.
 	 * 
@@ -111,8 +149,10 @@ public class XSLTStreamTransformer {
 
 			Transformer transformer = null;
 			try {
-				transformer = template.newTransformer();
-				XSLTPipe pipe = new XSLTPipe(inputStream, transformer);
+				// fail now rather than when the stream is read if the template cannot produce a transformer 
+				transformer = acquireTransformer(template);
+				releaseTransformer(template, transformer);
+				XSLTPipe pipe = new XSLTPipe(inputStream, template);
 				return pipe.getPipedInputStream();
 			} catch (TransformerConfigurationException e) {
 				log(FrameworkEvent.ERROR, "Could not perform transform.", e); //$NON-NLS-1$
@@ -122,22 +162,65 @@ public class XSLTStreamTransformer {
 		return null;
 	}
 
+	/**
+	 * Take an idle transformer of the current thread for the given template or create a new one.
+	 * A reused transformer is reset to the state it had when it was created.
+	 * The transformer is not available to other transformations of the thread until it is released.
+	 * @param template the template
+	 * @return the transformer
+	 * @throws TransformerConfigurationException thrown if a new transformer cannot be created
+	 */
+	Transformer acquireTransformer(Templates template) throws TransformerConfigurationException {
+		Map transformers = (Map) idleTransformers.get();
+		SoftReference transformerRef = (SoftReference) transformers.remove(template);
+		Transformer transformer = transformerRef == null ? null : (Transformer) transformerRef.get();
+		if (transformer == null)
+			return template.newTransformer();
+		transformer.reset();
+		return transformer;
+	}
+
+	/**
+	 * Make the given transformer available to the next transformation of the current thread with the given template.
+	 * @param template the template
+	 * @param transformer the transformer that is no longer used
+	 */
+	void releaseTransformer(Templates template, Transformer transformer) {
+		Map transformers = (Map) idleTransformers.get();
+		// the transformer refers to its template, so it must not be strongly held by the weak map
+		transformers.put(template, new SoftReference(transformer));
+	}
+
 	/**
 	 * Get a cached template for the provided XSLT template URL.  
-	 * If the cached entry for this URL does not exist it will be created.
+	 * If the cached entry for this URL does not exist or the template has been modified since it was compiled it will be created.
+	 * The modification time of the template is checked at most once per second, and only for file URLs.
 	 * @param transformerURL the XSLT template URL.
 	 * @return the template
 	 */
-	private synchronized Templates getTemplate(URL transformerURL) {
+	private Templates getTemplate(URL transformerURL) {
 		Templates templates = null;
+		String key = transformerURL.toExternalForm();
+		long now = System.currentTimeMillis();
 
-		SoftReference templatesRef = (SoftReference) templateMap.get(transformerURL);
-		if (templatesRef != null) {
-			templates = (Templates) templatesRef.get();
+		TemplateEntry entry;
+		synchronized (templateMap) {
+			entry = (TemplateEntry) templateMap.get(key);
+		}
+		if (entry != null && now < entry.nextCheck) {
+			templates = (Templates) entry.templatesRef.get();
+			if (templates != null)
+				return templates;
 		}
 
-		if (templates != null)
-			return templates;
+		long lastModified = URLTimestamp.getLastModified(transformerURL);
+		if (entry != null && entry.lastModified == lastModified) {
+			templates = (Templates) entry.templatesRef.get();
+			if (templates != null) {
+				entry.nextCheck = now + CHECK_INTERVAL;
+				return templates;
+			}
+		}
 
 		try {
 			InputStream xsltStream = transformerURL.openStream();
@@ -155,8 +238,10 @@ public class XSLTStreamTransformer {
 				SAXSource xsltSource = new SAXSource(reader, inputSource);
 
 				try {
-					templatesRef = new SoftReference(templates = tFactory.newTemplates(xsltSource));
-					templateMap.put(transformerURL, templatesRef);
+					templates = tFactory.newTemplates(xsltSource);
+					synchronized (templateMap) {
+						templateMap.put(key, new TemplateEntry(lastModified, templates, now + CHECK_INTERVAL));
+					}
 				} catch (Exception e) {
 					// can't create the template. May be an IO
 					// exception from the source or perhaps a badly
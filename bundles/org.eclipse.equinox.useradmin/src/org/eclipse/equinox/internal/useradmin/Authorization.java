@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2001, 2008 IBM Corporation and others.
+ * Copyright (c) 2001, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -106,7 +106,7 @@ public class Authorization implements org.osgi.service.useradmin.Authorization {
 			if (checkRole == null) {
 				return (false);
 			}
-			return (checkRole.isImpliedBy(user, new Vector()));
+			return (useradmin.isImplied(checkRole, user));
 		}
 	}
 
@@ -127,7 +127,7 @@ public class Authorization implements org.osgi.service.useradmin.Authorization {
 			Vector result = new Vector(length);
 			for (int i = 0; i < length; i++) {
 				Role role = (Role) useradmin.roles.elementAt(i);
-				if (role.isImpliedBy(user, new Vector())) {
+				if (useradmin.isImplied(role, user)) {
 					String roleName = role.getName();
 					//exclude user.anyone from the list
 					if (!roleName.equals(Role.anyoneString)) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2001, 2008 IBM Corporation and others.
+ * Copyright (c) 2001, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -134,6 +134,7 @@ public class Group extends User implements org.osgi.service.useradmin.Group {
 			}
 		}
 		basicMembers.addElement(role);
+		useradmin.membershipChanged();
 		return (true);
 	}
 
@@ -173,6 +174,7 @@ public class Group extends User implements org.osgi.service.useradmin.Group {
 			}
 		}
 		requiredMembers.addElement(role);
+		useradmin.membershipChanged();
 		return (true);
 	}
 
@@ -208,6 +210,7 @@ public class Group extends User implements org.osgi.service.useradmin.Group {
 			// simply try to remove it from both.
 			boolean removeRequired = requiredMembers.removeElement(role);
 			boolean removeBasic = basicMembers.removeElement(role);
+			useradmin.membershipChanged();
 			return (removeRequired || removeBasic);
 		}
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2001, 2008 IBM Corporation and others.
+ * Copyright (c) 2001, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -45,6 +45,13 @@ public class UserAdmin implements org.osgi.service.useradmin.UserAdmin {
 
 	protected Vector users;
 	protected Vector roles;
+	/* role name -> Role, kept in sync with roles */
+	protected Hashtable roleNames;
+	/* User -> (Role -> Boolean), the roles a user was checked against. Cleared when group membership changes */
+	protected Hashtable impliedCache;
+	/* property key -> PropertyIndex, created on the first getUser for that key. guarded by indexLock */
+	protected Hashtable propertyIndexes;
+	protected final Object indexLock = new Object();
 	protected BundleContext context;
 	protected UserAdminEventProducer eventProducer;
 	protected boolean alive;
@@ -53,9 +60,15 @@ public class UserAdmin implements org.osgi.service.useradmin.UserAdmin {
 	protected ServiceReference reference;
 	protected LogTracker log;
 
+	/* the number of users whose implied roles are cached */
+	protected static final int MAX_CACHED_USERS = 4096;
+
 	protected UserAdmin(PreferencesService preferencesService, BundleContext context) throws Exception {
 		roles = new Vector();
 		users = new Vector();
+		roleNames = new Hashtable();
+		impliedCache = new Hashtable();
+		propertyIndexes = new Hashtable();
 		this.context = context;
 
 		log = new LogTracker(context, System.out);
@@ -112,6 +125,9 @@ public class UserAdmin implements org.osgi.service.useradmin.UserAdmin {
 		}
 
 		synchronized (this) {
+			if (roleNames.containsKey(name)) {
+				return (null);
+			}
 			return createRole(name, type, true);
 		}
 	}
@@ -142,6 +158,8 @@ public class UserAdmin implements org.osgi.service.useradmin.UserAdmin {
 			users.addElement(newRole);
 		}
 		roles.addElement(newRole);
+		roleNames.put(name, newRole);
+		membershipChanged();
 		return (newRole);
 	}
 
@@ -167,23 +185,26 @@ public class UserAdmin implements org.osgi.service.useradmin.UserAdmin {
 			//silently ignore
 			return (true);
 		}
+		Role role;
 		synchronized (this) {
-			Role role = (org.eclipse.equinox.internal.useradmin.Role) getRole(name);
-			if (role != null) {
-				try {
-					userAdminStore.removeRole(role);
-				} catch (BackingStoreException ex) {
-					return (false);
-				}
-				roles.removeElement(role);
-				users.removeElement(role);
-				role.destroy();
-				eventProducer.generateEvent(UserAdminEvent.ROLE_REMOVED, role);
-				role = null;
-				return (true);
+			role = (org.eclipse.equinox.internal.useradmin.Role) getRole(name);
+			if (role == null) {
+				return (false);
 			}
-			return (false);
+			try {
+				userAdminStore.removeRole(role);
+			} catch (BackingStoreException ex) {
+				return (false);
+			}
+			roles.removeElement(role);
+			users.removeElement(role);
+			roleNames.remove(name);
+			role.destroy();
+			membershipChanged();
+			eventProducer.generateEvent(UserAdminEvent.ROLE_REMOVED, role);
 		}
+		removeFromIndexes(role);
+		return (true);
 	}
 
 	/**
@@ -199,16 +220,7 @@ public class UserAdmin implements org.osgi.service.useradmin.UserAdmin {
 		if (name == null) {
 			return (null);
 		}
-		synchronized (this) {
-			Enumeration e = roles.elements();
-			while (e.hasMoreElements()) {
-				Role role = (Role) e.nextElement();
-				if (role.getName().equals(name)) {
-					return (role);
-				}
-			}
-			return (null);
-		}
+		return ((Role) roleNames.get(name));
 	}
 
 	/**
@@ -227,31 +239,36 @@ public class UserAdmin implements org.osgi.service.useradmin.UserAdmin {
 	 */
 	public org.osgi.service.useradmin.Role[] getRoles(String filterString) throws InvalidSyntaxException {
 		checkAlive();
-		Vector returnedRoles;
+		Role[] snapshot;
 		synchronized (this) {
-			if (filterString == null) {
-				returnedRoles = roles;
-			} else {
-				Filter filter = context.createFilter(filterString); //We do this first so an
-				//InvalidSyntaxException will be
-				//thrown even if there are no roles
-				//present.
-				returnedRoles = new Vector();
-				for (int i = 0; i < roles.size(); i++) {
-					Role role = (Role) roles.elementAt(i);
-					if (filter.match(role.getProperties())) {
-						returnedRoles.addElement(role);
-					}
-				}
-			}
-			int size = returnedRoles.size();
-			if (size == 0) {
+			if (roles.isEmpty() && filterString == null) {
 				return (null);
 			}
-			Role[] roleArray = new Role[size];
-			returnedRoles.copyInto(roleArray);
-			return (roleArray);
+			snapshot = new Role[roles.size()];
+			roles.copyInto(snapshot);
 		}
+		if (filterString == null) {
+			return (snapshot);
+		}
+		Filter filter = context.createFilter(filterString); //We do this first so an
+		//InvalidSyntaxException will be
+		//thrown even if there are no roles
+		//present.
+		Vector returnedRoles = new Vector();
+		for (int i = 0; i < snapshot.length; i++) {
+			Dictionary props = snapshot[i].properties;
+			//the role may have been removed since the snapshot was taken
+			if (props != null && filter.match(props)) {
+				returnedRoles.addElement(snapshot[i]);
+			}
+		}
+		int size = returnedRoles.size();
+		if (size == 0) {
+			return (null);
+		}
+		Role[] roleArray = new Role[size];
+		returnedRoles.copyInto(roleArray);
+		return (roleArray);
 	}
 
 	/**
@@ -269,30 +286,107 @@ public class UserAdmin implements org.osgi.service.useradmin.UserAdmin {
 	 */
 	public org.osgi.service.useradmin.User getUser(String key, String value) {
 		checkAlive();
-		if (key == null) {
+		if (key == null || value == null) {
 			return (null);
 		}
-		User user;
 		User foundUser = null;
-		Dictionary props;
-		String keyValue;
-		synchronized (this) {
-			Enumeration e = users.elements();
-			while (e.hasMoreElements()) {
-				user = (User) e.nextElement();
-				props = user.getProperties();
-				keyValue = (String) props.get(key);
-				if (keyValue != null && keyValue.equals(value)) {
-					if (foundUser != null) {
-						return (null); //we found more than one match	
-					}
-					foundUser = user;
+		synchronized (indexLock) {
+			PropertyIndex index = (PropertyIndex) propertyIndexes.get(key);
+			if (index == null) {
+				index = new PropertyIndex();
+				Object[] snapshot;
+				synchronized (this) {
+					snapshot = new Object[users.size()];
+					users.copyInto(snapshot);
 				}
+				for (int i = 0; i < snapshot.length; i++) {
+					User user = (User) snapshot[i];
+					index.update(user, getPropertyValue(user, key));
+				}
+				propertyIndexes.put(key, index);
+			}
+			Vector found = (Vector) index.users.get(value);
+			if (found == null || found.size() != 1) {
+				return (null); //we found zero or more than one match
+			}
+			foundUser = (User) found.elementAt(0);
+		}
+		//the user may have been removed but not yet dropped from the index
+		return (roleNames.get(foundUser.name) == foundUser ? foundUser : null);
+	}
+
+	/*
+	 * Called after a property of the given role has changed, without holding the lock of the
+	 * role properties. The current value is read again so the last change always wins.
+	 */
+	protected void propertyChanged(Role role, String key) {
+		if (!(role instanceof User)) {
+			return;
+		}
+		synchronized (indexLock) {
+			PropertyIndex index = (PropertyIndex) propertyIndexes.get(key);
+			if (index != null) {
+				index.update((User) role, getPropertyValue(role, key));
+			}
+		}
+	}
+
+	/*
+	 * Drops the given role from the property indexes. Must not be called while holding the
+	 * lock of this UserAdmin.
+	 */
+	protected void removeFromIndexes(Role role) {
+		if (!(role instanceof User)) {
+			return;
+		}
+		synchronized (indexLock) {
+			Enumeration e = propertyIndexes.elements();
+			while (e.hasMoreElements()) {
+				((PropertyIndex) e.nextElement()).update((User) role, null);
 			}
-			return (foundUser);
 		}
 	}
 
+	private static String getPropertyValue(Role role, String key) {
+		Dictionary props = role.properties;
+		if (props == null) {
+			return (null);
+		}
+		Object value = props.get(key);
+		return (value instanceof String ? (String) value : null);
+	}
+
+	/*
+	 * Checks if the given role is implied by the user, answering from the cache of the user
+	 * when possible. Must be called while holding the lock of this UserAdmin.
+	 */
+	protected boolean isImplied(Role checkRole, Role user) {
+		if (user == null) {
+			return (checkRole.isImpliedBy(user, new Vector()));
+		}
+		Hashtable implied = (Hashtable) impliedCache.get(user);
+		if (implied == null) {
+			if (impliedCache.size() >= MAX_CACHED_USERS) {
+				impliedCache.clear();
+			}
+			implied = new Hashtable();
+			impliedCache.put(user, implied);
+		}
+		Boolean result = (Boolean) implied.get(checkRole);
+		if (result == null) {
+			result = checkRole.isImpliedBy(user, new Vector()) ? Boolean.TRUE : Boolean.FALSE;
+			implied.put(checkRole, result);
+		}
+		return (result.booleanValue());
+	}
+
+	/*
+	 * Called whenever a role is created or removed or a group membership changes.
+	 */
+	protected void membershipChanged() {
+		impliedCache.clear();
+	}
+
 	/**
 	 * Creates an Authorization object that encapsulates the specified user
 	 * and the roles it possesses. The <code>null</code> user is interpreted
@@ -353,4 +447,35 @@ public class UserAdmin implements org.osgi.service.useradmin.UserAdmin {
 		}
 	}
 
+	/*
+	 * The users having a given value for one property key.
+	 */
+	static class PropertyIndex {
+		/* property value -> Vector of users */
+		final Hashtable users = new Hashtable();
+		/* user -> indexed property value */
+		final Hashtable values = new Hashtable();
+
+		void update(User user, String value) {
+			String old = (String) values.remove(user);
+			if (old != null) {
+				Vector found = (Vector) users.get(old);
+				if (found != null) {
+					found.removeElement(user);
+					if (found.isEmpty()) {
+						users.remove(old);
+					}
+				}
+			}
+			if (value != null) {
+				Vector found = (Vector) users.get(value);
+				if (found == null) {
+					found = new Vector(1);
+					users.put(value, found);
+				}
+				found.addElement(user);
+				values.put(user, value);
+			}
+		}
+	}
 }
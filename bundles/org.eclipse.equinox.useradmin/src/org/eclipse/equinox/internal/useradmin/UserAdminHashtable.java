@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2001, 2008 IBM Corporation and others.
+ * Copyright (c) 2001, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -46,7 +46,16 @@ public class UserAdminHashtable extends Hashtable {
 	 *  We want to generate an event every time we put something into the hashtable, except
 	 *  upon initialization where role data is being read from persistent store.
 	 */
-	protected synchronized Object put(String key, Object value, boolean generateEvent) {
+	protected Object put(String key, Object value, boolean generateEvent) {
+		Object retVal = doPut(key, value, generateEvent);
+		//the property indexes are updated without holding the lock of this hashtable
+		if (propertyType == UserAdminHashtable.PROPERTIES) {
+			userAdmin.propertyChanged(role, key);
+		}
+		return retVal;
+	}
+
+	private synchronized Object doPut(String key, Object value, boolean generateEvent) {
 
 		if (generateEvent) {
 			if (propertyType == UserAdminHashtable.PROPERTIES) {
@@ -92,12 +101,20 @@ public class UserAdminHashtable extends Hashtable {
 		return put(name, value, true);
 	}
 
-	public synchronized Object remove(Object key) {
+	public Object remove(Object key) {
 		if (!(key instanceof String)) {
 			throw new IllegalArgumentException(UserAdminMsg.INVALID_KEY_EXCEPTION);
 		}
 
 		String name = (String) key;
+		Object retVal = doRemove(name);
+		if (propertyType == UserAdminHashtable.PROPERTIES) {
+			userAdmin.propertyChanged(role, name);
+		}
+		return retVal;
+	}
+
+	private synchronized Object doRemove(String name) {
 
 		switch (propertyType) {
 			case PROPERTIES :
@@ -123,7 +140,20 @@ public class UserAdminHashtable extends Hashtable {
 		return super.remove(name);
 	}
 
-	public synchronized void clear() {
+	public void clear() {
+		Object[] names;
+		synchronized (this) {
+			names = keySet().toArray();
+			doClear();
+		}
+		if (propertyType == UserAdminHashtable.PROPERTIES) {
+			for (int i = 0; i < names.length; i++) {
+				userAdmin.propertyChanged(role, (String) names[i]);
+			}
+		}
+	}
+
+	private synchronized void doClear() {
 		Enumeration e = keys();
 
 		while (e.hasMoreElements()) {
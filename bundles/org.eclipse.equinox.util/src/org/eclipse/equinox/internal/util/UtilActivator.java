@@ -17,6 +17,7 @@ import org.eclipse.equinox.internal.util.ref.Log;
 import org.eclipse.equinox.internal.util.ref.TimerRef;
 import org.eclipse.equinox.internal.util.threadpool.ThreadPoolFactory;
 import org.eclipse.equinox.internal.util.threadpool.ThreadPoolManager;
+import org.eclipse.equinox.internal.util.threadpool.ThreadPoolStatistics;
 import org.eclipse.equinox.internal.util.timer.Timer;
 import org.osgi.framework.*;
 
@@ -108,7 +109,7 @@ public class UtilActivator implements BundleActivator {
 			if (startup)
 				timeLog(3); /* 3 = "Creating Thread Pool service took " */
 
-			thManReg = bc.registerService(new String[] {ThreadPoolManager.class.getName(), ThreadPoolFactory.class.getName()}, thMan, null);
+			thManReg = bc.registerService(new String[] {ThreadPoolManager.class.getName(), ThreadPoolFactory.class.getName(), ThreadPoolStatistics.class.getName()}, thMan, null);
 			if (startup)
 				timeLog(4); /* 4 = "Registering Thread Pool service took " */
 
@@ -118,7 +119,8 @@ public class UtilActivator implements BundleActivator {
 
 			int i = getInteger("equinox.util.threadpool.inactiveTime", 30);
 			timerReg = bc.registerService(Timer.class.getName(), timer, null);
-			timer.addNotifyListener(ThreadPoolFactoryImpl.threadPool, Thread.NORM_PRIORITY, Timer.PERIODICAL_TIMER, (i * 1000L), 0);
+			if (ThreadPoolFactoryImpl.threadPool != null)
+				timer.addNotifyListener(ThreadPoolFactoryImpl.threadPool, Thread.NORM_PRIORITY, Timer.PERIODICAL_TIMER, (i * 1000L), 0);
 
 			TimerRef.timer = timer;
 
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2018 by ProSyst Software GmbH and others
+ * http://www.prosyst.com
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    ProSyst Software GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.util.hash;
+
+/**
+ * Helpers shared by the open addressing hashtables of this package.
+ *
+ * @version 1.0
+ */
+
+final class LinearHash {
+
+	static final int MAX_SIZE = 1 << 30;
+
+	private LinearHash() {
+	}
+
+	/**
+	 * Spreads the bits of a hash code so that keys differing only in the high
+	 * bits, or forming arithmetic sequences, do not collide in the low bits.
+	 */
+	static int mix(int h) {
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	static int mix(long key) {
+		return mix((int) (key ^ (key >>> 32)));
+	}
+
+	/**
+	 * Returns the smallest power of two table size able to hold
+	 * <code>capacity</code> elements without exceeding the load factor.
+	 */
+	static int tableSize(int capacity, float lf) {
+		int needed = (int) (capacity / lf) + 1;
+		int size = 4;
+		while (size < needed && size < MAX_SIZE)
+			size <<= 1;
+		return size;
+	}
+
+	/**
+	 * Checks if the element at <code>pos</code>, whose probe sequence starts
+	 * at <code>ideal</code>, may be moved to the free slot <code>hole</code>
+	 * without becoming unreachable, i.e. if <code>ideal</code> is not
+	 * cyclically within <code>(hole, pos]</code>.
+	 */
+	static boolean canMove(int hole, int pos, int ideal) {
+		if (hole <= pos)
+			return ideal <= hole || ideal > pos;
+		return ideal <= hole && ideal > pos;
+	}
+}
@@ -0,0 +1,329 @@
+/*******************************************************************************
+ * Copyright (c) 2018 by ProSyst Software GmbH and others
+ * http://www.prosyst.com
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    ProSyst Software GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.util.hash;
+
+/**
+ * Hashtable for mapping long keys to Object values, using open addressing with
+ * linear probing in a table whose size is a power of two. Removed elements are
+ * not marked with tombstones, the following elements of the probe sequence are
+ * shifted back instead, so lookups never slow down after many removals.
+ * <p>
+ * In concurrent mode the modifying methods are synchronized and work on a copy
+ * of the table, which is then published to the readers as a whole, so
+ * <code>get</code> never locks and always searches a table no one modifies.
+ * Each modification copies the table, so the concurrent mode suits tables
+ * which are read much more often than they are modified. Otherwise the table
+ * is not synchronized and must be externally synchronized if used
+ * concurrently.
+ * <p>
+ * <code>null</code> values are not allowed.
+ *
+ * @version 1.0
+ */
+
+public class LinearHashLongObj {
+
+	static final float LOAD_FACTOR = 0.75f;
+
+	private long[] keys;
+	private Object[] values;
+	private int count = 0;
+	private int limit;
+	private final float loadFactor;
+	private final boolean concurrent;
+	/* the table searched by get in concurrent mode, never modified once published */
+	private volatile Table table;
+
+	/**
+	 * Constructs an empty, not synchronized hash table with default capacity
+	 * (16) and load factor (0.75).
+	 */
+	public LinearHashLongObj() {
+		this(16, LOAD_FACTOR, false);
+	}
+
+	/**
+	 * Constructs an empty hash table.
+	 *
+	 * @param capacity
+	 *            initial capacity of the table, rounded up to a power of two
+	 * @param concurrent
+	 *            whether the table can be used concurrently
+	 */
+	public LinearHashLongObj(int capacity, boolean concurrent) {
+		this(capacity, LOAD_FACTOR, concurrent);
+	}
+
+	/**
+	 * Constructs an empty hash table.
+	 *
+	 * @param capacity
+	 *            initial capacity of the table, rounded up to a power of two
+	 * @param lf
+	 *            load factor of the table, between 0.1 and 0.9
+	 * @param concurrent
+	 *            whether the table can be used concurrently
+	 *
+	 * @exception IllegalArgumentException
+	 *                if <code>capacity</code> < 0 or <code>lf</code> is out
+	 *                of range
+	 */
+	public LinearHashLongObj(int capacity, float lf, boolean concurrent) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Invalid hashtable capacity: " + capacity + ".");
+		}
+		if (lf < 0.1f || lf > 0.9f) {
+			throw new IllegalArgumentException("Invalid load factor: " + lf + ".");
+		}
+		this.loadFactor = lf;
+		this.concurrent = concurrent;
+		int size = LinearHash.tableSize(capacity, lf);
+		keys = new long[size];
+		values = new Object[size];
+		limit = (int) (size * lf);
+		if (concurrent)
+			publish();
+	}
+
+	/**
+	 * Adds in hashtable an element with <code>key</code> key and
+	 * <code>value</code> value. If an element with the specified key is
+	 * already in the table only change it's value.
+	 *
+	 * @param key
+	 *            the key of the inserted element
+	 * @param value
+	 *            the value of the inserted element
+	 * @return the previous value of the key, or null
+	 */
+	public Object put(long key, Object value) {
+		if (value == null)
+			throw new NullPointerException();
+		if (!concurrent)
+			return doPut(key, value);
+		synchronized (this) {
+			copy();
+			Object old = doPut(key, value);
+			publish();
+			return old;
+		}
+	}
+
+	/**
+	 * Returns an value which is mapped to the <code>key</code> key.
+	 *
+	 * @param key
+	 *            the key we are searching for
+	 * @return the value this key is mapped to in the table, or null
+	 */
+	public Object get(long key) {
+		if (!concurrent)
+			return find(keys, values, key);
+		Table t = table;
+		return find(t.keys, t.values, key);
+	}
+
+	/**
+	 * Checks if the table contains an element with the specified key.
+	 */
+	public boolean containsKey(long key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * Removes an element with the specified key from the table. Does nothing if
+	 * there is no element with this key.
+	 *
+	 * @param key
+	 *            the key of the element we want to remove
+	 * @return the removed value, or null if there was nothing to remove
+	 */
+	public Object remove(long key) {
+		if (!concurrent)
+			return doRemove(key);
+		synchronized (this) {
+			if (find(keys, values, key) == null)
+				return null;
+			copy();
+			Object old = doRemove(key);
+			publish();
+			return old;
+		}
+	}
+
+	/**
+	 * Empties the hash table
+	 */
+	public void removeAll() {
+		if (!concurrent) {
+			doRemoveAll();
+			return;
+		}
+		synchronized (this) {
+			keys = new long[keys.length];
+			values = new Object[values.length];
+			count = 0;
+			publish();
+		}
+	}
+
+	/**
+	 * Returns the count of elements currently in the table
+	 *
+	 * @return the count of elements
+	 */
+	public int size() {
+		if (!concurrent)
+			return count;
+		synchronized (this) {
+			return count;
+		}
+	}
+
+	/**
+	 * Returns a new array with the keys currently in the table.
+	 */
+	public long[] keys() {
+		if (!concurrent)
+			return doKeys();
+		synchronized (this) {
+			return doKeys();
+		}
+	}
+
+	/* gives the modifying methods their own copy of the published table */
+	private void copy() {
+		keys = (long[]) keys.clone();
+		values = (Object[]) values.clone();
+	}
+
+	private void publish() {
+		table = new Table(keys, values);
+	}
+
+	private static Object find(long[] keys, Object[] values, long key) {
+		int mask = keys.length - 1;
+		int pos = LinearHash.mix(key) & mask;
+		for (int i = 0; i <= mask; i++) {
+			Object value = values[pos];
+			if (value == null)
+				return null;
+			if (keys[pos] == key)
+				return value;
+			pos = (pos + 1) & mask;
+		}
+		return null;
+	}
+
+	private Object doPut(long key, Object value) {
+		int mask = keys.length - 1;
+		int pos = LinearHash.mix(key) & mask;
+		while (values[pos] != null) {
+			if (keys[pos] == key) {
+				Object old = values[pos];
+				values[pos] = value;
+				return old;
+			}
+			pos = (pos + 1) & mask;
+		}
+		if (count >= limit) {
+			rehash();
+			return doPut(key, value);
+		}
+		keys[pos] = key;
+		values[pos] = value;
+		count++;
+		return null;
+	}
+
+	private Object doRemove(long key) {
+		int mask = keys.length - 1;
+		int pos = LinearHash.mix(key) & mask;
+		while (values[pos] != null) {
+			if (keys[pos] == key) {
+				Object old = values[pos];
+				shiftBack(pos, mask);
+				count--;
+				return old;
+			}
+			pos = (pos + 1) & mask;
+		}
+		return null;
+	}
+
+	/* moves the elements following the hole back so no probe sequence is broken */
+	private void shiftBack(int hole, int mask) {
+		int pos = hole;
+		while (true) {
+			pos = (pos + 1) & mask;
+			if (values[pos] == null)
+				break;
+			int ideal = LinearHash.mix(keys[pos]) & mask;
+			if (LinearHash.canMove(hole, pos, ideal)) {
+				keys[hole] = keys[pos];
+				values[hole] = values[pos];
+				hole = pos;
+			}
+		}
+		keys[hole] = 0;
+		values[hole] = null;
+	}
+
+	private void rehash() {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		int size = oldKeys.length * 2;
+		long[] newKeys = new long[size];
+		Object[] newValues = new Object[size];
+		int mask = size - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldValues[i] != null) {
+				int pos = LinearHash.mix(oldKeys[i]) & mask;
+				while (newValues[pos] != null)
+					pos = (pos + 1) & mask;
+				newKeys[pos] = oldKeys[i];
+				newValues[pos] = oldValues[i];
+			}
+		}
+		values = newValues;
+		keys = newKeys;
+		limit = (int) (size * loadFactor);
+	}
+
+	private void doRemoveAll() {
+		for (int i = 0; i < values.length; i++) {
+			keys[i] = 0;
+			values[i] = null;
+		}
+		count = 0;
+	}
+
+	private long[] doKeys() {
+		long[] result = new long[count];
+		int j = 0;
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != null)
+				result[j++] = keys[i];
+		}
+		return result;
+	}
+
+	private static final class Table {
+		final long[] keys;
+		final Object[] values;
+
+		Table(long[] keys, Object[] values) {
+			this.keys = keys;
+			this.values = values;
+		}
+	}
+}
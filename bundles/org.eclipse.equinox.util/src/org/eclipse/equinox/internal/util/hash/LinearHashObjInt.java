@@ -0,0 +1,331 @@
+/*******************************************************************************
+ * Copyright (c) 2018 by ProSyst Software GmbH and others
+ * http://www.prosyst.com
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    ProSyst Software GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.util.hash;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Hashtable for mapping Object keys to int values, using open addressing with
+ * linear probing in a table whose size is a power of two. The table works like
+ * {@link LinearHashIntObj} and can be used in concurrent mode the same way:
+ * <code>get</code> and <code>containsKey</code> never lock.
+ * <p>
+ * <code>null</code> keys are not allowed.
+ *
+ * @version 1.0
+ */
+
+public class LinearHashObjInt {
+
+	private Object[] keys;
+	private int[] values;
+	private int count = 0;
+	private int limit;
+	private final float loadFactor;
+	private final boolean concurrent;
+	/* the table searched by get in concurrent mode, never modified once published */
+	private volatile Table table;
+
+	/**
+	 * Constructs an empty, not synchronized hash table with default capacity
+	 * (16) and load factor (0.75).
+	 */
+	public LinearHashObjInt() {
+		this(16, LinearHashIntObj.LOAD_FACTOR, false);
+	}
+
+	/**
+	 * Constructs an empty hash table.
+	 *
+	 * @param capacity
+	 *            initial capacity of the table, rounded up to a power of two
+	 * @param concurrent
+	 *            whether the table can be used concurrently
+	 */
+	public LinearHashObjInt(int capacity, boolean concurrent) {
+		this(capacity, LinearHashIntObj.LOAD_FACTOR, concurrent);
+	}
+
+	/**
+	 * Constructs an empty hash table.
+	 *
+	 * @param capacity
+	 *            initial capacity of the table, rounded up to a power of two
+	 * @param lf
+	 *            load factor of the table, between 0.1 and 0.9
+	 * @param concurrent
+	 *            whether the table can be used concurrently
+	 *
+	 * @exception IllegalArgumentException
+	 *                if <code>capacity</code> < 0 or <code>lf</code> is out
+	 *                of range
+	 */
+	public LinearHashObjInt(int capacity, float lf, boolean concurrent) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Invalid hashtable capacity: " + capacity + ".");
+		}
+		if (lf < 0.1f || lf > 0.9f) {
+			throw new IllegalArgumentException("Invalid load factor: " + lf + ".");
+		}
+		this.loadFactor = lf;
+		this.concurrent = concurrent;
+		int size = LinearHash.tableSize(capacity, lf);
+		keys = new Object[size];
+		values = new int[size];
+		limit = (int) (size * lf);
+		if (concurrent)
+			publish();
+	}
+
+	/**
+	 * Adds in hashtable an element with <code>key</code> key and
+	 * <code>value</code> value. If an element with the specified key is
+	 * already in the table only change it's value.
+	 *
+	 * @param key
+	 *            the key of the inserted element
+	 * @param value
+	 *            the value of the inserted element
+	 */
+	public void put(Object key, int value) {
+		if (key == null)
+			throw new NullPointerException();
+		if (!concurrent) {
+			doPut(key, value);
+			return;
+		}
+		synchronized (this) {
+			copy();
+			doPut(key, value);
+			publish();
+		}
+	}
+
+	/**
+	 * Returns an value which is mapped to the <code>key</code> key. If there
+	 * is no such a key, throws <code>NoSuchElementException</code>.
+	 *
+	 * @param key
+	 *            the key we are searching for
+	 * @return the value this key is mapped to in the table.
+	 *
+	 * @exception NoSuchElementException
+	 *                if there is no element with the specified key.
+	 */
+	public int get(Object key) {
+		if (!concurrent) {
+			int pos = find(keys, key);
+			if (pos < 0)
+				throw new NoSuchElementException();
+			return values[pos];
+		}
+		Table t = table;
+		int pos = find(t.keys, key);
+		if (pos < 0)
+			throw new NoSuchElementException();
+		return t.values[pos];
+	}
+
+	/**
+	 * Checks if the table contains an element with the specified key.
+	 */
+	public boolean containsKey(Object key) {
+		if (!concurrent)
+			return find(keys, key) >= 0;
+		return find(table.keys, key) >= 0;
+	}
+
+	/**
+	 * Removes an element with the specified key from the table. throws
+	 * <code>NoSuchElementException</code> if there is no element with this
+	 * key.
+	 *
+	 * @param key
+	 *            the key of the element we want to remove
+	 * @return the value of the removed element
+	 * @exception NoSuchElementException
+	 *                if there is no element with the specified key.
+	 */
+	public int remove(Object key) {
+		if (!concurrent)
+			return doRemove(key);
+		synchronized (this) {
+			if (find(keys, key) < 0)
+				throw new NoSuchElementException();
+			copy();
+			int old = doRemove(key);
+			publish();
+			return old;
+		}
+	}
+
+	/**
+	 * Empties the hash table
+	 */
+	public void removeAll() {
+		if (!concurrent) {
+			doRemoveAll();
+			return;
+		}
+		synchronized (this) {
+			keys = new Object[keys.length];
+			values = new int[values.length];
+			count = 0;
+			publish();
+		}
+	}
+
+	/**
+	 * Returns the count of elements currently in the table
+	 *
+	 * @return the count of elements
+	 */
+	public int size() {
+		if (!concurrent)
+			return count;
+		synchronized (this) {
+			return count;
+		}
+	}
+
+	/**
+	 * Returns a new array with the keys currently in the table.
+	 */
+	public Object[] keys() {
+		if (!concurrent)
+			return doKeys();
+		synchronized (this) {
+			return doKeys();
+		}
+	}
+
+	/* gives the modifying methods their own copy of the published table */
+	private void copy() {
+		keys = (Object[]) keys.clone();
+		values = (int[]) values.clone();
+	}
+
+	private void publish() {
+		table = new Table(keys, values);
+	}
+
+	private static int find(Object[] keys, Object key) {
+		int mask = keys.length - 1;
+		int pos = LinearHash.mix(key.hashCode()) & mask;
+		for (int i = 0; i <= mask; i++) {
+			Object k = keys[pos];
+			if (k == null)
+				return -1;
+			if (k == key || k.equals(key))
+				return pos;
+			pos = (pos + 1) & mask;
+		}
+		return -1;
+	}
+
+	private void doPut(Object key, int value) {
+		int mask = keys.length - 1;
+		int pos = LinearHash.mix(key.hashCode()) & mask;
+		while (keys[pos] != null) {
+			if (keys[pos].equals(key)) {
+				values[pos] = value;
+				return;
+			}
+			pos = (pos + 1) & mask;
+		}
+		if (count >= limit) {
+			rehash();
+			doPut(key, value);
+			return;
+		}
+		values[pos] = value;
+		keys[pos] = key;
+		count++;
+	}
+
+	private int doRemove(Object key) {
+		int pos = find(keys, key);
+		if (pos < 0)
+			throw new NoSuchElementException();
+		int old = values[pos];
+		shiftBack(pos, keys.length - 1);
+		count--;
+		return old;
+	}
+
+	/* moves the elements following the hole back so no probe sequence is broken */
+	private void shiftBack(int hole, int mask) {
+		int pos = hole;
+		while (true) {
+			pos = (pos + 1) & mask;
+			if (keys[pos] == null)
+				break;
+			int ideal = LinearHash.mix(keys[pos].hashCode()) & mask;
+			if (LinearHash.canMove(hole, pos, ideal)) {
+				keys[hole] = keys[pos];
+				values[hole] = values[pos];
+				hole = pos;
+			}
+		}
+		keys[hole] = null;
+		values[hole] = 0;
+	}
+
+	private void rehash() {
+		Object[] oldKeys = keys;
+		int[] oldValues = values;
+		int size = oldKeys.length * 2;
+		Object[] newKeys = new Object[size];
+		int[] newValues = new int[size];
+		int mask = size - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null) {
+				int pos = LinearHash.mix(oldKeys[i].hashCode()) & mask;
+				while (newKeys[pos] != null)
+					pos = (pos + 1) & mask;
+				newKeys[pos] = oldKeys[i];
+				newValues[pos] = oldValues[i];
+			}
+		}
+		values = newValues;
+		keys = newKeys;
+		limit = (int) (size * loadFactor);
+	}
+
+	private void doRemoveAll() {
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = null;
+			values[i] = 0;
+		}
+		count = 0;
+	}
+
+	private Object[] doKeys() {
+		Object[] result = new Object[count];
+		int j = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != null)
+				result[j++] = keys[i];
+		}
+		return result;
+	}
+
+	private static final class Table {
+		final Object[] keys;
+		final int[] values;
+
+		Table(Object[] keys, int[] values) {
+			this.keys = keys;
+			this.values = values;
+		}
+	}
+}
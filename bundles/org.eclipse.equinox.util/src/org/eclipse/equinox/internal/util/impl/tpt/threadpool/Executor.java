@@ -20,7 +20,7 @@ import org.eclipse.equinox.internal.util.threadpool.ThreadContext;
 /**
  * @author Pavlin Dobrev
  */
-public class Executor extends Thread implements ThreadContext {
+public class Executor extends Thread implements ThreadContext, JobExecutor {
 
 	public static final String iname = "[ThreadPool Manager] - Idle Thread";
 	public static final String nullname = "[ThreadPool Manager] - Occupied Thread ";
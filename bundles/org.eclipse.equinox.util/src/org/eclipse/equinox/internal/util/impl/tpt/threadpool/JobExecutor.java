@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (c) 2018 by ProSyst Software GmbH and others
+ * http://www.prosyst.com
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    ProSyst Software GmbH - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.equinox.internal.util.impl.tpt.threadpool;
+
+import java.security.AccessControlContext;
+
+/**
+ * Runs a single job handed over with {@link #setRunnable}. Returned by
+ * {@link ThreadPoolFactoryImpl#getExecutor()}, either as a pooled
+ * {@link Executor} thread or as a {@link StealingExecutor} which passes the
+ * job on to the work stealing pool.
+ *
+ * @version 1.0
+ */
+
+public interface JobExecutor {
+
+	/**
+	 * Sets the priority the next job is run with.
+	 */
+	public void setPriorityI(int p);
+
+	/**
+	 * Runs the job. The slot reserved in the factory is released when the job
+	 * has finished.
+	 */
+	public void setRunnable(Runnable job, String name, ThreadPoolFactoryImpl factory, AccessControlContext acc);
+}
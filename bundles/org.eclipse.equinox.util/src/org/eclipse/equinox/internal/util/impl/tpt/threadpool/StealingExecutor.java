@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (c) 2018 by ProSyst Software GmbH and others
+ * http://www.prosyst.com
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    ProSyst Software GmbH - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.equinox.internal.util.impl.tpt.threadpool;
+
+import java.security.AccessControlContext;
+
+/**
+ * The {@link JobExecutor} handed out by
+ * {@link ThreadPoolFactoryImpl#getExecutor()} when the work stealing pool is
+ * used. It is not a thread, the runnable is passed on to the
+ * {@link StealingThreadPool} instead. The slot of
+ * the factory reserved for it is released when the job has finished, or right
+ * away if the pool does not accept the job, which then runs in a new thread.
+ *
+ * @version 1.0
+ */
+
+class StealingExecutor implements JobExecutor {
+
+	private final StealingThreadPool pool;
+	private final ThreadPoolFactoryImpl owner;
+	private int jobPriority = Thread.NORM_PRIORITY;
+
+	StealingExecutor(StealingThreadPool pool, ThreadPoolFactoryImpl owner) {
+		this.pool = pool;
+		this.owner = owner;
+	}
+
+	public void setPriorityI(int p) {
+		jobPriority = p;
+	}
+
+	public synchronized void setRunnable(Runnable job, String name, ThreadPoolFactoryImpl factory, AccessControlContext acc) {
+		try {
+			pool.execute(job, jobPriority, name, owner, acc);
+		} catch (RuntimeException e) {
+			owner.releaseStealing();
+			Thread th = new Thread(job, name == null ? Executor.nullname : name);
+			th.setPriority(jobPriority);
+			th.start();
+		}
+	}
+}
@@ -0,0 +1,357 @@
+/*******************************************************************************
+ * Copyright (c) 2018 by ProSyst Software GmbH and others
+ * http://www.prosyst.com
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    ProSyst Software GmbH - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.equinox.internal.util.impl.tpt.threadpool;
+
+import java.security.*;
+import org.eclipse.equinox.internal.util.UtilActivator;
+import org.eclipse.equinox.internal.util.impl.tpt.ServiceFactoryImpl;
+import org.eclipse.equinox.internal.util.threadpool.ThreadContext;
+
+/**
+ * Thread pool backend used instead of {@link ThreadPoolManagerImpl} when the
+ * <code>equinox.util.threadpool.workStealing</code> property is set to
+ * <code>true</code>.
+ * <p>
+ * Every worker thread has its own job queue guarded by the worker itself.
+ * Jobs are spread over the queues round robin, jobs submitted from a pool
+ * thread go to the queue of that thread, and a worker whose queue is empty
+ * takes jobs from the queues of the others. Submitting a job therefore locks
+ * only one worker queue; the shared idle monitor is touched only to wake up or
+ * start a worker. The job priority and the AccessControlContext of the caller
+ * are applied to the worker thread like in {@link Executor}.
+ * <p>
+ * Workers are started on demand up to the maximum of the pool and exit after
+ * being idle for <code>equinox.util.threadpool.inactiveTime</code> seconds
+ * while more than the minimum number of threads are alive.
+ *
+ * @version 1.0
+ */
+
+public class StealingThreadPool {
+
+	static final class Task {
+		Runnable job;
+		String name;
+		int priority;
+		AccessControlContext acc;
+		ThreadPoolFactoryImpl factory;
+		Task next;
+
+		Task(Runnable job, String name, int priority, ThreadPoolFactoryImpl factory, AccessControlContext acc) {
+			this.job = job;
+			this.name = name;
+			this.priority = priority;
+			this.factory = factory;
+			this.acc = acc;
+		}
+	}
+
+	private final Worker[] workers;
+	private final int minThreads;
+	private final long keepAlive;
+	private final Object idleLock = new Object();
+	/* guarded by idleLock */
+	private int generation = 0;
+	/* completed jobs of workers that have exited, guarded by idleLock */
+	private long retiredCompleted = 0;
+	private volatile int live = 0;
+	private volatile int idleCount = 0;
+	private volatile boolean terminated = false;
+	private int next = 0;
+
+	public StealingThreadPool(int minThreads, int maxThreads, long keepAlive) {
+		this.workers = new Worker[maxThreads < 1 ? 1 : maxThreads];
+		this.minThreads = minThreads;
+		this.keepAlive = keepAlive > 0 ? keepAlive : 30000;
+	}
+
+	public void execute(Runnable job, int priority, String name, ThreadPoolFactoryImpl factory, AccessControlContext acc) {
+		if (terminated)
+			throw new RuntimeException("[ThreadPool] ThreadPool is inaccessible");
+		Task task = new Task(job, name, priority, factory, acc);
+		Thread current = Thread.currentThread();
+		if (current instanceof Worker && ((Worker) current).pool() == this && ((Worker) current).offer(task)) {
+			signal();
+			return;
+		}
+		for (int i = 0; i < workers.length; i++) {
+			int index = (next++ & 0x7FFFFFFF) % workers.length;
+			Worker w = workers[index];
+			if (w != null && w.offer(task)) {
+				signal();
+				return;
+			}
+		}
+		/* no worker alive */
+		synchronized (idleLock) {
+			Worker w = startWorker();
+			if (w == null || !w.offer(task))
+				throw new RuntimeException("[ThreadPool] Unable to create more threads!");
+		}
+	}
+
+	/**
+	 * All idle threads exit. New threads will be created when it is necessary.
+	 */
+	public void reset() {
+		synchronized (idleLock) {
+			generation++;
+			idleLock.notifyAll();
+		}
+	}
+
+	public void terminate() {
+		terminated = true;
+		synchronized (idleLock) {
+			idleLock.notifyAll();
+		}
+	}
+
+	public int getActiveCount() {
+		int count = 0;
+		for (int i = 0; i < workers.length; i++) {
+			Worker w = workers[i];
+			if (w != null && w.job != null)
+				count++;
+		}
+		return count;
+	}
+
+	public int getQueuedCount() {
+		int count = 0;
+		for (int i = 0; i < workers.length; i++) {
+			Worker w = workers[i];
+			if (w != null)
+				count += w.size;
+		}
+		return count;
+	}
+
+	public long getCompletedCount() {
+		long count;
+		synchronized (idleLock) {
+			count = retiredCompleted;
+		}
+		for (int i = 0; i < workers.length; i++) {
+			Worker w = workers[i];
+			if (w != null)
+				count += w.completed;
+		}
+		return count;
+	}
+
+	private void signal() {
+		if (idleCount > 0) {
+			synchronized (idleLock) {
+				idleLock.notify();
+			}
+		} else if (live < workers.length) {
+			synchronized (idleLock) {
+				if (idleCount == 0 && live < workers.length)
+					startWorker();
+			}
+		}
+	}
+
+	/* called with idleLock held */
+	private Worker startWorker() {
+		for (int i = 0; i < workers.length; i++) {
+			if (workers[i] == null) {
+				final int index = i;
+				Worker w;
+				if (ServiceFactoryImpl.privileged()) {
+					w = (Worker) AccessController.doPrivileged(new PrivilegedAction() {
+						public Object run() {
+							return new Worker(index);
+						}
+					});
+				} else {
+					w = new Worker(index);
+				}
+				workers[i] = w;
+				live++;
+				w.start();
+				return w;
+			}
+		}
+		return null;
+	}
+
+	Task steal(int thief) {
+		for (int i = 1; i < workers.length; i++) {
+			Worker w = workers[(thief + i) % workers.length];
+			if (w != null && w.size > 0) {
+				Task t = w.poll();
+				if (t != null)
+					return t;
+			}
+		}
+		return null;
+	}
+
+	/* waits for work, returns null if the worker should exit */
+	Task idle(Worker w) {
+		synchronized (idleLock) {
+			idleCount++;
+			try {
+				int gen = generation;
+				long end = System.currentTimeMillis() + keepAlive;
+				while (!terminated) {
+					Task t = w.poll();
+					if (t == null)
+						t = steal(w.index);
+					if (t != null)
+						return t;
+					long remaining = end - System.currentTimeMillis();
+					if (gen != generation || (remaining <= 0 && live > minThreads)) {
+						if (w.retire()) {
+							workers[w.index] = null;
+							live--;
+							retiredCompleted += w.completed;
+							return null;
+						}
+						continue;
+					}
+					if (remaining <= 0) {
+						end = System.currentTimeMillis() + keepAlive;
+						remaining = keepAlive;
+					}
+					try {
+						idleLock.wait(remaining);
+					} catch (InterruptedException ie) {
+					}
+				}
+				return null;
+			} finally {
+				idleCount--;
+			}
+		}
+	}
+
+	class Worker extends Thread implements ThreadContext {
+		final int index;
+		/* guarded by this */
+		private Task head;
+		private Task tail;
+		private boolean alive = true;
+		volatile int size = 0;
+		volatile Runnable job;
+		volatile long completed = 0;
+		private PEA pea;
+
+		Worker(int index) {
+			super(ServiceFactoryImpl.useNames ? Executor.iname : Executor.xname);
+			this.index = index;
+			if (getContextClassLoader() != Executor.defaultTCCL) {
+				setContextClassLoader(Executor.defaultTCCL);
+			}
+		}
+
+		StealingThreadPool pool() {
+			return StealingThreadPool.this;
+		}
+
+		synchronized boolean offer(Task t) {
+			if (!alive)
+				return false;
+			if (tail == null) {
+				head = tail = t;
+			} else {
+				tail.next = t;
+				tail = t;
+			}
+			size++;
+			return true;
+		}
+
+		synchronized Task poll() {
+			Task t = head;
+			if (t != null) {
+				head = t.next;
+				if (head == null)
+					tail = null;
+				t.next = null;
+				size--;
+			}
+			return t;
+		}
+
+		synchronized boolean retire() {
+			if (head != null)
+				return false;
+			alive = false;
+			return true;
+		}
+
+		public Runnable getRunnable() {
+			return job;
+		}
+
+		public void run() {
+			while (!terminated) {
+				Task t = poll();
+				if (t == null)
+					t = steal(index);
+				if (t == null)
+					t = idle(this);
+				if (t == null)
+					break;
+				runTask(t);
+			}
+			if (terminated) {
+				synchronized (this) {
+					alive = false;
+					head = tail = null;
+					size = 0;
+				}
+			}
+		}
+
+		private void runTask(Task t) {
+			if (getPriority() != t.priority)
+				setPriority(t.priority);
+			if (ServiceFactoryImpl.useNames)
+				setName(t.name == null ? Executor.nullname : t.name);
+			job = t.job;
+			try {
+				if (t.acc != null) {
+					if (pea == null)
+						pea = new PEA();
+					pea.job = t.job;
+					AccessController.doPrivileged(pea, t.acc);
+				} else {
+					t.job.run();
+				}
+			} catch (Throwable th) {
+				if (ServiceFactoryImpl.log != null) {
+					ServiceFactoryImpl.log.error("[ThreadPool Manager]\r\nException while executing: \r\nNAME: " + this + "\r\nJOB: " + t.job + "\r\n", th);
+				}
+			} finally {
+				if (getContextClassLoader() != Executor.defaultTCCL) {
+					setContextClassLoader(Executor.defaultTCCL);
+				}
+				if (pea != null)
+					pea.job = null;
+				job = null;
+				completed++;
+				if (ServiceFactoryImpl.useNames)
+					setName(Executor.iname);
+			}
+			if (UtilActivator.debugLevel == 2 && UtilActivator.LOG_DEBUG) {
+				UtilActivator.log.debug(0x0100, 10004, getName(), null, false);
+			}
+			if (t.factory != null)
+				t.factory.finishedStealing();
+		}
+	}
+}
@@ -17,17 +17,17 @@ import java.security.AccessController;
 import org.eclipse.equinox.internal.util.UtilActivator;
 import org.eclipse.equinox.internal.util.impl.tpt.ServiceFactoryImpl;
 import org.eclipse.equinox.internal.util.ref.Log;
-import org.eclipse.equinox.internal.util.threadpool.ThreadPoolFactory;
-import org.eclipse.equinox.internal.util.threadpool.ThreadPoolManager;
+import org.eclipse.equinox.internal.util.threadpool.*;
 
 /**
  * @author Pavlin Dobrev
  * @version 1.0
  */
 
-public class ThreadPoolFactoryImpl extends ServiceFactoryImpl implements ThreadPoolManager, ThreadPoolFactory {
+public class ThreadPoolFactoryImpl extends ServiceFactoryImpl implements ThreadPoolManager, ThreadPoolFactory, ThreadPoolStatistics {
 
 	public static ThreadPoolManagerImpl threadPool;
+	public static StealingThreadPool stealingPool;
 	private int limit;
 	private int used = 0;
 	private Job queue;
@@ -36,7 +36,12 @@ public class ThreadPoolFactoryImpl extends ServiceFactoryImpl implements ThreadP
 	public ThreadPoolFactoryImpl(String bundleName, Log log) {
 
 		super(bundleName, log);
-		threadPool = ThreadPoolManagerImpl.getThreadPool();
+		if (UtilActivator.getBoolean("equinox.util.threadpool.workStealing")) {
+			int inactiveTime = UtilActivator.getInteger("equinox.util.threadpool.inactiveTime", 30);
+			stealingPool = new StealingThreadPool(UtilActivator.getInteger("equinox.util.threadpool.minThreads", 1), ThreadPoolManagerImpl.initLimits(), inactiveTime * 1000L);
+		} else {
+			threadPool = ThreadPoolManagerImpl.getThreadPool();
+		}
 		defaultPercent = UtilActivator.getInteger("equinox.util.threadpool.percent", 30);
 		limit = (ThreadPoolManagerImpl.tMaximum * defaultPercent) / 100;
 		if (limit == 0)
@@ -57,7 +62,7 @@ public class ThreadPoolFactoryImpl extends ServiceFactoryImpl implements ThreadP
 	}
 
 	public Object getInstance(String bundleName) {
-		if (threadPool == null)
+		if (threadPool == null && stealingPool == null)
 			throw new RuntimeException("ServiceFactory is currently off!");
 		return new ThreadPoolFactoryImpl(bundleName);
 	}
@@ -65,11 +70,16 @@ public class ThreadPoolFactoryImpl extends ServiceFactoryImpl implements ThreadP
 	public static void stopThreadPool() {
 		ThreadPoolManagerImpl tmp = threadPool;
 		threadPool = null;
-		tmp.clear();
+		if (tmp != null)
+			tmp.clear();
+		StealingThreadPool stealing = stealingPool;
+		stealingPool = null;
+		if (stealing != null)
+			stealing.terminate();
 	}
 
 	public ThreadPoolManager getThreadPool(int size, boolean sizeIsInPercents) {
-		if (threadPool == null)
+		if (threadPool == null && stealingPool == null)
 			throw new RuntimeException("[ThreadPool] ThreadPool is inaccessible");
 
 		if (sizeIsInPercents) {
@@ -93,6 +103,28 @@ public class ThreadPoolFactoryImpl extends ServiceFactoryImpl implements ThreadP
 		if (ServiceFactoryImpl.useNames)
 			name = name + bundleName;
 
+		StealingThreadPool stealing = stealingPool;
+		if (stealing != null) {
+			/* the bundle limit is guarded by the factory, there is no global monitor */
+			synchronized (this) {
+				if (used >= limit) {
+					if (UtilActivator.LOG_DEBUG) {
+						UtilActivator.log.debug("In Bundle Queue: " + name + ", bundle queue size: " + queue.counter, null);
+					}
+					queue.addJob(job, name, priority, this, acc);
+					return;
+				}
+				used++;
+			}
+			try {
+				stealing.execute(job, priority, name, this, acc);
+			} catch (RuntimeException e) {
+				releaseStealing();
+				throw e;
+			}
+			return;
+		}
+
 		ThreadPoolManagerImpl tmp = threadPool;
 
 		if (tmp != null) {
@@ -126,7 +158,16 @@ public class ThreadPoolFactoryImpl extends ServiceFactoryImpl implements ThreadP
 		execute0(job, priority, name, (Log.security() ? AccessController.getContext() : null));
 	}
 
-	public Executor getExecutor() {
+	public JobExecutor getExecutor() {
+		StealingThreadPool stealing = stealingPool;
+		if (stealing != null) {
+			synchronized (this) {
+				if (used >= limit)
+					return null;
+				used++;
+			}
+			return new StealingExecutor(stealing, this);
+		}
 		ThreadPoolManagerImpl tmp = threadPool;
 		if (tmp != null) {
 			synchronized (tmp.getSyncMonitor()) {
@@ -154,9 +195,66 @@ public class ThreadPoolFactoryImpl extends ServiceFactoryImpl implements ThreadP
 		}
 	}
 
+	void finishedStealing() {
+		Job job;
+		synchronized (this) {
+			job = queue.getJob();
+			if (job == null) {
+				used--;
+				return;
+			}
+		}
+		StealingThreadPool stealing = stealingPool;
+		try {
+			if (stealing == null)
+				throw new RuntimeException("[ThreadPool] ThreadPool is inaccessible");
+			stealing.execute(job.run, job.priority, job.name, this, job.acc);
+		} catch (RuntimeException e) {
+			/* the job is lost, its slot must not be */
+			releaseStealing();
+			if (ServiceFactoryImpl.log != null) {
+				ServiceFactoryImpl.log.error("[ThreadPool Manager]\r\nUnable to execute queued job: " + job.name + "\r\n", e);
+			}
+		} finally {
+			job.fullClear();
+			ThreadPoolManagerImpl.jobPool.releaseObject(job);
+		}
+	}
+
+	synchronized void releaseStealing() {
+		used--;
+	}
+
 	public void reset() {
+		if (stealingPool != null) {
+			stealingPool.reset();
+		}
 		if (threadPool != null) {
 			threadPool.reset();
 		}
 	}
+
+	public int getActiveCount() {
+		StealingThreadPool stealing = stealingPool;
+		if (stealing != null)
+			return stealing.getActiveCount();
+		ThreadPoolManagerImpl tmp = threadPool;
+		return tmp != null ? tmp.getActiveCount() : 0;
+	}
+
+	public int getQueuedCount() {
+		StealingThreadPool stealing = stealingPool;
+		if (stealing != null)
+			return stealing.getQueuedCount();
+		ThreadPoolManagerImpl tmp = threadPool;
+		return tmp != null ? tmp.getQueuedCount() : 0;
+	}
+
+	public long getCompletedCount() {
+		StealingThreadPool stealing = stealingPool;
+		if (stealing != null)
+			return stealing.getCompletedCount();
+		ThreadPoolManagerImpl tmp = threadPool;
+		return tmp != null ? tmp.getCompletedCount() : 0;
+	}
 }
@@ -30,6 +30,7 @@ public class ThreadPoolManagerImpl extends ObjectPool implements TimerListener,
 	static ObjectPool jobPool;
 
 	private int used = 0;
+	private long completed = 0;
 	static int tMaximum = 0;
 
 	Job waiting = new Job();
@@ -65,16 +66,35 @@ public class ThreadPoolManagerImpl extends ObjectPool implements TimerListener,
 		if (threadPool == null) {
 			int intSize = UtilActivator.getInteger(pMin, defMin);
 			int minFill = intSize;
-			int factor = UtilActivator.getInteger(pMax, defMax);
 			intSize = intSize < 2 ? 2 : intSize;
-			if (intSize > factor) {
-				factor = (int) (intSize * 1.5 + 0.5);
-			}
-			threadPool = new ThreadPoolManagerImpl(intSize, (factor / intSize), minFill);
+			threadPool = new ThreadPoolManagerImpl(intSize, (getFactor(intSize) / intSize), minFill);
 		}
 		return threadPool;
 	}
 
+	/**
+	 * Sets up the thread limit and the pool of queued jobs without creating
+	 * the pool of executors. Used when the work stealing pool runs the jobs.
+	 * 
+	 * @return the maximum number of threads
+	 */
+	static int initLimits() {
+		int intSize = UtilActivator.getInteger(pMin, defMin);
+		intSize = intSize < 2 ? 2 : intSize;
+		tMaximum = intSize * (getFactor(intSize) / intSize);
+		if (jobPool == null)
+			jobPool = new ObjectPool(new Job(), 5, 8, 4);
+		return tMaximum;
+	}
+
+	private static int getFactor(int intSize) {
+		int factor = UtilActivator.getInteger(pMax, defMax);
+		if (intSize > factor) {
+			factor = (int) (intSize * 1.5 + 0.5);
+		}
+		return factor;
+	}
+
 	public void clear() {
 		shrink(-1);
 		threadPool = null;
@@ -141,6 +161,7 @@ public class ThreadPoolManagerImpl extends ObjectPool implements TimerListener,
 
 		synchronized (getSyncMonitor()) {
 			x.factory.finished();
+			completed++;
 
 			if (used <= tMaximum || ignoreMax) {
 				tmp = waiting.getJob();
@@ -253,4 +274,22 @@ public class ThreadPoolManagerImpl extends ObjectPool implements TimerListener,
 		return buff;
 	}
 
+	int getActiveCount() {
+		synchronized (getSyncMonitor()) {
+			return used;
+		}
+	}
+
+	int getQueuedCount() {
+		synchronized (getSyncMonitor()) {
+			return waiting.counter;
+		}
+	}
+
+	long getCompletedCount() {
+		synchronized (getSyncMonitor()) {
+			return completed;
+		}
+	}
+
 }
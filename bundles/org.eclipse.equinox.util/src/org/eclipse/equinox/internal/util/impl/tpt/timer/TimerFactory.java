@@ -12,6 +12,7 @@
 
 package org.eclipse.equinox.internal.util.impl.tpt.timer;
 
+import org.eclipse.equinox.internal.util.UtilActivator;
 import org.eclipse.equinox.internal.util.impl.tpt.ServiceFactoryImpl;
 import org.eclipse.equinox.internal.util.impl.tpt.threadpool.ThreadPoolFactoryImpl;
 import org.eclipse.equinox.internal.util.ref.Log;
@@ -24,12 +25,16 @@ import org.eclipse.equinox.internal.util.timer.TimerListener;
  */
 
 public class TimerFactory extends ServiceFactoryImpl implements Timer {
-	private static TimerImpl timer;
+	private static TimerHandler timer;
 
 	public TimerFactory(String bundleName, ThreadPoolFactoryImpl factory, Log log) {
 
 		super(bundleName, log);
-		timer = new TimerImpl(factory);
+		if (UtilActivator.getBoolean("equinox.util.timer.wheel")) {
+			timer = new TimerWheel(factory, UtilActivator.getInteger("equinox.util.timer.wheel.tick", TimerWheel.DEFAULT_TICK));
+		} else {
+			timer = new TimerImpl(factory);
+		}
 	}
 
 	public TimerFactory(String bundleName) {
@@ -59,7 +64,7 @@ public class TimerFactory extends ServiceFactoryImpl implements Timer {
 	}
 
 	public void addNotifyListener(TimerListener listener, int priority, int timerType, long periodMilis, int event) {
-		TimerImpl tmp = timer;
+		TimerHandler tmp = timer;
 		if (tmp == null)
 			throw new RuntimeException("This is a zombie!");
 		tmp.addNotifyListener(listener, priority, timerType, periodMilis, event, bundleName);
@@ -73,7 +78,7 @@ public class TimerFactory extends ServiceFactoryImpl implements Timer {
 	}
 
 	public void removeListener(TimerListener listener, int event) {
-		TimerImpl tmp = timer;
+		TimerHandler tmp = timer;
 		if (tmp == null)
 			throw new RuntimeException("This is a zombie!");
 		tmp.removeListener(listener, event);
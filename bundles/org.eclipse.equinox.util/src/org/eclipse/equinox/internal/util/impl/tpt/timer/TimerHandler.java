@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright (c) 2018 by ProSyst Software GmbH and others
+ * http://www.prosyst.com
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    ProSyst Software GmbH - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.equinox.internal.util.impl.tpt.timer;
+
+import org.eclipse.equinox.internal.util.timer.TimerListener;
+
+/**
+ * The queue handling part of the Timer service. {@link TimerImpl} keeps the
+ * notifications in a sorted queue, {@link TimerWheel} in a hierarchical timing
+ * wheel.
+ * 
+ * @version 1.0
+ */
+
+interface TimerHandler {
+
+	void addNotifyListener(TimerListener listener, int priority, int timerType, long periodMilis, int event, String name);
+
+	void removeListener(TimerListener listener, int event);
+
+	void terminate();
+}
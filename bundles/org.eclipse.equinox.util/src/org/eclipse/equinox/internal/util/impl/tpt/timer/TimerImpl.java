@@ -16,7 +16,7 @@ import java.security.*;
 import java.util.Hashtable;
 import org.eclipse.equinox.internal.util.UtilActivator;
 import org.eclipse.equinox.internal.util.impl.tpt.ServiceFactoryImpl;
-import org.eclipse.equinox.internal.util.impl.tpt.threadpool.Executor;
+import org.eclipse.equinox.internal.util.impl.tpt.threadpool.JobExecutor;
 import org.eclipse.equinox.internal.util.impl.tpt.threadpool.ThreadPoolFactoryImpl;
 import org.eclipse.equinox.internal.util.pool.ObjectPool;
 import org.eclipse.equinox.internal.util.ref.Log;
@@ -28,7 +28,7 @@ import org.eclipse.equinox.internal.util.timer.TimerListener;
  * @version 1.0
  */
 
-public class TimerImpl implements Runnable {
+public class TimerImpl implements Runnable, TimerHandler {
 
 	static Hashtable nodes;
 	static ObjectPool nodePool;
@@ -93,7 +93,7 @@ public class TimerImpl implements Runnable {
 							break;
 						}
 						case (Timer.ONE_SHOT_TIMER_NO_DELAY) : {
-							Executor e = threadPool.getExecutor();
+							JobExecutor e = threadPool.getExecutor();
 							if (e != null) {
 								e.setPriorityI(n.priority);
 								e.setRunnable(n, n.getEName(), threadPool, n.acc);
@@ -116,7 +116,7 @@ public class TimerImpl implements Runnable {
 							break;
 						}
 						case (Timer.PERIODICAL_TIMER_NO_DELAY) : {
-							Executor e = threadPool.getExecutor();
+							JobExecutor e = threadPool.getExecutor();
 							if (e != null) {
 								e.setPriorityI(n.priority);
 								e.setRunnable(n, n.getEName(), threadPool, n.acc);
@@ -199,7 +199,7 @@ public class TimerImpl implements Runnable {
 		}
 	}
 
-	void addNotifyListener(TimerListener listener, int priority, int timerType, long periodMilis, int event, String name) {
+	public void addNotifyListener(TimerListener listener, int priority, int timerType, long periodMilis, int event, String name) {
 		if (timerType < Timer.ONE_SHOT_TIMER || timerType > Timer.PERIODICAL_TIMER_NO_DELAY) {
 			throw new IllegalArgumentException("Invalid Timer Type");
 		}
@@ -0,0 +1,397 @@
+/*******************************************************************************
+ * Copyright (c) 2018 by ProSyst Software GmbH and others
+ * http://www.prosyst.com
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    ProSyst Software GmbH - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.equinox.internal.util.impl.tpt.timer;
+
+import java.security.*;
+import java.util.Hashtable;
+import java.util.Vector;
+import org.eclipse.equinox.internal.util.UtilActivator;
+import org.eclipse.equinox.internal.util.impl.tpt.ServiceFactoryImpl;
+import org.eclipse.equinox.internal.util.impl.tpt.threadpool.JobExecutor;
+import org.eclipse.equinox.internal.util.impl.tpt.threadpool.ThreadPoolFactoryImpl;
+import org.eclipse.equinox.internal.util.ref.Log;
+import org.eclipse.equinox.internal.util.timer.Timer;
+import org.eclipse.equinox.internal.util.timer.TimerListener;
+
+/**
+ * Timer queue handler based on a hierarchical timing wheel. It is used instead
+ * of {@link TimerImpl} when the <code>equinox.util.timer.wheel</code> property
+ * is set to <code>true</code>.
+ * <p>
+ * Time is divided in ticks of <code>equinox.util.timer.wheel.tick</code>
+ * milliseconds (10 by default). The first level of the wheel has 256 buckets
+ * of one tick each, the next four levels have 64 buckets each covering the
+ * whole previous level. Notifications are linked in the bucket covering their
+ * expiration tick and move down one level each time the lower level wraps
+ * around, so adding and removing a notification costs O(1) no matter how many
+ * are scheduled. A notification fires no more than two ticks after its time.
+ * The wheel thread does not wake up on every tick: it sleeps until the next
+ * tick with notifications in the first level, or until the first level wraps
+ * around and the notifications of the next level move down.
+ * <p>
+ * Only the wheel thread touches the buckets. Other threads hand new and
+ * cancelled notifications over through two short lists, and the lookup of the
+ * listener and event pairs is striped over several hashtables, so callers
+ * adding or removing notifications do not contend with each other or with the
+ * wheel thread.
+ *
+ * @version 1.0
+ */
+
+public class TimerWheel implements Runnable, TimerHandler {
+
+	static final int DEFAULT_TICK = 10;
+
+	private static final int ROOT_BITS = 8;
+	private static final int ROOT_SIZE = 1 << ROOT_BITS;
+	private static final int ROOT_MASK = ROOT_SIZE - 1;
+	private static final int LEVEL_BITS = 6;
+	private static final int LEVEL_SIZE = 1 << LEVEL_BITS;
+	private static final int LEVEL_MASK = LEVEL_SIZE - 1;
+	private static final int LEVELS = 5;
+	private static final long MAX_RANGE = 0xFFFFFFFFL;
+
+	private static final int STRIPES = 16;
+
+	static ThreadPoolFactoryImpl threadPool;
+
+	private final TimerWheelNode[][] wheel = new TimerWheelNode[LEVELS][];
+	private final Hashtable[] nodes = new Hashtable[STRIPES];
+	private final long tick;
+
+	private final Object sync = new Object();
+	/* guarded by sync */
+	private Vector added = new Vector();
+	private Vector removed = new Vector();
+	private boolean idle = false;
+	/* time the wheel thread wakes up at, when it is not idle */
+	private long wakeTime;
+
+	/* accessed only by the wheel thread */
+	private long startTime;
+	private long current;
+	private int size;
+
+	private volatile boolean terminated = false;
+	private Thread th;
+
+	public TimerWheel(ThreadPoolFactoryImpl threadPool, long tick) {
+		TimerWheel.threadPool = threadPool;
+		this.tick = tick > 0 ? tick : DEFAULT_TICK;
+		wheel[0] = new TimerWheelNode[ROOT_SIZE];
+		for (int i = 1; i < LEVELS; i++)
+			wheel[i] = new TimerWheelNode[LEVEL_SIZE];
+		for (int i = 0; i < STRIPES; i++)
+			nodes[i] = new Hashtable(16);
+		startTime = System.currentTimeMillis();
+		try {
+			if (ServiceFactoryImpl.privileged()) {
+				th = (Thread) AccessController.doPrivileged(new PrivilegedAction() {
+					public Object run() {
+						return new Thread(TimerWheel.this, "[Timer] - Main Queue Handler");
+					}
+				});
+			} else {
+				th = new Thread(this, "[Timer] - Main Queue Handler");
+			}
+			try {
+				String str = UtilActivator.bc.getProperty("equinox.timer.priority");
+				if (str != null)
+					th.setPriority(Integer.parseInt(str));
+			} catch (Throwable ignored) {
+			}
+			th.start();
+		} catch (Exception e) {
+			throw new RuntimeException("Can not start Timer thread!" + e.toString());
+		}
+	}
+
+	public void run() {
+		while (!terminated) {
+			transfer();
+			long now = System.currentTimeMillis();
+			long target = (now - startTime) / tick;
+			if (target < current - 1) {
+				/* time changed backwards, keep the ticks where they are */
+				startTime = now - (current - 1) * tick;
+				target = current - 1;
+			}
+			while (current <= target && !terminated) {
+				if (size == 0) {
+					current = target + 1;
+					break;
+				}
+				processTick(now);
+			}
+			synchronized (sync) {
+				if (terminated || !added.isEmpty() || !removed.isEmpty())
+					continue;
+				try {
+					if (size == 0) {
+						idle = true;
+						sync.wait();
+					} else {
+						wakeTime = startTime + nextTick() * tick;
+						long tmpWait = wakeTime - System.currentTimeMillis();
+						if (tmpWait > 0)
+							sync.wait(tmpWait);
+					}
+				} catch (InterruptedException e) {
+				} finally {
+					idle = false;
+				}
+			}
+		} // while (!terminated)
+		for (int i = 0; i < STRIPES; i++)
+			nodes[i].clear();
+		for (int i = 0; i < LEVELS; i++)
+			for (int j = 0; j < wheel[i].length; j++)
+				wheel[i][j] = null;
+	}
+
+	public void terminate() {
+		terminated = true;
+		synchronized (sync) {
+			sync.notify();
+		}
+		try {
+			th.join();
+		} catch (InterruptedException ie) {
+		}
+	}
+
+	public void addNotifyListener(TimerListener listener, int priority, int timerType, long periodMilis, int event, String name) {
+		if (timerType < Timer.ONE_SHOT_TIMER || timerType > Timer.PERIODICAL_TIMER_NO_DELAY) {
+			throw new IllegalArgumentException("Invalid Timer Type");
+		}
+		if (listener == null) {
+			throw new IllegalArgumentException("The timer listener is null");
+		}
+		if (priority < Thread.MIN_PRIORITY || priority > Thread.MAX_PRIORITY) {
+			throw new IllegalArgumentException("Priority must be between Thread.MIN_PRIORITY and Thread.MAX_PRIORITY!");
+		}
+		if (periodMilis <= 0) {
+			throw new IllegalArgumentException("Time period must be positive!");
+		}
+		if (terminated) {
+			throw new RuntimeException("This Instance is a ZOMBIE!!!");
+		}
+		AccessControlContext acc = Log.security() ? AccessController.getContext() : null;
+		TimerWheelNode n = new TimerWheelNode(listener, priority, timerType, System.currentTimeMillis() + periodMilis, periodMilis, event, name, acc);
+		TimerWheelNode old = (TimerWheelNode) stripe(n).put(n, n);
+		if (old != null)
+			old.cancelled = true;
+		synchronized (sync) {
+			if (old != null)
+				removed.addElement(old);
+			added.addElement(n);
+			if (idle || n.runOn < wakeTime)
+				sync.notify();
+		}
+	}
+
+	public void removeListener(TimerListener listener, int event) {
+		TimerWheelNode old = (TimerWheelNode) stripe(listener, event).remove(new TimerWheelNode(listener, event));
+		if (old != null) {
+			old.cancelled = true;
+			synchronized (sync) {
+				removed.addElement(old);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of notifications linked in the wheel. Only meaningful
+	 * when called from the wheel thread or after it has terminated.
+	 */
+	int size() {
+		return size;
+	}
+
+	private Hashtable stripe(TimerWheelNode n) {
+		return nodes[(n.hashCode() & 0x7FFFFFFF) % STRIPES];
+	}
+
+	private Hashtable stripe(TimerListener listener, int event) {
+		return nodes[((listener.hashCode() + event) & 0x7FFFFFFF) % STRIPES];
+	}
+
+	/* moves the notifications added or removed by other threads into the wheel */
+	private void transfer() {
+		Vector toAdd;
+		Vector toRemove;
+		synchronized (sync) {
+			if (added.isEmpty() && removed.isEmpty())
+				return;
+			toAdd = added;
+			toRemove = removed;
+			added = new Vector();
+			removed = new Vector();
+		}
+		if (size == 0) {
+			/* nothing scheduled, skip the ticks spent waiting */
+			long idleTick = (System.currentTimeMillis() - startTime) / tick;
+			if (idleTick > current)
+				current = idleTick;
+		}
+		for (int i = 0; i < toAdd.size(); i++) {
+			TimerWheelNode n = (TimerWheelNode) toAdd.elementAt(i);
+			if (!n.cancelled)
+				place(n);
+		}
+		for (int i = 0; i < toRemove.size(); i++) {
+			unlink((TimerWheelNode) toRemove.elementAt(i));
+		}
+	}
+
+	/*
+	 * Returns the next tick with notifications in the first level, or the tick
+	 * at which the first level wraps around and the next level is cascaded.
+	 */
+	private long nextTick() {
+		long wrap = (current | ROOT_MASK) + 1;
+		for (long t = current; t < wrap; t++) {
+			if (wheel[0][(int) (t & ROOT_MASK)] != null)
+				return t;
+		}
+		return wrap;
+	}
+
+	private void processTick(long now) {
+		int index = (int) (current & ROOT_MASK);
+		if (index == 0) {
+			for (int level = 1; level < LEVELS; level++) {
+				if (cascade(level, (int) ((current >>> (ROOT_BITS + (level - 1) * LEVEL_BITS)) & LEVEL_MASK)) != 0)
+					break;
+			}
+		}
+		current++;
+		TimerWheelNode n = wheel[0][index];
+		wheel[0][index] = null;
+		while (n != null) {
+			TimerWheelNode next = n.next;
+			n.next = n.prev = null;
+			n.level = -1;
+			size--;
+			if (expiration(n) >= current) {
+				/* clamped to the range of the wheel, not due yet */
+				place(n);
+			} else {
+				fire(n, now);
+			}
+			n = next;
+		}
+	}
+
+	private int cascade(int level, int index) {
+		TimerWheelNode n = wheel[level][index];
+		wheel[level][index] = null;
+		while (n != null) {
+			TimerWheelNode next = n.next;
+			n.next = n.prev = null;
+			n.level = -1;
+			size--;
+			place(n);
+			n = next;
+		}
+		return index;
+	}
+
+	private long expiration(TimerWheelNode n) {
+		long delta = n.runOn - startTime;
+		return delta <= 0 ? 0 : (delta + tick - 1) / tick;
+	}
+
+	private void place(TimerWheelNode n) {
+		long expires = expiration(n);
+		long idx = expires - current;
+		int level;
+		int slot;
+		if (idx < 0) {
+			/* already due, run with the current tick */
+			level = 0;
+			slot = (int) (current & ROOT_MASK);
+		} else if (idx < ROOT_SIZE) {
+			level = 0;
+			slot = (int) (expires & ROOT_MASK);
+		} else {
+			if (idx > MAX_RANGE) {
+				expires = current + MAX_RANGE;
+				idx = MAX_RANGE;
+			}
+			level = 1;
+			int shift = ROOT_BITS + LEVEL_BITS;
+			while (level < LEVELS - 1 && idx >= (1L << shift)) {
+				level++;
+				shift += LEVEL_BITS;
+			}
+			slot = (int) ((expires >>> (shift - LEVEL_BITS)) & LEVEL_MASK);
+		}
+		TimerWheelNode head = wheel[level][slot];
+		n.next = head;
+		n.prev = null;
+		if (head != null)
+			head.prev = n;
+		wheel[level][slot] = n;
+		n.level = level;
+		n.slot = slot;
+		size++;
+	}
+
+	private void unlink(TimerWheelNode n) {
+		if (n.level < 0)
+			return;
+		if (n.prev != null) {
+			n.prev.next = n.next;
+		} else {
+			wheel[n.level][n.slot] = n.next;
+		}
+		if (n.next != null)
+			n.next.prev = n.prev;
+		n.next = n.prev = null;
+		n.level = -1;
+		size--;
+	}
+
+	private void fire(TimerWheelNode n, long now) {
+		if (n.cancelled)
+			return;
+		if (!n.isPeriodical()) {
+			Hashtable stripe = stripe(n);
+			synchronized (stripe) {
+				if (stripe.get(n) == n)
+					stripe.remove(n);
+			}
+		}
+		if (n.isNoDelay()) {
+			JobExecutor e = threadPool.getExecutor();
+			if (e != null) {
+				e.setPriorityI(n.priority);
+				e.setRunnable(n, n.getEName(), threadPool, n.acc);
+			} else {
+				Thread th = new Thread(n, n.getEName());
+				th.setPriority(n.priority);
+				th.start();
+			}
+		} else {
+			threadPool.execute0(n, n.priority, n.getEName(), n.acc);
+		}
+		if (n.isPeriodical()) {
+			n.runOn += n.period;
+			if (n.runOn < now) { // time changed
+				n.runOn = now + n.period;
+			}
+			place(n);
+		}
+	}
+}
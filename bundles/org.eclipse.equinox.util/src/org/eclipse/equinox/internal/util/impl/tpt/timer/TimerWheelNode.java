@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2018 by ProSyst Software GmbH and others
+ * http://www.prosyst.com
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    ProSyst Software GmbH - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.equinox.internal.util.impl.tpt.timer;
+
+import java.security.AccessControlContext;
+import org.eclipse.equinox.internal.util.impl.tpt.ServiceFactoryImpl;
+import org.eclipse.equinox.internal.util.timer.Timer;
+import org.eclipse.equinox.internal.util.timer.TimerListener;
+
+/**
+ * A notification scheduled in a {@link TimerWheel}. Nodes are linked in the
+ * bucket of the wheel that covers their expiration tick. Two nodes are equal
+ * if they have the same listener and event, so a node can be used as a key to
+ * find the scheduled notification of a listener and event pair.
+ *
+ * @version 1.0
+ */
+
+class TimerWheelNode implements Runnable {
+
+	final TimerListener listener;
+	final int event;
+	final int type;
+	final int priority;
+	final long period;
+	final AccessControlContext acc;
+	private final int theHash;
+	private String name;
+	private boolean named = false;
+
+	/* absolute time in milliseconds */
+	long runOn;
+
+	/* bucket links, accessed only by the wheel thread */
+	TimerWheelNode next;
+	TimerWheelNode prev;
+	int level = -1;
+	int slot;
+
+	volatile boolean cancelled = false;
+
+	TimerWheelNode(TimerListener listener, int event) {
+		this(listener, 0, -1, 0, 0, event, null, null);
+	}
+
+	TimerWheelNode(TimerListener listener, int priority, int timerType, long runOn, long periodMilis, int event, String name, AccessControlContext acc) {
+		this.listener = listener;
+		this.priority = priority;
+		this.type = timerType;
+		this.runOn = runOn;
+		this.period = periodMilis;
+		this.event = event;
+		this.name = name;
+		this.acc = acc;
+		theHash = listener.hashCode() + event;
+	}
+
+	boolean isPeriodical() {
+		return type == Timer.PERIODICAL_TIMER || type == Timer.PERIODICAL_TIMER_NO_DELAY;
+	}
+
+	boolean isNoDelay() {
+		return type == Timer.ONE_SHOT_TIMER_NO_DELAY || type == Timer.PERIODICAL_TIMER_NO_DELAY;
+	}
+
+	public String getEName() {
+		if (ServiceFactoryImpl.useNames && !named) {
+			named = true;
+			String tmp = null;
+			switch (type) {
+				case Timer.ONE_SHOT_TIMER : {
+					tmp = TimerQueueNode.ONE_SHOT_TASK_NAME;
+					break;
+				}
+				case Timer.ONE_SHOT_TIMER_NO_DELAY : {
+					tmp = TimerQueueNode.ONE_SHOT_NO_DELAY_TASK_NAME;
+					break;
+				}
+				case Timer.PERIODICAL_TIMER : {
+					tmp = TimerQueueNode.PERIODICAL_TASK_NAME;
+					break;
+				}
+				case Timer.PERIODICAL_TIMER_NO_DELAY : {
+					tmp = TimerQueueNode.PERIODICAL_NO_DELAY_TASK_NAME;
+					break;
+				}
+			}
+			name = (name != null) ? tmp.concat(name) : tmp;
+		}
+		return ((name == null) ? "" : name);
+	}
+
+	public void run() {
+		if (cancelled)
+			return;
+		try {
+			listener.timer(event);
+		} catch (Throwable t) {
+			if (ServiceFactoryImpl.log != null) {
+				ServiceFactoryImpl.log.error("[Timer] - Error while notifying:\r\n" + listener, t);
+			}
+		}
+	}
+
+	public int hashCode() {
+		return theHash;
+	}
+
+	public boolean equals(Object a) {
+		if (a instanceof TimerWheelNode) {
+			TimerWheelNode b = (TimerWheelNode) a;
+			return b.listener == listener && b.event == event;
+		}
+		return false;
+	}
+
+	public String toString() {
+		return "WheelNode: " + super.toString() + "\r\n" + "\t\tListener: " + listener + "\r\n" + "\t\tEvent: " + event + "\r\n" + "\t\tType: " + type + "\r\n" + "\t\trunafter: " + (runOn - System.currentTimeMillis()) + "\r\n" + "\t\tCancelled: " + cancelled;
+	}
+}
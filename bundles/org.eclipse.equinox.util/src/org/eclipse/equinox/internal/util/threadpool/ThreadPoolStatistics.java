@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2018 by ProSyst Software GmbH and others
+ * http://www.prosyst.com
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * Contributors:
+ *    ProSyst Software GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.util.threadpool;
+
+/**
+ * Management view of the thread pool. The ThreadPoolManager service is also
+ * registered under this interface, so that monitoring tools can follow the
+ * load of the pool. The values are snapshots and may be slightly out of date
+ * when the pool is busy.
+ * 
+ * @version 1.0
+ */
+
+public interface ThreadPoolStatistics {
+
+	/**
+	 * Returns the number of jobs being executed at the moment.
+	 */
+	public int getActiveCount();
+
+	/**
+	 * Returns the number of jobs waiting in the pool for a free thread. Jobs
+	 * held back because their bundle has reached its thread limit are not
+	 * counted.
+	 */
+	public int getQueuedCount();
+
+	/**
+	 * Returns the number of jobs that have finished since the pool was
+	 * started.
+	 */
+	public long getCompletedCount();
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2009 Heiko Seeberger and others.
+ * Copyright (c) 2008, 2018 Heiko Seeberger and others.
  * All rights reserved. This program and the accompanying materials 
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,9 +14,6 @@
 package org.eclipse.equinox.weaving.internal.caching;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.InputStream;
 import java.net.URL;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -41,11 +38,9 @@ import org.osgi.framework.BundleContext;
  */
 public class BundleCachingService implements ICachingService {
 
-    private static final int READ_BUFFER_SIZE = 8 * 1024;
-
     private final Bundle bundle;
 
-    private File cacheDirectory;
+    private ClassCacheStore cacheStore;
 
     private final String cacheKey;
 
@@ -83,9 +78,9 @@ public class BundleCachingService implements ICachingService {
 
         final File dataFile = bundleContext.getDataFile(cacheKey);
         if (dataFile != null) {
-            final String bundleCacheDir = bundle.getBundleId()
-                    + "-" + bundle.getLastModified(); //$NON-NLS-1$
-            cacheDirectory = new File(dataFile, bundleCacheDir);
+            final String versionPrefix = bundle.getBundleId() + "-"; //$NON-NLS-1$
+            cacheStore = new ClassCacheStore(dataFile, versionPrefix
+                    + bundle.getLastModified(), versionPrefix);
         } else {
             Log.error("Cannot initialize cache!", null); //$NON-NLS-1$
         }
@@ -113,9 +108,8 @@ public class BundleCachingService implements ICachingService {
         byte[] storedClass = null;
         boolean isCached = false;
 
-        if (cacheDirectory != null) {
-            final File cachedBytecodeFile = new File(cacheDirectory, name);
-            storedClass = read(name, cachedBytecodeFile);
+        if (cacheStore != null) {
+            storedClass = cacheStore.read(name);
             isCached = storedClass != null;
         }
 
@@ -147,12 +141,12 @@ public class BundleCachingService implements ICachingService {
             throw new IllegalArgumentException(
                     "Argument \"classbytes\" must not be null!"); //$NON-NLS-1$
         }
-        if (cacheDirectory == null) {
+        if (cacheStore == null) {
             return false;
         }
 
-        final CacheItem item = new CacheItem(classbytes, cacheDirectory
-                .getAbsolutePath(), clazz.getName());
+        final CacheItem item = new CacheItem(classbytes, cacheStore, clazz
+                .getName());
 
         return this.cacheWriterQueue.offer(item);
     }
@@ -165,8 +159,12 @@ public class BundleCachingService implements ICachingService {
             final URL sourceFileUrl, final Class<?> clazz,
             final byte[] classbytes, final Map<String, byte[]> generatedClasses) {
 
-        final CacheItem item = new CacheItem(classbytes, cacheDirectory
-                .getAbsolutePath(), clazz.getName(), generatedClasses);
+        if (cacheStore == null) {
+            return false;
+        }
+
+        final CacheItem item = new CacheItem(classbytes, cacheStore, clazz
+                .getName(), generatedClasses);
 
         return this.cacheWriterQueue.offer(item);
     }
@@ -202,63 +200,4 @@ public class BundleCachingService implements ICachingService {
         return new String(result);
     }
 
-    private byte[] read(final String name, final File file) {
-        int length = (int) file.length();
-
-        InputStream in = null;
-        try {
-            byte[] classbytes = new byte[length];
-            int bytesread = 0;
-            int readcount;
-
-            in = new FileInputStream(file);
-
-            if (length > 0) {
-                classbytes = new byte[length];
-                for (; bytesread < length; bytesread += readcount) {
-                    readcount = in.read(classbytes, bytesread, length
-                            - bytesread);
-                    if (readcount <= 0) /* if we didn't read anything */
-                    break; /* leave the loop */
-                }
-            } else /* BundleEntry does not know its own length! */{
-                length = READ_BUFFER_SIZE;
-                classbytes = new byte[length];
-                readloop: while (true) {
-                    for (; bytesread < length; bytesread += readcount) {
-                        readcount = in.read(classbytes, bytesread, length
-                                - bytesread);
-                        if (readcount <= 0) /* if we didn't read anything */
-                        break readloop; /* leave the loop */
-                    }
-                    final byte[] oldbytes = classbytes;
-                    length += READ_BUFFER_SIZE;
-                    classbytes = new byte[length];
-                    System.arraycopy(oldbytes, 0, classbytes, 0, bytesread);
-                }
-            }
-            if (classbytes.length > bytesread) {
-                final byte[] oldbytes = classbytes;
-                classbytes = new byte[bytesread];
-                System.arraycopy(oldbytes, 0, classbytes, 0, bytesread);
-            }
-            return classbytes;
-        } catch (final IOException e) {
-            Log.debug(MessageFormat.format(
-                    "for [{0}]: Cannot read [1] from cache!", bundle //$NON-NLS-1$
-                            .getSymbolicName(), name));
-            return null;
-        } finally {
-            if (in != null) {
-                try {
-                    in.close();
-                } catch (final IOException e) {
-                    Log.error(MessageFormat.format(
-                            "for [{0}]: Cannot close cache file for [1]!", //$NON-NLS-1$
-                            bundle.getSymbolicName(), name), e);
-                }
-            }
-        }
-    }
-
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 Martin Lippert and others.
+ * Copyright (c) 2009, 2018 Martin Lippert and others.
  * All rights reserved. This program and the accompanying materials 
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -24,7 +24,7 @@ public class CacheItem {
 
     private final byte[] cachedBytes;
 
-    private final String directory;
+    private final ClassCacheStore store;
 
     private final Map<String, byte[]> generatedClasses;
 
@@ -34,27 +34,27 @@ public class CacheItem {
      * Create a new item to be cached
      * 
      * @param cachedBytes The bytes to be written to the cache
-     * @param directory The directory to where the bytes should be stored
-     * @param name The name of the file to store the bytes in
+     * @param store The cache store to which the bytes should be written
+     * @param name The name of the class to store the bytes for
      */
-    public CacheItem(final byte[] cachedBytes, final String directory,
+    public CacheItem(final byte[] cachedBytes, final ClassCacheStore store,
             final String name) {
-        this(cachedBytes, directory, name, null);
+        this(cachedBytes, store, name, null);
     }
 
     /**
      * Create a new item to be cached
      * 
      * @param cachedBytes The bytes to be written to the cache
-     * @param directory The directory to where the bytes should be stored
-     * @param name The name of the file to store the bytes in
+     * @param store The cache store to which the bytes should be written
+     * @param name The name of the class to store the bytes for
      * @param generatedClasses The generated classes that should be stored
      *            together with this item (className -> bytecode)
      */
-    public CacheItem(final byte[] cachedBytes, final String directory,
+    public CacheItem(final byte[] cachedBytes, final ClassCacheStore store,
             final String name, final Map<String, byte[]> generatedClasses) {
         this.cachedBytes = cachedBytes;
-        this.directory = directory;
+        this.store = store;
         this.name = name;
         this.generatedClasses = generatedClasses;
     }
@@ -67,10 +67,10 @@ public class CacheItem {
     }
 
     /**
-     * @return The directory in which the item should be stored
+     * @return The cache store to which the item should be written
      */
-    public String getDirectory() {
-        return directory;
+    public ClassCacheStore getStore() {
+        return store;
     }
 
     /**
@@ -83,7 +83,7 @@ public class CacheItem {
     }
 
     /**
-     * @return The name of the file to be written to the cache
+     * @return The name of the class to be written to the cache
      */
     public String getName() {
         return name;
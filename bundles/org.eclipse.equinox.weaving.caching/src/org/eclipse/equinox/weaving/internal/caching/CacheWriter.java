@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 Martin Lippert and others.
+ * Copyright (c) 2009, 2018 Martin Lippert and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,24 +12,28 @@
 
 package org.eclipse.equinox.weaving.internal.caching;
 
-import java.io.BufferedOutputStream;
-import java.io.DataOutputStream;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.BlockingQueue;
 
 /**
  * The CacheWriter is responsible to store cache items to disk. The cache items
- * are read from the given queue.
+ * are read from the given queue. All items waiting in the queue are taken at
+ * once and written to their cache stores as one batch per store.
  *
  * @author Martin Lippert
  */
 public class CacheWriter {
 
+    /**
+     * The maximal number of cache items written in one batch.
+     */
+    private static final int MAX_BATCH_SIZE = 512;
+
     private final Thread writerThread;
 
     /**
@@ -43,13 +47,12 @@ public class CacheWriter {
 
             public void run() {
                 try {
+                    final List<CacheItem> items = new ArrayList<CacheItem>();
                     while (true) {
-                        final CacheItem item = cacheQueue.take();
-                        try {
-                            store(item);
-                        } catch (final IOException ioe) {
-                            // storing in cache failed, do nothing
-                        }
+                        items.add(cacheQueue.take());
+                        cacheQueue.drainTo(items, MAX_BATCH_SIZE - 1);
+                        store(items);
+                        items.clear();
                     }
                 } catch (final InterruptedException e) {
                 }
@@ -73,60 +76,37 @@ public class CacheWriter {
     }
 
     /**
-     * store the cache item to disk
+     * store the cache items to disk
      *
-     * This operation creates the appropriate directory for the cache item if it
-     * does not exist
+     * The items are grouped by their cache store and each store writes its
+     * items as one batch. A failure of one store does not affect the others.
      *
-     * @param item the cache item to store to disc
-     * @throws IOException if an error occurs while writing to the cache
+     * @param items the cache items to store to disc
      */
-    protected void store(final CacheItem item) throws IOException {
-
-        // write out generated classes first
-        final Map<String, byte[]> generatedClasses = item.getGeneratedClasses();
-        if (generatedClasses != null) {
-            for (final Entry<String, byte[]> entry : generatedClasses
-                    .entrySet()) {
-                final String className = entry.getKey();
-                final byte[] classBytes = entry.getValue();
-                storeSingleClass(className, classBytes, item.getDirectory());
+    protected void store(final List<CacheItem> items) {
+        final Map<ClassCacheStore, Map<String, byte[]>> batches = new LinkedHashMap<ClassCacheStore, Map<String, byte[]>>();
+        for (final CacheItem item : items) {
+            Map<String, byte[]> classes = batches.get(item.getStore());
+            if (classes == null) {
+                classes = new LinkedHashMap<String, byte[]>();
+                batches.put(item.getStore(), classes);
             }
-        }
-
-        // write out the woven class
-        storeSingleClass(item.getName(), item.getCachedBytes(),
-                item.getDirectory());
-    }
-
-    private void storeSingleClass(final String className,
-            final byte[] classBytes, final String cacheDirectory)
-            throws FileNotFoundException, IOException {
-        DataOutputStream outCache = null;
-        FileOutputStream fosCache = null;
-        try {
-            final File directory = new File(cacheDirectory);
-            if (!directory.exists()) {
-                directory.mkdirs();
+            // write out generated classes first
+            final Map<String, byte[]> generatedClasses = item
+                    .getGeneratedClasses();
+            if (generatedClasses != null) {
+                classes.putAll(generatedClasses);
             }
+            // write out the woven class
+            classes.put(item.getName(), item.getCachedBytes());
+        }
 
-            fosCache = new FileOutputStream(new File(directory, className));
-            outCache = new DataOutputStream(new BufferedOutputStream(fosCache));
-
-            outCache.write(classBytes);
-        } finally {
-            if (outCache != null) {
-                try {
-                    outCache.flush();
-                    fosCache.getFD().sync();
-                } catch (final IOException e) {
-                    // do nothing, we tried
-                }
-                try {
-                    outCache.close();
-                } catch (final IOException e) {
-                    // do nothing
-                }
+        for (final Entry<ClassCacheStore, Map<String, byte[]>> batch : batches
+                .entrySet()) {
+            try {
+                batch.getKey().store(batch.getValue());
+            } catch (final IOException ioe) {
+                // storing in cache failed, do nothing
             }
         }
     }
@@ -0,0 +1,418 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Martin Lippert and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Martin Lippert - initial implementation
+ *******************************************************************************/
+
+package org.eclipse.equinox.weaving.internal.caching;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.MessageFormat;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The packed cache of the woven and generated classes of one bundle in one
+ * cache namespace.
+ * <p>
+ * The class bytes are appended to a single data file, which is read through a
+ * {@link MappedByteBuffer}. An index file maps each class name to the offset
+ * and length of its bytes in the data file. Classes are appended in batches,
+ * the data file is forced to disk before the index records of a batch are
+ * appended, so the index never refers to bytes that are not on disk. When a
+ * class is stored again its previous bytes become stale; the files are
+ * compacted when they are opened and too many stale entries have accumulated.
+ * The cache files of other versions of the bundle are deleted when the first
+ * batch is stored.
+ * </p>
+ */
+public class ClassCacheStore {
+
+    private static final String DATA_FILE_EXTENSION = ".data"; //$NON-NLS-1$
+
+    private static final String INDEX_FILE_EXTENSION = ".index"; //$NON-NLS-1$
+
+    private static final String TEMP_FILE_EXTENSION = ".tmp"; //$NON-NLS-1$
+
+    private static final int INDEX_MAGIC = 0x57434958;
+
+    private static final int INDEX_VERSION = 1;
+
+    private static final int INDEX_HEADER_LENGTH = 8;
+
+    /**
+     * The minimal number of stale entries before the files are compacted.
+     */
+    private static final int COMPACTION_THRESHOLD = 64;
+
+    private final File dataFile;
+
+    private final File indexFile;
+
+    private final Map<String, IndexEntry> entries = new ConcurrentHashMap<String, IndexEntry>();
+
+    private final String versionPrefix;
+
+    private boolean otherVersionsDeleted;
+
+    private long dataLength;
+
+    private long indexLength;
+
+    private volatile boolean loaded;
+
+    private volatile MappedByteBuffer mappedData;
+
+    private int staleEntries;
+
+    /**
+     * @param directory The directory of the cache namespace
+     * @param name The name of the cache files of the bundle in the directory
+     * @param versionPrefix The prefix of the names of the cache files of all
+     *            versions of the bundle, or null to keep the files of other
+     *            versions
+     */
+    public ClassCacheStore(final File directory, final String name,
+            final String versionPrefix) {
+        this.dataFile = new File(directory, name + DATA_FILE_EXTENSION);
+        this.indexFile = new File(directory, name + INDEX_FILE_EXTENSION);
+        this.versionPrefix = versionPrefix;
+    }
+
+    /**
+     * Reads the cached bytes of the given class.
+     *
+     * @param name The name of the class
+     * @return The cached bytes or null, if the class is not cached
+     */
+    public byte[] read(final String name) {
+        if (!loaded) {
+            load();
+        }
+        final IndexEntry entry = entries.get(name);
+        if (entry == null) {
+            return null;
+        }
+        final long end = entry.offset + entry.length;
+        MappedByteBuffer buffer = mappedData;
+        if (buffer == null || buffer.capacity() < end) {
+            buffer = map(end);
+            if (buffer == null) {
+                return null;
+            }
+        }
+        final ByteBuffer slice = buffer.duplicate();
+        slice.position(entry.offset);
+        final byte[] classbytes = new byte[entry.length];
+        slice.get(classbytes);
+        return classbytes;
+    }
+
+    /**
+     * Appends the given classes to the cache as one batch. The data file and
+     * the index file are each forced to disk once for the whole batch.
+     *
+     * @param classes The bytes of the classes to store (class name ->
+     *            bytecode)
+     * @throws IOException if an error occurs while writing to the cache
+     */
+    public synchronized void store(final Map<String, byte[]> classes)
+            throws IOException {
+        load();
+        if (!otherVersionsDeleted) {
+            deleteOtherVersions();
+            otherVersionsDeleted = true;
+        }
+
+        final Map<String, IndexEntry> stored = new HashMap<String, IndexEntry>();
+        final ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+        final DataOutputStream indexOut = new DataOutputStream(indexBytes);
+        long position = dataLength;
+
+        dataFile.getParentFile().mkdirs();
+        final RandomAccessFile data = new RandomAccessFile(dataFile, "rw"); //$NON-NLS-1$
+        try {
+            final FileChannel channel = data.getChannel();
+            for (final Entry<String, byte[]> entry : classes.entrySet()) {
+                final byte[] classbytes = entry.getValue();
+                if (position + classbytes.length > Integer.MAX_VALUE) {
+                    // the data file can only be mapped up to 2GB
+                    break;
+                }
+                final ByteBuffer buffer = ByteBuffer.wrap(classbytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, position + buffer.position());
+                }
+                final IndexEntry indexEntry = new IndexEntry((int) position,
+                        classbytes.length);
+                indexOut.writeUTF(entry.getKey());
+                indexOut.writeInt(indexEntry.offset);
+                indexOut.writeInt(indexEntry.length);
+                stored.put(entry.getKey(), indexEntry);
+                position += classbytes.length;
+            }
+            channel.force(false);
+        } finally {
+            data.close();
+        }
+        if (stored.isEmpty()) {
+            return;
+        }
+
+        final RandomAccessFile index = new RandomAccessFile(indexFile, "rw"); //$NON-NLS-1$
+        try {
+            if (indexLength < INDEX_HEADER_LENGTH) {
+                index.setLength(0);
+                index.writeInt(INDEX_MAGIC);
+                index.writeInt(INDEX_VERSION);
+                indexLength = INDEX_HEADER_LENGTH;
+            } else {
+                // drops a partial record left by an interrupted batch
+                index.setLength(indexLength);
+                index.seek(indexLength);
+            }
+            index.write(indexBytes.toByteArray());
+            index.getFD().sync();
+        } finally {
+            index.close();
+        }
+
+        indexLength += indexBytes.size();
+        dataLength = position;
+        for (final Entry<String, IndexEntry> entry : stored.entrySet()) {
+            if (entries.put(entry.getKey(), entry.getValue()) != null) {
+                staleEntries++;
+            }
+        }
+    }
+
+    private void compact() throws IOException {
+        final File tempData = new File(dataFile.getPath()
+                + TEMP_FILE_EXTENSION);
+        final File tempIndex = new File(indexFile.getPath()
+                + TEMP_FILE_EXTENSION);
+        final Map<String, IndexEntry> compacted = new HashMap<String, IndexEntry>();
+        final ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+        final DataOutputStream indexOut = new DataOutputStream(indexBytes);
+        indexOut.writeInt(INDEX_MAGIC);
+        indexOut.writeInt(INDEX_VERSION);
+
+        int position = 0;
+        final RandomAccessFile source = new RandomAccessFile(dataFile, "r"); //$NON-NLS-1$
+        final RandomAccessFile target = new RandomAccessFile(tempData, "rw"); //$NON-NLS-1$
+        try {
+            target.setLength(0);
+            for (final Entry<String, IndexEntry> entry : entries.entrySet()) {
+                final IndexEntry indexEntry = entry.getValue();
+                final byte[] classbytes = new byte[indexEntry.length];
+                source.seek(indexEntry.offset);
+                source.readFully(classbytes);
+                target.write(classbytes);
+                indexOut.writeUTF(entry.getKey());
+                indexOut.writeInt(position);
+                indexOut.writeInt(indexEntry.length);
+                compacted.put(entry.getKey(), new IndexEntry(position,
+                        indexEntry.length));
+                position += indexEntry.length;
+            }
+            target.getFD().sync();
+        } finally {
+            source.close();
+            target.close();
+        }
+
+        final RandomAccessFile index = new RandomAccessFile(tempIndex, "rw"); //$NON-NLS-1$
+        try {
+            index.setLength(0);
+            index.write(indexBytes.toByteArray());
+            index.getFD().sync();
+        } finally {
+            index.close();
+        }
+
+        // without the index the data file is never used, so it goes first
+        if (!indexFile.delete() || !dataFile.delete()
+                || !tempData.renameTo(dataFile)
+                || !tempIndex.renameTo(indexFile)) {
+            tempData.delete();
+            tempIndex.delete();
+            throw new IOException(MessageFormat.format(
+                    "Cannot replace [{0}] with its compacted version!", //$NON-NLS-1$
+                    dataFile));
+        }
+        entries.clear();
+        entries.putAll(compacted);
+        dataLength = position;
+        indexLength = indexBytes.size();
+        staleEntries = 0;
+    }
+
+    /**
+     * Deletes the cache files of other versions of the bundle, and the
+     * directories of the single file per class cache this store replaces.
+     */
+    private void deleteOtherVersions() {
+        if (versionPrefix == null) {
+            return;
+        }
+        final File[] files = dataFile.getParentFile().listFiles();
+        if (files == null) {
+            return;
+        }
+        for (final File file : files) {
+            if (!file.getName().startsWith(versionPrefix)
+                    || file.equals(dataFile) || file.equals(indexFile)) {
+                continue;
+            }
+            if (file.isDirectory()) {
+                final File[] classFiles = file.listFiles();
+                if (classFiles != null) {
+                    for (final File classFile : classFiles) {
+                        classFile.delete();
+                    }
+                }
+            }
+            file.delete();
+        }
+    }
+
+    private synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        try {
+            readIndex();
+            final long length = dataFile.length();
+            if (length > dataLength) {
+                // bytes of a batch whose index records were never written
+                final RandomAccessFile data = new RandomAccessFile(dataFile,
+                        "rw"); //$NON-NLS-1$
+                try {
+                    data.setLength(dataLength);
+                } finally {
+                    data.close();
+                }
+            }
+            if (staleEntries >= COMPACTION_THRESHOLD
+                    && staleEntries > entries.size() / 4) {
+                compact();
+            }
+        } catch (final IOException e) {
+            Log.error(MessageFormat.format("Cannot read cache [{0}]!", //$NON-NLS-1$
+                    indexFile), e);
+            entries.clear();
+            dataFile.delete();
+            indexFile.delete();
+            dataLength = 0;
+            indexLength = 0;
+            staleEntries = 0;
+        }
+        loaded = true;
+    }
+
+    private synchronized MappedByteBuffer map(final long end) {
+        if (mappedData != null && mappedData.capacity() >= end) {
+            return mappedData;
+        }
+        if (dataLength < end) {
+            return null;
+        }
+        try {
+            final RandomAccessFile data = new RandomAccessFile(dataFile, "r"); //$NON-NLS-1$
+            try {
+                mappedData = data.getChannel().map(
+                        FileChannel.MapMode.READ_ONLY, 0, dataLength);
+            } finally {
+                data.close();
+            }
+        } catch (final IOException e) {
+            Log.error(MessageFormat.format("Cannot map cache [{0}]!", //$NON-NLS-1$
+                    dataFile), e);
+            return null;
+        }
+        return mappedData;
+    }
+
+    private void readIndex() throws IOException {
+        entries.clear();
+        dataLength = 0;
+        indexLength = 0;
+        staleEntries = 0;
+        if (!indexFile.isFile()) {
+            dataFile.delete();
+            return;
+        }
+        final long length = dataFile.length();
+        final byte[] index = new byte[(int) indexFile.length()];
+        final DataInputStream in = new DataInputStream(new FileInputStream(
+                indexFile));
+        try {
+            in.readFully(index);
+        } finally {
+            in.close();
+        }
+        final ByteArrayInputStream records = new ByteArrayInputStream(index);
+        final DataInputStream recordsIn = new DataInputStream(records);
+        try {
+            if (recordsIn.readInt() != INDEX_MAGIC
+                    || recordsIn.readInt() != INDEX_VERSION) {
+                throw new IOException("Unknown cache format!"); //$NON-NLS-1$
+            }
+        } catch (final EOFException e) {
+            throw new IOException("Truncated cache index!"); //$NON-NLS-1$
+        }
+        indexLength = INDEX_HEADER_LENGTH;
+        while (true) {
+            final String name;
+            final IndexEntry entry;
+            try {
+                name = recordsIn.readUTF();
+                entry = new IndexEntry(recordsIn.readInt(), recordsIn.readInt());
+            } catch (final EOFException e) {
+                // the end of the index or a partial record
+                break;
+            }
+            final long end = (long) entry.offset + entry.length;
+            if (entry.offset < 0 || entry.length < 0 || end > length) {
+                // refers to bytes that did not make it to disk
+                break;
+            }
+            if (entries.put(name, entry) != null) {
+                staleEntries++;
+            }
+            dataLength = Math.max(dataLength, end);
+            indexLength = index.length - records.available();
+        }
+    }
+
+    private static class IndexEntry {
+
+        final int length;
+
+        final int offset;
+
+        IndexEntry(final int offset, final int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+}
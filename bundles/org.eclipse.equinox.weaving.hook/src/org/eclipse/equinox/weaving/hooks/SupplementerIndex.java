@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Martin Lippert and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Martin Lippert            initial implementation
+ *******************************************************************************/
+
+package org.eclipse.equinox.weaving.hooks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.eclipse.equinox.service.weaving.Supplementer;
+import org.eclipse.osgi.util.ManifestElement;
+
+/**
+ * Indexes the registered supplementers by the values of their supplementer
+ * headers, so that the supplementers matching a bundle are found with a few
+ * hash lookups instead of checking every supplementer.
+ *
+ * Eclipse-SupplementBundle values are indexed by the exact symbolic name or,
+ * if they end with a wildcard, by the prefix before it. The values of
+ * Eclipse-SupplementImporter and Eclipse-SupplementExporter are indexed by
+ * package name. The results are the same as the matching methods of
+ * {@link Supplementer}.
+ */
+public class SupplementerIndex {
+
+    private final Map<String, Set<Supplementer>> byExporter = new HashMap<String, Set<Supplementer>>();
+
+    private final Map<String, Set<Supplementer>> byImporter = new HashMap<String, Set<Supplementer>>();
+
+    private final Map<String, Set<Supplementer>> byName = new HashMap<String, Set<Supplementer>>();
+
+    private final Map<String, Set<Supplementer>> byPrefix = new HashMap<String, Set<Supplementer>>();
+
+    private final Map<Supplementer, Keys> keys = new HashMap<Supplementer, Keys>();
+
+    // number of wildcard prefixes per prefix length, only these lengths are looked up
+    private final TreeMap<Integer, Integer> prefixLengths = new TreeMap<Integer, Integer>();
+
+    /**
+     * Adds the given supplementer to the index
+     *
+     * @param supplementer The supplementer to add
+     * @param supplementBundle The parsed Eclipse-SupplementBundle header of the
+     *            supplementer, may be null
+     * @param supplementImporter The parsed Eclipse-SupplementImporter header of
+     *            the supplementer, may be null
+     * @param supplementExporter The parsed Eclipse-SupplementExporter header of
+     *            the supplementer, may be null
+     */
+    public void add(final Supplementer supplementer,
+            final ManifestElement[] supplementBundle,
+            final ManifestElement[] supplementImporter,
+            final ManifestElement[] supplementExporter) {
+        final Keys supplementerKeys = new Keys();
+        if (supplementBundle != null) {
+            for (final ManifestElement element : supplementBundle) {
+                final String value = element.getValue();
+                if (value.endsWith("*")) { //$NON-NLS-1$
+                    final String prefix = value.substring(0,
+                            value.length() - 1);
+                    if (put(byPrefix, prefix, supplementer)) {
+                        supplementerKeys.prefixes.add(prefix);
+                        final Integer length = prefix.length();
+                        final Integer count = prefixLengths.get(length);
+                        prefixLengths.put(length, count == null ? 1
+                                : count + 1);
+                    }
+                } else if (put(byName, value, supplementer)) {
+                    supplementerKeys.names.add(value);
+                }
+            }
+        }
+        put(byImporter, supplementImporter, supplementer,
+                supplementerKeys.importers);
+        put(byExporter, supplementExporter, supplementer,
+                supplementerKeys.exporters);
+        keys.put(supplementer, supplementerKeys);
+    }
+
+    /**
+     * Returns the supplementers matching a bundle with the given symbolic name
+     * and package imports and exports. A supplementer never matches the bundle
+     * with its own symbolic name.
+     *
+     * @param symbolicName The symbolic name of the bundle
+     * @param imports The parsed Import-Package header of the bundle, may be
+     *            null
+     * @param exports The parsed Export-Package header of the bundle, may be
+     *            null
+     * @return The matching supplementers
+     */
+    public Set<Supplementer> getMatchingSupplementers(
+            final String symbolicName, final ManifestElement[] imports,
+            final ManifestElement[] exports) {
+        final Set<Supplementer> result = new LinkedHashSet<Supplementer>();
+        if (symbolicName != null) {
+            addAll(result, byName.get(symbolicName));
+            for (final Integer length : prefixLengths.headMap(
+                    symbolicName.length(), true).keySet()) {
+                addAll(result,
+                        byPrefix.get(symbolicName.substring(0, length)));
+            }
+        }
+        if (imports != null) {
+            for (final ManifestElement element : imports) {
+                addAll(result, byImporter.get(element.getValue()));
+            }
+        }
+        if (exports != null) {
+            for (final ManifestElement element : exports) {
+                addAll(result, byExporter.get(element.getValue()));
+            }
+        }
+        if (symbolicName != null && !result.isEmpty()) {
+            for (final Supplementer supplementer : result
+                    .toArray(new Supplementer[result.size()])) {
+                if (symbolicName.equals(supplementer.getSymbolicName())) {
+                    result.remove(supplementer);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes the given supplementer from the index
+     *
+     * @param supplementer The supplementer to remove
+     */
+    public void remove(final Supplementer supplementer) {
+        final Keys supplementerKeys = keys.remove(supplementer);
+        if (supplementerKeys == null) {
+            return;
+        }
+        remove(byName, supplementerKeys.names, supplementer);
+        remove(byPrefix, supplementerKeys.prefixes, supplementer);
+        remove(byImporter, supplementerKeys.importers, supplementer);
+        remove(byExporter, supplementerKeys.exporters, supplementer);
+        for (final String prefix : supplementerKeys.prefixes) {
+            final Integer length = prefix.length();
+            final int count = prefixLengths.get(length);
+            if (count == 1) {
+                prefixLengths.remove(length);
+            } else {
+                prefixLengths.put(length, count - 1);
+            }
+        }
+    }
+
+    private static void addAll(final Set<Supplementer> result,
+            final Set<Supplementer> supplementers) {
+        if (supplementers != null) {
+            result.addAll(supplementers);
+        }
+    }
+
+    private static void put(final Map<String, Set<Supplementer>> index,
+            final ManifestElement[] elements, final Supplementer supplementer,
+            final List<String> added) {
+        if (elements != null) {
+            for (final ManifestElement element : elements) {
+                if (put(index, element.getValue(), supplementer)) {
+                    added.add(element.getValue());
+                }
+            }
+        }
+    }
+
+    private static boolean put(final Map<String, Set<Supplementer>> index,
+            final String key, final Supplementer supplementer) {
+        Set<Supplementer> supplementers = index.get(key);
+        if (supplementers == null) {
+            supplementers = new LinkedHashSet<Supplementer>();
+            index.put(key, supplementers);
+        }
+        return supplementers.add(supplementer);
+    }
+
+    private static void remove(final Map<String, Set<Supplementer>> index,
+            final List<String> indexKeys, final Supplementer supplementer) {
+        for (final String key : indexKeys) {
+            final Set<Supplementer> supplementers = index.get(key);
+            if (supplementers != null) {
+                supplementers.remove(supplementer);
+                if (supplementers.isEmpty()) {
+                    index.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * The keys under which a supplementer is indexed
+     */
+    private static class Keys {
+
+        final List<String> exporters = new ArrayList<String>();
+
+        final List<String> importers = new ArrayList<String>();
+
+        final List<String> names = new ArrayList<String>();
+
+        final List<String> prefixes = new ArrayList<String>();
+    }
+}
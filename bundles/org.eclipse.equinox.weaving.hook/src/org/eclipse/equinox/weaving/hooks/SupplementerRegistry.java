@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2017 Martin Lippert and others.
+ * Copyright (c) 2008, 2018 Martin Lippert and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -21,7 +21,6 @@ import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -86,17 +85,23 @@ public class SupplementerRegistry implements ISupplementerRegistry {
 
     private final Set<String> dontWeaveTheseBundles; // elements of type String (symbolic name of bundle)
 
+    private final Map<Long, PackageHeaders> packageHeadersByBundle;
+
     private PackageAdmin packageAdmin;
 
     private final Map<String, Supplementer> supplementers; // keys of type String (symbolic name of supplementer bundle)
 
+    private final SupplementerIndex supplementerIndex;
+
     private final Map<Long, Supplementer[]> supplementersByBundle;
 
     public SupplementerRegistry(final IAdaptorProvider adaptorProvider) {
         this.adaptorProvider = adaptorProvider;
 
         this.supplementers = new HashMap<String, Supplementer>();
+        this.supplementerIndex = new SupplementerIndex();
         this.supplementersByBundle = new HashMap<Long, Supplementer[]>();
+        this.packageHeadersByBundle = new HashMap<Long, PackageHeaders>();
         this.dontWeaveTheseBundles = new HashSet<String>();
 
         this.dontWeaveTheseBundles.add("org.eclipse.osgi");
@@ -129,15 +134,10 @@ public class SupplementerRegistry implements ISupplementerRegistry {
      */
     public void addSupplementedBundle(final Bundle bundle) {
         try {
-            final Dictionary<?, ?> manifest = bundle.getHeaders(""); //$NON-NLS-1$
-            final ManifestElement[] imports = ManifestElement.parseHeader(
-                    Constants.IMPORT_PACKAGE,
-                    (String) manifest.get(Constants.IMPORT_PACKAGE));
-            final ManifestElement[] exports = ManifestElement.parseHeader(
-                    Constants.EXPORT_PACKAGE,
-                    (String) manifest.get(Constants.EXPORT_PACKAGE));
+            final PackageHeaders headers = new PackageHeaders(bundle);
+            this.packageHeadersByBundle.put(bundle.getBundleId(), headers);
             final List<Supplementer> supplementers = getMatchingSupplementers(
-                    bundle.getSymbolicName(), imports, exports);
+                    bundle.getSymbolicName(), headers.imports, headers.exports);
             if (supplementers.size() > 0) {
                 this.addSupplementedBundle(bundle, supplementers);
             }
@@ -185,8 +185,13 @@ public class SupplementerRegistry implements ISupplementerRegistry {
                         host, supplementBundle, supplementImporter,
                         supplementExporter);
 
-                this.supplementers.put(bundle.getSymbolicName(),
-                        newSupplementer);
+                final Supplementer replacedSupplementer = this.supplementers
+                        .put(bundle.getSymbolicName(), newSupplementer);
+                if (replacedSupplementer != null) {
+                    this.supplementerIndex.remove(replacedSupplementer);
+                }
+                this.supplementerIndex.add(newSupplementer, supplementBundle,
+                        supplementImporter, supplementExporter);
                 if (updateBundles) {
                     resupplementInstalledBundles(newSupplementer);
                 }
@@ -207,15 +212,9 @@ public class SupplementerRegistry implements ISupplementerRegistry {
 
         if (supplementers.size() > 0
                 && !this.dontWeaveTheseBundles.contains(symbolicName)) {
-            result = new LinkedList<Supplementer>();
-            for (final Iterator<Supplementer> i = supplementers.values()
-                    .iterator(); i.hasNext();) {
-                final Supplementer supplementer = i.next();
-                if (isSupplementerMatching(symbolicName, imports, exports,
-                        supplementer)) {
-                    result.add(supplementer);
-                }
-            }
+            result = new ArrayList<Supplementer>(
+                    supplementerIndex.getMatchingSupplementers(symbolicName,
+                            imports, exports));
         }
 
         return result;
@@ -287,6 +286,7 @@ public class SupplementerRegistry implements ISupplementerRegistry {
         // if this bundle is itself supplemented by others, remove the bundle from those lists
         removeSupplementedBundle(bundle);
         this.supplementersByBundle.remove(bundle.getBundleId());
+        this.packageHeadersByBundle.remove(bundle.getBundleId());
 
         this.adaptorProvider.resetAdaptor(bundle.getBundleId());
 
@@ -297,6 +297,7 @@ public class SupplementerRegistry implements ISupplementerRegistry {
             final Supplementer supplementer = supplementers.get(bundle
                     .getSymbolicName());
             supplementers.remove(bundle.getSymbolicName());
+            supplementerIndex.remove(supplementer);
             if (AbstractWeavingHook.verbose)
                 System.err
                         .println("[org.eclipse.equinox.weaving.hook] info removing supplementer " //$NON-NLS-1$
@@ -334,10 +335,13 @@ public class SupplementerRegistry implements ISupplementerRegistry {
     }
 
     private void removeSupplementedBundle(final Bundle bundle) {
-        for (final Iterator<Supplementer> iterator = this.supplementers
-                .values().iterator(); iterator.hasNext();) {
-            final Supplementer supplementer = iterator.next();
-            supplementer.removeSupplementedBundle(bundle);
+        // only the supplementers recorded for the bundle can supplement it
+        final Supplementer[] bundleSupplementers = this.supplementersByBundle
+                .get(bundle.getBundleId());
+        if (bundleSupplementers != null) {
+            for (final Supplementer supplementer : bundleSupplementers) {
+                supplementer.removeSupplementedBundle(bundle);
+            }
         }
     }
 
@@ -361,17 +365,16 @@ public class SupplementerRegistry implements ISupplementerRegistry {
                     continue;
                 }
 
-                // find out which of the installed bundles matches the new supplementer
-                final Dictionary<?, ?> manifest = bundle.getHeaders(""); //$NON-NLS-1$
-                final ManifestElement[] imports = ManifestElement.parseHeader(
-                        Constants.IMPORT_PACKAGE,
-                        (String) manifest.get(Constants.IMPORT_PACKAGE));
-                final ManifestElement[] exports = ManifestElement.parseHeader(
-                        Constants.EXPORT_PACKAGE,
-                        (String) manifest.get(Constants.EXPORT_PACKAGE));
-
-                if (isSupplementerMatching(bundle.getSymbolicName(), imports,
-                        exports, supplementer)) {
+                // find out which of the installed bundles matches the new supplementer,
+                // using the headers parsed when the bundle was added
+                PackageHeaders headers = this.packageHeadersByBundle.get(bundle
+                        .getBundleId());
+                if (headers == null) {
+                    headers = new PackageHeaders(bundle);
+                }
+
+                if (isSupplementerMatching(bundle.getSymbolicName(),
+                        headers.imports, headers.exports, supplementer)) {
                     final IWeavingAdaptor adaptor = this.adaptorProvider
                             .getAdaptor(bundle.getBundleId());
                     if (adaptor != null && adaptor.isInitialized()) {
@@ -423,4 +426,25 @@ public class SupplementerRegistry implements ISupplementerRegistry {
     public void setPackageAdmin(final PackageAdmin packageAdmin) {
         this.packageAdmin = packageAdmin;
     }
+
+    /**
+     * The parsed package headers of a bundle, kept to match the bundle against
+     * supplementers that are added later on
+     */
+    private static class PackageHeaders {
+
+        final ManifestElement[] exports;
+
+        final ManifestElement[] imports;
+
+        PackageHeaders(final Bundle bundle) throws BundleException {
+            final Dictionary<?, ?> manifest = bundle.getHeaders(""); //$NON-NLS-1$
+            this.imports = ManifestElement.parseHeader(
+                    Constants.IMPORT_PACKAGE,
+                    (String) manifest.get(Constants.IMPORT_PACKAGE));
+            this.exports = ManifestElement.parseHeader(
+                    Constants.EXPORT_PACKAGE,
+                    (String) manifest.get(Constants.EXPORT_PACKAGE));
+        }
+    }
 }
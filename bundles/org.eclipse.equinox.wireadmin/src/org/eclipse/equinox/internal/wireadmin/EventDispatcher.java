@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 1997, 2008 by ProSyst Software GmbH
+ * Copyright (c) 1997, 2018 by ProSyst Software GmbH
  * http://www.prosyst.com
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
@@ -18,6 +18,20 @@ import org.osgi.service.wireadmin.*;
 /**
  * This class is responsible for dispatching notifications to WireAdminListeners
  * and Consumers and Producers.
+ * <p>
+ * Events are queued in a linked list guarded by a single monitor and handed
+ * over to the dispatcher thread in batches. The registered listeners are kept
+ * in an array, together with the <code>wireadmin.events</code> mask of each,
+ * which is copied only when a listener is added, modified or removed. An event
+ * no listener accepts is not queued at all.
+ * <p>
+ * <code>WIRE_TRACE</code> events are dropped when more than
+ * <code>equinox.services.wireadmin.events.queueSize</code> events (1024 by
+ * default) are waiting to be dispatched. If
+ * <code>equinox.services.wireadmin.events.traceWindow</code> is set to a
+ * positive number of milliseconds, only the first <code>WIRE_TRACE</code>
+ * event of a wire within that window is queued. Other events are always
+ * queued.
  * 
  * @author Stoyan Boshev
  * @author Pavlin Dobrev
@@ -26,26 +40,50 @@ import org.osgi.service.wireadmin.*;
  */
 public class EventDispatcher implements Runnable {
 
+	static final int DEFAULT_QUEUE_SIZE = 1024;
+
+	private static final Listener[] NO_LISTENERS = new Listener[0];
+
 	private BundleContext bc;
 
 	private WireAdminImpl wa;
 
-	private Hashtable refToList;
+	/** copied on every change, guarded by listenersLock */
+	private volatile Listener[] listeners;
+
+	/** the event types accepted by at least one listener */
+	private volatile int acceptedTypes;
+
+	/** the queued events, guarded by synch */
+	private Node head;
+	private Node tail;
+	private int queued;
+	private long dropped;
+	private long coalesced;
+
+	private final int queueSize;
 
-	private Vector events;
+	private final long traceWindow;
+
+	/** wire -> time of its last queued WIRE_TRACE event, guarded by synch */
+	private Hashtable traceTimes;
 
 	private Object synch = new Object();
 	private Object listenersLock = new Object();
 
-	private boolean running = true;
+	private volatile boolean running = true;
 
 	private Thread dispatcher;
 
 	public EventDispatcher(BundleContext bc, WireAdminImpl wa) {
 		this.bc = bc;
 		this.wa = wa;
-		this.refToList = new Hashtable(5);
-		this.events = new Vector(5, 5);
+		this.listeners = NO_LISTENERS;
+		this.queueSize = Activator.getInteger("equinox.services.wireadmin.events.queueSize", DEFAULT_QUEUE_SIZE);
+		this.traceWindow = Activator.getInteger("equinox.services.wireadmin.events.traceWindow", 0);
+		if (traceWindow > 0) {
+			traceTimes = new Hashtable(5);
+		}
 
 		ServiceReference[] sRefs = null;
 
@@ -62,7 +100,7 @@ public class EventDispatcher implements Runnable {
 				listener = (WireAdminListener) bc.getService(sRefs[i]);
 
 				if (listener != null) {
-					refToList.put(sRefs[i], listener);
+					addListener(sRefs[i], listener);
 				}
 			}
 		}
@@ -71,17 +109,16 @@ public class EventDispatcher implements Runnable {
 	}
 
 	void addEvent(WireAdminEvent evt) {
+		int type = evt.getType();
+		if ((acceptedTypes & type) != type) {
+			// no listener is interested in this event
+			return;
+		}
 		if (dispatcher == null) {
 			// synchronous
-			notifyListeners(new EventData(evt, refToList));
+			notifyListeners(new EventData(evt, listeners));
 		} else {
-			// synchronized (listenersLock) { //because it does not change the
-			// Hashtable;
-			events.addElement(new EventData(evt, refToList));
-			// }
-			synchronized (synch) {
-				synch.notify();
-			}
+			enqueue(new EventData(evt, listeners), type == WireAdminEvent.WIRE_TRACE ? evt.getWire() : null);
 		}
 	}
 
@@ -90,13 +127,99 @@ public class EventDispatcher implements Runnable {
 			// synchronous
 			notifyConsumerProducer(ne);
 		} else {
-			events.addElement(ne);
-			synchronized (synch) {
+			enqueue(ne, null);
+		}
+	}
+
+	/**
+	 * Queues an event for the dispatcher thread.
+	 * 
+	 * @param event
+	 *            the event
+	 * @param tracedWire
+	 *            the wire of a <code>WIRE_TRACE</code> event, which may be
+	 *            dropped or coalesced, or <code>null</code> for any other event
+	 */
+	private void enqueue(Object event, Wire tracedWire) {
+		synchronized (synch) {
+			if (!running) {
+				return;
+			}
+			if (tracedWire != null) {
+				if (queued >= queueSize) {
+					dropped++;
+					return;
+				}
+				// the entry of a deleted wire has already been removed, do not add it again
+				if (traceTimes != null && tracedWire.isValid()) {
+					long now = System.currentTimeMillis();
+					long[] last = (long[]) traceTimes.get(tracedWire);
+					if (last == null) {
+						traceTimes.put(tracedWire, new long[] {now});
+					} else if (now - last[0] < traceWindow && now >= last[0]) {
+						coalesced++;
+						return;
+					} else {
+						last[0] = now;
+					}
+				}
+			}
+			Node node = new Node(event);
+			if (tail == null) {
+				head = node;
 				synch.notify();
+			} else {
+				tail.next = node;
+			}
+			tail = node;
+			queued++;
+		}
+	}
+
+	/**
+	 * Forgets the time of the last <code>WIRE_TRACE</code> event of a deleted
+	 * wire. Called after the wire has been stopped.
+	 * 
+	 * @param wire
+	 *            the deleted wire
+	 */
+	void wireDeleted(Wire wire) {
+		if (traceTimes != null) {
+			synchronized (synch) {
+				traceTimes.remove(wire);
 			}
 		}
 	}
 
+	/**
+	 * Returns the number of events waiting to be dispatched.
+	 */
+	public int getQueueDepth() {
+		synchronized (synch) {
+			return queued;
+		}
+	}
+
+	/**
+	 * Returns the number of <code>WIRE_TRACE</code> events dropped because
+	 * the queue was full.
+	 */
+	public long getDroppedCount() {
+		synchronized (synch) {
+			return dropped;
+		}
+	}
+
+	/**
+	 * Returns the number of <code>WIRE_TRACE</code> events not queued because
+	 * another one for the same wire was queued within the trace window.
+	 */
+	public long getCoalescedCount() {
+		synchronized (synch) {
+			return coalesced;
+		}
+	}
+
 	private String printWires(Wire[] wires) {
 		if (wires != null) {
 			StringBuffer buff = new StringBuffer(100);
@@ -132,21 +255,21 @@ public class EventDispatcher implements Runnable {
 
 	private void notifyListeners(EventData event) {
 		WireAdminEvent evt = (WireAdminEvent) event.event;
-		Hashtable refToList = event.listeners;
+		Listener[] listeners = event.listeners;
+		int type = evt.getType();
 		if (Activator.LOG_DEBUG) {
-			Activator.log.debug(0, 10002, getEvent(evt.getType()) + evt.getWire(), evt.getThrowable(), false);
+			Activator.log.debug(0, 10002, getEvent(type) + evt.getWire(), evt.getThrowable(), false);
 			Activator.log.debug(0, 10001, ((dispatcher != null) ? "asynchronous" : "synchronous"), null, false);
 		}
 
-		for (Enumeration en = refToList.keys(); running && en.hasMoreElements();) {
-			ServiceReference current = (ServiceReference) en.nextElement();
-			Integer accepts = (Integer) current.getProperty(WireConstants.WIREADMIN_EVENTS);
-			if ((accepts != null) && ((accepts.intValue() & evt.getType()) == evt.getType())) {
+		for (int i = 0; running && i < listeners.length; i++) {
+			Listener current = listeners[i];
+			if ((current.accepts & type) == type) {
 				try {
-					((WireAdminListener) refToList.get(current)).wireAdminEvent(evt);
+					current.listener.wireAdminEvent(evt);
 				} catch (Throwable t) {
 					if (Activator.LOG_DEBUG) {
-						Activator.log.debug(0, 10003, ((WireAdminListener) refToList.get(current)).toString(), t, false);
+						Activator.log.debug(0, 10003, current.listener.toString(), t, false);
 					}
 				}
 			}
@@ -157,11 +280,16 @@ public class EventDispatcher implements Runnable {
 	 * @param ref
 	 */
 	public void removeListener(ServiceReference ref) {
-		if (refToList.containsKey(ref)) {
-			synchronized (listenersLock) {
-				refToList = (Hashtable) refToList.clone();
-				if (refToList.remove(ref) != null) {
+		synchronized (listenersLock) {
+			Listener[] current = listeners;
+			for (int i = 0; i < current.length; i++) {
+				if (current[i].ref.equals(ref)) {
+					Listener[] newListeners = new Listener[current.length - 1];
+					System.arraycopy(current, 0, newListeners, 0, i);
+					System.arraycopy(current, i + 1, newListeners, i, newListeners.length - i);
+					setListeners(newListeners);
 					bc.ungetService(ref);
+					return;
 				}
 			}
 		}
@@ -173,56 +301,100 @@ public class EventDispatcher implements Runnable {
 	 */
 	public void addListener(ServiceReference ref, Object object) {
 		synchronized (listenersLock) {
-			refToList = (Hashtable) refToList.clone();
-			refToList.put(ref, object);
+			Listener[] current = listeners;
+			Listener listener = new Listener(ref, (WireAdminListener) object);
+			for (int i = 0; i < current.length; i++) {
+				if (current[i].ref.equals(ref)) {
+					// replace the listener registered with this reference
+					Listener[] newListeners = new Listener[current.length];
+					System.arraycopy(current, 0, newListeners, 0, current.length);
+					newListeners[i] = listener;
+					setListeners(newListeners);
+					return;
+				}
+			}
+			Listener[] newListeners = new Listener[current.length + 1];
+			System.arraycopy(current, 0, newListeners, 0, current.length);
+			newListeners[current.length] = listener;
+			setListeners(newListeners);
 		}
 	}
 
+	/**
+	 * Reads again the events mask of the given listener after its service
+	 * properties have been modified.
+	 * 
+	 * @param ref
+	 */
+	public void listenerModified(ServiceReference ref) {
+		synchronized (listenersLock) {
+			Listener[] current = listeners;
+			for (int i = 0; i < current.length; i++) {
+				if (current[i].ref.equals(ref)) {
+					Listener[] newListeners = new Listener[current.length];
+					System.arraycopy(current, 0, newListeners, 0, current.length);
+					newListeners[i] = new Listener(ref, current[i].listener);
+					setListeners(newListeners);
+					return;
+				}
+			}
+		}
+	}
+
+	/* called with listenersLock held */
+	private void setListeners(Listener[] newListeners) {
+		int types = 0;
+		for (int i = 0; i < newListeners.length; i++) {
+			types |= newListeners[i].accepts;
+		}
+		listeners = newListeners;
+		acceptedTypes = types;
+	}
+
 	public void run() {
 		while (running) {
+			Node batch;
 			synchronized (synch) {
-				while (running && events.size() == 0) {
+				while (running && head == null) {
 					try {
 						synch.wait();
 					} catch (InterruptedException ie) {
 					}
 				}
+				batch = head;
+				head = tail = null;
+				queued = 0;
 			}
 
-			EventData evt = null;
-			NotificationEvent ne = null;
-			while (running && events.size() > 0) {
-				Object event = events.elementAt(0);
-				events.removeElementAt(0);
+			for (; running && batch != null; batch = batch.next) {
+				Object event = batch.event;
 				if (event instanceof EventData) {
-					evt = (EventData) event;
-					notifyListeners(evt);
+					notifyListeners((EventData) event);
 				} else {
-					ne = (NotificationEvent) event;
-					notifyConsumerProducer(ne);
+					notifyConsumerProducer((NotificationEvent) event);
 				}
 			}
 		}
 	}
 
 	void terminate() {
-		running = false;
-
-		if (dispatcher != null) {
-			synchronized (synch) {
-				synch.notify();
+		synchronized (synch) {
+			running = false;
+			head = tail = null;
+			queued = 0;
+			if (traceTimes != null) {
+				traceTimes.clear();
 			}
+			synch.notify();
 		}
 
 		synchronized (listenersLock) {
-			for (Enumeration en = refToList.keys(); en.hasMoreElements();) {
-				bc.ungetService((ServiceReference) en.nextElement());
+			Listener[] current = listeners;
+			for (int i = 0; i < current.length; i++) {
+				bc.ungetService(current[i].ref);
 			}
-			refToList.clear();
-			refToList = null;
+			setListeners(NO_LISTENERS);
 		}
-		events.removeAllElements();
-		events = null;
 	}
 
 	private String getEvent(int type) {
@@ -250,11 +422,33 @@ public class EventDispatcher implements Runnable {
 
 	class EventData {
 		Object event;
-		Hashtable listeners;
+		Listener[] listeners;
 
-		public EventData(Object event, Hashtable listenersData) {
+		public EventData(Object event, Listener[] listenersData) {
 			this.event = event;
 			listeners = listenersData;
 		}
 	}
+
+	static class Listener {
+		final ServiceReference ref;
+		final WireAdminListener listener;
+		final int accepts;
+
+		Listener(ServiceReference ref, WireAdminListener listener) {
+			this.ref = ref;
+			this.listener = listener;
+			Object events = ref.getProperty(WireConstants.WIREADMIN_EVENTS);
+			this.accepts = (events instanceof Integer) ? ((Integer) events).intValue() : 0;
+		}
+	}
+
+	static class Node {
+		final Object event;
+		Node next;
+
+		Node(Object event) {
+			this.event = event;
+		}
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 1997, 2009 by ProSyst Software GmbH
+ * Copyright (c) 1997, 2018 by ProSyst Software GmbH
  * http://www.prosyst.com
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
@@ -330,6 +330,7 @@ class WireAdminImpl implements WireAdmin, ManagedServiceFactory, ServiceListener
 				notifyListeners(wire, WireAdminEvent.WIRE_DISCONNECTED, null);
 			}
 			notifyListeners(wire, WireAdminEvent.WIRE_DELETED, null);
+			evtDisp.wireDeleted(wire);
 		}
 	}
 
@@ -447,6 +448,11 @@ class WireAdminImpl implements WireAdmin, ManagedServiceFactory, ServiceListener
 			return;
 		}
 
+		if (type == ServiceEvent.MODIFIED) {
+			// the events mask of a listener may have changed
+			evtDisp.listenerModified(ref);
+		}
+
 		Object service = bc.getService(ref);
 
 		if (type == ServiceEvent.REGISTERED) {
@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2018 by ProSyst Software GmbH
+ * http://www.prosyst.com
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    ProSyst Software GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.wireadmin;
+
+import java.util.Vector;
+import org.osgi.service.wireadmin.WireConstants;
+
+/**
+ * A wire filter compiled to direct comparisons of the primitive values of a
+ * {@link WireValues}. Only the common filters throttling a wire are compiled:
+ * a <code>&gt;=</code> or <code>&lt;=</code> comparison of
+ * <code>wirevalue.elapsed</code>, <code>wirevalue.delta.absolute</code> or
+ * <code>wirevalue.delta.relative</code>, or an <code>&amp;</code> or
+ * <code>|</code> of such comparisons. Anything else is left to the framework
+ * filter. The comparisons give the same results as the framework filter, which
+ * compares the values as <code>Long</code> and <code>Double</code> objects.
+ *
+ * @version 1.0
+ */
+
+public class WireFilter {
+
+	private static final int ELAPSED = 0;
+	private static final int DELTA_ABSOLUTE = 1;
+	private static final int DELTA_RELATIVE = 2;
+
+	private final boolean and;
+	private final int[] attributes;
+	private final boolean[] greater;
+	private final long[] longLimits;
+	private final double[] doubleLimits;
+
+	private WireFilter(boolean and, Vector terms) {
+		this.and = and;
+		int size = terms.size();
+		attributes = new int[size];
+		greater = new boolean[size];
+		longLimits = new long[size];
+		doubleLimits = new double[size];
+		for (int i = 0; i < size; i++) {
+			Term term = (Term) terms.elementAt(i);
+			attributes[i] = term.attribute;
+			greater[i] = term.greater;
+			longLimits[i] = term.longLimit;
+			doubleLimits[i] = term.doubleLimit;
+		}
+	}
+
+	/**
+	 * Compiles the given filter.
+	 *
+	 * @param filter
+	 *            the wire filter, already checked to be a valid filter
+	 * @return the compiled filter or <code>null</code> if the filter is not
+	 *         one of the supported forms
+	 */
+	public static WireFilter compile(String filter) {
+		if (filter == null || filter.length() < 2 || filter.charAt(0) != '(' || filter.charAt(filter.length() - 1) != ')') {
+			return null;
+		}
+		Vector terms = new Vector(2);
+		boolean and = true;
+		char op = filter.charAt(1);
+		if (op == '&' || op == '|') {
+			and = op == '&';
+			int pos = 2;
+			int end = filter.length() - 1;
+			while (pos < end) {
+				int close = filter.indexOf(')', pos);
+				if (filter.charAt(pos) != '(' || close < 0 || close >= end) {
+					return null;
+				}
+				Term term = parseTerm(filter.substring(pos + 1, close));
+				if (term == null) {
+					return null;
+				}
+				terms.addElement(term);
+				pos = close + 1;
+			}
+			if (terms.isEmpty()) {
+				return null;
+			}
+		} else {
+			Term term = parseTerm(filter.substring(1, filter.length() - 1));
+			if (term == null) {
+				return null;
+			}
+			terms.addElement(term);
+		}
+		return new WireFilter(and, terms);
+	}
+
+	private static Term parseTerm(String term) {
+		int index = term.indexOf(">=");
+		boolean greater = true;
+		if (index < 0) {
+			index = term.indexOf("<=");
+			greater = false;
+		}
+		if (index <= 0) {
+			return null;
+		}
+		String key = term.substring(0, index);
+		String value = term.substring(index + 2);
+		if (value.length() == 0) {
+			return null;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			// whitespace, escapes and wildcards are left to the framework filter
+			if (c <= ' ' || c == '\\' || c == '*' || c == '(' || c == ')') {
+				return null;
+			}
+		}
+		Term result = new Term();
+		result.greater = greater;
+		try {
+			if (key.equalsIgnoreCase(WireConstants.WIREVALUE_ELAPSED)) {
+				result.attribute = ELAPSED;
+				result.longLimit = Long.parseLong(value);
+			} else if (key.equalsIgnoreCase(WireConstants.WIREVALUE_DELTA_ABSOLUTE)) {
+				result.attribute = DELTA_ABSOLUTE;
+				result.doubleLimit = Double.valueOf(value).doubleValue();
+			} else if (key.equalsIgnoreCase(WireConstants.WIREVALUE_DELTA_RELATIVE)) {
+				result.attribute = DELTA_RELATIVE;
+				result.doubleLimit = Double.valueOf(value).doubleValue();
+			} else {
+				return null;
+			}
+		} catch (NumberFormatException e) {
+			return null;
+		}
+		return result;
+	}
+
+	/**
+	 * Matches the compiled filter against the given values.
+	 *
+	 * @param values
+	 *            the wire values
+	 * @return <code>true</code> if the values match the filter
+	 */
+	public boolean match(WireValues values) {
+		for (int i = 0; i < attributes.length; i++) {
+			if (matchTerm(i, values) != and) {
+				return !and;
+			}
+		}
+		return and;
+	}
+
+	private boolean matchTerm(int i, WireValues values) {
+		int comparison;
+		switch (attributes[i]) {
+			case ELAPSED :
+				if (!values.hasPrevious) {
+					return false;
+				}
+				long elapsed = values.elapsed;
+				comparison = elapsed < longLimits[i] ? -1 : (elapsed == longLimits[i] ? 0 : 1);
+				break;
+			case DELTA_ABSOLUTE :
+				if (!values.hasDelta) {
+					return false;
+				}
+				comparison = compare(values.deltaAbsolute, doubleLimits[i]);
+				break;
+			default :
+				if (!values.hasDelta) {
+					return false;
+				}
+				comparison = compare(values.deltaRelative, doubleLimits[i]);
+		}
+		return greater[i] ? comparison >= 0 : comparison <= 0;
+	}
+
+	/* the ordering of Double.compareTo, which puts NaN last and -0.0 before 0.0 */
+	private static int compare(double d1, double d2) {
+		if (d1 < d2) {
+			return -1;
+		}
+		if (d1 > d2) {
+			return 1;
+		}
+		long bits1 = Double.doubleToLongBits(d1);
+		long bits2 = Double.doubleToLongBits(d2);
+		return bits1 == bits2 ? 0 : (bits1 < bits2 ? -1 : 1);
+	}
+
+	private static class Term {
+		int attribute;
+		boolean greater;
+		long longLimit;
+		double doubleLimit;
+	}
+}
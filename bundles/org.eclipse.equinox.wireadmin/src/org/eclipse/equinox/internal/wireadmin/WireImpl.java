@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 1997, 2011 by ProSyst Software GmbH and others.
+ * Copyright (c) 1997, 2018 by ProSyst Software GmbH and others.
  * http://www.prosyst.com
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
@@ -40,12 +40,10 @@ class WireImpl implements Wire, ServiceListener {
 	private Class[] flavors;
 
 	/** Holds the last value passed to this <code>Wire</code> by the <code>Producer</code>. */
-	private Object lastValue;
+	private volatile Object lastValue;
 	/** Holds the previous value passed through this <code>Wire</code> to the <code>Consumer</code>. */
 	private Object previousValue;
 
-	private Vector envelopes;
-
 	/**
 	 * <code>WireAdmin</code> object whit which this <code>Wire</code> was
 	 * created.
@@ -54,11 +52,14 @@ class WireImpl implements Wire, ServiceListener {
 
 	private Filter filter = null;
 
+	/** Holds the wire filter compiled to direct comparisons, if it has one of the supported forms */
+	private WireFilter wireFilter = null;
+
 	/** Holds the time of previous <code>Consumer</code> update in milliseconds */
 	private long previousUpdateTime = -1;
 
-	/** Holds the available wire values (filter attributes) */
-	private Hashtable wireValues;
+	/** Holds the available wire values (filter attributes), reused for all updates */
+	private WireValues wireValues;
 
 	/* holds a list of scopes */
 	private String[] scope;
@@ -129,7 +130,7 @@ class WireImpl implements Wire, ServiceListener {
 	 * 
 	 * @see org.osgi.service.wireadmin.Wire#getLastValue()
 	 */
-	public synchronized Object getLastValue() {
+	public Object getLastValue() {
 		return lastValue;
 	}
 
@@ -138,7 +139,7 @@ class WireImpl implements Wire, ServiceListener {
 	 * 
 	 * @see org.osgi.service.wireadmin.Wire#update(java.lang.Object)
 	 */
-	public synchronized void update(Object value) {
+	public void update(Object value) {
 		if (!isConnected() || !interoperate || !isAcceptable(value)) {
 			return;
 		}
@@ -153,52 +154,74 @@ class WireImpl implements Wire, ServiceListener {
 			}
 		}
 
-		try {
-			if (filter != null) {
-				wireValues.put(WireConstants.WIREVALUE_CURRENT, value);
-
-				// #3329
-				if (previousValue != null) {
-					wireValues.put(WireConstants.WIREVALUE_PREVIOUS, previousValue);
-					wireValues.put(WireConstants.WIREVALUE_ELAPSED, new Long(System.currentTimeMillis() - previousUpdateTime));
-				} else {
-					previousValue = value; // this is to "prime the pump"
+		Consumer target;
+		WireAdminImpl owner;
+		synchronized (this) {
+			target = consumer;
+			owner = parent;
+			if (filter != null && !matchFilter(value)) {
+				lastValue = value;
+				if (Activator.LOG_DEBUG) {
+					Activator.log.debug(0, 10012, filter + " / " + value, null, false);
 				}
+				return;
+			}
+			if (target != null && owner != null) {
+				// the value is accepted, a concurrent update is filtered
+				// against it even before the consumer has received it
+				previousValue = value;
+				previousUpdateTime = System.currentTimeMillis();
+			}
+		}
 
-				if (Number.class.isInstance(value) && Number.class.isInstance(previousValue)) {
-					double val = ((Number) value).doubleValue();
-					double prevVal = ((Number) previousValue).doubleValue();
+		// the consumer is called without holding the lock of this wire, so
+		// that it does not block the producer and the pollers of the wire
+		if (target != null && owner != null) {
+			try {
+				target.updated(this, value);
+			} catch (Throwable t) {
+				owner.notifyListeners(this, WireAdminEvent.CONSUMER_EXCEPTION, t);
+			} finally {
+				owner.notifyListeners(this, WireAdminEvent.WIRE_TRACE, null);
+			}
+		}
+		lastValue = value;
+	}
 
-					wireValues.put(WireConstants.WIREVALUE_DELTA_ABSOLUTE, new Double(Math.abs(val - prevVal)));
-					// #3328
-					wireValues.put(WireConstants.WIREVALUE_DELTA_RELATIVE, new Double(Math.abs(1 - prevVal / val)));
-				} else {
-					wireValues.remove(WireConstants.WIREVALUE_DELTA_ABSOLUTE);
-					wireValues.remove(WireConstants.WIREVALUE_DELTA_RELATIVE);
-				}
+	/**
+	 * Fills the wire values for the given value and matches the wire filter
+	 * against them. Called while holding the lock of this wire.
+	 */
+	private boolean matchFilter(Object value) {
+		WireValues values = wireValues;
+		values.current = value;
+
+		// #3329
+		if (previousValue != null) {
+			values.hasPrevious = true;
+			values.previous = previousValue;
+			values.elapsed = System.currentTimeMillis() - previousUpdateTime;
+		} else {
+			previousValue = value; // this is to "prime the pump"
+		}
 
-				if (!filter.match(wireValues)) {
-					if (Activator.LOG_DEBUG) {
-						Activator.log.debug(0, 10012, filter + " / " + value, null, false);
-					}
-					return;
-				}
-			}
+		if (value instanceof Number && previousValue instanceof Number) {
+			double val = ((Number) value).doubleValue();
+			double prevVal = ((Number) previousValue).doubleValue();
 
-			if (consumer != null) {
-				try {
-					consumer.updated(this, value);
-				} catch (Throwable t) {
-					parent.notifyListeners(this, WireAdminEvent.CONSUMER_EXCEPTION, t);
-				} finally {
-					previousValue = value;
-					previousUpdateTime = System.currentTimeMillis();
-					parent.notifyListeners(this, WireAdminEvent.WIRE_TRACE, null);
-				}
-			}
-		} finally {
-			lastValue = value;
+			values.hasDelta = true;
+			values.deltaAbsolute = Math.abs(val - prevVal);
+			// #3328
+			values.deltaRelative = Math.abs(1 - prevVal / val);
+		} else {
+			values.hasDelta = false;
 		}
+
+		boolean result = wireFilter != null ? wireFilter.match(values) : filter.match(values);
+		// do not keep the values of the producer reachable
+		values.current = null;
+		values.previous = null;
+		return result;
 	}
 
 	/*
@@ -206,18 +229,21 @@ class WireImpl implements Wire, ServiceListener {
 	 * 
 	 * @see org.osgi.service.wireadmin.Wire#poll()
 	 */
-	public synchronized Object poll() {
+	public Object poll() {
 		Object value = null;
-		if (isConnected() && interoperate) {
+		Producer source = producer;
+		WireAdminImpl owner = parent;
+		// the producer is called without holding the lock of this wire
+		if (isConnected() && interoperate && source != null && owner != null) {
 			try {
-				value = producer.polled(this);
+				value = source.polled(this);
 			} catch (Throwable t) {
 				// no exception in the Producer must prevent correct Wire
 				// functioning
-				parent.notifyListeners(this, WireAdminEvent.PRODUCER_EXCEPTION, t);
+				owner.notifyListeners(this, WireAdminEvent.PRODUCER_EXCEPTION, t);
 				return null;
 			}
-			parent.notifyListeners(this, WireAdminEvent.WIRE_TRACE, null);
+			owner.notifyListeners(this, WireAdminEvent.WIRE_TRACE, null);
 			if (!isAcceptable(value) && (!(value instanceof Envelope[]))) {
 				value = null;
 			}
@@ -235,9 +261,7 @@ class WireImpl implements Wire, ServiceListener {
 					return value;
 				}
 
-				if (envelopes == null) {
-					envelopes = new Vector(envs.length);
-				}
+				Vector envelopes = new Vector(envs.length);
 				boolean changed = false;
 				for (int i = 0; i < envs.length; i++) {
 					if (hasScope(envs[i].getScope())) {
@@ -250,7 +274,6 @@ class WireImpl implements Wire, ServiceListener {
 				if (changed) {
 					value = new Envelope[envelopes.size()];
 					envelopes.copyInto((Envelope[]) value);
-					envelopes.removeAllElements();
 				}
 			}
 		}
@@ -514,6 +537,7 @@ class WireImpl implements Wire, ServiceListener {
 		previousValue = null;
 		parent = null;
 		filter = null;
+		wireFilter = null;
 		wireValues = null;
 		scope = null;
 		bc = null;
@@ -585,11 +609,13 @@ class WireImpl implements Wire, ServiceListener {
 
 		if (performFiltering) {
 			if ((wireValues == null)) {
-				wireValues = new Hashtable(6, 1.0f);
+				wireValues = new WireValues();
 			}
 
 			try {
-				filter = bc.createFilter((String) properties.get(WireConstants.WIREADMIN_FILTER));
+				String spec = (String) properties.get(WireConstants.WIREADMIN_FILTER);
+				filter = bc.createFilter(spec);
+				wireFilter = WireFilter.compile(spec);
 			} catch (InvalidSyntaxException ise) {
 				if (Activator.LOG_DEBUG) {
 					Activator.log.debug(Activator.PREFIX + "Filter syntax is invalid, filtering won't be made", null);
@@ -597,6 +623,7 @@ class WireImpl implements Wire, ServiceListener {
 			}
 		} else {
 			filter = null;
+			wireFilter = null;
 		}
 	}
 
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2018 by ProSyst Software GmbH
+ * http://www.prosyst.com
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    ProSyst Software GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.wireadmin;
+
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+import org.osgi.service.wireadmin.WireConstants;
+
+/**
+ * The wire values a wire filter is evaluated against. The elapsed time and
+ * the deltas are kept as primitives and are boxed only when a filter which
+ * could not be compiled to a {@link WireFilter} asks for them, so one
+ * instance is reused by a <code>Wire</code> for all its updates.
+ *
+ * @version 1.0
+ */
+
+public class WireValues extends Dictionary {
+
+	private static final String[] KEYS = {WireConstants.WIREVALUE_CURRENT, WireConstants.WIREVALUE_PREVIOUS, WireConstants.WIREVALUE_ELAPSED, WireConstants.WIREVALUE_DELTA_ABSOLUTE, WireConstants.WIREVALUE_DELTA_RELATIVE};
+
+	Object current;
+	Object previous;
+	long elapsed;
+	double deltaAbsolute;
+	double deltaRelative;
+	/** Indicates that the previous value and the elapsed time are available */
+	boolean hasPrevious;
+	/** Indicates that the absolute and relative deltas are available */
+	boolean hasDelta;
+
+	/**
+	 * Sets the current value.
+	 *
+	 * @param current
+	 *            the current value
+	 */
+	public void setCurrent(Object current) {
+		this.current = current;
+	}
+
+	/**
+	 * Sets the previous value and the time elapsed since it was received and
+	 * makes them available.
+	 *
+	 * @param previous
+	 *            the previous value
+	 * @param elapsed
+	 *            the elapsed time in milliseconds
+	 */
+	public void setPrevious(Object previous, long elapsed) {
+		this.previous = previous;
+		this.elapsed = elapsed;
+		hasPrevious = true;
+	}
+
+	/**
+	 * Sets the absolute and relative deltas and makes them available.
+	 *
+	 * @param deltaAbsolute
+	 *            the absolute delta
+	 * @param deltaRelative
+	 *            the relative delta
+	 */
+	public void setDelta(double deltaAbsolute, double deltaRelative) {
+		this.deltaAbsolute = deltaAbsolute;
+		this.deltaRelative = deltaRelative;
+		hasDelta = true;
+	}
+
+	public Object get(Object key) {
+		if (WireConstants.WIREVALUE_CURRENT.equals(key)) {
+			return current;
+		}
+		if (hasPrevious) {
+			if (WireConstants.WIREVALUE_PREVIOUS.equals(key)) {
+				return previous;
+			}
+			if (WireConstants.WIREVALUE_ELAPSED.equals(key)) {
+				return new Long(elapsed);
+			}
+		}
+		if (hasDelta) {
+			if (WireConstants.WIREVALUE_DELTA_ABSOLUTE.equals(key)) {
+				return new Double(deltaAbsolute);
+			}
+			if (WireConstants.WIREVALUE_DELTA_RELATIVE.equals(key)) {
+				return new Double(deltaRelative);
+			}
+		}
+		return null;
+	}
+
+	public int size() {
+		return 1 + (hasPrevious ? 2 : 0) + (hasDelta ? 2 : 0);
+	}
+
+	public boolean isEmpty() {
+		return false;
+	}
+
+	public Enumeration keys() {
+		return new ValueEnumeration(true);
+	}
+
+	public Enumeration elements() {
+		return new ValueEnumeration(false);
+	}
+
+	public Object put(Object key, Object value) {
+		throw new UnsupportedOperationException();
+	}
+
+	public Object remove(Object key) {
+		throw new UnsupportedOperationException();
+	}
+
+	private boolean isAvailable(int index) {
+		switch (index) {
+			case 0 :
+				return true;
+			case 1 :
+			case 2 :
+				return hasPrevious;
+			default :
+				return hasDelta;
+		}
+	}
+
+	private class ValueEnumeration implements Enumeration {
+		private final boolean keys;
+		private int index = 0;
+
+		ValueEnumeration(boolean keys) {
+			this.keys = keys;
+		}
+
+		public boolean hasMoreElements() {
+			while (index < KEYS.length && !isAvailable(index)) {
+				index++;
+			}
+			return index < KEYS.length;
+		}
+
+		public Object nextElement() {
+			if (!hasMoreElements()) {
+				throw new NoSuchElementException();
+			}
+			String key = KEYS[index++];
+			return keys ? key : get(key);
+		}
+	}
+}